@@ -0,0 +1,10 @@
+#!/bin/sh
+
+# Runs the JMH benchmarks in nars_bench, each in forked JVMs (build with 'ant compile-test' first,
+# which also runs the JMH annotation processor on them).
+# Usage:
+#   bench.sh [JMH options, e.g. -f forks -wi warmupIterations -i iterations] [-rf json -rff results.json] [name regex]
+#   Compare two result files:
+#       java -cp ... nars.bench.BenchmarkCompare baseline.json current.json [thresholdPercent]
+
+java -cp "build/classes:build/test/classes:lib/*:lib/test/*:lib/lab/*" org.openjdk.jmh.Main "$@"
@@ -0,0 +1,77 @@
+package nars.bench;
+
+import java.util.Random;
+import nars.entity.BudgetValue;
+import nars.entity.Item;
+import nars.storage.Bag;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Micro-benchmark of the concept bag: one operation takes the next item out
+ * of a full bag and puts it back, or replaces it with a new item.
+ */
+@State(Scope.Thread)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BagBench {
+
+    @Param({"Level", "ArrayLevel", "Fenwick"})
+    public String type;
+
+    @Param({"100", "1000", "10000"})
+    public int capacity;
+
+    public int levels = 100;
+
+    Bag<BenchItem,CharSequence> bag;
+    BenchItem[] fresh;
+    int next;
+    final Random rng = new Random(1);
+
+    public static class BenchItem extends Item.StringKeyItem {
+        final String key;
+
+        public BenchItem(final String key, final float priority) {
+            super(new BudgetValue(priority, 0.5f, 0.5f));
+            this.key = key;
+        }
+
+        @Override
+        public CharSequence name() {
+            return key;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        bag = Bag.make(Bag.Type.valueOf(type), levels, capacity);
+        for (int i = 0; i < capacity; i++)
+            bag.putIn(new BenchItem("i" + i, rng.nextFloat()));
+        fresh = new BenchItem[4096];
+        for (int i = 0; i < fresh.length; i++)
+            fresh[i] = new BenchItem("n" + i, rng.nextFloat());
+    }
+
+    @Benchmark
+    public Object takePutBack() {
+        final BenchItem x = bag.takeNext();
+        return bag.putIn(x);
+    }
+
+    @Benchmark
+    public Object takeReplace() {
+        bag.takeNext();
+        final BenchItem x = fresh[next++ & (fresh.length - 1)];
+        bag.take(x.name());
+        return bag.putIn(x);
+    }
+}
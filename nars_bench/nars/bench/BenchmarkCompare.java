@@ -0,0 +1,104 @@
+package nars.bench;
+
+import com.google.gson.Gson;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Compares two JSON result files written by JMH with -rf json, see bench.sh.
+ * A benchmark counts as regressed when its score got worse by more than the
+ * threshold and the confidence intervals of the two runs do not overlap.
+ * <p>
+ * Usage: BenchmarkCompare baseline.json current.json [thresholdPercent]
+ * Exits with status 1 if any benchmark regressed.
+ */
+public class BenchmarkCompare {
+
+    /** the mode JMH reports as time per operation, where lower is better */
+    public static final String AVERAGE_TIME = "avgt";
+
+    /** the part of a JMH result read here */
+    public static class Result {
+        public String benchmark;
+        public String mode;
+        public Map<String,String> params;
+        public Metric primaryMetric;
+    }
+
+    public static class Metric {
+        public double score;
+        public double scoreError;
+        public double[] scoreConfidence;
+        public String scoreUnit;
+    }
+
+    static Map<String,Result> load(final String path) throws IOException {
+        final Map<String,Result> m = new LinkedHashMap();
+        try (Reader r = new FileReader(path)) {
+            for (final Result x : new Gson().fromJson(r, Result[].class))
+                m.put(key(x), x);
+        }
+        return m;
+    }
+
+    static String key(final Result r) {
+        return r.benchmark + (r.params == null ? "" : r.params.toString());
+    }
+
+    /** relative change in percent, positive meaning better */
+    static double improvement(final Result base, final Result now) {
+        final double b = base.primaryMetric.score, n = now.primaryMetric.score;
+        final double change = (n - b) / b * 100.0;
+        return AVERAGE_TIME.equals(now.mode) ? -change : change;
+    }
+
+    static boolean significant(final Result base, final Result now) {
+        final double[] b = base.primaryMetric.scoreConfidence, n = now.primaryMetric.scoreConfidence;
+        if ((b == null) || (n == null) || Double.isNaN(b[0]) || Double.isNaN(n[0]))
+            return true;
+        return (b[1] < n[0]) || (n[1] < b[0]);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: BenchmarkCompare baseline.json current.json [thresholdPercent]");
+            System.exit(2);
+        }
+        final double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 5.0;
+        final Map<String,Result> base = load(args[0]);
+        final Map<String,Result> now = load(args[1]);
+
+        int regressions = 0;
+        for (final Map.Entry<String,Result> e : now.entrySet()) {
+            final Result b = base.get(e.getKey());
+            final Result n = e.getValue();
+            if (b == null) {
+                System.out.println(String.format(Locale.US, "%-70s %14.3f %s  (new)", e.getKey(), n.primaryMetric.score, n.primaryMetric.scoreUnit));
+                continue;
+            }
+            final double change = improvement(b, n);
+            String verdict = "";
+            if (significant(b, n) && (Math.abs(change) > threshold)) {
+                if (change < 0) {
+                    verdict = "REGRESSION";
+                    regressions++;
+                }
+                else
+                    verdict = "improved";
+            }
+            System.out.println(String.format(Locale.US, "%-70s %14.3f -> %14.3f %s  %+7.1f%%  %s",
+                    e.getKey(), b.primaryMetric.score, n.primaryMetric.score, n.primaryMetric.scoreUnit, change, verdict));
+        }
+        for (final String k : base.keySet()) {
+            if (!now.containsKey(k))
+                System.out.println(String.format(Locale.US, "%-70s (missing)", k));
+        }
+
+        System.out.println(regressions + " regression(s)");
+        System.exit(regressions > 0 ? 1 : 0);
+    }
+}
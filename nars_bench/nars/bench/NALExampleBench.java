@@ -0,0 +1,54 @@
+package nars.bench;
+
+import java.util.concurrent.TimeUnit;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.lab.ioutils.ExampleFileInput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Macro-benchmark: one operation resets a NAR, inputs one of the nal/test
+ * example files and runs it for a fixed number of cycles.
+ */
+@State(Scope.Thread)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class NALExampleBench {
+
+    @Param({"nal1.3.nal", "nal2.8.nal", "nal3.0.nal", "nal4.6.nal", "nal5.18.nal", "nal6.12.nal", "nal7.18.nal", "nal8.1.13.nal"})
+    public String example;
+
+    @Param({"1000"})
+    public int cycles;
+
+    NAR nar;
+    String input;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        nar = new NAR(new Plugins());
+        input = ExampleFileInput.load("nal/test/" + example);
+    }
+
+    @Benchmark
+    public long run() {
+        nar.reset();
+        nar.addInput(input);
+        nar.run(cycles);
+        return nar.time();
+    }
+}
@@ -0,0 +1,96 @@
+package nars.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.io.Narsese;
+import nars.io.NarseseScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Micro-benchmark of parsing tasks from Narsese text, by Narsese or by
+ * NarseseScanner with its term cache.  parseCorpus parses, one line per
+ * operation, every task of the .nal files under nal/, as the input of a NAR
+ * would be.
+ */
+@State(Scope.Thread)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class NarseseBench {
+
+    static final String[] tasks = {
+        "<bird --> animal>.",
+        "<robin --> [flying]>. %0.9;0.8%",
+        "<(*,Tweety,worm) --> eat>?",
+        "<(&&,<$x --> bird>,<$x --> [flying]>) ==> <$x --> animal>>.",
+        "(&/,<(*,SELF,key) --> hold>,+3,(^go-to,door),+5,(^open,door))! :|:",
+        "<{Tweety} --> (&,[yellow],bird,(-,animal,[dead]))>. :/: %1.0;0.9%",
+        "$0.8;0.7;0.6$ <#x --> (/,open,_,door)>?"
+    };
+
+    @Param({"Narsese", "NarseseScanner"})
+    public String parser;
+
+    Narsese narsese;
+    NarseseScanner scanner;
+    String[] corpus;
+    int next;
+
+    static void corpus(final File dir, final List<String> lines) throws IOException {
+        final File[] files = dir.listFiles();
+        if (files == null)
+            return;
+        for (final File f : files) {
+            if (f.isDirectory())
+                corpus(f, lines);
+            else if (f.getName().endsWith(".nal"))
+                lines.addAll(Files.readAllLines(f.toPath()));
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        final NAR nar = new NAR(new Plugins());
+        narsese = parser.equals("NarseseScanner") ? nar.narsese : new Narsese(nar);
+        scanner = (narsese instanceof NarseseScanner) ? (NarseseScanner) narsese : null;
+
+        final List<String> lines = new ArrayList();
+        corpus(new File("nal"), lines);
+        final List<String> parsed = new ArrayList();
+        final Narsese check = new Narsese(new NAR(new Plugins()));
+        for (final String l : lines) {
+            try {
+                if (!l.trim().isEmpty() && (check.parseNarsese(new StringBuilder(l)) != null))
+                    parsed.add(l);
+            } catch (Exception e) {
+            }
+        }
+        corpus = parsed.toArray(new String[parsed.size()]);
+    }
+
+    @Benchmark
+    public Object parseTask() throws Exception {
+        return narsese.parseTask(tasks[next++ % tasks.length]);
+    }
+
+    @Benchmark
+    public Object parseCorpus() throws Exception {
+        final String line = corpus[next++ % corpus.length];
+        if (scanner != null)
+            return scanner.parseNarsese(line);
+        return narsese.parseNarsese(new StringBuilder(line));
+    }
+}
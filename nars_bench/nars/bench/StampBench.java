@@ -0,0 +1,60 @@
+package nars.bench;
+
+import java.util.Random;
+import nars.entity.Stamp;
+import nars.language.Tense;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Micro-benchmark of merging stamps and of the evidential base overlap test
+ * done for every task / belief pair.
+ */
+@State(Scope.Thread)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class StampBench {
+
+    @Param({"1", "16", "256"})
+    public int baseLength;
+
+    Stamp[] a, b;
+    int next;
+
+    static Stamp[] stamps(final int n, final int baseLength, final Random rng) {
+        final Stamp[] s = new Stamp[n];
+        for (int i = 0; i < n; i++) {
+            Stamp x = new Stamp(0, Tense.Eternal, rng.nextInt(1000000), 1);
+            while (x.baseLength < baseLength)
+                x = new Stamp(x, new Stamp(0, Tense.Eternal, rng.nextInt(1000000), 1), 0);
+            s[i] = x;
+        }
+        return s;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        a = stamps(1024, baseLength, new Random(1));
+        b = stamps(1024, baseLength, new Random(2));
+    }
+
+    @Benchmark
+    public boolean merge() {
+        final int i = next++ & 1023;
+        return new Stamp(a[i], b[i], 0).evidenceIsCyclic();
+    }
+
+    @Benchmark
+    public boolean overlap() {
+        final int i = next++ & 1023;
+        return Stamp.baseOverlap(a[i], b[i]);
+    }
+}
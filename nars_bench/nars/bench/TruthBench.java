@@ -0,0 +1,57 @@
+package nars.bench;
+
+import java.util.Random;
+import nars.entity.TruthValue;
+import nars.inference.TruthFunctions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Micro-benchmark of the most used truth functions.
+ */
+@State(Scope.Thread)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TruthBench {
+
+    TruthValue[] t;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Random rng = new Random(1);
+        t = new TruthValue[1024];
+        for (int i = 0; i < t.length; i++)
+            t[i] = new TruthValue(rng.nextFloat(), 0.01f + 0.98f * rng.nextFloat());
+    }
+
+    @Benchmark
+    public Object deduction() {
+        final int i = next++ & 1023;
+        return TruthFunctions.deduction(t[i], t[(i + 1) & 1023]);
+    }
+
+    @Benchmark
+    public Object induction() {
+        final int i = next++ & 1023;
+        return TruthFunctions.induction(t[i], t[(i + 1) & 1023]);
+    }
+
+    @Benchmark
+    public Object abduction() {
+        final int i = next++ & 1023;
+        return TruthFunctions.abduction(t[i], t[(i + 1) & 1023]);
+    }
+
+    @Benchmark
+    public float expectation() {
+        return t[next++ & 1023].getExpectation();
+    }
+}
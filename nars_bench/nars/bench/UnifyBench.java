@@ -0,0 +1,135 @@
+package nars.bench;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.entity.Concept;
+import nars.io.Narsese;
+import nars.io.Symbols;
+import nars.io.TextInput;
+import nars.language.CompoundTerm;
+import nars.language.Term;
+import nars.language.Variables;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Micro-benchmark of unification, with the trail based Unifier behind
+ * Variables.findSubstitute and with the search on HashMaps it replaced.
+ * The "fixed" terms are pairs which unify and pairs which fail at different
+ * depths; "nal" are pairs of the terms found in memory after running the NAL5
+ * and NAL6 examples, where the first term has a variable and both have the
+ * same operator.
+ */
+@State(Scope.Thread)
+@Fork(2)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class UnifyBench {
+
+    @Param({"Trail", "Maps"})
+    public String engine;
+
+    @Param({"fixed", "nal"})
+    public String terms;
+
+    static final String[][] pairs = {
+        { "<$x --> bird>", "<robin --> bird>" },
+        { "<(&&,<$x --> bird>,<$x --> [flying]>) ==> <$x --> animal>>", "<(&&,<robin --> bird>,<robin --> [flying]>) ==> <robin --> animal>>" },
+        { "<(*,$x,$y) --> (/,open,_,$y)>", "<(*,key,door) --> (/,open,_,door)>" },
+        { "<(&&,<$x --> bird>,<$x --> [flying]>) ==> <$x --> animal>>", "<(&&,<robin --> bird>,<tweety --> [flying]>) ==> <robin --> animal>>" },
+        { "<$x --> bird>", "<robin --> fish>" }
+    };
+
+    static final char[] types = { Symbols.VAR_INDEPENDENT, Symbols.VAR_DEPENDENT, Symbols.VAR_QUERY };
+
+    Term[][] cases;
+    boolean trail;
+    int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        trail = engine.equals("Trail");
+        if (terms.equals("fixed")) {
+            final Narsese n = new Narsese(new NAR(new Plugins()));
+            cases = new Term[pairs.length][];
+            for (int i = 0; i < pairs.length; i++)
+                cases[i] = new Term[] { n.parseTerm(pairs[i][0]), n.parseTerm(pairs[i][1]) };
+        }
+        else {
+            cases = nalPairs(1024);
+        }
+    }
+
+    static Term[][] nalPairs(final int count) throws Exception {
+        final Set<Term> all = new LinkedHashSet();
+        final File[] files = new File("nal/test").listFiles();
+        Arrays.sort(files);
+        for (final File f : files) {
+            if (!f.getName().startsWith("nal5") && !f.getName().startsWith("nal6"))
+                continue;
+            final NAR n = new NAR(new Plugins());
+            n.addInput(new TextInput(f));
+            n.run(30);
+            for (final Concept c : n.memory) {
+                all.add(c.term);
+                if (c.term instanceof CompoundTerm)
+                    all.addAll(Arrays.asList(((CompoundTerm) c.term).term));
+            }
+        }
+
+        final List<Term> withVars = new ArrayList();
+        for (final Term t : all)
+            if (t.hasVar() && (t instanceof CompoundTerm))
+                withVars.add(t);
+        final List<Term> compounds = new ArrayList();
+        for (final Term t : all)
+            if (t instanceof CompoundTerm)
+                compounds.add(t);
+
+        final Random rng = new Random(1);
+        final Term[][] p = new Term[count][];
+        for (int i = 0; i < count; ) {
+            final Term a = withVars.get(rng.nextInt(withVars.size()));
+            final Term b = compounds.get(rng.nextInt(compounds.size()));
+            if (a.operator() == b.operator())
+                p[i++] = new Term[] { a, b };
+        }
+        return p;
+    }
+
+    @Benchmark
+    public boolean findSubstitute() {
+        final int i = next++;
+        final Term[] p = cases[i % cases.length];
+        final char type = types[i % types.length];
+        if (trail)
+            return Variables.findSubstitute(type, p[0], p[1], new HashMap(), new HashMap());
+        return Variables.findSubstituteWithMaps(type, p[0], p[1], new Map[] { new HashMap(), new HashMap() });
+    }
+
+    @Benchmark
+    public boolean hasSubstitute() {
+        final int i = next++;
+        final Term[] p = cases[i % cases.length];
+        final char type = types[i % types.length];
+        if (trail)
+            return Variables.hasSubstitute(type, p[0], p[1]);
+        return Variables.findSubstituteWithMaps(type, p[0], p[1], new Map[] { new HashMap(), new HashMap() });
+    }
+}
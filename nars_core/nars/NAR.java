@@ -10,7 +10,11 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.Iterators;
 import static com.google.common.collect.Iterators.singletonIterator;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -32,6 +36,7 @@ import nars.entity.Sentence;
 import nars.entity.Stamp;
 import nars.entity.Task;
 import nars.io.Answered;
+import nars.io.Query;
 import nars.io.InPort;
 import nars.io.Input;
 import nars.io.Output;
@@ -40,13 +45,14 @@ import nars.io.Output.IN;
 import nars.io.Symbols;
 import nars.io.TaskInput;
 import nars.io.TextInput;
-import nars.io.Narsese;
+import nars.io.NarseseScanner;
 import nars.io.Narsese.InvalidInputException;
 import nars.language.Tense;
 import nars.operator.Operator;
 import nars.io.Echo;
 import nars.lab.testutils.ConceptMonitor;
-import nars.storage.LevelBag;
+import nars.storage.Bag;
+import nars.storage.MemorySnapshot;
 
 
 /**
@@ -90,6 +96,9 @@ public class NAR implements Runnable {
     public Memory memory;
     public RuntimeParameters param;
     
+    /** parses the Narsese given to the reasoner, remembering the terms it parsed last */
+    public final NarseseScanner narsese;
+    
     
     /** The addInput channels of the reasoner     */
     public final List<InPort<Object,Item>> inputChannels;
@@ -147,9 +156,9 @@ public class NAR implements Runnable {
     
     public Memory NewMemory(RuntimeParameters p) {
         return new Memory(p, 
-                new LevelBag(Parameters.CONCEPT_BAG_LEVELS, Parameters.CONCEPT_BAG_SIZE), 
-                new LevelBag<>(Parameters.NOVEL_TASK_BAG_LEVELS, Parameters.NOVEL_TASK_BAG_SIZE),
-                new LevelBag<>(Parameters.SEQUENCE_BAG_LEVELS, Parameters.SEQUENCE_BAG_SIZE));
+                Bag.make(p.bagType, Parameters.CONCEPT_BAG_LEVELS, Parameters.CONCEPT_BAG_SIZE), 
+                Bag.make(p.bagType, Parameters.NOVEL_TASK_BAG_LEVELS, Parameters.NOVEL_TASK_BAG_SIZE),
+                Bag.make(p.bagType, Parameters.SEQUENCE_BAG_LEVELS, p.sequenceBagSize));
     }
     
     public NAR() {
@@ -161,6 +170,13 @@ public class NAR implements Runnable {
         Memory m = NewMemory(b.param);
         this.memory = m;        
         this.param = m.param;
+        this.narsese = new NarseseScanner(m);
+        
+        //observers failing on an error would fail again on the one they cause
+        m.event.setErrorHandler((event, o, ex) -> {
+            if (event != ERR.class)
+                emit(ERR.class, ex);
+        });
         
         //needs to be concurrent in case we change this while running
         inputChannels = new ArrayList();
@@ -216,7 +232,7 @@ public class NAR implements Runnable {
     
    public NAR believe(float pri, float dur, String termString, Tense tense, float freq, float conf) throws InvalidInputException {
         
-        return addInput(memory.newTask(new Narsese(this).parseTerm(termString),
+        return addInput(memory.newTask(narsese.parseTerm(termString),
                 Symbols.JUDGMENT_MARK, freq, conf, pri, dur, tense));
     }
 
@@ -229,7 +245,7 @@ public class NAR implements Runnable {
     
    /** gets a concept if it exists, or returns null if it does not */
     public Concept concept(String concept) throws InvalidInputException {
-        return memory.concept(new Narsese(this).parseTerm(concept));
+        return memory.concept(narsese.parseTerm(concept));
     }
     
     public NAR ask(String termString) throws InvalidInputException {
@@ -242,7 +258,7 @@ public class NAR implements Runnable {
         addInput(
                 t = new Task(
                         new Sentence(
-                                new Narsese(this).parseTerm(termString),
+                                narsese.parseTerm(termString),
                                 Symbols.QUESTION_MARK, 
                                 null, 
                                 new Stamp(memory, Tense.Eternal)), 
@@ -259,13 +275,35 @@ public class NAR implements Runnable {
         
     }
     
+    /**
+     * Asks a question whose answers go to the returned Query, rather than
+     * through events.  The question is removed once answered, or after
+     * deadlineCycles cycles.
+     */
+    public Query query(String termString, long deadlineCycles) throws InvalidInputException {
+        Task t = new Task(
+                new Sentence(
+                        narsese.parseTerm(termString),
+                        Symbols.QUESTION_MARK, 
+                        null, 
+                        new Stamp(memory, Tense.Eternal)), 
+                new BudgetValue(
+                        Parameters.DEFAULT_QUESTION_PRIORITY, 
+                        Parameters.DEFAULT_QUESTION_DURABILITY, 
+                        1));
+        Query q = new Query(t, memory.time() + deadlineCycles, memory.queries);
+        memory.queries.add(q);
+        addInput(t);
+        return q;
+    }
+    
     public NAR askNow(String termString, Answered answered) throws InvalidInputException {
         
         Task t;
         addInput(
                 t = new Task(
                         new Sentence(
-                                new Narsese(this).parseTerm(termString),
+                                narsese.parseTerm(termString),
                                 Symbols.QUESTION_MARK, 
                                 null, 
                                 new Stamp(memory, Tense.Present)), 
@@ -298,7 +336,7 @@ public class NAR implements Runnable {
     
     public NAR addInput(float priority, float durability, final String taskText, float frequency, float confidence) throws InvalidInputException {
         
-        Task t = new Narsese(this).parseTask(taskText);        
+        Task t = narsese.parseTask(taskText);        
         if (frequency!=-1)
             t.sentence.truth.setFrequency(frequency);
         if (confidence!=-1)
@@ -695,6 +733,27 @@ public class NAR implements Runnable {
     public long time() {
         return memory.time();
     }
+
+    /**
+     * Writes a snapshot of the memory to a file, see MemorySnapshot.
+     * Call it while the NAR is not running, or from one of its events.
+     */
+    public void save(final Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            MemorySnapshot.save(memory, out);
+        }
+    }
+
+    /**
+     * Replaces the memory with a snapshot written by save().  Input channels
+     * and plugins are kept; the NAR should have been built with the same
+     * operators as the one which was saved.
+     */
+    public void load(final Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            MemorySnapshot.load(memory, in);
+        }
+    }
     
 
     public boolean isRunning() {
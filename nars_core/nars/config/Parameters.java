@@ -24,10 +24,14 @@ package nars.config;
 /**
  * NAR operating parameters.
  * All static values will be removed so that this is an entirely dynamic class.
+ * <p>
+ * Those that can change while a NAR runs are in its RuntimeParameters, with
+ * the values here as defaults. The few that are not final are settings of the
+ * whole process, made before any NAR is created.
  */
 public class Parameters {
     
-    public static boolean SHOW_REASONING_ERRORS=false; //currently false because the sentence constructor is the only one
+    public static final boolean SHOW_REASONING_ERRORS=false; //currently false because the sentence constructor is the only one
                                                        //who creates them but is not doing it because of an error.
     
     /** 
@@ -35,15 +39,15 @@ public class Parameters {
        Past/future tense usage convention;
        How far away "past" and "future" is from "now", in cycles.         
        The range of "now" is [-DURATION/2, +DURATION/2];      */
-    public static int DURATION = 5;
+    public static final int DURATION = 5;
     
     /** use this for advanced error checking, at the expense of lower performance.
         it is enabled for unit tests automatically regardless of the value here.    */
     public static boolean DEBUG = false;
 
     /** for thorough bag debugging (slow) */
-    public static boolean DEBUG_BAG = false;
-    public static boolean DEBUG_INVALID_SENTENCES = true;
+    public static final boolean DEBUG_BAG = false;
+    public static final boolean DEBUG_INVALID_SENTENCES = true;
 
     //FIELDS BELOW ARE BEING CONVERTED TO DYNAMIC, NO MORE STATIC: ~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~~
     //
@@ -59,7 +63,7 @@ public class Parameters {
     /** Evidential Horizon, the amount of future evidence to be considered. 
      * Must be >=1.0, usually 1 .. 2
      */
-    public static float HORIZON = 1;
+    public static final float HORIZON = 1;
     
 
 
@@ -71,7 +75,7 @@ public class Parameters {
      */
     public static final float TRUTH_EPSILON = 0.01f;
     public static final float TRUTH_PRECISION = 1.0f / TRUTH_EPSILON;
-    public static float MAX_CONFIDENCE = 1.0f - TRUTH_EPSILON;
+    public static final float MAX_CONFIDENCE = 1.0f - TRUTH_EPSILON;
 
     public static final float BUDGET_EPSILON = 0.0001f;
     
@@ -89,9 +93,9 @@ public class Parameters {
     /** Default confidence of input judgment. */
     public static final float DEFAULT_JUDGMENT_CONFIDENCE = (float) 0.9;
     /** Default priority of input judgment */
-    public static float DEFAULT_JUDGMENT_PRIORITY = (float) 0.8;
+    public static final float DEFAULT_JUDGMENT_PRIORITY = (float) 0.8;
     /** Default durability of input judgment */
-    public static float DEFAULT_JUDGMENT_DURABILITY = (float) 0.5; //was 0.8 in 1.5.5; 0.5 after
+    public static final float DEFAULT_JUDGMENT_DURABILITY = (float) 0.5; //was 0.8 in 1.5.5; 0.5 after
     /** Default priority of input question */
     public static final float DEFAULT_QUESTION_PRIORITY = (float) 0.9;
     /** Default durability of input question */
@@ -117,9 +121,9 @@ public class Parameters {
     public static final float BAG_THRESHOLD = 1.0f;
 
     /** (see its use in budgetfunctions iterative forgetting) */
-    public static float FORGET_QUALITY_RELATIVE = 0.1f;
+    public static final float FORGET_QUALITY_RELATIVE = 0.1f;
     
-    public static int REVISION_MAX_OCCURRENCE_DISTANCE = 10;
+    public static final int REVISION_MAX_OCCURRENCE_DISTANCE = 10;
 
     /** Size of ConceptBag and level amount */
     public static final int CONCEPT_BAG_SIZE = 10000;
@@ -136,7 +140,7 @@ public class Parameters {
     public static final int NOVEL_TASK_BAG_SIZE = 100;
     public static final int NOVEL_TASK_BAG_LEVELS = 10;
     /*  Size of sequence/input event bag */
-    public static int SEQUENCE_BAG_SIZE = 30;
+    public static final int SEQUENCE_BAG_SIZE = 30;
     public static final int SEQUENCE_BAG_LEVELS = 10;
     
     /* ---------- avoiding repeated reasoning ---------- */
@@ -171,7 +175,10 @@ public class Parameters {
     /** what this value represents was originally equal to the termlink record length (10), but we may want to adjust it or make it scaled according to duration since it has more to do with time than # of records.  it can probably be increased several times larger since each item should remain in the recording queue for longer than 1 cycle */
     public static final int NOVELTY_HORIZON = 10;
     
-    public static int NOVEL_TASKS_TRACK_SIZE=1000; //inference rules like temporal induction
+    /** Slots of the cache of recent derivations, see RecentDerivations */
+    public static final int DERIVATION_CACHE_SIZE = 4096;
+    
+    public static final int NOVEL_TASKS_TRACK_SIZE=1000; //inference rules like temporal induction
     //work a bit differently, in order for it not to bypass the novelty strategy (because it doesn't use a termlink
     //for inference, we track the tasks extra for now
 
@@ -179,10 +186,10 @@ public class Parameters {
      * The rate of confidence decrease in mental operations Doubt and Hesitate
      * set to zero to disable this feature.
      */
-    public static float DISCOUNT_RATE = 0.5f;    
+    public static final float DISCOUNT_RATE = 0.5f;    
 
     /** enables the parsing of functional input format for operation terms: function(a,b,...) */
-    public static boolean FUNCTIONAL_OPERATIONAL_FORMAT = true;
+    public static final boolean FUNCTIONAL_OPERATIONAL_FORMAT = true;
     
     
     
@@ -191,6 +198,9 @@ public class Parameters {
     
     //RUNTIME PERFORMANCE (should not affect logic): ----------------------------------
     
+    /** capacity of the ring buffer feeding asynchronous event observers (EventEmitter.onAsync) */
+    public static final int EVENT_ASYNC_BUFFER_SIZE = 4096;
+    
     /**
      * max length of a Term name for which it can be stored statically via String.intern().
      * set to zero to disable this feature.
@@ -214,76 +224,76 @@ public class Parameters {
      * 
      * Optimal value to be determined.
      */
-    public static int ROPE_TERMLINK_TERM_SIZE_THRESHOLD = 64;
+    public static final int ROPE_TERMLINK_TERM_SIZE_THRESHOLD = 64;
     
     /** max number of interval to combine in sequence to approximate a time period (cycles) */
-    public static int TEMPORAL_INTERVAL_PRECISION = 1;
+    public static final int TEMPORAL_INTERVAL_PRECISION = 1;
     
 
     
     /** equivalency based on Term contents; experimental mode - not ready yet, leave FALSE */
-    public static boolean TERM_ELEMENT_EQUIVALENCY = false;
+    public static final boolean TERM_ELEMENT_EQUIVALENCY = false;
     
     //temporary parameter for setting #threads to use, globally
-    public static boolean IMMEDIATE_ETERNALIZATION=true;
+    public static final boolean IMMEDIATE_ETERNALIZATION=true;
     
     
    // public static int STM_SIZE = 1;
-    public static int SEQUENCE_BAG_ATTEMPTS = 20; //5 //20
+    public static final int SEQUENCE_BAG_ATTEMPTS = 20; //5 //20
     
-    public static boolean TEMPORAL_INDUCTION_ON_SUCCEEDING_EVENTS=true; //this should be true to restore 1.6.1 strategy
+    public static final boolean TEMPORAL_INDUCTION_ON_SUCCEEDING_EVENTS=true; //this should be true to restore 1.6.1 strategy
 
-    public static int TEMPORAL_INDUCTION_SAMPLES = 1; //normal inference rule, this should be 0 to restore 1.6.1 strategy, 1 to restore 1.6.3 strategy
+    public static final int TEMPORAL_INDUCTION_SAMPLES = 1; //normal inference rule, this should be 0 to restore 1.6.1 strategy, 1 to restore 1.6.3 strategy
     
-    public static float DERIVATION_PRIORITY_LEAK = 0.4f; //https://groups.google.com/forum/#!topic/open-nars/y0XDrs2dTVs
+    public static final float DERIVATION_PRIORITY_LEAK = 0.4f; //https://groups.google.com/forum/#!topic/open-nars/y0XDrs2dTVs
     
-    public static float DERIVATION_DURABILITY_LEAK = 0.4f; //https://groups.google.com/forum/#!topic/open-nars/y0XDrs2dTVs
+    public static final float DERIVATION_DURABILITY_LEAK = 0.4f; //https://groups.google.com/forum/#!topic/open-nars/y0XDrs2dTVs
     
-    public static float CURIOSITY_BUSINESS_THRESHOLD=0.18f; //dont be curious if business is above
-    public static float CURIOSITY_PRIORITY_THRESHOLD=0.3f; //0.3f in 1.6.3
-    public static float CURIOSITY_CONFIDENCE_THRESHOLD=0.8f;
-    public static float CURIOSITY_DESIRE_CONFIDENCE_MUL=0.1f; //how much risk is the system allowed to take just to fullfill its hunger for knowledge?
-    public static float CURIOSITY_DESIRE_PRIORITY_MUL=0.1f; //how much priority should curiosity have?
-    public static float CURIOSITY_DESIRE_DURABILITY_MUL=0.3f; //how much durability should curiosity have?
-    public static boolean CURIOSITY_FOR_OPERATOR_ONLY=false; //for Peis concern that it may be overkill to allow it for all <a =/> b> statement, so that a has to be an operator
-    public static boolean CURIOSITY_ALSO_ON_LOW_CONFIDENT_HIGH_PRIORITY_BELIEF=false;
+    public static final float CURIOSITY_BUSINESS_THRESHOLD=0.18f; //dont be curious if business is above
+    public static final float CURIOSITY_PRIORITY_THRESHOLD=0.3f; //0.3f in 1.6.3
+    public static final float CURIOSITY_CONFIDENCE_THRESHOLD=0.8f;
+    public static final float CURIOSITY_DESIRE_CONFIDENCE_MUL=0.1f; //how much risk is the system allowed to take just to fullfill its hunger for knowledge?
+    public static final float CURIOSITY_DESIRE_PRIORITY_MUL=0.1f; //how much priority should curiosity have?
+    public static final float CURIOSITY_DESIRE_DURABILITY_MUL=0.3f; //how much durability should curiosity have?
+    public static final boolean CURIOSITY_FOR_OPERATOR_ONLY=false; //for Peis concern that it may be overkill to allow it for all <a =/> b> statement, so that a has to be an operator
+    public static final boolean CURIOSITY_ALSO_ON_LOW_CONFIDENT_HIGH_PRIORITY_BELIEF=false;
     
-    public static float HAPPY_EVENT_HIGHER_THRESHOLD=0.75f;
-    public static float HAPPY_EVENT_LOWER_THRESHOLD=0.25f;
-    public static float BUSY_EVENT_HIGHER_THRESHOLD=0.9f; //1.6.4, step by step^, there is already enough new things ^^
-    public static float BUSY_EVENT_LOWER_THRESHOLD=0.1f;
-    public static boolean REFLECT_META_HAPPY_GOAL=false;
-    public static boolean CONSIDER_REMIND=false;
-    public static boolean BREAK_NAL_HOL_BOUNDARY=false;
+    public static final float HAPPY_EVENT_HIGHER_THRESHOLD=0.75f;
+    public static final float HAPPY_EVENT_LOWER_THRESHOLD=0.25f;
+    public static final float BUSY_EVENT_HIGHER_THRESHOLD=0.9f; //1.6.4, step by step^, there is already enough new things ^^
+    public static final float BUSY_EVENT_LOWER_THRESHOLD=0.1f;
+    public static final boolean REFLECT_META_HAPPY_GOAL=false;
+    public static final boolean CONSIDER_REMIND=false;
+    public static final boolean BREAK_NAL_HOL_BOUNDARY=false;
     
-    public static boolean QUESTION_GENERATION_ON_DECISION_MAKING=false;
-    public static boolean HOW_QUESTION_GENERATION_ON_DECISION_MAKING=true;
+    public static final boolean QUESTION_GENERATION_ON_DECISION_MAKING=false;
+    public static final boolean HOW_QUESTION_GENERATION_ON_DECISION_MAKING=true;
     
-    public static float ANTICIPATION_CONFIDENCE = 0.90f;
+    public static final float ANTICIPATION_CONFIDENCE = 0.90f;
     
-    public static float CONSIDER_NEW_OPERATION_BIAS = 0.05f; //depriorizes older operation-related events in temporal inference
+    public static final float CONSIDER_NEW_OPERATION_BIAS = 0.05f; //depriorizes older operation-related events in temporal inference
     
-    public static float TEMPORAL_INDUCTION_PRIORITY_PENALTY = 0.1f;
+    public static final float TEMPORAL_INDUCTION_PRIORITY_PENALTY = 0.1f;
     
-    public static int AUTOMATIC_DECISION_USUAL_DECISION_BLOCK_CYCLES = 2100;
+    public static final int AUTOMATIC_DECISION_USUAL_DECISION_BLOCK_CYCLES = 2100;
     
-    public static float SATISFACTION_TRESHOLD = 0.0f; //decision threshold is enough for now
+    public static final float SATISFACTION_TRESHOLD = 0.0f; //decision threshold is enough for now
     
-    public static float COMPLEXITY_UNIT=1.0f; //1.0 - oo
+    public static final float COMPLEXITY_UNIT=1.0f; //1.0 - oo
     
-    public static boolean COMPOUND_OPERATIONS=true;
+    public static final boolean COMPOUND_OPERATIONS=true;
     
-    public static int TASKLINK_PER_CONTENT = 4; //eternal/event are also seen extra
+    public static final int TASKLINK_PER_CONTENT = 4; //eternal/event are also seen extra
     
     /** Default priority of exection feedback */
-    public static float DEFAULT_FEEDBACK_PRIORITY = (float) 0.9;
+    public static final float DEFAULT_FEEDBACK_PRIORITY = (float) 0.9;
     /** Default durability of exection feedback */
-    public static float DEFAULT_FEEDBACK_DURABILITY = (float) 0.5; //was 0.8 in 1.5.5; 0.5 after
+    public static final float DEFAULT_FEEDBACK_DURABILITY = (float) 0.5; //was 0.8 in 1.5.5; 0.5 after
     
     /* Priority penalty for sequences that start with an operation */
-    public static float OPERATION_SEQUENCE_START_PENALTY = 0.05f;
+    public static final float OPERATION_SEQUENCE_START_PENALTY = 0.05f;
     /* Priority penalty for sequences that end with an operation */
-    public static float NOT_OPERATION_SEQUENCE_END_PENALTY = 0.5f;
+    public static final float NOT_OPERATION_SEQUENCE_END_PENALTY = 0.5f;
     
 }
 
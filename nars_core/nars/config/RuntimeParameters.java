@@ -1,6 +1,8 @@
 package nars.config;
 
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import nars.language.Interval.AtomicDuration;
 import com.google.common.util.concurrent.AtomicDouble;
 import java.io.Serializable;
@@ -8,6 +10,7 @@ import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.List;
 import nars.control.DerivationContext.DerivationFilter;
+import nars.storage.Bag;
 
 /**
  * NAR Parameters which can be changed during runtime.
@@ -47,10 +50,80 @@ public class RuntimeParameters implements Serializable {
     public final AtomicDouble novelTaskForgetDurations = new AtomicDouble(2.0);
 
     
+    /** Seed of the random source of the memory, Memory.random, which it is
+     *  reseeded with on reset */
+    public final AtomicLong randomSeed = new AtomicLong(1);
+    
+    /** Bag implementation used for the concept, novel task and sequence bags, and
+     *  for the link bags of new concepts.  Takes effect when those bags are created. */
+    public Bag.Type bagType = Bag.Type.Level;
+    
+    /** Capacity of the sequence bag of input events.  Takes effect when the
+     *  memory is created. */
+    public int sequenceBagSize = Parameters.SEQUENCE_BAG_SIZE;
+    
+    /** Factor the priority of older operation-related events is multiplied with
+     *  after a decision, in [0, 1]; 1 keeps them as they are */
+    public final AtomicDouble considerNewOperationBias = new AtomicDouble(Parameters.CONSIDER_NEW_OPERATION_BIAS);
+    
+    /** Number of inference worker threads.  1 fires one concept per cycle on the
+     *  reasoner thread; more fires several concepts per cycle in parallel, see 
+     *  ParallelInferenceControl. */
+    public final AtomicInteger inferenceThreads = new AtomicInteger(1);
+    
+    /** Concepts fired per cycle when inferenceThreads > 1; 0 means one per thread */
+    public final AtomicInteger conceptsFiredPerCycle = new AtomicInteger(0);
+    
+    /** Cycles a derived conclusion is remembered, to drop the same conclusion
+     *  derived again meanwhile; 0 disables it, see RecentDerivations */
+    public final AtomicInteger derivationCacheCycles = new AtomicInteger(10);
+    
+    /** Most new tasks waiting to be processed; when more wait, those of lowest
+     *  priority are shed.  0 means unbounded, see NewTaskBuffer. */
+    public final AtomicInteger newTaskCapacity = new AtomicInteger(0);
+    
+    /** Most new tasks processed per cycle, highest priority first; 0 means all
+     *  those added before the cycle. */
+    public final AtomicInteger newTasksPerCycle = new AtomicInteger(0);
+    
+    /** Time a cycle may spend processing new tasks, in microseconds, after
+     *  which the rest wait for the next cycle; 0 means no limit. */
+    public final AtomicInteger newTaskMicrosPerCycle = new AtomicInteger(0);
+    
     /** Minimum expectation for a desire value. 
      *  the range of "now" is [-DURATION, DURATION]; */
     public final AtomicDouble decisionThreshold = new AtomicDouble(0.51);
     
+    /* Settings adjustable while running, see RuntimeNARSettings; their
+     * defaults are the Parameters of the same name. */
+    
+    public final AtomicBoolean immediateEternalization = new AtomicBoolean(Parameters.IMMEDIATE_ETERNALIZATION);
+    public final AtomicBoolean temporalInductionOnSucceedingEvents = new AtomicBoolean(Parameters.TEMPORAL_INDUCTION_ON_SUCCEEDING_EVENTS);
+    public final AtomicInteger temporalInductionSamples = new AtomicInteger(Parameters.TEMPORAL_INDUCTION_SAMPLES);
+    public final AtomicDouble derivationPriorityLeak = new AtomicDouble(Parameters.DERIVATION_PRIORITY_LEAK);
+    public final AtomicDouble derivationDurabilityLeak = new AtomicDouble(Parameters.DERIVATION_DURABILITY_LEAK);
+    
+    public final AtomicDouble curiosityBusinessThreshold = new AtomicDouble(Parameters.CURIOSITY_BUSINESS_THRESHOLD);
+    public final AtomicDouble curiosityPriorityThreshold = new AtomicDouble(Parameters.CURIOSITY_PRIORITY_THRESHOLD);
+    public final AtomicDouble curiosityConfidenceThreshold = new AtomicDouble(Parameters.CURIOSITY_CONFIDENCE_THRESHOLD);
+    public final AtomicDouble curiosityDesireConfidenceMul = new AtomicDouble(Parameters.CURIOSITY_DESIRE_CONFIDENCE_MUL);
+    public final AtomicDouble curiosityDesirePriorityMul = new AtomicDouble(Parameters.CURIOSITY_DESIRE_PRIORITY_MUL);
+    public final AtomicDouble curiosityDesireDurabilityMul = new AtomicDouble(Parameters.CURIOSITY_DESIRE_DURABILITY_MUL);
+    public final AtomicBoolean curiosityForOperatorOnly = new AtomicBoolean(Parameters.CURIOSITY_FOR_OPERATOR_ONLY);
+    public final AtomicBoolean curiosityAlsoOnLowConfidentHighPriorityBelief = new AtomicBoolean(Parameters.CURIOSITY_ALSO_ON_LOW_CONFIDENT_HIGH_PRIORITY_BELIEF);
+    
+    public final AtomicDouble happyEventHigherThreshold = new AtomicDouble(Parameters.HAPPY_EVENT_HIGHER_THRESHOLD);
+    public final AtomicDouble happyEventLowerThreshold = new AtomicDouble(Parameters.HAPPY_EVENT_LOWER_THRESHOLD);
+    public final AtomicDouble busyEventHigherThreshold = new AtomicDouble(Parameters.BUSY_EVENT_HIGHER_THRESHOLD);
+    public final AtomicDouble busyEventLowerThreshold = new AtomicDouble(Parameters.BUSY_EVENT_LOWER_THRESHOLD);
+    public final AtomicBoolean reflectMetaHappyGoal = new AtomicBoolean(Parameters.REFLECT_META_HAPPY_GOAL);
+    public final AtomicBoolean considerRemind = new AtomicBoolean(Parameters.CONSIDER_REMIND);
+    public final AtomicBoolean questionGenerationOnDecisionMaking = new AtomicBoolean(Parameters.QUESTION_GENERATION_ON_DECISION_MAKING);
+    public final AtomicBoolean howQuestionGenerationOnDecisionMaking = new AtomicBoolean(Parameters.HOW_QUESTION_GENERATION_ON_DECISION_MAKING);
+    
+    public final AtomicDouble anticipationConfidence = new AtomicDouble(Parameters.ANTICIPATION_CONFIDENCE);
+    public final AtomicDouble satisfactionThreshold = new AtomicDouble(Parameters.SATISFACTION_TRESHOLD);
+    
     
 //    //let NARS use NARS+ ideas (counting etc.)
 //    public final AtomicBoolean experimentalNarsPlus = new AtomicBoolean();
@@ -6,10 +6,13 @@ package nars.control;
 
 import java.util.ArrayList;
 import java.util.List;
+import nars.util.EventEmitter;
 import nars.util.Events;
 import nars.storage.Memory;
 import nars.NAR;
 import nars.config.Parameters;
+import nars.control.DerivationRejections.Reason;
+import nars.control.DerivationRejections.Stage;
 import nars.util.Plugin;
 import nars.entity.BudgetValue;
 import nars.entity.Concept;
@@ -19,8 +22,11 @@ import nars.entity.Task;
 import nars.entity.TaskLink;
 import nars.entity.TermLink;
 import nars.entity.TruthValue;
+import nars.inference.TemporalRules;
 import nars.inference.TruthFunctions;
+import nars.io.Symbols;
 import nars.language.CompoundTerm;
+import nars.language.Conjunction;
 import nars.language.Interval;
 import nars.language.Term;
 import nars.language.Variable;
@@ -30,6 +36,9 @@ import nars.operator.Operation;
  * NAL Reasoner Process.  Includes all reasoning process state.
  */
 public class DerivationContext {
+    /* the ids of the events emitted on the inference path, see EventEmitter.id */
+    private static final int TASK_DERIVE = EventEmitter.id(Events.TaskDerive.class);
+    private static final int TASK_REMOVE = EventEmitter.id(Events.TaskRemove.class);
 
     public interface DerivationFilter extends Plugin {
         /** returns null if allowed to derive, or a String containing a short rejection reason for logging */
@@ -51,6 +60,7 @@ public class DerivationContext {
     protected TaskLink currentTaskLink;
     protected Sentence currentBelief;
     protected Stamp newStamp;
+    protected String currentRule;
     public StampBuilder newStampBuilder;
     protected List<DerivationFilter> derivationFilters = null;
     
@@ -60,6 +70,29 @@ public class DerivationContext {
         this.derivationFilters = mem.param.getDerivationFilters();
     }
 
+    /** copy of the current premises and derivation state */
+    public DerivationContext snapshot() {
+        DerivationContext c = new DerivationContext(memory);
+        c.derivationFilters = derivationFilters;
+        c.evidentalOverlap = evidentalOverlap;
+        c.currentTerm = currentTerm;
+        c.currentConcept = currentConcept;
+        c.currentTask = currentTask;
+        c.currentBeliefLink = currentBeliefLink;
+        c.currentTaskLink = currentTaskLink;
+        c.currentBelief = currentBelief;
+        c.newStamp = newStamp;
+        c.newStampBuilder = newStampBuilder;
+        c.currentRule = currentRule;
+        return c;
+    }
+
+    /** this context as passed with an event: a snapshot while the event is
+     *  deferred, since the context changes before its observers run */
+    public DerivationContext observed() {
+        return (memory.event.deferredEffects() != null) ? snapshot() : this;
+    }
+
     public void setDerivationFilters(List<DerivationFilter> derivationFilters) {
         this.derivationFilters = derivationFilters;
     }
@@ -68,6 +101,10 @@ public class DerivationContext {
         memory.emit(c, o);
     }
 
+    public void emit(final int id, final Class c, final Object... o) {
+        memory.emit(id, c, o);
+    }
+
 
     
     /**
@@ -77,6 +114,14 @@ public class DerivationContext {
      * @param overlapAllowed //https://groups.google.com/forum/#!topic/open-nars/FVbbKq5En-M
      */
     public boolean derivedTask(final Task task, final boolean revised, final boolean single, Task parent,Sentence occurence2, boolean overlapAllowed) {                        
+        return derivedTask(task, revised, single, parent, occurence2, overlapAllowed, true);
+    }
+
+    /**
+     * @param checkRecent whether to look the task up in the recent derivations,
+     * false if that was done before building it
+     */
+    private boolean derivedTask(final Task task, final boolean revised, final boolean single, Task parent,Sentence occurence2, boolean overlapAllowed, boolean checkRecent) {
 
         /*if(task.sentence.truth.getConfidence() > 0.98 && (task.getTerm() instanceof Implication) && 
                 (((Implication) task.getTerm()).getSubject() instanceof Conjunction) && 
@@ -111,8 +156,7 @@ public class DerivationContext {
                 DerivationFilter d = derivationFilters.get(i);
                 String rejectionReason = d.reject(this, task, revised, single, parent, occurence2);
                 if (rejectionReason!=null) {
-                    memory.removeTask(task, rejectionReason);
-                    return false;
+                    return reject(task, Reason.FILTER, rejectionReason);
                 }
             }
         }
@@ -121,16 +165,14 @@ public class DerivationContext {
 
         
         if (!task.budget.aboveThreshold()) {
-            memory.removeTask(task, "Insufficient Budget");
-            return false;
+            return reject(task, Reason.BUDGET, Reason.BUDGET.text);
         }
         
         if (task.sentence != null && task.sentence.truth != null) {
             float conf = task.sentence.truth.getConfidence();
             if (conf == 0) {
                 //no confidence - we can delete the wrongs out that way.
-                memory.removeTask(task, "Ignored (zero confidence)");
-                return false;
+                return reject(task, Reason.CONFIDENCE, Reason.CONFIDENCE.text);
             }
         }
         
@@ -139,8 +181,7 @@ public class DerivationContext {
         if (task.sentence.term instanceof Operation) {
             Operation op = (Operation) task.sentence.term;
             if (op.getSubject() instanceof Variable || op.getPredicate() instanceof Variable) {
-                memory.removeTask(task, "Operation with variable as subject or predicate");
-                return false;
+                return reject(task, Reason.OPERATION, Reason.OPERATION.text);
             }
         }
         
@@ -156,16 +197,8 @@ public class DerivationContext {
         
         //its revision, of course its cyclic, apply evidental base policy
         if(!overlapAllowed) { //todo reconsider
-            final int stampLength = stamp.baseLength;
-            for (int i = 0; i < stampLength; i++) {
-                final long baseI = stamp.evidentialBase[i];
-                for (int j = 0; j < stampLength; j++) {
-                    if (this.evidentalOverlap || ((i != j) && (baseI == stamp.evidentialBase[j]))) {
-                        memory.removeTask(task, "Overlapping Evidenctal Base");
-                        //"(i=" + i + ",j=" + j +')' /* + " in " + stamp.toString()*/
-                        return false;
-                    }
-                }
+            if (this.evidentalOverlap || stamp.evidenceIsCyclic()) {
+                return reject(task, Reason.OVERLAP, Reason.OVERLAP.text);
             }
         }
         
@@ -177,18 +210,47 @@ public class DerivationContext {
             }
         }*/
         
+        final int window = memory.param.derivationCacheCycles.get();
+        if (checkRecent && memory.recentDerivations.contains(task.sentence, memory.time(), window)) {
+            return reject(task, Reason.RECENT, Reason.RECENT.text);
+        }
+        if (window > 0) {
+            memory.recentDerivations.add(task.sentence, memory.time());
+        }
+        
         task.setElemOfSequenceBuffer(false);
         if(!revised) {
-            task.getBudget().setDurability(task.getBudget().getDurability()*Parameters.DERIVATION_DURABILITY_LEAK);
-            task.getBudget().setPriority(task.getBudget().getPriority()*Parameters.DERIVATION_PRIORITY_LEAK);
+            task.getBudget().setDurability(task.getBudget().getDurability()*memory.param.derivationDurabilityLeak.floatValue());
+            task.getBudget().setPriority(task.getBudget().getPriority()*memory.param.derivationPriorityLeak.floatValue());
         }
-        memory.event.emit(Events.TaskDerive.class, task, revised, single, occurence, occurence2);
-        //memory.logic.TASK_DERIVED.commit(task.budget.getPriority());
+        if (memory.emitting(TASK_DERIVE))
+            memory.event.emit(TASK_DERIVE, Events.TaskDerive.class, task, revised, single, occurence, occurence2);
+        if (memory.metrics != null)
+            memory.metrics.derived(currentRule);
         
         addTask(task, "Derived");
         return true;
     }
 
+    private boolean reject(final Task task, final Reason reason, final String text) {
+        memory.rejectedDerivations.reject(Stage.TASK, reason);
+        memory.removeTask(task, text);
+        return false;
+    }
+
+    private boolean reject(final Stage stage, final Reason reason) {
+        memory.rejectedDerivations.reject(stage, reason);
+        return false;
+    }
+
+    /** rejects a conclusion before its Task is built, counting it with the
+     *  removed tasks of Metrics as derivedTask would have */
+    private void rejectUnbuilt(final Stage stage, final Reason reason) {
+        reject(stage, reason);
+        if (memory.metrics != null)
+            memory.metrics.removed(reason.text);
+    }
+
     /* --------------- new task building --------------- */
     /**
      * Shared final operations by all double-premise rules, called from the
@@ -199,6 +261,9 @@ public class DerivationContext {
      * @param newBudget The budget value in task
      */
     public boolean doublePremiseTaskRevised(final Term newContent, final TruthValue newTruth, final BudgetValue newBudget) {
+        if (rejectedBeforeBuilding(newContent, getCurrentTask().sentence.punctuation, newTruth, newBudget, getTheNewStamp(), true)) {
+            return false;
+        }
         Sentence newSentence = new Sentence(newContent, getCurrentTask().sentence.punctuation, newTruth, getTheNewStamp());
         Task newTask = new Task(newSentence, newBudget, getCurrentTask(), getCurrentBelief());
         return derivedTask(newTask, true, false, null, null, true); //allows overlap since overlap was already checked on revisable( function
@@ -218,49 +283,63 @@ public class DerivationContext {
                 
         List<Task> ret = new ArrayList<Task>();
         if(newContent == null) {
+            reject(Stage.PREMISES, Reason.CONTENT);
             return null;
         }
         
         if (!newBudget.aboveThreshold()) {
+            reject(Stage.PREMISES, Reason.BUDGET);
             return null;
         }
         
         if ((newContent != null) && (!(newContent instanceof Interval)) && (!(newContent instanceof Variable))) {
             
             if(newContent.subjectOrPredicateIsIndependentVar()) {
+                reject(Stage.PREMISES, Reason.CONTENT);
                 return null;
             }
 
             try {
-                final Sentence newSentence = new Sentence(newContent, getCurrentTask().sentence.punctuation, newTruth, getTheNewStamp());
-                newSentence.producedByTemporalInduction=temporalInduction;
-                final Task newTask = Task.make(newSentence, newBudget, getCurrentTask(), getCurrentBelief());
-                
-                if (newTask!=null) {
-                    boolean added = derivedTask(newTask, false, false, null, null, overlapAllowed);
-                    if(added) {
-                        ret.add(newTask);
+                //a temporal conclusion derived again only skips itself, not its eternalization below
+                final boolean recent = recentlyDerived(newContent, getCurrentTask().sentence.punctuation, newTruth, getTheNewStamp());
+                if (!recent && !rejectedBeforeBuilding(newContent, getCurrentTask().sentence.punctuation, newTruth, newBudget, getTheNewStamp(), overlapAllowed)) {
+                    final Sentence newSentence = new Sentence(newContent, getCurrentTask().sentence.punctuation, newTruth, getTheNewStamp());
+                    newSentence.producedByTemporalInduction=temporalInduction;
+                    final Task newTask = Task.make(newSentence, newBudget, getCurrentTask(), getCurrentBelief());
+
+                    if (newTask!=null) {
+                        boolean added = derivedTask(newTask, false, false, null, null, overlapAllowed, false);
+                        if(added) {
+                            ret.add(newTask);
+                        }
                     }
                 }
             }
             catch (CompoundTerm.UnableToCloneException e) {
+                reject(Stage.TASK, Reason.CONTENT);
                 return null;
             }
             
             
             //"Since in principle it is always valid to eternalize a tensed belief"
-            if(temporalInduction && Parameters.IMMEDIATE_ETERNALIZATION) { //temporal induction generated ones get eternalized directly
+            if(temporalInduction && memory.param.immediateEternalization.get()) { //temporal induction generated ones get eternalized directly
                 
                 try {
 
                 TruthValue truthEt=TruthFunctions.eternalize(newTruth);               
                 Stamp st=getTheNewStamp().clone();
                 st.setEternal();
+                if (recentlyDerived(newContent, getCurrentTask().sentence.punctuation, truthEt, st)) {
+                    return ret;
+                }
+                if (rejectedBeforeBuilding(newContent, getCurrentTask().sentence.punctuation, truthEt, newBudget, st, overlapAllowed)) {
+                    return ret;
+                }
                 final Sentence newSentence = new Sentence(newContent, getCurrentTask().sentence.punctuation, truthEt, st);
                 newSentence.producedByTemporalInduction=temporalInduction;
                 final Task newTask = Task.make(newSentence, newBudget, getCurrentTask(), getCurrentBelief());
                 if (newTask!=null) {
-                    boolean added = derivedTask(newTask, false, false, null, null, overlapAllowed);
+                    boolean added = derivedTask(newTask, false, false, null, null, overlapAllowed, false);
                     if(added) {
                         ret.add(newTask);
                     }
@@ -268,12 +347,14 @@ public class DerivationContext {
                 
             }
             catch (CompoundTerm.UnableToCloneException e) {
+                reject(Stage.TASK, Reason.CONTENT);
                 return null;
             }
                 
             }
             return ret;
         }
+        reject(Stage.PREMISES, Reason.CONTENT);
         return null;
     }
 
@@ -318,18 +399,18 @@ public class DerivationContext {
     public boolean singlePremiseTask(final Term newContent, final char punctuation, final TruthValue newTruth, final BudgetValue newBudget) {
         
         if (!newBudget.aboveThreshold())
-            return false;
+            return reject(Stage.PREMISES, Reason.BUDGET);
         
         Task parentTask = getCurrentTask().getParentTask();
         if (parentTask != null) {
             if (parentTask.getTerm() == null) {
-                return false;
+                return reject(Stage.PREMISES, Reason.CONTENT);
             }
             if (newContent == null) {
-                return false;
+                return reject(Stage.PREMISES, Reason.CONTENT);
             }
             if (newContent.equals(parentTask.getTerm())) {
-                return false;
+                return reject(Stage.PREMISES, Reason.CONTENT);
             }
         }
         Sentence taskSentence = getCurrentTask().sentence;
@@ -341,28 +422,102 @@ public class DerivationContext {
         }
         
         if(newContent.subjectOrPredicateIsIndependentVar()) {
-            return false;
+            return reject(Stage.PREMISES, Reason.CONTENT);
         }
         
         if(newContent instanceof Interval) {
+            return reject(Stage.PREMISES, Reason.CONTENT);
+        }
+        if (recentlyDerived(newContent, punctuation, newTruth, getTheNewStamp())) {
+            return false;
+        }
+        if (rejectedBeforeBuilding(newContent, punctuation, newTruth, newBudget, getTheNewStamp(), false)) {
             return false;
         }
         Sentence newSentence = new Sentence(newContent, punctuation, newTruth, getTheNewStamp());
         Task newTask = Task.make(newSentence, newBudget, getCurrentTask());
         if (newTask!=null) {
-            return derivedTask(newTask, false, true, null, null, false);
+            return derivedTask(newTask, false, true, null, null, false, false);
+        }
+        return false;
+    }
+
+    /**
+     * Whether the conclusion was derived in the last cycles, looked up before
+     * its Sentence is built.  The Sentence may still change the term or the
+     * stamp, in which case it is only found once it was derived like that.
+     */
+    private boolean recentlyDerived(final Term content, final char punctuation, final TruthValue truth, final Stamp stamp) {
+        if (memory.recentDerivations.contains(content, punctuation, truth, stamp, memory.time(), memory.param.derivationCacheCycles.get())) {
+            rejectUnbuilt(Stage.STAMP, Reason.RECENT);
+            return true;
         }
         return false;
     }
 
+    /**
+     * Whether the conclusion is rejected on its term, truth and budget, then on
+     * its stamp, as derivedTask would, before its Sentence and Task are built.
+     * A Sentence which would change the stamp, shared by the other conclusions
+     * of the premises, is built anyway and left to derivedTask, as is every
+     * conclusion while TaskRemove is observed, so its observers are told of
+     * each rejected Task as before.  Metrics counts removals directly, so it
+     * does not observe TaskRemove and leaves the early path open.
+     */
+    private boolean rejectedBeforeBuilding(final Term content, final char punctuation, final TruthValue truth, final BudgetValue budget, final Stamp stamp, final boolean overlapAllowed) {
+        if (memory.emitting(TASK_REMOVE) || changesStamp(content, punctuation, stamp)) {
+            return false;
+        }
+        if (!budget.aboveThreshold()) {
+            rejectUnbuilt(Stage.PREMISES, Reason.BUDGET);
+            return true;
+        }
+        if ((truth != null) && (truth.getConfidence() == 0)) {
+            rejectUnbuilt(Stage.PREMISES, Reason.CONFIDENCE);
+            return true;
+        }
+        if (content instanceof Operation) {
+            final Operation op = (Operation) content;
+            if (op.getSubject() instanceof Variable || op.getPredicate() instanceof Variable) {
+                rejectUnbuilt(Stage.PREMISES, Reason.OPERATION);
+                return true;
+            }
+        }
+        if (!overlapAllowed && (evidentalOverlap || stamp.evidenceIsCyclic())) {
+            rejectUnbuilt(Stage.STAMP, Reason.OVERLAP);
+            return true;
+        }
+        return false;
+    }
+
+    /** whether a Sentence of the content would trim a trailing interval off its occurrence time, or make it eternal */
+    private static boolean changesStamp(final Term content, final char punctuation, final Stamp stamp) {
+        if ((content instanceof Conjunction) && (content.getTemporalOrder() == TemporalRules.ORDER_FORWARD)) {
+            final Term[] term = ((Conjunction) content).term;
+            if (term[term.length - 1] instanceof Interval) {
+                return true;
+            }
+        }
+        return ((punctuation == Symbols.QUESTION_MARK) || (punctuation == Symbols.QUEST_MARK)) && !stamp.isEternal();
+    }
+
     public boolean singlePremiseTask(Sentence newSentence, BudgetValue newBudget) {
         if (!newBudget.aboveThreshold()) {
-            return false;
+            return reject(Stage.TASK, Reason.BUDGET);
         }
         Task newTask = new Task(newSentence, newBudget, getCurrentTask());
         return derivedTask(newTask, false, true, null, null, false);
     }
 
+    /** the rule deriving tasks, for Metrics; null outside of RuleTables */
+    public String getCurrentRule() {
+        return currentRule;
+    }
+
+    public void setCurrentRule(String rule) {
+        this.currentRule = rule;
+    }
+
     public long getTime() {
         return memory.time();
     }
@@ -0,0 +1,80 @@
+package nars.control;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts of the conclusions DerivationContext rejected, by the stage of the
+ * derivation they were rejected at and why.
+ * <p>
+ * A conclusion is checked on its term, truth and budget first, then on its
+ * stamp, and only one which passes is built into a Sentence and a Task, on
+ * which DerivationContext.derivedTask checks what could not be before: the
+ * derivation filters, and what building the Sentence changed.
+ */
+public class DerivationRejections implements Serializable {
+
+    public enum Stage {
+        /** on the term, truth and budget, before anything was built */
+        PREMISES,
+        /** on the stamp, before the Sentence was built */
+        STAMP,
+        /** on the Sentence and Task */
+        TASK
+    }
+
+    public enum Reason {
+        BUDGET("Insufficient Budget"),
+        CONTENT("Invalid content"),
+        CONFIDENCE("Ignored (zero confidence)"),
+        OPERATION("Operation with variable as subject or predicate"),
+        OVERLAP("Overlapping Evidenctal Base"),
+        RECENT("Recently derived"),
+        FILTER("Derivation filter");
+
+        /** the reason a Task rejected for it is removed with */
+        public final String text;
+
+        Reason(final String text) {
+            this.text = text;
+        }
+    }
+
+    private static final int REASONS = Reason.values().length;
+
+    private final AtomicLongArray counts = new AtomicLongArray(Stage.values().length * REASONS);
+
+    public void reject(final Stage stage, final Reason reason) {
+        counts.incrementAndGet(stage.ordinal() * REASONS + reason.ordinal());
+    }
+
+    public long get(final Stage stage, final Reason reason) {
+        return counts.get(stage.ordinal() * REASONS + reason.ordinal());
+    }
+
+    public long get(final Stage stage) {
+        long n = 0;
+        for (final Reason r : Reason.values())
+            n += get(stage, r);
+        return n;
+    }
+
+    /** the counts which are not 0, by "stage reason" */
+    public Map<String, Long> getCounts() {
+        final Map<String, Long> m = new TreeMap();
+        for (final Stage s : Stage.values())
+            for (final Reason r : Reason.values()) {
+                final long n = get(s, r);
+                if (n > 0)
+                    m.put(s.name() + " " + r.name(), n);
+            }
+        return m;
+    }
+
+    public void clear() {
+        for (int i = 0; i < counts.length(); i++)
+            counts.set(i, 0);
+    }
+}
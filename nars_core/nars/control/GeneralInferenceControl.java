@@ -6,6 +6,7 @@ package nars.control;
 
 import nars.config.Parameters;
 import nars.entity.Concept;
+import nars.util.EventEmitter;
 import nars.util.Events;
 import nars.entity.Task;
 import nars.entity.TermLink;
@@ -14,37 +15,55 @@ import nars.storage.Memory;
 
 /** Concept reasoning context - a concept is "fired" or activated by applying the reasoner */
 public class GeneralInferenceControl {
+    /* the ids of the events emitted on the inference path, see EventEmitter.id */
+    private static final int CONCEPT_FIRE = EventEmitter.id(Events.ConceptFire.class);
+    private static final int TERM_LINK_SELECT = EventEmitter.id(Events.TermLinkSelect.class);
     
     public static void selectConceptForInference(Memory mem) {
-        Concept currentConcept = mem.concepts.takeNext();
+        Concept currentConcept = selectConcept(mem);
         if (currentConcept==null)
             return;
         
+        DerivationContext cont = new DerivationContext(mem);
+        cont.setCurrentConcept(currentConcept);
+        fireConcept(cont, 1);
+    }
+    
+    /** takes the next concept out of the concept bag, removing (and skipping) it if it has no links */
+    public static Concept selectConcept(Memory mem) {
+        Concept currentConcept = mem.concepts.takeNext();
+        if (currentConcept==null)
+            return null;
+        
         if(currentConcept.taskLinks.size() == 0) { //remove concepts without tasklinks and without termlinks
             mem.concepts.take(currentConcept.getTerm());
             mem.conceptRemoved(currentConcept);
-            return;
+            return null;
         }
         if(currentConcept.termLinks.size() == 0) {  //remove concepts without tasklinks and without termlinks
             mem.concepts.take(currentConcept.getTerm());
             mem.conceptRemoved(currentConcept);
-            return;
+            return null;
         }
-        
-        DerivationContext cont = new DerivationContext(mem);
-        cont.setCurrentConcept(currentConcept);
-        fireConcept(cont, 1);
+        return currentConcept;
     }
     
     public static void fireConcept(DerivationContext nal, int numTaskLinks) {     
+        if (fireTaskLinks(nal, numTaskLinks)) {
+            returnConcept(nal);
+        }
+    }
+    
+    /** @return false if the concept ran out of task links, in which case it is not returned to the bag */
+    public static boolean fireTaskLinks(DerivationContext nal, int numTaskLinks) {     
         for (int i = 0; i < numTaskLinks; i++) {
 
             if (nal.currentConcept.taskLinks.size() == 0) 
-                return;
+                return false;
 
             nal.currentTaskLink = nal.currentConcept.taskLinks.takeNext();                    
             if (nal.currentTaskLink == null)
-                return;
+                return false;
 
             if (nal.currentTaskLink.budget.aboveThreshold()) {
                 fireTaskLink(nal, Parameters.TERMLINK_MAX_REASONED);                    
@@ -52,6 +71,10 @@ public class GeneralInferenceControl {
 
             nal.currentConcept.taskLinks.putBack(nal.currentTaskLink, nal.memory.cycles(nal.memory.param.taskLinkForgetDurations), nal.memory);
         }
+        return true;
+    }
+    
+    public static void returnConcept(DerivationContext nal) {
         float forgetCycles = nal.memory.cycles(nal.memory.param.conceptForgetDurations);
         nal.memory.concepts.putBack(nal.currentConcept, forgetCycles, nal.memory);
     }
@@ -65,6 +88,7 @@ public class GeneralInferenceControl {
         
         if (nal.currentTaskLink.type == TermLink.TRANSFORM) {
             nal.setCurrentBelief(null);
+            nal.setCurrentRule(RuleTables.TRANSFORM);
             
             RuleTables.transformTask(nal.currentTaskLink, nal); // to turn this into structural inference as below?
             
@@ -80,7 +104,8 @@ public class GeneralInferenceControl {
             }
         }
                 
-        nal.memory.emit(Events.ConceptFire.class, nal);
+        if (nal.memory.emitting(CONCEPT_FIRE))
+            nal.memory.emit(CONCEPT_FIRE, Events.ConceptFire.class, nal.observed());
         //memory.logic.TASKLINK_FIRE.commit(currentTaskLink.budget.getPriority());
     }
 
@@ -93,7 +118,8 @@ public class GeneralInferenceControl {
                 System.out.println("issue in inference");
             }
         }
-        nal.memory.emit(Events.TermLinkSelect.class, termLink, nal.currentConcept, nal);
+        if (nal.memory.emitting(TERM_LINK_SELECT))
+            nal.memory.emit(TERM_LINK_SELECT, Events.TermLinkSelect.class, termLink, nal.currentConcept, nal.observed());
         //memory.logic.REASON.commit(termLink.getPriority());                    
         return true;
     }
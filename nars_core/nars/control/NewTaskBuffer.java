@@ -0,0 +1,204 @@
+package nars.control;
+
+import com.google.common.collect.Iterators;
+import java.io.Serializable;
+import java.util.AbstractCollection;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.TreeSet;
+import nars.config.RuntimeParameters;
+import nars.entity.Task;
+import nars.storage.Memory;
+
+/**
+ * The new tasks of a memory, waiting to be processed by
+ * Memory.processNewTasks.
+ * <p>
+ * Unlimited, as by default, it is a queue of which each cycle processes every
+ * task added before it began, in the order they were added.  Limited by any of
+ * RuntimeParameters.newTaskCapacity, newTasksPerCycle or newTaskMicrosPerCycle,
+ * the tasks wait ordered by the priority they were added with: each cycle
+ * processes the highest, as many or for as long as allowed, the others wait
+ * for the next cycles, and when more wait than the capacity the lowest are
+ * shed through Memory.removeTask.
+ */
+public class NewTaskBuffer extends AbstractCollection<Task> implements Serializable {
+
+    /** the reason tasks shed from a full buffer are removed with */
+    public static final String SHED = "Shed (new task buffer full)";
+
+    /** a task waiting in priority order, then in the order it was added */
+    private static class Waiting implements Comparable<Waiting>, Serializable {
+        final Task task;
+        final float priority;
+        final long order;
+
+        Waiting(final Task task, final long order) {
+            this.task = task;
+            this.priority = task.getPriority();
+            this.order = order;
+        }
+
+        @Override
+        public int compareTo(final Waiting w) {
+            final int c = Float.compare(w.priority, priority);
+            return (c != 0) ? c : Long.compare(order, w.order);
+        }
+    }
+
+    private final Memory memory;
+    /** the tasks added while unlimited, or while a cycle processes them */
+    private final ArrayDeque<Task> queue = new ArrayDeque();
+    private final TreeSet<Waiting> waiting = new TreeSet();
+    private long order = 0;
+
+    /* the cycle processing the tasks */
+    private boolean processing = false;
+    private boolean limited = false;
+    private int remaining;
+    private int taken;
+    private long start;
+    private long deadline;
+
+    private long processed = 0;
+    private long shed = 0;
+    private long cycles = 0;
+    private long cycleNanos = 0;
+    private long lastCycleNanos = 0;
+    private long maxCycleNanos = 0;
+
+    public NewTaskBuffer(final Memory memory) {
+        this.memory = memory;
+    }
+
+    private boolean isLimited() {
+        final RuntimeParameters p = memory.param;
+        return (p.newTaskCapacity.get() > 0) || (p.newTasksPerCycle.get() > 0) || (p.newTaskMicrosPerCycle.get() > 0);
+    }
+
+    /**
+     * Adds a task, which the next cycle processes; if limited and full, sheds
+     * the lowest task, which may be this one
+     *
+     * @return false if it was shed
+     */
+    @Override
+    public boolean add(final Task t) {
+        if (processing || !isLimited()) {
+            queue.add(t);
+            return true;
+        }
+        return admit(t);
+    }
+
+    private boolean admit(final Task t) {
+        waiting.add(new Waiting(t, order++));
+        final int capacity = memory.param.newTaskCapacity.get();
+        boolean admitted = true;
+        while ((capacity > 0) && (waiting.size() > capacity)) {
+            final Task lowest = waiting.pollLast().task;
+            if (lowest == t)
+                admitted = false;
+            shed++;
+            memory.removeTask(lowest, SHED);
+        }
+        return admitted;
+    }
+
+    /** starts processing the tasks added before, by next() until it returns null */
+    public void beginCycle() {
+        start = System.nanoTime();
+        limited = isLimited();
+        if (limited) {
+            while (!queue.isEmpty())
+                admit(queue.pollFirst());
+            final int perCycle = memory.param.newTasksPerCycle.get();
+            remaining = (perCycle > 0) ? Math.min(perCycle, waiting.size()) : waiting.size();
+            final int micros = memory.param.newTaskMicrosPerCycle.get();
+            deadline = (micros > 0) ? start + micros * 1000L : 0;
+        }
+        else {
+            //limited before: the waiting tasks go first, highest first
+            while (!waiting.isEmpty())
+                queue.addFirst(waiting.pollLast().task);
+            remaining = queue.size();
+            deadline = 0;
+        }
+        taken = 0;
+        processing = true;
+    }
+
+    /** @return the next task to process in this cycle, or null if no more are allowed */
+    public Task next() {
+        if (remaining <= 0)
+            return null;
+        if ((deadline != 0) && (taken > 0) && (System.nanoTime() >= deadline)) {
+            //at least one task is processed each cycle
+            remaining = 0;
+            return null;
+        }
+        remaining--;
+        taken++;
+        processed++;
+        return limited ? waiting.pollFirst().task : queue.pollFirst();
+    }
+
+    /** ends processing: the tasks added meanwhile wait for the next cycle */
+    public void endCycle() {
+        processing = false;
+        remaining = 0;
+        if (isLimited()) {
+            while (!queue.isEmpty())
+                admit(queue.pollFirst());
+        }
+        lastCycleNanos = System.nanoTime() - start;
+        if (lastCycleNanos > maxCycleNanos)
+            maxCycleNanos = lastCycleNanos;
+        cycleNanos += lastCycleNanos;
+        cycles++;
+    }
+
+    @Override
+    public int size() {
+        return queue.size() + waiting.size();
+    }
+
+    /** the waiting tasks, highest first if limited, then those queued */
+    @Override
+    public Iterator<Task> iterator() {
+        return Iterators.unmodifiableIterator(Iterators.concat(
+                Iterators.transform(waiting.iterator(), w -> w.task), queue.iterator()));
+    }
+
+    @Override
+    public void clear() {
+        queue.clear();
+        waiting.clear();
+        remaining = 0;
+        processed = shed = cycles = 0;
+        cycleNanos = lastCycleNanos = maxCycleNanos = 0;
+    }
+
+    /** the tasks processed since cleared */
+    public long getProcessed() {
+        return processed;
+    }
+
+    /** the tasks shed since cleared, because more waited than the capacity */
+    public long getShed() {
+        return shed;
+    }
+
+    /** the time the last cycle took to process its tasks, in nanoseconds */
+    public long getLastCycleNanos() {
+        return lastCycleNanos;
+    }
+
+    public long getMaxCycleNanos() {
+        return maxCycleNanos;
+    }
+
+    public double getMeanCycleNanos() {
+        return (cycles == 0) ? 0 : ((double) cycleNanos) / cycles;
+    }
+}
@@ -0,0 +1,125 @@
+package nars.control;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import nars.entity.Concept;
+import nars.storage.Memory;
+
+/**
+ * Fires several concepts per cycle on a pool of worker threads.
+ *
+ * Each selected concept is fired with its own DerivationContext.  While the
+ * workers run, everything that would touch state shared between concepts
+ * (new tasks, events, solutions to questions, emotion) is recorded per concept
+ * instead of applied.  At the cycle barrier the recorded effects are applied
+ * concept by concept in selection order, and each concept is put back into the
+ * concept bag, so a run with a fixed seed is reproducible regardless of
+ * thread scheduling.
+ *
+ * Differences to single-concept firing: concepts selected in the same cycle do
+ * not see each other in the concept bag while firing, and see the effects of
+ * each other only from the next cycle on.
+ */
+public class ParallelInferenceControl {
+
+    public final int threads;
+    private final Memory memory;
+    private final ExecutorService workers;
+
+    public ParallelInferenceControl(final Memory memory, final int threads) {
+        this.memory = memory;
+        this.threads = threads;
+        this.workers = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            int count = 0;
+            @Override public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "Inference Worker " + (count++));
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /** number of concepts fired in one cycle */
+    public int conceptsPerCycle() {
+        int n = memory.param.conceptsFiredPerCycle.get();
+        return n > 0 ? n : threads;
+    }
+
+    public void selectConceptsForInference() {
+        final int n = conceptsPerCycle();
+        final List<Firing> firings = new ArrayList(n);
+
+        for (int i = 0; i < n; i++) {
+            Concept c = GeneralInferenceControl.selectConcept(memory);
+            if (c == null) {
+                if (memory.concepts.size() == 0)
+                    break;
+                continue;
+            }
+            firings.add(new Firing(c, i));
+        }
+        if (firings.isEmpty())
+            return;
+
+        memory.event.setDeferring(true);
+        try {
+            final List<Future<Firing>> done = workers.invokeAll(firings);
+            for (Future<Firing> f : done)
+                f.get();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+        finally {
+            memory.event.setDeferring(false);
+        }
+
+        //cycle barrier: apply side effects in selection order
+        for (final Firing f : firings) {
+            for (final Runnable r : f.effects)
+                r.run();
+            if (f.returnConcept)
+                GeneralInferenceControl.returnConcept(f.context);
+        }
+    }
+
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private final class Firing implements java.util.concurrent.Callable<Firing> {
+        final DerivationContext context;
+        final List<Runnable> effects = new ArrayList();
+        final long seed;
+        boolean returnConcept;
+
+        Firing(final Concept c, final int index) {
+            context = new DerivationContext(memory);
+            context.setCurrentConcept(c);
+            seed = memory.param.randomSeed.get() + memory.time() * 31 + index;
+        }
+
+        @Override
+        public Firing call() {
+            memory.event.deferOnThread(effects);
+            final Random outer = Memory.setWorkerRandom(new Random(seed));
+            try {
+                returnConcept = GeneralInferenceControl.fireTaskLinks(context, 1);
+            }
+            finally {
+                memory.event.deferOnThread(null);
+                Memory.setWorkerRandom(outer);
+            }
+            return this;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package nars.control;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeoutException;
+import nars.entity.Concept;
+import nars.entity.Sentence;
+import nars.entity.Task;
+import nars.io.Query;
+import nars.storage.Memory;
+import nars.util.Events.ConceptQuestionRemove;
+
+/**
+ * The open queries of a memory, by question, so that answers go straight
+ * from LocalRules.trySolution to the queries of their question without any
+ * event.  Tasks are equal by their sentence, so the queries of equal questions,
+ * which their concept merges into one, share an entry.  The question of the
+ * last of them finished, or past its deadline, is removed from its concept at
+ * the end of the cycle.
+ */
+public class Queries {
+
+    private final Map<Task, List<Query>> index = new HashMap();
+    private final PriorityQueue<Query> deadlines = new PriorityQueue<>(16, (a, b) -> Long.compare(a.deadline, b.deadline));
+    private final Queue<Query> finished = new ConcurrentLinkedQueue();
+
+    /** checked before the index, to keep answers to other questions cheap */
+    private volatile int size = 0;
+
+    public synchronized void add(final Query q) {
+        List<Query> l = index.get(q.question);
+        if (l == null)
+            index.put(q.question, l = new ArrayList(1));
+        l.add(q);
+        size++;
+        deadlines.add(q);
+    }
+
+    /** the number of open queries */
+    public int size() {
+        return size;
+    }
+
+    /** the queries of the question or of an equal one, empty if none */
+    public List<Query> get(final Task question) {
+        if (size == 0)
+            return Collections.EMPTY_LIST;
+        synchronized (this) {
+            final List<Query> l = index.get(question);
+            return (l == null) ? Collections.EMPTY_LIST : new ArrayList(l);
+        }
+    }
+
+    /** whether the task is the question of a query, whose answers are not broadcast */
+    public boolean isQuery(final Task task) {
+        for (final Query q : get(task))
+            if (q.question == task)
+                return true;
+        return false;
+    }
+
+    /** routes a better answer of the question to the queries of it and of equal questions */
+    public void answer(final Task question, final Sentence belief) {
+        for (final Query q : get(question))
+            if (!q.isCancelled())
+                q.answer(belief);
+    }
+
+    /** removes an open query, returning whether it was the last of its question */
+    private boolean remove(final Query q, final List<Query> removed) {
+        final List<Query> l = index.get(q.question);
+        if ((l == null) || !l.remove(q))
+            return false;
+        size--;
+        removed.add(q);
+        if (!l.isEmpty())
+            return false;
+        index.remove(q.question);
+        return true;
+    }
+
+    /** the question of the query is removed at the end of the cycle */
+    public void finish(final Query q) {
+        finished.add(q);
+    }
+
+    /** removes the questions of the queries finished or past their deadline, called at the end of each cycle */
+    public void update(final Memory memory) {
+        if ((size == 0) && finished.isEmpty())
+            return;
+
+        final long now = memory.time();
+        final ArrayList<Query> removed = new ArrayList();
+        final ArrayList<Task> questions = new ArrayList();
+        synchronized (this) {
+            Query q;
+            while ((q = finished.poll()) != null)
+                if (remove(q, removed))
+                    questions.add(q.question);
+            while (((q = deadlines.peek()) != null) && (q.deadline <= now)) {
+                deadlines.poll();
+                if (remove(q, removed))
+                    questions.add(q.question);
+            }
+            if (index.isEmpty())
+                deadlines.clear();
+        }
+
+        for (final Task question : questions) {
+            final Concept c = memory.concept(question.getTerm());
+            if ((c != null) && (c.questions.remove(question) || c.quests.remove(question)))
+                memory.event.emit(ConceptQuestionRemove.class, c, question);
+        }
+        for (final Query q : removed) {
+            if (!q.isDone())
+                q.completeExceptionally(new TimeoutException("No answer by cycle " + q.deadline));
+        }
+    }
+
+    /** cancels all the queries */
+    public void clear() {
+        final ArrayList<Query> all;
+        synchronized (this) {
+            all = new ArrayList();
+            for (final List<Query> l : index.values())
+                all.addAll(l);
+            index.clear();
+            deadlines.clear();
+            size = 0;
+        }
+        finished.clear();
+        for (final Query q : all)
+            q.cancel(false);
+        finished.clear();
+    }
+}
@@ -0,0 +1,123 @@
+package nars.control;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import nars.entity.Sentence;
+import nars.entity.Stamp;
+import nars.entity.TruthValue;
+import nars.language.Term;
+
+/**
+ * The conclusions derived in the last cycles, so that a conclusion derived
+ * again through another term link can be dropped before its Sentence and Task
+ * are built.
+ * <p>
+ * A conclusion is identified by its term, punctuation, truth, occurrence time
+ * and evidential base.  The cache is direct mapped: each conclusion has one
+ * slot, by its hash, and replaces the one there, so it stays bounded and a
+ * collision only costs a miss.  A conclusion is recent for
+ * RuntimeParameters.derivationCacheCycles cycles.
+ */
+public class RecentDerivations implements Serializable {
+
+    private final int mask;
+    private final Term[] terms;
+    private final char[] punctuations;
+    private final float[] frequencies;
+    private final float[] confidences;
+    private final long[] occurrences;
+    private final long[][] bases;
+    private final int[] hashes;
+    private final long[] times;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    /** @param capacity the number of slots, rounded up to a power of 2 */
+    public RecentDerivations(final int capacity) {
+        final int n = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mask = n - 1;
+        terms = new Term[n];
+        punctuations = new char[n];
+        frequencies = new float[n];
+        confidences = new float[n];
+        occurrences = new long[n];
+        bases = new long[n][];
+        hashes = new int[n];
+        times = new long[n];
+    }
+
+    /**
+     * Whether the same conclusion was derived within the last cycles, counted
+     * as a hit or a miss
+     *
+     * @param window the number of cycles a conclusion stays recent, 0 for none
+     */
+    public synchronized boolean contains(final Term term, final char punctuation, final TruthValue truth, final Stamp stamp, final long now, final int window) {
+        if (window <= 0)
+            return false;
+        final int h = hash(term, punctuation, truth, stamp);
+        final int i = h & mask;
+        final boolean hit = (terms[i] != null) && (now - times[i] <= window) && (hashes[i] == h)
+                && (punctuations[i] == punctuation) && (occurrences[i] == stamp.getOccurrenceTime())
+                && ((truth == null) ? Float.isNaN(frequencies[i])
+                    : (frequencies[i] == truth.getFrequency()) && (confidences[i] == truth.getConfidence()))
+                && Arrays.equals(bases[i], stamp.toSet())
+                && terms[i].equals(term);
+        if (hit)
+            hits++;
+        else
+            misses++;
+        return hit;
+    }
+
+    public boolean contains(final Sentence s, final long now, final int window) {
+        return contains(s.term, s.punctuation, s.truth, s.stamp, now, window);
+    }
+
+    /** remembers a conclusion derived now */
+    public synchronized void add(final Sentence s, final long now) {
+        final int h = hash(s.term, s.punctuation, s.truth, s.stamp);
+        final int i = h & mask;
+        terms[i] = s.term;
+        punctuations[i] = s.punctuation;
+        frequencies[i] = (s.truth == null) ? Float.NaN : s.truth.getFrequency();
+        confidences[i] = (s.truth == null) ? Float.NaN : s.truth.getConfidence();
+        occurrences[i] = s.stamp.getOccurrenceTime();
+        bases[i] = s.stamp.toSet();
+        hashes[i] = h;
+        times[i] = now;
+    }
+
+    public synchronized void clear() {
+        Arrays.fill(terms, null);
+        Arrays.fill(bases, null);
+        hits = misses = 0;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /** the fraction of the lookups which found a recent conclusion */
+    public synchronized double getHitRate() {
+        final long n = hits + misses;
+        return (n == 0) ? 0 : ((double) hits) / n;
+    }
+
+    private static int hash(final Term term, final char punctuation, final TruthValue truth, final Stamp stamp) {
+        int h = term.hashCode();
+        h = 31 * h + punctuation;
+        if (truth != null) {
+            h = 31 * h + Float.floatToIntBits(truth.getFrequency());
+            h = 31 * h + Float.floatToIntBits(truth.getConfidence());
+        }
+        h = 31 * h + Long.hashCode(stamp.getOccurrenceTime());
+        h = 31 * h + stamp.evidentialHash();
+        return h ^ (h >>> 16);
+    }
+}
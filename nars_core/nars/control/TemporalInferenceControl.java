@@ -5,15 +5,17 @@
 package nars.control;
 
 import java.util.HashSet;
+import java.util.Map;
 import nars.config.Parameters;
 import nars.entity.BudgetValue;
 import nars.entity.Sentence;
 import nars.entity.Task;
 import nars.inference.TemporalRules;
 import nars.io.Symbols;
-import nars.language.CompoundTerm;
 import nars.language.Conjunction;
+import nars.language.Term;
 import nars.operator.Operation;
+import nars.storage.Memory;
 import nars.util.Events;
 
 /**
@@ -61,7 +63,7 @@ public class TemporalInferenceControl {
             return false;
        }
 
-        if(Parameters.TEMPORAL_INDUCTION_ON_SUCCEEDING_EVENTS) {
+        if(nal.memory.param.temporalInductionOnSucceedingEvents.get()) {
             /*for (Task stmLast : stm) {
                 Concept OldConc = this.concept(stmLast.getTerm());
                 if(OldConc != null)
@@ -124,30 +126,17 @@ public class TemporalInferenceControl {
         }
 
         //multiple versions are necessary, but we do not allow duplicates
-        Task removal = null;
-        do
-        {
-            removal = null;
-            for(Task s : nal.memory.sequenceTasks) {
-                if(CompoundTerm.cloneDeepReplaceIntervals(s.getTerm()).equals(
-                        CompoundTerm.cloneDeepReplaceIntervals(newEvent.getTerm()))) {
-                        // && //-- new outcommented
-                        //s.sentence.stamp.equals(newEvent.sentence.stamp,false,true,true,false) ) {
-                    //&& newEvent.sentence.getOccurenceTime()>s.sentence.getOccurenceTime() ) { 
-                    removal = s;
-                    break;
-                }
-            }
-            if(removal != null) {
-                nal.memory.sequenceTasks.take(removal);
-            }
+        final Term key = newEvent.getTerm().conceptKey();
+        final Task existing = nal.memory.sequenceTaskIndex.get(key);
+        if ((existing != null) && (nal.memory.sequenceTasks.get(existing.name()) == existing)) {
+            nal.memory.sequenceTasks.take(existing);
         }
-        while(removal != null);
         //ok now add the new one:
         //making sure we do not mess with budget of the task:
         Task t2 = new Task(newEvent.sentence, new BudgetValue(0.9f*periority_penalty/(float)newEvent.sentence.term.getComplexity(),1.0f/(float)newEvent.sentence.term.getComplexity(),0.1f), newEvent.getParentTask(), newEvent.getParentBelief(), newEvent.getBestSolution());
         //we use a event default budget here so the time it appeared and whether it was selected is key criteria currently divided by complexity
         nal.memory.sequenceTasks.putIn(t2);
+        indexSequenceTask(nal.memory, key, t2);
 
         //debug:
         /*System.out.println("---------");
@@ -156,4 +145,16 @@ public class TemporalInferenceControl {
         }
         System.out.println("^^^^^^");*/
     }
+
+    /** the index may still hold tasks which were displaced from the sequence bag;
+     *  those are ignored on lookup and dropped whenever the index outgrows the bag */
+    private static void indexSequenceTask(final Memory memory, final Term key, final Task t) {
+        final Map<Term,Task> index = memory.sequenceTaskIndex;
+        index.put(key, t);
+        if (index.size() > 2 * memory.sequenceTasks.getCapacity()) {
+            index.clear();
+            for (final Task s : memory.sequenceTasks)
+                index.put(s.getTerm().conceptKey(), s);
+        }
+    }
 }
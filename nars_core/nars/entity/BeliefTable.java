@@ -0,0 +1,209 @@
+package nars.entity;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+import static nars.inference.BudgetFunctions.rankBelief;
+
+/**
+ * The beliefs (or desires) of a Concept, sorted by rank, highest first.
+ * <p>
+ * The rank of every entry is computed once, when it is added, so insert()
+ * finds its position by binary search instead of ranking the whole table
+ * again.  Temporal entries are also indexed by occurrence time, so that the
+ * one closest to a given time is found without a scan.  Ranks have to be
+ * recomputed with updateRanks() when the truth of entries is changed in place.
+ */
+public class BeliefTable extends AbstractList<Task> implements RandomAccess {
+
+    private static final Task[] empty = new Task[0];
+
+    /** rank by truth expectation instead of confidence */
+    public final boolean rankTruthExpectation;
+
+    private Task[] items = empty;
+    private float[] ranks = new float[0];
+    private int size = 0;
+
+    /** the temporal entries, by occurrence time */
+    private Task[] temporal = empty;
+    private long[] times = new long[0];
+    private int temporalSize = 0;
+
+    public BeliefTable(final boolean rankTruthExpectation) {
+        this.rankTruthExpectation = rankTruthExpectation;
+    }
+
+    @Override
+    public Task get(final int i) {
+        if (i >= size)
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        return items[i];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /** the rank the entry at i had when it was added */
+    public float rank(final int i) {
+        return ranks[i];
+    }
+
+    /**
+     * Add a new belief (or goal) at its rank, unless the entry ranked next
+     * below it is equivalent, and remove the lowest ranked entry if the table
+     * grows beyond its capacity
+     *
+     * @return the removed entry, or null
+     */
+    public Task insert(final Task newTask, final int capacity) {
+        final float rank1 = rankBelief(newTask.sentence, rankTruthExpectation);
+
+        //the first entry with a rank not above the new one
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (ranks[mid] <= rank1)
+                hi = mid;
+            else
+                lo = mid + 1;
+        }
+
+        if (lo < size) {
+            if (newTask.sentence.equivalentTo(items[lo].sentence))
+                return null;
+            insert(lo, newTask, rank1);
+            if (size > capacity)
+                return remove(size - 1);
+        }
+        else if (size < capacity) {
+            insert(size, newTask, rank1);
+        }
+        return null;
+    }
+
+    /** adds an entry at a given position, keeping it in the order given; for restoring a table */
+    @Override
+    public void add(final int index, final Task t) {
+        if ((index < 0) || (index > size))
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        insert(index, t, rankBelief(t.sentence, rankTruthExpectation));
+    }
+
+    @Override
+    public Task remove(final int index) {
+        final Task t = get(index);
+        System.arraycopy(items, index + 1, items, index, size - index - 1);
+        System.arraycopy(ranks, index + 1, ranks, index, size - index - 1);
+        items[--size] = null;
+        modCount++;
+        if (!t.sentence.isEternal())
+            unindex(t);
+        return t;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(items, 0, size, null);
+        Arrays.fill(temporal, 0, temporalSize, null);
+        size = temporalSize = 0;
+        modCount++;
+    }
+
+    /** recomputes the rank of every entry, after their truth values were changed */
+    public void updateRanks() {
+        for (int i = 0; i < size; i++)
+            ranks[i] = rankBelief(items[i].sentence, rankTruthExpectation);
+    }
+
+    /**
+     * the temporal entry whose occurrence time is closest to the given time;
+     * of equally close ones, the highest ranked
+     */
+    public Task nearestTemporal(final long time) {
+        if (temporalSize == 0)
+            return null;
+
+        //the closest ones are just before or from the search position
+        final int p = search(time);
+        final long after = p < temporalSize ? times[p] - time : Long.MAX_VALUE;
+        final long before = p > 0 ? time - times[p - 1] : Long.MAX_VALUE;
+        final long distance = Math.min(after, before);
+
+        int closest = 0;
+        Task nearest = null;
+        if (after == distance)
+            for (int i = p; (i < temporalSize) && (times[i] == times[p]); i++, closest++)
+                nearest = temporal[i];
+        if (before == distance)
+            for (int i = p - 1; (i >= 0) && (times[i] == times[p - 1]); i--, closest++)
+                nearest = temporal[i];
+        if (closest == 1)
+            return nearest;
+
+        //equally close ones: the first in rank order
+        for (int i = 0; i < size; i++) {
+            final Sentence s = items[i].sentence;
+            if (!s.isEternal() && (Math.abs(time - s.getOccurenceTime()) == distance))
+                return items[i];
+        }
+        return nearest;
+    }
+
+    private void insert(final int index, final Task t, final float rank) {
+        if (size == items.length) {
+            final int n = Math.max(4, size * 2);
+            items = Arrays.copyOf(items, n);
+            ranks = Arrays.copyOf(ranks, n);
+        }
+        System.arraycopy(items, index, items, index + 1, size - index);
+        System.arraycopy(ranks, index, ranks, index + 1, size - index);
+        items[index] = t;
+        ranks[index] = rank;
+        size++;
+        modCount++;
+        if (!t.sentence.isEternal())
+            index(t);
+    }
+
+    /** the first position in the temporal index with an occurrence time not before the time */
+    private int search(final long time) {
+        int lo = 0, hi = temporalSize;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (times[mid] < time)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    private void index(final Task t) {
+        if (temporalSize == temporal.length) {
+            final int n = Math.max(4, temporalSize * 2);
+            temporal = Arrays.copyOf(temporal, n);
+            times = Arrays.copyOf(times, n);
+        }
+        final long time = t.sentence.getOccurenceTime();
+        final int p = search(time);
+        System.arraycopy(temporal, p, temporal, p + 1, temporalSize - p);
+        System.arraycopy(times, p, times, p + 1, temporalSize - p);
+        temporal[p] = t;
+        times[p] = time;
+        temporalSize++;
+    }
+
+    private void unindex(final Task t) {
+        for (int i = 0; i < temporalSize; i++) {
+            if (temporal[i] == t) {
+                System.arraycopy(temporal, i + 1, temporal, i, temporalSize - i - 1);
+                System.arraycopy(times, i + 1, times, i, temporalSize - i - 1);
+                temporal[--temporalSize] = null;
+                return;
+            }
+        }
+    }
+}
@@ -69,12 +69,19 @@ import nars.util.Events.EnactableExplainationRemove;
 import static nars.inference.UtilityFunctions.or;
 import nars.language.Variables;
 import nars.operator.mental.Anticipate;
+import nars.util.EventEmitter;
 import nars.util.Events;
 import static nars.inference.UtilityFunctions.or;
 import nars.io.Output;
 import nars.language.Statement;
 
 public class Concept extends Item<Term> {
+    /* the ids of the events emitted on the inference path, see EventEmitter.id */
+    private static final int TASK_LINK_REMOVE = EventEmitter.id(TaskLinkRemove.class);
+    private static final int TASK_LINK_ADD = EventEmitter.id(TaskLinkAdd.class);
+    private static final int TERM_LINK_REMOVE = EventEmitter.id(TermLinkRemove.class);
+    private static final int TERM_LINK_ADD = EventEmitter.id(TermLinkAdd.class);
+    private static final int BELIEF_SELECT = EventEmitter.id(BeliefSelect.class);
 
     
     /**
@@ -113,16 +120,15 @@ public class Concept extends Item<Term> {
     public final ArrayList<Task> quests;
 
     /**
-     * Judgments directly made about the term Use ArrayList because of access
-     * and insertion in the middle
+     * Judgments directly made about the term, sorted by rank
      */
-    public final ArrayList<Task> beliefs;
-    public final ArrayList<Task> executable_preconditions;
+    public final BeliefTable beliefs;
+    public final BeliefTable executable_preconditions;
 
     /**
      * Desire values on the term, similar to the above one
      */
-    public final ArrayList<Task> desires;
+    public final BeliefTable desires;
 
     /**
      * Reference to the memory to which the Concept belongs
@@ -148,13 +154,13 @@ public class Concept extends Item<Term> {
         this.memory = memory;
 
         this.questions = new ArrayList<>();
-        this.beliefs = new ArrayList<>();
-        this.executable_preconditions = new ArrayList<>();
+        this.beliefs = new BeliefTable(false);
+        this.executable_preconditions = new BeliefTable(true);
         this.quests = new ArrayList<>();
-        this.desires = new ArrayList<>();
+        this.desires = new BeliefTable(false);
 
-        this.taskLinks = new LevelBag<>(Parameters.TASK_LINK_BAG_LEVELS, Parameters.TASK_LINK_BAG_SIZE);
-        this.termLinks = new LevelBag<>(Parameters.TERM_LINK_BAG_LEVELS, Parameters.TERM_LINK_BAG_SIZE);
+        this.taskLinks = Bag.make(memory.param.bagType, Parameters.TASK_LINK_BAG_LEVELS, Parameters.TASK_LINK_BAG_SIZE);
+        this.termLinks = Bag.make(memory.param.bagType, Parameters.TERM_LINK_BAG_LEVELS, Parameters.TERM_LINK_BAG_SIZE);
                 
         if (tm instanceof CompoundTerm) {
             this.termLinkTemplates = ((CompoundTerm) tm).prepareComponentLinks();
@@ -275,7 +281,7 @@ public class Concept extends Item<Term> {
                 trySolution(judg, questions.get(i), nal, true);
             }
             
-        addToTable(task, false, beliefs, Parameters.CONCEPT_BELIEFS_MAX, ConceptBeliefAdd.class, ConceptBeliefRemove.class);
+        addToTable(task, beliefs, Parameters.CONCEPT_BELIEFS_MAX, ConceptBeliefAdd.class, ConceptBeliefRemove.class);
             
         //if taskLink predicts this concept then add to predictive 
         Task target = task;
@@ -315,8 +321,8 @@ public class Concept extends Item<Term> {
                             //at first we have to remove the last one with same content from table
                             int i_delete = -1;
                             for(int i=0; i < pred_conc.executable_preconditions.size(); i++) {
-                                if(CompoundTerm.cloneDeepReplaceIntervals(pred_conc.executable_preconditions.get(i).getTerm()).equals(
-                                        CompoundTerm.cloneDeepReplaceIntervals(strongest_target.getTerm()))) {
+                                if(pred_conc.executable_preconditions.get(i).getTerm().conceptKey().equals(
+                                        strongest_target.getTerm().conceptKey())) {
                                     i_delete = i; //even these with same term but different intervals are removed here
                                     break;
                                 }
@@ -333,7 +339,7 @@ public class Concept extends Item<Term> {
                             }
                             
                             //this way the strongest confident result of this content is put into table but the table ranked according to truth expectation
-                            pred_conc.addToTable(strongest_target, true, pred_conc.executable_preconditions, Parameters.CONCEPT_BELIEFS_MAX, EnactableExplainationAdd.class, EnactableExplainationRemove.class);
+                            pred_conc.addToTable(strongest_target, pred_conc.executable_preconditions, Parameters.CONCEPT_BELIEFS_MAX, EnactableExplainationAdd.class, EnactableExplainationRemove.class);
                         }
                     }
                 }
@@ -342,12 +348,12 @@ public class Concept extends Item<Term> {
         }
     }
 
-    protected void addToTable(final Task task, final boolean rankTruthExpectation, final ArrayList<Task> table, final int max, final Class eventAdd, final Class eventRemove, final Object... extraEventArguments) {
+    protected void addToTable(final Task task, final BeliefTable table, final int max, final Class eventAdd, final Class eventRemove, final Object... extraEventArguments) {
         
         int preSize = table.size();
         Task removedT;
         Sentence removed = null;
-        removedT = addToTable(task, table, max, rankTruthExpectation);
+        removedT = table.insert(task, max);
         if(removedT != null) {
             removed=removedT.sentence;
         }
@@ -404,14 +410,15 @@ public class Concept extends Item<Term> {
     
     public static void successfulOperationHandler(Memory memory) {
         //multiple versions are necessary, but we do not allow duplicates
-        if(Parameters.CONSIDER_NEW_OPERATION_BIAS == 1.0f) {
+        final float bias = memory.param.considerNewOperationBias.floatValue();
+        if(bias == 1.0f) {
             return;
         }
         for(Task s : memory.sequenceTasks) {
             
             if(memory.lastDecision != null && (s.getTerm() instanceof Operation)) {
                 if(!s.getTerm().equals(memory.lastDecision.getTerm())) {
-                    s.setPriority(s.getPriority()*Parameters.CONSIDER_NEW_OPERATION_BIAS);
+                    s.setPriority(s.getPriority()*bias);
                     continue; //depriorized already, we can look at the next now
                 }
             }
@@ -420,7 +427,7 @@ public class Concept extends Item<Term> {
                 if(seq.getTemporalOrder() == TemporalRules.ORDER_FORWARD) {
                     for(Term w : seq.term) {
                         if((w instanceof Operation) && !w.equals(memory.lastDecision.getTerm())) {
-                            s.setPriority(s.getPriority()*Parameters.CONSIDER_NEW_OPERATION_BIAS);
+                            s.setPriority(s.getPriority()*bias);
                             break; //break because just penalty once, not for each term ^^
                         }
                     }
@@ -500,7 +507,7 @@ public class Concept extends Item<Term> {
             
             T.setFrequency((float) (T.getFrequency()-Satisfaction)); //decrease frequency according to satisfaction value
 
-            boolean fullfilled = AntiSatisfaction < Parameters.SATISFACTION_TRESHOLD;
+            boolean fullfilled = AntiSatisfaction < memory.param.satisfactionThreshold.floatValue();
             
             Sentence projectedGoal = goal.projection(nal.memory.time(),nal.memory.time());
             
@@ -592,7 +599,7 @@ public class Concept extends Item<Term> {
                 
                 questionFromGoal(task, nal);
                 
-                addToTable(task, false, desires, Parameters.CONCEPT_GOALS_MAX, ConceptGoalAdd.class, ConceptGoalRemove.class);
+                addToTable(task, desires, Parameters.CONCEPT_GOALS_MAX, ConceptGoalAdd.class, ConceptGoalRemove.class);
                 
                 InternalExperience.InternalExperienceFromTask(memory,task,false);
                 
@@ -608,10 +615,10 @@ public class Concept extends Item<Term> {
     }
 
     private void questionFromGoal(final Task task, final DerivationContext nal) {
-        if(Parameters.QUESTION_GENERATION_ON_DECISION_MAKING || Parameters.HOW_QUESTION_GENERATION_ON_DECISION_MAKING) {
+        if(memory.param.questionGenerationOnDecisionMaking.get() || memory.param.howQuestionGenerationOnDecisionMaking.get()) {
             //ok, how can we achieve it? add a question of whether it is fullfilled
             ArrayList<Term> qu=new ArrayList<Term>();
-            if(Parameters.HOW_QUESTION_GENERATION_ON_DECISION_MAKING) {
+            if(memory.param.howQuestionGenerationOnDecisionMaking.get()) {
                 if(!(task.sentence.term instanceof Equivalence) && !(task.sentence.term instanceof Implication)) {
                     Variable how=new Variable("?how");
                     //Implication imp=Implication.make(how, task.sentence.term, TemporalRules.ORDER_CONCURRENT);
@@ -622,7 +629,7 @@ public class Concept extends Item<Term> {
                     }
                 }
             }
-            if(Parameters.QUESTION_GENERATION_ON_DECISION_MAKING) {
+            if(memory.param.questionGenerationOnDecisionMaking.get()) {
                 qu.add(task.sentence.term);
             }
             for(Term q : qu) {
@@ -631,7 +638,7 @@ public class Concept extends Item<Term> {
                     st.setOccurrenceTime(task.sentence.getOccurenceTime()); //set tense of question to goal tense
                     Sentence s=new Sentence(q,Symbols.QUESTION_MARK,null,st);
                     if(s!=null) {
-                        BudgetValue budget=new BudgetValue(task.getPriority()*Parameters.CURIOSITY_DESIRE_PRIORITY_MUL,task.getDurability()*Parameters.CURIOSITY_DESIRE_DURABILITY_MUL,1);
+                        BudgetValue budget=new BudgetValue(task.getPriority()*memory.param.curiosityDesirePriorityMul.floatValue(),task.getDurability()*memory.param.curiosityDesireDurabilityMul.floatValue(),1);
                         nal.singlePremiseTask(s, budget);
                     }
                 }
@@ -677,7 +684,9 @@ public class Concept extends Item<Term> {
         } 
         else
         if(task.isInput() && !quesTask.getTerm().hasVarQuery() && quesTask.getBestSolution() != null) { //show previously found solution anyway in case of input
-            memory.emit(Events.Answer.class, quesTask, quesTask.getBestSolution()); 
+            if (!memory.queries.isQuery(task))
+                memory.emit(Events.Answer.class, quesTask, quesTask.getBestSolution()); 
+            memory.queries.answer(quesTask, quesTask.getBestSolution());
         }
     }
 
@@ -738,6 +747,9 @@ public class Concept extends Item<Term> {
      * @return whether table was modified
      */
     public static Task addToTable(final Task newTask, final List<Task> table, final int capacity, boolean rankTruthExpectation) {
+        if ((table instanceof BeliefTable) && (((BeliefTable) table).rankTruthExpectation == rankTruthExpectation))
+            return ((BeliefTable) table).insert(newTask, capacity);
+        
         Sentence newSentence = newTask.sentence;
         final float rank1 = rankBelief(newSentence, rankTruthExpectation);    // for the new isBelief
         float rank2;        
@@ -784,8 +796,12 @@ public class Concept extends Item<Term> {
         float beliefQuality;
         Task candidate = null;
         boolean rateByConfidence = true; //table vote, yes/no question / local processing
+        //the quality by confidence is at most the confidence, which a table ranks by, so the scan can stop at the first rank not above the best
+        final BeliefTable ranked = (rateByConfidence && (list instanceof BeliefTable) && !((BeliefTable) list).rankTruthExpectation) ? (BeliefTable) list : null;
         synchronized (list) {            
             for (int i = 0; i < list.size(); i++) {
+                if ((ranked != null) && (ranked.rank(i) <= currentBest))
+                    break;
                 Task judgT = list.get(i);
                 Sentence judg = judgT.sentence;
                 beliefQuality = solutionQuality(rateByConfidence, query, judg, memory); //makes revision explicitly search for 
@@ -888,7 +904,8 @@ public class Concept extends Item<Term> {
                 }
                 if(nSameContent > Parameters.TASKLINK_PER_CONTENT) { //ok we reached the maximum so lets delete the lowest
                     taskLinks.take(lowest);
-                    memory.emit(TaskLinkRemove.class, lowest, this);
+                    if (memory.emitting(TASK_LINK_REMOVE))
+                        memory.emit(TASK_LINK_REMOVE, TaskLinkRemove.class, lowest, this);
                     break;
                 }
             }
@@ -900,16 +917,19 @@ public class Concept extends Item<Term> {
         
         if (removed!=null) {
             if (removed == taskLink) {
-                memory.emit(TaskLinkRemove.class, taskLink, this);
+                if (memory.emitting(TASK_LINK_REMOVE))
+                    memory.emit(TASK_LINK_REMOVE, TaskLinkRemove.class, taskLink, this);
                 return false;
             }
             else {
-                memory.emit(TaskLinkRemove.class, removed, this);
+                if (memory.emitting(TASK_LINK_REMOVE))
+                    memory.emit(TASK_LINK_REMOVE, TaskLinkRemove.class, removed, this);
             }
             
             removed.end();
         }
-        memory.emit(TaskLinkAdd.class, taskLink, this);
+        if (memory.emitting(TASK_LINK_ADD))
+            memory.emit(TASK_LINK_ADD, TaskLinkAdd.class, taskLink, this);
         return true;
     }
 
@@ -965,14 +985,17 @@ public class Concept extends Item<Term> {
         TermLink removed = termLinks.putIn(termLink);
         if (removed!=null) {
             if (removed == termLink) {
-                memory.emit(TermLinkRemove.class, termLink, this);
+                if (memory.emitting(TERM_LINK_REMOVE))
+                    memory.emit(TERM_LINK_REMOVE, TermLinkRemove.class, termLink, this);
                 return false;
             }
             else {
-                memory.emit(TermLinkRemove.class, removed, this);
+                if (memory.emitting(TERM_LINK_REMOVE))
+                    memory.emit(TERM_LINK_REMOVE, TermLinkRemove.class, removed, this);
             }
         }
-        memory.emit(TermLinkAdd.class, termLink, this);
+        if (memory.emitting(TERM_LINK_ADD))
+            memory.emit(TERM_LINK_ADD, TermLinkAdd.class, termLink, this);
         return true;        
     }
 
@@ -1064,7 +1087,8 @@ public class Concept extends Item<Term> {
 
         for (final Task beliefT : beliefs) {  
             Sentence belief = beliefT.sentence;
-            nal.emit(BeliefSelect.class, belief);
+            if (memory.emitting(BELIEF_SELECT))
+                nal.emit(BELIEF_SELECT, BeliefSelect.class, belief);
             nal.setTheNewStamp(taskStamp, belief.stamp, currentTime);
             
             Sentence projectedBelief = belief.projection(taskStamp.getOccurrenceTime(), memory.time());
@@ -1083,19 +1107,8 @@ public class Concept extends Item<Term> {
             return null;
         }
         
-        Sentence bestSoFar = null;
-        long distance = Long.MAX_VALUE;
-
-        for (final Task beliefT : beliefs) {  
-            if(!beliefT.sentence.isEternal()) {
-                long distance_new = Math.abs(task.sentence.getOccurenceTime() - beliefT.sentence.getOccurenceTime());
-                if(distance_new < distance) {
-                    distance = distance_new;
-                    bestSoFar = beliefT.sentence;
-                }
-            }
-        }
-        return bestSoFar;
+        final Task nearest = beliefs.nearestTemporal(task.sentence.getOccurenceTime());
+        return nearest != null ? nearest.sentence : null;
     }
 
     /**
@@ -1158,7 +1171,7 @@ public class Concept extends Item<Term> {
             for(TaskLink tl : this.taskLinks) { //search for input in tasklinks (beliefs alone can not take temporality into account as the eternals will win)
                 Task t = tl.targetTask;
                 if(t!= null && t.sentence.isJudgment() && t.isInput() && !t.sentence.isEternal() && t.sentence.truth.getExpectation() > Parameters.DEFAULT_CONFIRMATION_EXPECTATION &&
-                        CompoundTerm.cloneDeepReplaceIntervals(t.sentence.term).equals(CompoundTerm.cloneDeepReplaceIntervals(this.getTerm()))) {
+                        t.sentence.term.conceptKey().equals(this.getTerm().conceptKey())) {
                     if(t.sentence.getOccurenceTime() >= this.negConfirm_abort_mintime && t.sentence.getOccurenceTime() <= this.negConfirm_abort_maxtime) {
                         cancelled = true;
                         break;
@@ -1226,10 +1239,12 @@ public class Concept extends Item<Term> {
             for (final Task t : beliefs) {
                 t.sentence.discountConfidence();
             }
+            beliefs.updateRanks();
         } else {
             for (final Task t : desires) {
                 t.sentence.discountConfidence();
             }
+            desires.updateRanks();
         }
     }
 
@@ -1238,7 +1253,7 @@ public class Concept extends Item<Term> {
         if (beliefs.isEmpty()) return null;
         
         float totalConfidence = getBeliefConfidenceSum();
-        float r = Memory.randomNumber.nextFloat() * totalConfidence;
+        float r = Memory.random().nextFloat() * totalConfidence;
                 
         Sentence s = null;
         for (int i = 0; i < beliefs.size(); i++) {
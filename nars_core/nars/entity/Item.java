@@ -258,7 +258,7 @@ public abstract class Item<K> {
         
         if (totalPriority == 0) return null;
         
-        float r = Memory.randomNumber.nextFloat() * totalPriority;
+        float r = Memory.random().nextFloat() * totalPriority;
                 
         E s = null;
         for (E i : c) {
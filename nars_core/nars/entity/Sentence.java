@@ -521,12 +521,21 @@ public class Sentence<T extends Term> implements Cloneable {
      * @return The String
      */
     public CharSequence toString(NAR nar, boolean showStamp) {
+        return toString(nar, showStamp, nar.memory.time());
+    }
+
+    /**
+     * Get a String representation of the sentence for display purpose,
+     * with the tense shown relative to the given time
+     *
+     * @param now The time the sentence is displayed at
+     * @return The String
+     */
+    public CharSequence toString(NAR nar, boolean showStamp, long now) {
     
         CharSequence contentName = term.name();
         
-        final long t = nar.memory.time();
-
-        long diff=stamp.getOccurrenceTime()-nar.memory.time();
+        long diff=stamp.getOccurrenceTime()-now;
         long diffabs = Math.abs(diff);
         
         String timediff = "";
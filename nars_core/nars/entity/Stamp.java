@@ -23,7 +23,6 @@ package nars.entity;
 import com.google.common.collect.Iterators;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
 import nars.storage.Memory;
 import nars.config.Parameters;
@@ -50,8 +49,11 @@ public class Stamp implements Cloneable {
     private long occurrenceTime;
     /*default for atemporal events means "always" in Judgment/Question, but "current" in Goal/Quest*/
     public static final long ETERNAL = Integer.MIN_VALUE;
-    /** caches evidentialBase as a set for comparisons and hashcode, stores the unique Long's in-order for efficiency*/    
-    private long[] evidentialSet = null;
+    /** caches evidentialBase as a set for comparisons and hashcode, stores the unique Long's in-order for efficiency;
+     *  volatile, as it publishes evidentialHash and evidentialBloom to the other inference workers reading the stamp */    
+    private volatile long[] evidentialSet = null;
+    /** one bit per serial of the evidential base (computed with evidentialSet), for fast negative overlap tests */
+    transient private long evidentialBloom;
     /*Tense of the item*/
     private Tense tense;
     /*True when its a neg confirmation task that was already checked:*/
@@ -109,6 +111,21 @@ public class Stamp implements Cloneable {
         setCreationTime(time, duration);        
     }
 
+    /**
+     * Generate a stamp with all of its fields given, for restoring a saved memory
+     *
+     * @param evidentialBase The serials of the evidential base
+     * @param creationTime The creation time
+     * @param occurrenceTime The occurrence time, or ETERNAL
+     */
+    public Stamp(final long[] evidentialBase, final long creationTime, final long occurrenceTime) {
+        this.evidentialBase = evidentialBase;
+        this.baseLength = evidentialBase.length;
+        this.creationTime = creationTime;
+        this.occurrenceTime = occurrenceTime;
+        this.tense = (occurrenceTime == ETERNAL) ? Tense.Eternal : Tense.Present;
+    }
+
     /**
      * Generate a new stamp identical with a given one
      *
@@ -134,6 +151,11 @@ public class Stamp implements Cloneable {
     public Stamp(final Stamp old, final long creationTime, final Stamp useEvidentialBase) {        
         this.evidentialBase = useEvidentialBase.evidentialBase;
         this.baseLength = useEvidentialBase.baseLength;
+        if (useEvidentialBase.evidentialSet != null) {
+            this.evidentialHash = useEvidentialBase.evidentialHash;
+            this.evidentialBloom = useEvidentialBase.evidentialBloom;
+            this.evidentialSet = useEvidentialBase.evidentialSet;
+        }
         this.creationTime = creationTime;
 
         this.occurrenceTime = old.getOccurrenceTime();
@@ -180,34 +202,51 @@ public class Stamp implements Cloneable {
         this(memory, Tense.Present);
     }
     
-    public static boolean baseOverlap(long[] base1, long[] base2) {
-        HashSet<Long> task_base = new HashSet<Long>(base1.length + base2.length);
-        for(int i=0; i < base1.length; i++) {
-            if(task_base.contains(Long.valueOf(base1[i]))) { //can have an overlap in itself already
-                return true;
-            }
-            task_base.add(base1[i]);
-        }
-        //too restrictive, its checked for non-deductive inference rules in derivedTask
-        for(int i=0; i < base2.length; i++) {
-            if(task_base.contains(Long.valueOf(base2[i]))) {
-                return true;
-            }
-            task_base.add(base2[i]); //also add to detect collision with itself
+    /** whether the two bases have a serial in common, or one of them repeats a serial */
+    public static boolean baseOverlap(final long[] base1, final long[] base2) {
+        final long[] set1 = toSetArray(base1);
+        final long[] set2 = toSetArray(base2);
+        if ((set1.length != base1.length) || (set2.length != base2.length))
+            return true; //can have an overlap in itself already
+        return intersects(set1, set2);
+    }
+    
+    /** whether the two evidential bases have a serial in common, or one of them repeats a serial */
+    public static boolean baseOverlap(final Stamp a, final Stamp b) {
+        return a.evidenceIsCyclic() || b.evidenceIsCyclic() || a.sharesEvidenceWith(b);
+    }
+    
+    /** whether the evidential bases of this and s have a serial in common */
+    public boolean sharesEvidenceWith(final Stamp s) {
+        final long[] x = toSet(), y = s.toSet();
+        if ((evidentialBloom & s.evidentialBloom) == 0)
+            return false;
+        return intersects(x, y);
+    }
+    
+    /** linear merge of two sorted sets */
+    private static boolean intersects(final long[] x, final long[] y) {
+        int i = 0, j = 0;
+        while ((i < x.length) && (j < y.length)) {
+            final long a = x[i], b = y[j];
+            if (a == b) return true;
+            if (a < b) i++;
+            else j++;
         }
         return false;
-     }
+    }
     
+    /** whether the evidential base contains a serial more than once */
     public boolean evidenceIsCyclic() {
-        HashSet<Long> task_base = new HashSet<Long>(this.evidentialBase.length);
-        boolean cyclic = false;
-        for(int i=0; i < this.evidentialBase.length; i++) {
-            if(task_base.contains(Long.valueOf(this.evidentialBase[i]))) { //can have an overlap in itself already
-                return true;
-            }
-            task_base.add(this.evidentialBase[i]);
-        }
-        return false;
+        return toSet().length != evidentialBase.length;
+    }
+    
+    /** replaces the evidential base, discarding what was cached from the old one */
+    public void setEvidentialBase(final long[] base) {
+        this.evidentialBase = base;
+        this.baseLength = base.length;
+        this.evidentialSet = null;
+        this.name = null;
     }
 
     public boolean isEternal() {
@@ -294,15 +333,21 @@ public class Stamp implements Cloneable {
     /**
      * Convert the evidentialBase into a set
      *
-     * @return The TreeSet representation of the evidential base
+     * @return The sorted serials of the evidential base, cached; not to be modified
      */
-    private long[] toSet() {        
-        if (evidentialSet == null) {        
-            evidentialSet = toSetArray(evidentialBase);
-            evidentialHash = Arrays.hashCode(evidentialSet);
+    public long[] toSet() {        
+        long[] set = evidentialSet;
+        if (set == null) {        
+            set = toSetArray(evidentialBase);
+            long bloom = 0;
+            for (final long serial : set)
+                bloom |= 1L << ((serial * 0x9E3779B97F4A7C15L) >>> 58);
+            evidentialHash = Arrays.hashCode(set);
+            evidentialBloom = bloom;
+            evidentialSet = set;
         }
         
-        return evidentialSet;
+        return set;
     }
 
     
@@ -20,9 +20,7 @@
  */
 package nars.entity;
 
-import java.util.ArrayDeque;
-import java.util.Deque;
-import java.util.Iterator;
+import java.util.Arrays;
 import nars.config.Parameters;
 import nars.language.Term;
 
@@ -43,31 +41,17 @@ public class TaskLink extends Item<Task> implements TLink<Task> {
     private final int recordLength;
     
     
-    /* Remember the TermLinks, and when they has been used recently with this TaskLink */
-    public final static class Recording {
-    
-        public final TermLink link;
-        long time;
-
-        public Recording(TermLink link, long time) {
-            this.link = link;
-            this.time = time;
-        }
-
-        public long getTime() {
-            return time;
-        }
-
-        
-        public void setTime(long t) {
-            this.time = t;
-        }
-        
-    }
-    
-    public final Deque<Recording> records;
-    
-
+    /* Remember the TermLinks, and when they has been used recently with this TaskLink:
+     * a FIFO of at most recordLength-1 records, oldest first, kept in fixed slots
+     * of parallel arrays linked by index, with a small open-addressed table from
+     * the hash of a TermLink to its slot.  Allocated on the first novelty check. */
+    private TermLink[] recordLinks;
+    private int[] recordHashes;
+    private long[] recordTimes;
+    private int[] recordPrev, recordNext;
+    /** slot + 1 of the record with the hash, 0 if empty */
+    private int[] recordIndex;
+    private int recordFirst = -1, recordLast = -1, recordCount = 0;
     
     /** The type of link, one of the above */    
     public final short type;
@@ -101,11 +85,27 @@ public class TaskLink extends Item<Task> implements TLink<Task> {
         this.targetTask = t;
         
         this.recordLength = recordLength;
-        this.records = new ArrayDeque(recordLength);
         
     }
 
 
+    /**
+     * Constructor for a TaskLink with all of its fields given, for restoring
+     * a saved memory
+     *
+     * @param t The target Task
+     * @param type The link type
+     * @param index The component indices, or null
+     * @param v The budget
+     */
+    public TaskLink(final Task t, final short type, final short[] index, final BudgetValue v, int recordLength) {
+        super(v);
+        this.type = type;
+        this.index = index;
+        this.targetTask = t;
+        this.recordLength = recordLength;
+    }
+
     @Override
     public int hashCode() {        
         return targetTask.hashCode();                
@@ -156,39 +156,114 @@ public class TaskLink extends Item<Task> implements TLink<Task> {
         if (bTerm.equals(targetTask.sentence.term)) {            
             return false;
         }
-        TermLink linkKey = termLink.name();
-        int next, i;
-        
-        
-                
-        //iterating the FIFO deque from oldest (first) to newest (last)
-        Iterator<Recording> ir = records.iterator();
-        while (ir.hasNext()) {
-            Recording r = ir.next();
-            if (linkKey.equals(r.link)) {
-                if (currentTime < r.getTime() + Parameters.NOVELTY_HORIZON) {
-                    //too recent, not novel
-                    return false;
-                } else {
-                    //happened long enough ago that we have forgotten it somewhat, making it seem more novel
-                    r.setTime(currentTime);
-                    ir.remove();
-                    records.addLast(r);
-                    return true;
-                }
+        final TermLink linkKey = termLink.name();
+        final int capacity = recordLength - 1;
+        if (capacity <= 0)
+            return true;
+        if (recordLinks == null)
+            allocateRecords(capacity);
+
+        final int hash = linkKey.hashCode();
+        final int slot = findRecord(linkKey, hash);
+        if (slot != -1) {
+            if (currentTime < recordTimes[slot] + Parameters.NOVELTY_HORIZON) {
+                //too recent, not novel
+                return false;
+            } else {
+                //happened long enough ago that we have forgotten it somewhat, making it seem more novel
+                recordTimes[slot] = currentTime;
+                unlinkRecord(slot);
+                appendRecord(slot);
+                return true;
             }
         }
-        
-        
-        //keep recordedLinks queue a maximum finite size
-        while (records.size() + 1 >= recordLength) records.removeFirst();
-        
-        // add knowledge reference to recordedLinks
-        records.addLast(new Recording(linkKey, currentTime));
+
+        //keep the records a maximum finite size, reusing the slot of the oldest
+        final int free;
+        if (recordCount == capacity) {
+            free = recordFirst;
+            unindexRecord(free);
+            unlinkRecord(free);
+        }
+        else {
+            free = recordCount++;
+        }
+
+        // add knowledge reference to the records
+        recordLinks[free] = linkKey;
+        recordHashes[free] = hash;
+        recordTimes[free] = currentTime;
+        indexRecord(free);
+        appendRecord(free);
         
         return true;
     }
 
+    private void allocateRecords(final int capacity) {
+        recordLinks = new TermLink[capacity];
+        recordHashes = new int[capacity];
+        recordTimes = new long[capacity];
+        recordPrev = new int[capacity];
+        recordNext = new int[capacity];
+        recordIndex = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+    }
+
+    private static int spread(final int h) {
+        return h ^ (h >>> 16);
+    }
+
+    private int findRecord(final TermLink key, final int hash) {
+        final int mask = recordIndex.length - 1;
+        for (int i = spread(hash) & mask; recordIndex[i] != 0; i = (i + 1) & mask) {
+            final int s = recordIndex[i] - 1;
+            if ((recordHashes[s] == hash) && key.equals(recordLinks[s]))
+                return s;
+        }
+        return -1;
+    }
+
+    private void indexRecord(final int slot) {
+        final int mask = recordIndex.length - 1;
+        int i = spread(recordHashes[slot]) & mask;
+        while (recordIndex[i] != 0)
+            i = (i + 1) & mask;
+        recordIndex[i] = slot + 1;
+    }
+
+    /** removes the slot from the index, moving back the entries probed past it */
+    private void unindexRecord(final int slot) {
+        final int mask = recordIndex.length - 1;
+        int i = spread(recordHashes[slot]) & mask;
+        while (recordIndex[i] != slot + 1)
+            i = (i + 1) & mask;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (recordIndex[j] == 0)
+                break;
+            final int home = spread(recordHashes[recordIndex[j] - 1]) & mask;
+            //move the entry at j into the hole at i unless its home lies cyclically in (i, j]
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                recordIndex[i] = recordIndex[j];
+                i = j;
+            }
+        }
+        recordIndex[i] = 0;
+    }
+
+    private void unlinkRecord(final int slot) {
+        final int p = recordPrev[slot], n = recordNext[slot];
+        if (p == -1) recordFirst = n; else recordNext[p] = n;
+        if (n == -1) recordLast = p; else recordPrev[n] = p;
+    }
+
+    private void appendRecord(final int slot) {
+        recordPrev[slot] = recordLast;
+        recordNext[slot] = -1;
+        if (recordLast == -1) recordFirst = slot; else recordNext[recordLast] = slot;
+        recordLast = slot;
+    }
+
     @Override
     public String toString() {
         return super.toString() + " " + getTarget().sentence.stamp;
@@ -209,7 +284,12 @@ public class TaskLink extends Item<Task> implements TLink<Task> {
 
     @Override
     public void end() {
-        records.clear();
+        if (recordLinks != null) {
+            Arrays.fill(recordLinks, null);
+            Arrays.fill(recordIndex, 0);
+        }
+        recordFirst = recordLast = -1;
+        recordCount = 0;
     }
     
     public Term getTerm() {
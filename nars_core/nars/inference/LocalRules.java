@@ -21,6 +21,7 @@
 package nars.inference;
 
 import java.util.Arrays;
+import java.util.List;
 import nars.config.Parameters;
 import nars.util.Events.Answer;
 import nars.util.Events.Unsolved;
@@ -79,13 +80,33 @@ public class LocalRules {
             if (matchingOrder(sentence, belief)) {
                 Term[] u = new Term[] { sentence.term, belief.term };
                 if (Variables.unify(Symbols.VAR_QUERY, u)) {
-                    trySolution(belief, task, nal, true);
+                    final List<Runnable> deferred = nal.memory.event.deferredEffects();
+                    if (deferred != null) {
+                        //the task may be shared with concepts fired by other workers
+                        final DerivationContext premises = nal.snapshot();
+                        deferred.add(() -> trySolution(belief, task, premises, true));
+                    }
+                    else {
+                        trySolution(belief, task, nal, true);
+                    }
                 }
             }
         }
         return false;
     }
 
+    /**
+     * Whether match() may derive anything from the sentence and a belief with
+     * the term: revision needs the same concept, and answering also a query
+     * variable if the terms differ
+     */
+    public static boolean mayMatch(final Sentence sentence, final Term beliefTerm) {
+        if (sentence.term.conceptKey().equals(beliefTerm.conceptKey())) {
+            return true;
+        }
+        return !sentence.isJudgment() && (sentence.term.hasVarQuery() || beliefTerm.hasVarQuery());
+    }
+
     /**
      * Check whether two sentences can be used in revision
      *
@@ -99,8 +120,8 @@ public class LocalRules {
         }
         return (s1.getRevisible() && 
                 matchingOrder(s1.getTemporalOrder(), s2.getTemporalOrder()) &&
-                CompoundTerm.cloneDeepReplaceIntervals(s1.term).equals(CompoundTerm.cloneDeepReplaceIntervals(s2.term)) && 
-                !Stamp.baseOverlap(s1.stamp.evidentialBase, s2.stamp.evidentialBase));
+                s1.term.conceptKey().equals(s2.term.conceptKey()) && 
+                !Stamp.baseOverlap(s1.stamp, s2.stamp));
     }
 
     /**
@@ -175,6 +196,7 @@ public class LocalRules {
         }*/
 
         task.setBestSolution(memory,belief);
+        memory.queries.answer(task, belief);
         
         //memory.logic.SOLUTION_BEST.commit(task.getPriority());
         
@@ -183,7 +205,9 @@ public class LocalRules {
             
             //Solution Activated
             if(task.sentence.punctuation==Symbols.QUESTION_MARK || task.sentence.punctuation==Symbols.QUEST_MARK) {
-                if(task.isInput() && report) { //only show input tasks as solutions
+                if(memory.queries.isQuery(task)) {
+                    //answered to its query only
+                } else if(task.isInput() && report) { //only show input tasks as solutions
                     memory.emit(Answer.class, task, belief); 
                 } else {
                     memory.emit(Output.class, task, belief);   //solution to quests and questions can be always showed   
@@ -0,0 +1,239 @@
+package nars.inference;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import nars.entity.TermLink;
+import nars.io.Symbols.NativeOperator;
+import static nars.io.Symbols.NativeOperator.*;
+import nars.language.Term;
+
+/**
+ * The inference cases of RuleTables.reason, indexed by the types of the task
+ * link and of the belief link, and by the operators of the task term and of
+ * the belief term.
+ * <p>
+ * The table is built once, from the same conditions on the classes of the
+ * terms which the rules of each case test, so reason() can tell from the
+ * index alone that no rule applies to a pair, before looking up the belief.
+ * While Metrics is enabled, every selection of an entry is counted in the
+ * Hits of the memory it was selected for.
+ */
+public final class RuleDispatch {
+
+    /** the cases of RuleTables.reason, named by the task link type and the belief link type */
+    public enum Rule {
+        SELF_COMPONENT,
+        SELF_COMPOUND,
+        SELF_COMPONENT_STATEMENT,
+        SELF_COMPOUND_STATEMENT,
+        SELF_COMPONENT_CONDITION,
+        SELF_COMPOUND_CONDITION,
+        COMPOUND_COMPOUND,
+        COMPOUND_COMPOUND_STATEMENT,
+        COMPOUND_COMPOUND_CONDITION,
+        COMPOUND_STATEMENT_COMPONENT,
+        COMPOUND_STATEMENT_COMPOUND,
+        COMPOUND_STATEMENT_COMPOUND_STATEMENT,
+        COMPOUND_STATEMENT_COMPOUND_CONDITION,
+        COMPOUND_CONDITION_COMPOUND,
+        COMPOUND_CONDITION_COMPOUND_STATEMENT
+    }
+
+    private static final int LINK_TYPES = TermLink.TEMPORAL + 1;
+    private static final NativeOperator[] operators = NativeOperator.values();
+    private static final int OPERATORS = operators.length;
+
+    private static final Rule[] rules = new Rule[LINK_TYPES * LINK_TYPES * OPERATORS * OPERATORS];
+
+    static {
+        for (short t = 0; t < LINK_TYPES; t++)
+            for (short b = 0; b < LINK_TYPES; b++)
+                for (final NativeOperator taskOp : operators)
+                    for (final NativeOperator beliefOp : operators)
+                        rules[index(t, b, taskOp, beliefOp)] = applicable(t, b, taskOp, beliefOp);
+    }
+
+    private RuleDispatch() {
+    }
+
+    private static int index(final int taskLinkType, final int beliefLinkType, final NativeOperator taskOp, final NativeOperator beliefOp) {
+        return ((taskLinkType * LINK_TYPES + beliefLinkType) * OPERATORS + taskOp.ordinal()) * OPERATORS + beliefOp.ordinal();
+    }
+
+    /**
+     * The case of RuleTables.reason for a pair, counting a hit of its entry
+     *
+     * @param hits where to count the hit, null not to count it
+     * @return the case, or null if no rule of reason() can apply
+     */
+    public static Rule rule(final Hits hits, final short taskLinkType, final short beliefLinkType, final Term taskTerm, final Term beliefTerm) {
+        if ((taskLinkType < 0) || (taskLinkType >= LINK_TYPES) || (beliefLinkType < 0) || (beliefLinkType >= LINK_TYPES))
+            return null;
+        final int i = index(taskLinkType, beliefLinkType, taskTerm.operator(), beliefTerm.operator());
+        if (hits != null)
+            hits.hit(i);
+        return rules[i];
+    }
+
+    /** the case for a pair, without counting */
+    public static Rule get(final short taskLinkType, final short beliefLinkType, final NativeOperator taskOp, final NativeOperator beliefOp) {
+        return rules[index(taskLinkType, beliefLinkType, taskOp, beliefOp)];
+    }
+
+    /**
+     * The selections of each entry, by the memory they were made for.  The
+     * counts of a pair of link types are allocated on its first hit, as few
+     * of the pairs are ever selected.
+     */
+    public static final class Hits implements Serializable {
+
+        private static final int ROW = OPERATORS * OPERATORS;
+
+        private final AtomicReferenceArray<AtomicLongArray> rows = new AtomicReferenceArray(LINK_TYPES * LINK_TYPES);
+
+        private void hit(final int i) {
+            AtomicLongArray row = rows.get(i / ROW);
+            if (row == null) {
+                rows.compareAndSet(i / ROW, null, new AtomicLongArray(ROW));
+                row = rows.get(i / ROW);
+            }
+            row.incrementAndGet(i % ROW);
+        }
+
+        private long count(final int i) {
+            final AtomicLongArray row = rows.get(i / ROW);
+            return row == null ? 0 : row.get(i % ROW);
+        }
+
+        public long get(final short taskLinkType, final short beliefLinkType, final NativeOperator taskOp, final NativeOperator beliefOp) {
+            return count(index(taskLinkType, beliefLinkType, taskOp, beliefOp));
+        }
+
+        public void clear() {
+            for (int r = 0; r < rows.length(); r++)
+                rows.set(r, null);
+        }
+
+        /**
+         * The most hit entries, one per line: the hits, the link types and the
+         * operators of the pair, and the case, "-" for pairs without one
+         */
+        public String report(final int max) {
+            final List<Integer> hit = new ArrayList();
+            for (int i = 0; i < rules.length; i++)
+                if (count(i) > 0)
+                    hit.add(i);
+            Collections.sort(hit, new Comparator<Integer>() {
+                @Override public int compare(final Integer a, final Integer b) {
+                    return Long.compare(count(b), count(a));
+                }
+            });
+
+            final StringBuilder sb = new StringBuilder();
+            for (final int i : hit.subList(0, Math.min(max, hit.size()))) {
+                final int beliefOp = i % OPERATORS;
+                final int taskOp = (i / OPERATORS) % OPERATORS;
+                final int links = i / (OPERATORS * OPERATORS);
+                sb.append(count(i)).append('\t')
+                        .append(links / LINK_TYPES).append(' ').append(links % LINK_TYPES).append('\t')
+                        .append(operators[taskOp].symbol).append(' ').append(operators[beliefOp].symbol).append('\t')
+                        .append(rules[i] == null ? "-" : rules[i].name()).append('\n');
+            }
+            return sb.toString();
+        }
+    }
+
+    /** the case whose rules can apply to terms with the operators, as reason() and the rules test them */
+    private static Rule applicable(final short taskLinkType, final short beliefLinkType, final NativeOperator taskOp, final NativeOperator beliefOp) {
+        switch (taskLinkType) {
+            case TermLink.SELF:
+                switch (beliefLinkType) {
+                    case TermLink.COMPONENT:
+                        return structural(taskOp) ? Rule.SELF_COMPONENT : null;
+                    case TermLink.COMPOUND:
+                        return structural(beliefOp) ? Rule.SELF_COMPOUND : null;
+                    case TermLink.COMPONENT_STATEMENT:
+                        return statement(taskOp) ? Rule.SELF_COMPONENT_STATEMENT : null;
+                    case TermLink.COMPOUND_STATEMENT:
+                        return Rule.SELF_COMPOUND_STATEMENT;
+                    case TermLink.COMPONENT_CONDITION:
+                        return implication(taskOp) ? Rule.SELF_COMPONENT_CONDITION : null;
+                    case TermLink.COMPOUND_CONDITION:
+                        return implication(taskOp) && implication(beliefOp) ? Rule.SELF_COMPOUND_CONDITION : null;
+                }
+                return null;
+            case TermLink.COMPOUND:
+                switch (beliefLinkType) {
+                    case TermLink.COMPOUND:
+                        return structural(taskOp) && (termClass(taskOp) == termClass(beliefOp)) ? Rule.COMPOUND_COMPOUND : null;
+                    case TermLink.COMPOUND_STATEMENT:
+                        return conjunction(taskOp) || (beliefOp == INHERITANCE) || (beliefOp == SIMILARITY) ? Rule.COMPOUND_COMPOUND_STATEMENT : null;
+                    case TermLink.COMPOUND_CONDITION:
+                        return implication(beliefOp) || equivalence(beliefOp) ? Rule.COMPOUND_COMPOUND_CONDITION : null;
+                }
+                return null;
+            case TermLink.COMPOUND_STATEMENT:
+                switch (beliefLinkType) {
+                    case TermLink.COMPONENT:
+                        return (taskOp == INHERITANCE) || (taskOp == SIMILARITY) ? Rule.COMPOUND_STATEMENT_COMPONENT : null;
+                    case TermLink.COMPOUND:
+                        return statement(taskOp) && (conjunction(beliefOp) || (taskOp == INHERITANCE) || (taskOp == SIMILARITY)) ? Rule.COMPOUND_STATEMENT_COMPOUND : null;
+                    case TermLink.COMPOUND_STATEMENT:
+                        if (taskOp == INHERITANCE)
+                            return Rule.COMPOUND_STATEMENT_COMPOUND_STATEMENT;
+                        return ((taskOp == SIMILARITY) || implication(taskOp) || equivalence(taskOp)) && statement(beliefOp) ? Rule.COMPOUND_STATEMENT_COMPOUND_STATEMENT : null;
+                    case TermLink.COMPOUND_CONDITION:
+                        return statement(taskOp) && implication(beliefOp) ? Rule.COMPOUND_STATEMENT_COMPOUND_CONDITION : null;
+                }
+                return null;
+            case TermLink.COMPOUND_CONDITION:
+                switch (beliefLinkType) {
+                    case TermLink.COMPOUND:
+                        return Rule.COMPOUND_CONDITION_COMPOUND;
+                    case TermLink.COMPOUND_STATEMENT:
+                        return implication(taskOp) ? Rule.COMPOUND_CONDITION_COMPOUND_STATEMENT : null;
+                }
+                return null;
+        }
+        return null;
+    }
+
+    /** the operators of Conjunction */
+    private static boolean conjunction(final NativeOperator o) {
+        return (o == CONJUNCTION) || (o == SEQUENCE) || (o == PARALLEL);
+    }
+
+    private static boolean implication(final NativeOperator o) {
+        return (o == IMPLICATION) || (o == IMPLICATION_AFTER) || (o == IMPLICATION_WHEN) || (o == IMPLICATION_BEFORE);
+    }
+
+    private static boolean equivalence(final NativeOperator o) {
+        return (o == EQUIVALENCE) || (o == EQUIVALENCE_AFTER) || (o == EQUIVALENCE_WHEN);
+    }
+
+    /** the operators of the Statements built: Inheritance, Similarity, Implication and Equivalence */
+    private static boolean statement(final NativeOperator o) {
+        return (o == INHERITANCE) || (o == SIMILARITY) || implication(o) || equivalence(o);
+    }
+
+    /** the compounds RuleTables.compoundAndSelf has rules for */
+    private static boolean structural(final NativeOperator o) {
+        return conjunction(o) || (o == DISJUNCTION) || (o == NEGATION);
+    }
+
+    /** the operator standing for the class of the terms with the operator */
+    private static NativeOperator termClass(final NativeOperator o) {
+        if (conjunction(o))
+            return CONJUNCTION;
+        if (implication(o))
+            return IMPLICATION;
+        if (equivalence(o))
+            return EQUIVALENCE;
+        return o;
+    }
+}
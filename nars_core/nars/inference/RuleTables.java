@@ -21,6 +21,7 @@
 package nars.inference;
 
 import java.util.HashSet;
+import nars.util.EventEmitter;
 import nars.util.Events;
 import nars.storage.Memory;
 import nars.config.Parameters;
@@ -61,7 +62,13 @@ import nars.operator.Operation;
  * to the relevant inference rules.
  */
 public class RuleTables {
+    /* the id of the event emitted on the inference path, see EventEmitter.id */
+    private static final int BELIEF_REASON = EventEmitter.id(Events.BeliefReason.class);
     
+    /** the rule names of the derivations of LocalRules.match and transformTask, for Metrics */
+    public static final String MATCH = "MATCH";
+    public static final String TRANSFORM = "TRANSFORM";
+
     
     /**
      * Entry point of the inference engine
@@ -84,6 +91,12 @@ public class RuleTables {
         if(equalSubTermsInRespectToImageAndProduct(taskTerm,beliefTerm))
            return;
         
+        //the rules for the link types and operators, see RuleDispatch; the hits are counted for Metrics
+        final RuleDispatch.Rule rule = RuleDispatch.rule(memory.metrics != null ? memory.ruleHits : null, tLink.type, bLink.type, taskTerm, beliefTerm);
+        if ((rule == null) && !LocalRules.mayMatch(taskSentence, beliefTerm) && !memory.emitting(BELIEF_REASON)) {
+            return; //nothing can be derived from the pair, so don't look up the belief unless it is observed
+        }
+        
         final Concept beliefConcept = memory.concept(beliefTerm);
         
         Sentence belief = (beliefConcept != null) ? beliefConcept.getBelief(nal, task) : null;
@@ -96,7 +109,7 @@ public class RuleTables {
           /*Sentence belief_event = beliefConcept.getBeliefForTemporalInference(task);
             if(belief_event != null) {
                 boolean found_overlap = false;
-                if(Stamp.baseOverlap(task.sentence.stamp.evidentialBase, belief_event.stamp.evidentialBase)) {
+                if(Stamp.baseOverlap(task.sentence.stamp, belief_event.stamp)) {
                     found_overlap = true;
                 }
                 if(!found_overlap) { //temporal rules are inductive so no chance to succeed if there is an overlap
@@ -111,7 +124,7 @@ public class RuleTables {
             }*/
             
             //too restrictive, its checked for non-deductive inference rules in derivedTask (also for single prem)
-            if(Stamp.baseOverlap(task.sentence.stamp.evidentialBase, belief.stamp.evidentialBase)) {
+            if(Stamp.baseOverlap(task.sentence.stamp, belief.stamp)) {
                 nal.evidentalOverlap = true;
                 if(!task.sentence.isEternal() || !belief.isEternal()) {
                     return; //only allow for eternal reasoning for now to prevent derived event floods
@@ -120,8 +133,10 @@ public class RuleTables {
             }
             //comment out for recursive examples, this is for the future, it generates a lot of potentially useless tasks
             
-            nal.emit(Events.BeliefReason.class, belief, beliefTerm, taskTerm, nal);
+            if (nal.memory.emitting(BELIEF_REASON))
+                nal.emit(BELIEF_REASON, Events.BeliefReason.class, belief, beliefTerm, taskTerm, nal.observed());
             
+            nal.setCurrentRule(MATCH);
             if (LocalRules.match(task, belief, nal)) { //new tasks resulted from the match, so return
                 return;
             }
@@ -135,130 +150,117 @@ public class RuleTables {
             return;
         }*/
         
+        if (rule == null) {
+            return;
+        }
+        
+        nal.setCurrentRule(rule.name());
         final short tIndex = tLink.getIndex(0);
         short bIndex = bLink.getIndex(0);
-        switch (tLink.type) {          // dispatch first by TaskLink type
-            case TermLink.SELF:
-                switch (bLink.type) {
-                    case TermLink.COMPONENT:
-                        compoundAndSelf((CompoundTerm) taskTerm, beliefTerm, true, bIndex,  nal);
-                        break;
-                    case TermLink.COMPOUND:
-                        compoundAndSelf((CompoundTerm) beliefTerm, taskTerm, false, bIndex, nal);
-                        break;
-                    case TermLink.COMPONENT_STATEMENT:
-                        if (belief != null) {
-                            if (taskTerm instanceof Statement) {
-                                SyllogisticRules.detachment(taskSentence, belief, bIndex, nal);
-                            }
-                        } //else {
-                        try {
-                            goalFromQuestion(task, taskTerm, nal); 
-                        }catch(Exception ex) {} //todo fix
-                        //}
-                        break;
-                    case TermLink.COMPOUND_STATEMENT:
-                        if (belief != null) {
-                            SyllogisticRules.detachment(belief, taskSentence, bIndex, nal);
-                        }
-                        break;
-                    case TermLink.COMPONENT_CONDITION:
-                        if ((belief != null) && (taskTerm instanceof Implication)) {
-                            bIndex = bLink.getIndex(1);
-                            SyllogisticRules.conditionalDedInd(task.sentence,(Implication) taskTerm, bIndex, beliefTerm, tIndex, nal);
-                        }
-                        break;
-                    case TermLink.COMPOUND_CONDITION:
-                        if ((belief != null) && (taskTerm instanceof Implication) && (beliefTerm instanceof Implication)) {
-                            bIndex = bLink.getIndex(1);
-                            SyllogisticRules.conditionalDedInd(belief,(Implication) beliefTerm, bIndex, taskTerm, tIndex, nal);
-                        }
-                        break;
+        switch (rule) {
+            case SELF_COMPONENT:
+                compoundAndSelf((CompoundTerm) taskTerm, beliefTerm, true, bIndex,  nal);
+                break;
+            case SELF_COMPOUND:
+                compoundAndSelf((CompoundTerm) beliefTerm, taskTerm, false, bIndex, nal);
+                break;
+            case SELF_COMPONENT_STATEMENT:
+                if (belief != null) {
+                    if (taskTerm instanceof Statement) {
+                        SyllogisticRules.detachment(taskSentence, belief, bIndex, nal);
+                    }
+                } //else {
+                try {
+                    goalFromQuestion(task, taskTerm, nal); 
+                }catch(Exception ex) {} //todo fix
+                //}
+                break;
+            case SELF_COMPOUND_STATEMENT:
+                if (belief != null) {
+                    SyllogisticRules.detachment(belief, taskSentence, bIndex, nal);
                 }
                 break;
-            case TermLink.COMPOUND:
-                switch (bLink.type) {
-                    case TermLink.COMPOUND:
-                        compoundAndCompound((CompoundTerm) taskTerm, (CompoundTerm) beliefTerm, bIndex, nal);
-                        break;
-                    case TermLink.COMPOUND_STATEMENT:
-                        compoundAndStatement((CompoundTerm) taskTerm, tIndex, (Statement) beliefTerm, bIndex, beliefTerm, nal);
-                        break;
-                    case TermLink.COMPOUND_CONDITION:
-                        if (belief != null) {
-                            if (beliefTerm instanceof Implication) {
-                                Term[] u = new Term[] { beliefTerm, taskTerm };
-                                if (Variables.unify(VAR_INDEPENDENT, ((Statement) beliefTerm).getSubject(), taskTerm, u)) {
-                                    Sentence newBelief = belief.clone(u[0]);
-                                    Sentence newTaskSentence = taskSentence.clone(u[1]);
-                                    detachmentWithVar(newBelief, newTaskSentence, bIndex, nal);
-                                } else {
-                                    SyllogisticRules.conditionalDedInd(belief, (Implication) beliefTerm, bIndex, taskTerm, -1, nal);
-                                }                                
-                                
-                            } else if (beliefTerm instanceof Equivalence) {
-                                SyllogisticRules.conditionalAna((Equivalence) beliefTerm, bIndex, taskTerm, -1, nal);
-                            }
-                        }
-                        break;
+            case SELF_COMPONENT_CONDITION:
+                if ((belief != null) && (taskTerm instanceof Implication)) {
+                    bIndex = bLink.getIndex(1);
+                    SyllogisticRules.conditionalDedInd(task.sentence,(Implication) taskTerm, bIndex, beliefTerm, tIndex, nal);
                 }
                 break;
-            case TermLink.COMPOUND_STATEMENT:
-                switch (bLink.type) {
-                    case TermLink.COMPONENT:
-                        if (taskTerm instanceof Statement) {
-                            componentAndStatement((CompoundTerm) nal.getCurrentTerm(), bIndex, (Statement) taskTerm, tIndex, nal);
-                        }
-                        break;
-                    case TermLink.COMPOUND:
-                        if (taskTerm instanceof Statement) {
-                            compoundAndStatement((CompoundTerm) beliefTerm, bIndex, (Statement) taskTerm, tIndex, beliefTerm, nal);
-                        }
-                        break;
-                    case TermLink.COMPOUND_STATEMENT:
-                        if (belief != null) {
-                            syllogisms(tLink, bLink, taskTerm, beliefTerm, nal);
-                        }
-                        break;
-                    case TermLink.COMPOUND_CONDITION:
-                        if (belief != null) {
-                            bIndex = bLink.getIndex(1);
-                            if ((taskTerm instanceof Statement) && (beliefTerm instanceof Implication)) {
-                                
-                                    conditionalDedIndWithVar(belief, (Implication) beliefTerm, bIndex, (Statement) taskTerm, tIndex, nal);
-                            }
-                        }
-                        break;
+            case SELF_COMPOUND_CONDITION:
+                if ((belief != null) && (taskTerm instanceof Implication) && (beliefTerm instanceof Implication)) {
+                    bIndex = bLink.getIndex(1);
+                    SyllogisticRules.conditionalDedInd(belief,(Implication) beliefTerm, bIndex, taskTerm, tIndex, nal);
                 }
                 break;
-            case TermLink.COMPOUND_CONDITION:
-                switch (bLink.type) {
-                      case TermLink.COMPOUND:
-                        if (belief != null) {
-                            detachmentWithVar(taskSentence, belief, tIndex, nal);
-                        }
-                        break;
-                    
-                    case TermLink.COMPOUND_STATEMENT:
-                        if (belief != null) {
-                            if (taskTerm instanceof Implication) // TODO maybe put instanceof test within conditionalDedIndWithVar()
-                            {
-                                Term subj = ((Statement) taskTerm).getSubject();
-                                if (subj instanceof Negation) {
-                                    if (taskSentence.isJudgment()) {
-                                    componentAndStatement((CompoundTerm) subj, bIndex, (Statement) taskTerm, tIndex, nal);
-                                    } else {
-                                    componentAndStatement((CompoundTerm) subj, tIndex, (Statement) beliefTerm, bIndex, nal);
-                                    }
-                                    } else {
-                                    conditionalDedIndWithVar(task.sentence, (Implication) taskTerm, tIndex, (Statement) beliefTerm, bIndex, nal);
-                                    }
-                                }
-                                break;
-                            
+            case COMPOUND_COMPOUND:
+                compoundAndCompound((CompoundTerm) taskTerm, (CompoundTerm) beliefTerm, bIndex, nal);
+                break;
+            case COMPOUND_COMPOUND_STATEMENT:
+                compoundAndStatement((CompoundTerm) taskTerm, tIndex, (Statement) beliefTerm, bIndex, beliefTerm, nal);
+                break;
+            case COMPOUND_COMPOUND_CONDITION:
+                if (belief != null) {
+                    if (beliefTerm instanceof Implication) {
+                        Term[] u = new Term[] { beliefTerm, taskTerm };
+                        if (Variables.unify(VAR_INDEPENDENT, ((Statement) beliefTerm).getSubject(), taskTerm, u)) {
+                            Sentence newBelief = belief.clone(u[0]);
+                            Sentence newTaskSentence = taskSentence.clone(u[1]);
+                            detachmentWithVar(newBelief, newTaskSentence, bIndex, nal);
+                        } else {
+                            SyllogisticRules.conditionalDedInd(belief, (Implication) beliefTerm, bIndex, taskTerm, -1, nal);
+                        }                                
+                        
+                    } else if (beliefTerm instanceof Equivalence) {
+                        SyllogisticRules.conditionalAna((Equivalence) beliefTerm, bIndex, taskTerm, -1, nal);
+                    }
+                }
+                break;
+            case COMPOUND_STATEMENT_COMPONENT:
+                if (taskTerm instanceof Statement) {
+                    componentAndStatement((CompoundTerm) nal.getCurrentTerm(), bIndex, (Statement) taskTerm, tIndex, nal);
+                }
+                break;
+            case COMPOUND_STATEMENT_COMPOUND:
+                if (taskTerm instanceof Statement) {
+                    compoundAndStatement((CompoundTerm) beliefTerm, bIndex, (Statement) taskTerm, tIndex, beliefTerm, nal);
+                }
+                break;
+            case COMPOUND_STATEMENT_COMPOUND_STATEMENT:
+                if (belief != null) {
+                    syllogisms(tLink, bLink, taskTerm, beliefTerm, nal);
+                }
+                break;
+            case COMPOUND_STATEMENT_COMPOUND_CONDITION:
+                if (belief != null) {
+                    bIndex = bLink.getIndex(1);
+                    if ((taskTerm instanceof Statement) && (beliefTerm instanceof Implication)) {
+                        
+                            conditionalDedIndWithVar(belief, (Implication) beliefTerm, bIndex, (Statement) taskTerm, tIndex, nal);
+                    }
+                }
+                break;
+            case COMPOUND_CONDITION_COMPOUND:
+                if (belief != null) {
+                    detachmentWithVar(taskSentence, belief, tIndex, nal);
+                }
+                break;
+            case COMPOUND_CONDITION_COMPOUND_STATEMENT:
+                if (belief != null) {
+                    if (taskTerm instanceof Implication) // TODO maybe put instanceof test within conditionalDedIndWithVar()
+                    {
+                        Term subj = ((Statement) taskTerm).getSubject();
+                        if (subj instanceof Negation) {
+                            if (taskSentence.isJudgment()) {
+                            componentAndStatement((CompoundTerm) subj, bIndex, (Statement) taskTerm, tIndex, nal);
+                            } else {
+                            componentAndStatement((CompoundTerm) subj, tIndex, (Statement) beliefTerm, bIndex, nal);
+                            }
+                            } else {
+                            conditionalDedIndWithVar(task.sentence, (Implication) taskTerm, tIndex, (Statement) beliefTerm, bIndex, nal);
+                            }
                         }
-                        break;
                 }
+                break;
         }
     }
 
@@ -269,19 +271,19 @@ public class RuleTables {
             if(taskTerm instanceof Implication) {
                 Implication imp=(Implication)taskTerm;
                 if(imp.getTemporalOrder()!=TemporalRules.ORDER_BACKWARD || imp.getTemporalOrder()==TemporalRules.ORDER_CONCURRENT) {
-                    if(!Parameters.CURIOSITY_FOR_OPERATOR_ONLY || imp.getSubject() instanceof Operation) {
+                    if(!nal.memory.param.curiosityForOperatorOnly.get() || imp.getSubject() instanceof Operation) {
                         goalterm=imp.getSubject();
                     }
-                    if(goalterm instanceof Variable && goalterm.hasVarQuery() && (!Parameters.CURIOSITY_FOR_OPERATOR_ONLY || imp.getPredicate() instanceof Operation)) {
+                    if(goalterm instanceof Variable && goalterm.hasVarQuery() && (!nal.memory.param.curiosityForOperatorOnly.get() || imp.getPredicate() instanceof Operation)) {
                         goalterm=imp.getPredicate(); //overwrite, it is a how question, in case of <?how =/> b> it is b! which is desired
                     }
                 }
                 else
                     if(imp.getTemporalOrder()==TemporalRules.ORDER_BACKWARD) {
-                        if(!Parameters.CURIOSITY_FOR_OPERATOR_ONLY || imp.getPredicate() instanceof Operation) {
+                        if(!nal.memory.param.curiosityForOperatorOnly.get() || imp.getPredicate() instanceof Operation) {
                             goalterm=imp.getPredicate();
                         }
-                        if(goalterm instanceof Variable && goalterm.hasVarQuery() && (!Parameters.CURIOSITY_FOR_OPERATOR_ONLY || imp.getSubject() instanceof Operation)) {
+                        if(goalterm instanceof Variable && goalterm.hasVarQuery() && (!nal.memory.param.curiosityForOperatorOnly.get() || imp.getSubject() instanceof Operation)) {
                             goalterm=imp.getSubject(); //overwrite, it is a how question, in case of <?how =/> b> it is b! which is desired
                         }
                     }
@@ -290,24 +292,24 @@ public class RuleTables {
                 if(taskTerm instanceof Equivalence) {
                     Equivalence qu=(Equivalence)taskTerm;
                     if(qu.getTemporalOrder()==TemporalRules.ORDER_FORWARD || qu.getTemporalOrder()==TemporalRules.ORDER_CONCURRENT) {
-                        if(!Parameters.CURIOSITY_FOR_OPERATOR_ONLY || qu.getSubject() instanceof Operation) {
+                        if(!nal.memory.param.curiosityForOperatorOnly.get() || qu.getSubject() instanceof Operation) {
                             goalterm=qu.getSubject();
                         }
-                        if(!Parameters.CURIOSITY_FOR_OPERATOR_ONLY || qu.getPredicate() instanceof Operation) {
+                        if(!nal.memory.param.curiosityForOperatorOnly.get() || qu.getPredicate() instanceof Operation) {
                             goalterm2=qu.getPredicate();
                         }
                     }
                 }
-            TruthValue truth=new TruthValue(1.0f,Parameters.DEFAULT_GOAL_CONFIDENCE*Parameters.CURIOSITY_DESIRE_CONFIDENCE_MUL);
+            TruthValue truth=new TruthValue(1.0f,Parameters.DEFAULT_GOAL_CONFIDENCE*nal.memory.param.curiosityDesireConfidenceMul.floatValue());
             if(goalterm!=null && !(goalterm instanceof Variable) && goalterm instanceof CompoundTerm) {
                 goalterm=((CompoundTerm)goalterm).transformIndependentVariableToDependentVar((CompoundTerm) goalterm);
                 Sentence sent=new Sentence(goalterm,Symbols.GOAL_MARK,truth,new Stamp(task.sentence.stamp,nal.memory.time()));
-                nal.singlePremiseTask(sent, new BudgetValue(task.getPriority()*Parameters.CURIOSITY_DESIRE_PRIORITY_MUL,task.getDurability()*Parameters.CURIOSITY_DESIRE_DURABILITY_MUL,BudgetFunctions.truthToQuality(truth)));
+                nal.singlePremiseTask(sent, new BudgetValue(task.getPriority()*nal.memory.param.curiosityDesirePriorityMul.floatValue(),task.getDurability()*nal.memory.param.curiosityDesireDurabilityMul.floatValue(),BudgetFunctions.truthToQuality(truth)));
             }
             if(goalterm2!=null && !(goalterm2 instanceof Variable) && goalterm2 instanceof CompoundTerm) {
                 goalterm2=((CompoundTerm)goalterm).transformIndependentVariableToDependentVar((CompoundTerm) goalterm2);
                 Sentence sent=new Sentence(goalterm2,Symbols.GOAL_MARK,truth.clone(),new Stamp(task.sentence.stamp,nal.memory.time()));
-                nal.singlePremiseTask(sent, new BudgetValue(task.getPriority()*Parameters.CURIOSITY_DESIRE_PRIORITY_MUL,task.getDurability()*Parameters.CURIOSITY_DESIRE_DURABILITY_MUL,BudgetFunctions.truthToQuality(truth)));
+                nal.singlePremiseTask(sent, new BudgetValue(task.getPriority()*nal.memory.param.curiosityDesirePriorityMul.floatValue(),task.getDurability()*nal.memory.param.curiosityDesireDurabilityMul.floatValue(),BudgetFunctions.truthToQuality(truth)));
             }
         }
     }
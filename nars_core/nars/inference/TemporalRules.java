@@ -424,15 +424,7 @@ public class TemporalRules {
                         TruthValue cur=bel.truth;
                         conf=Math.max(cur.getConfidence(), conf); //no matter if revision is possible, it wont be below max
                         //if there is no overlapping evidental base, use revision:
-                        boolean revisable=true;
-                        for(long l: bel.stamp.evidentialBase) {
-                            for(long h: task.sentence.stamp.evidentialBase) {
-                                if(l==h) {
-                                    revisable=false;
-                                    break;
-                                }
-                            }
-                        }
+                        boolean revisable=!bel.stamp.sharesEvidenceWith(task.sentence.stamp);
                         if(revisable) {
                             conf=TruthFunctions.revision(task.sentence.truth, bel.truth).getConfidence();
                         }
@@ -472,7 +464,7 @@ public class TemporalRules {
     }
 
     private static void questionFromLowConfidenceHighPriorityJudgement(Task task, double conf, final DerivationContext nal) {
-        if(nal.memory.emotion.busy()<Parameters.CURIOSITY_BUSINESS_THRESHOLD &&  Parameters.CURIOSITY_ALSO_ON_LOW_CONFIDENT_HIGH_PRIORITY_BELIEF && task.sentence.punctuation==Symbols.JUDGMENT_MARK && conf<Parameters.CURIOSITY_CONFIDENCE_THRESHOLD && task.getPriority()>Parameters.CURIOSITY_PRIORITY_THRESHOLD) {
+        if(nal.memory.emotion.busy()<nal.memory.param.curiosityBusinessThreshold.floatValue() &&  nal.memory.param.curiosityAlsoOnLowConfidentHighPriorityBelief.get() && task.sentence.punctuation==Symbols.JUDGMENT_MARK && conf<nal.memory.param.curiosityConfidenceThreshold.floatValue() && task.getPriority()>nal.memory.param.curiosityPriorityThreshold.floatValue()) {
             if(task.sentence.term instanceof Implication) {
                 boolean valid=false;
                 if(task.sentence.term instanceof Implication) {
@@ -484,8 +476,8 @@ public class TemporalRules {
                 if(valid) {
                     Sentence tt2=new Sentence(task.sentence.term.clone(),Symbols.QUESTION_MARK,null,new Stamp(task.sentence.stamp.clone(),nal.memory.time()));
                     BudgetValue budg=task.budget.clone();
-                    budg.setPriority(budg.getPriority()*Parameters.CURIOSITY_DESIRE_PRIORITY_MUL);
-                    budg.setDurability(budg.getPriority()*Parameters.CURIOSITY_DESIRE_DURABILITY_MUL);
+                    budg.setPriority(budg.getPriority()*nal.memory.param.curiosityDesirePriorityMul.floatValue());
+                    budg.setDurability(budg.getPriority()*nal.memory.param.curiosityDesireDurabilityMul.floatValue());
                     nal.singlePremiseTask(tt2, task.budget.clone());
                 }
             }
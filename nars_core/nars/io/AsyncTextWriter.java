@@ -0,0 +1,261 @@
+package nars.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import nars.entity.Sentence;
+import nars.entity.Task;
+
+/**
+ * Writes the output of a TextOutput on a background thread.
+ * <p>
+ * The reasoner only puts a signal, together with the time it was emitted at,
+ * into a bounded queue; a Task is copied with its truth and budget as they
+ * are then, as the reasoner may revise them before the line is formatted.  The writer thread drains the queue in batches,
+ * formats a whole batch into one reused StringBuilder and writes it to the
+ * channel with a single call, instead of formatting and flushing every line
+ * on the inference thread.  What happens when the queue is full is decided
+ * by the Backpressure mode.  A failure to write is reported on the ERR
+ * channel of the NAR with the next signal offered, on the reasoner's thread.
+ */
+public class AsyncTextWriter implements Runnable {
+
+    public enum Backpressure {
+        /** signals arriving while the queue is full are dropped */
+        DROP,
+        /** the reasoner waits until there is room in the queue */
+        BLOCK,
+        /** above half the capacity only every n-th signal is kept, and none when full */
+        SAMPLE
+    }
+
+    /** a signal as it was when emitted */
+    static final class Signal {
+        final Class channel;
+        final Object signal;
+        final long time;
+        final Sentence solution;
+
+        Signal(final Class channel, final Object signal, final long time, final Sentence solution) {
+            this.channel = channel;
+            this.signal = (signal instanceof Task) ? snapshot((Task) signal) : signal;
+            this.time = time;
+            this.solution = (solution != null) ? solution.clone() : null;
+        }
+
+        /** a copy of the sentence and budget of a task, which is all that is formatted of it */
+        static Task snapshot(final Task t) {
+            return new Task(t.sentence.clone(), t.budget.clone());
+        }
+    }
+
+    private final TextOutput output;
+    private final WritableByteChannel out;
+    private final boolean closeChannel;
+    private final Backpressure backpressure;
+    private final int sampleRate;
+    private final int highWater;
+
+    private final ArrayBlockingQueue<Signal> queue;
+    private final ArrayList<Signal> batch;
+    private final StringBuilder text = new StringBuilder(4096);
+    private final StringBuilder line = new StringBuilder(256);
+    private final CharsetEncoder encoder = Charset.defaultCharset().newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(16 * 1024);
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private long sampled = 0;
+    private long reportedDrops = 0;
+    private volatile long written = 0;
+
+    /** the last failure to write, until it is reported on the reasoner's thread */
+    private final AtomicReference<IOException> failure = new AtomicReference();
+
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * @param output formats the signals
+     * @param out where the text is written to
+     * @param closeChannel whether out is closed together with this writer
+     * @param capacity maximum number of signals waiting to be written
+     * @param backpressure what to do when the queue is full
+     * @param sampleRate keep every sampleRate-th signal in SAMPLE mode
+     */
+    public AsyncTextWriter(final TextOutput output, final WritableByteChannel out, final boolean closeChannel, final int capacity, final Backpressure backpressure, final int sampleRate) {
+        this.output = output;
+        this.out = out;
+        this.closeChannel = closeChannel;
+        this.backpressure = backpressure;
+        this.sampleRate = Math.max(1, sampleRate);
+        this.highWater = Math.max(1, capacity / 2);
+        this.queue = new ArrayBlockingQueue(capacity);
+        this.batch = new ArrayList(capacity);
+
+        thread = new Thread(this, "TextOutput Writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** queues a signal; called on the reasoner's thread
+     *  @return whether the signal was accepted */
+    public boolean offer(final Class channel, final Object signal, final long time, final Sentence solution) {
+        reportFailure();
+        if (!running)
+            return false;
+
+        final Signal s = new Signal(channel, signal, time, solution);
+        boolean ok;
+        switch (backpressure) {
+            case BLOCK:
+                try {
+                    queue.put(s);
+                    ok = true;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    ok = false;
+                }
+                break;
+            case SAMPLE:
+                if ((queue.size() >= highWater) && ((sampled++ % sampleRate) != 0))
+                    ok = false;
+                else
+                    ok = queue.offer(s);
+                break;
+            default:
+                ok = queue.offer(s);
+                break;
+        }
+
+        if (ok)
+            accepted.incrementAndGet();
+        else
+            dropped.incrementAndGet();
+        return ok;
+    }
+
+    /** number of signals which were not written because of backpressure */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public Backpressure getBackpressure() {
+        return backpressure;
+    }
+
+    /** waits until everything accepted so far has been written */
+    public void flush() {
+        final long target = accepted.get();
+        while ((written < target) && thread.isAlive())
+            LockSupport.parkNanos(100000);
+    }
+
+    /** writes what is left and stops the writer thread */
+    public void close() {
+        if (!running)
+            return;
+        flush();
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        if (closeChannel) {
+            try {
+                out.close();
+            } catch (IOException ex) {
+                failure.set(ex);
+            }
+        }
+        reportFailure();
+    }
+
+    /** emits the last failure to write as ERR, once; not on the writer thread,
+     *  which could otherwise block on its own full queue */
+    private void reportFailure() {
+        final IOException ex = failure.getAndSet(null);
+        if (ex != null)
+            output.error(ex);
+    }
+
+    @Override
+    public void run() {
+        while (running || !queue.isEmpty()) {
+            final Signal first;
+            try {
+                first = queue.poll(50, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                continue;
+            }
+            if (first == null)
+                continue;
+
+            batch.add(first);
+            queue.drainTo(batch);
+
+            text.setLength(0);
+            for (int i = 0; i < batch.size(); i++)
+                output.format(batch.get(i), line, text);
+
+            reportDrops();
+            write();
+
+            written += batch.size();
+            batch.clear();
+        }
+
+        text.setLength(0);
+        reportDrops();
+        if (text.length() > 0)
+            write();
+    }
+
+    private void reportDrops() {
+        final long d = dropped.get();
+        if (d > reportedDrops) {
+            text.append("(").append(d - reportedDrops).append(" output signals dropped)\n");
+            reportedDrops = d;
+        }
+    }
+
+    private void write() {
+        try {
+            write(text);
+        } catch (IOException ex) {
+            bytes.clear();
+            failure.set(ex);
+        }
+    }
+
+    /** encodes the text into the reused byte buffer and writes it out, in as few writes as fit */
+    private void write(final CharSequence s) throws IOException {
+        final CharBuffer chars = CharBuffer.wrap(s);
+        encoder.reset();
+        while (encoder.encode(chars, bytes, true).isOverflow())
+            drain();
+        while (encoder.flush(bytes).isOverflow())
+            drain();
+        drain();
+    }
+
+    private void drain() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining())
+            out.write(bytes);
+        bytes.clear();
+    }
+}
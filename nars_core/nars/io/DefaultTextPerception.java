@@ -37,7 +37,7 @@ public class DefaultTextPerception implements Plugin, EventObserver {
     public List<TextReaction> parsers;
     
     
-    public Narsese narsese;    
+    public NarseseScanner narsese;    
     //public Englisch englisch;
     //public Twenglish twenglish;
     
@@ -53,7 +53,7 @@ public class DefaultTextPerception implements Plugin, EventObserver {
     public boolean setEnabled(NAR n, boolean enabled) {
         if (enabled) {
             this.memory = n.memory;
-            this.narsese = new Narsese(memory);
+            this.narsese = n.narsese;
             //this.englisch = new Englisch();
             //this.twenglish = new Twenglish(memory);
             this.parsers = getParsers();
@@ -254,7 +254,7 @@ public class DefaultTextPerception implements Plugin, EventObserver {
                     char c = input.charAt(0);
                     if (c != Symbols.COMMENT_MARK) {
                         try {
-                            Item task = narsese.parseNarsese(new StringBuilder(input));
+                            Item task = narsese.parseNarsese(input);
                             if (task != null) {
                                 return task;
                             }
@@ -25,9 +25,12 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import nars.NAR;
+import nars.io.AsyncTextWriter.Backpressure;
 import nars.io.CommandLineNARBuilder;
 
 /**
@@ -45,16 +48,29 @@ public class NARConsole {
     private boolean logging;
     private PrintStream out = System.out;
     private final boolean dumpLastState = true;
+    private Backpressure asyncOutput = null;
     int maxTime = 0;
 
     /**
      * The entry point of the standalone application.
      * <p>
-     * @param args optional argument used : one addInput file
+     * @param args optional argument used : one addInput file;
+     * "--async drop|block|sample" writes the output on a background thread
      */
     public static void main(String args[]) {
+
+        Backpressure async = null;
+        List<String> rest = new ArrayList();
+        for (int i = 0; i < args.length; i++) {
+            if ("--async".equals(args[i]) && (i + 1 < args.length))
+                async = Backpressure.valueOf(args[++i].toUpperCase());
+            else
+                rest.add(args[i]);
+        }
+        args = rest.toArray(new String[rest.size()]);
                 
         NARConsole nars = new NARConsole(new NAR(new CommandLineNARBuilder(args)));
+        nars.setAsyncOutput(async);
         nars.run(args);
         
         // TODO only if single finish ( no reset in between )
@@ -103,6 +119,8 @@ public class NARConsole {
         TextOutput output = new TextOutput(nar, new PrintWriter(out, true));
         output.setErrors(true);
         output.setErrorStackTrace(true);
+        if (asyncOutput != null)
+            output.setAsync(out, asyncOutput);
         InputThread it;
         int sleep = -1;
         boolean noFile = false;
@@ -150,6 +168,7 @@ public class NARConsole {
             }
         }
                
+        output.stop();
         System.exit(0);
     }
 
@@ -157,6 +176,12 @@ public class NARConsole {
         this.out = out;
     }
 
+    /** formats and writes the output on a background thread with the given
+     *  backpressure mode, or with null synchronously (the default) */
+    public void setAsyncOutput(Backpressure asyncOutput) {
+        this.asyncOutput = asyncOutput;
+    }
+
     private void log(String mess) {
         if (logging) {
             System.out.println("/ " + mess);
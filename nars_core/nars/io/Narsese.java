@@ -174,7 +174,7 @@ public class Narsese {
         char punc = str.charAt(last);
         
         Stamp stamp = new Stamp(-1 /* if -1, will be set right before the Task is input */, 
-                tense, memory.newStampSerial(), memory.param.duration.get());
+                tense, newStampSerial(), memory.param.duration.get());
 
         TruthValue truth = parseTruth(truthString, punc);
         Term content = parseTerm(str.substring(0, last));
@@ -190,6 +190,12 @@ public class Narsese {
 
     }
 
+    /** the serial of the stamp of a parsed task; overridden by parsers which
+     *  do not run on the reasoner's thread and number their tasks later */
+    protected long newStampSerial() {
+        return memory.newStampSerial();
+    }
+
     /* ---------- react values ---------- */
     /**
      * Return the prefix of a task symbol that contains a BudgetValue
@@ -0,0 +1,387 @@
+package nars.io;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import nars.NAR;
+import nars.config.Parameters;
+import nars.control.DerivationContext;
+import nars.entity.Concept;
+import nars.entity.Stamp;
+import nars.entity.Task;
+import nars.io.Narsese.InvalidInputException;
+import nars.io.Output.ECHO;
+import nars.io.Output.ERR;
+import nars.storage.Memory;
+import nars.util.EventEmitter.EventObserver;
+import nars.util.Events.CycleStart;
+
+/**
+ * Loads large .nal files, bypassing the one input item per cycle of
+ * TextInput.
+ * <p>
+ * The file is cut into chunks at line boundaries, each chunk is memory-mapped
+ * and parsed into tasks by a pool of worker threads, and the chunks are
+ * consumed in file order, so tasks enter memory in the order of the file.
+ * Parsing runs ahead of consumption by a few chunks only.  The tasks are
+ * either fed into memory at a fixed number per cycle (start()), or all at
+ * once with judgments put directly into the belief tables of their concepts
+ * (seed()).
+ * <p>
+ * Only Narsese tasks are loaded: comments, echoes, outputs and step counts
+ * are skipped, anything else is reported as an error with its line number on
+ * the ERR channel and in getErrors().  A summary with the throughput is
+ * emitted on the ECHO channel when the file is done.
+ */
+public class NarseseFileLoader implements EventObserver {
+
+    /** a line which could not be parsed */
+    public static class ParseError {
+        public final long line;
+        public final String text;
+        public final String message;
+
+        public ParseError(final long line, final String text, final String message) {
+            this.line = line;
+            this.text = text;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            return line + ": " + message + ": " + text;
+        }
+    }
+
+    /** the result of parsing one chunk; error line numbers are relative to the chunk */
+    static final class Chunk {
+        final List<Task> tasks = new ArrayList();
+        final List<ParseError> errors = new ArrayList();
+        long lines;
+    }
+
+    /** numbers the stamps of its tasks on the reasoner's thread, when they are consumed */
+    static final class WorkerNarsese extends Narsese {
+        WorkerNarsese(final Memory memory) {
+            super(memory);
+        }
+
+        @Override
+        protected long newStampSerial() {
+            return 0;
+        }
+    }
+
+    private final Memory memory;
+    private final Path file;
+
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int chunkSize = 4 << 20;
+    private int tasksPerCycle = 100;
+    private int maxErrors = 1000;
+
+    private FileChannel channel;
+    private long size, position;
+    private ExecutorService pool;
+    private final ArrayDeque<Future<Chunk>> pending = new ArrayDeque();
+    private Chunk current;
+    private int currentIndex;
+    private long linesBefore;
+    private boolean finished;
+
+    private long tasks, errorCount, startTime, endTime;
+    private final List<ParseError> errors = new ArrayList();
+
+    public NarseseFileLoader(final NAR nar, final Path file) {
+        this.memory = nar.memory;
+        this.file = file;
+    }
+
+    /** number of parser threads */
+    public NarseseFileLoader setThreads(final int threads) {
+        this.threads = Math.max(1, threads);
+        return this;
+    }
+
+    /** approximate number of bytes parsed as one unit of work */
+    public NarseseFileLoader setChunkSize(final int bytes) {
+        this.chunkSize = Math.max(1024, bytes);
+        return this;
+    }
+
+    /** number of tasks input at the start of each cycle, see start() */
+    public NarseseFileLoader setTasksPerCycle(final int tasksPerCycle) {
+        this.tasksPerCycle = Math.max(1, tasksPerCycle);
+        return this;
+    }
+
+    /** number of parse errors kept in getErrors(); all are counted and reported */
+    public NarseseFileLoader setMaxErrors(final int maxErrors) {
+        this.maxErrors = maxErrors;
+        return this;
+    }
+
+    /**
+     * Starts parsing and inputs up to tasksPerCycle tasks at the start of
+     * every cycle until the file is done.  Cycles do not wait for the parser:
+     * when the next chunk is not ready yet, fewer tasks are input.
+     */
+    public NarseseFileLoader start() throws IOException {
+        open();
+        memory.event.on(CycleStart.class, this);
+        return this;
+    }
+
+    /**
+     * Parses the whole file and puts it into memory right away: judgments are
+     * added to the belief tables of their concepts and linked to them, as
+     * processing them would, without being processed; other tasks are input
+     * as usual.  Blocks until done.
+     */
+    public NarseseFileLoader seed() throws IOException {
+        open();
+        final DerivationContext nal = new DerivationContext(memory);
+        Task t;
+        while ((t = next(true)) != null) {
+            if (t.sentence.isJudgment()) {
+                final Stamp s = t.sentence.stamp;
+                if (s.getCreationTime() == -1)
+                    s.setCreationTime(memory.time(), memory.param.duration.get());
+                final Concept c = memory.conceptualize(t.budget, t.getTerm());
+                if (c != null) {
+                    Concept.addToTable(t, c.beliefs, Parameters.CONCEPT_BELIEFS_MAX, false);
+                    //without links the concept would be forgotten the first time it is selected
+                    c.linkToTask(t, nal);
+                }
+            }
+            else {
+                memory.inputTask(t, false);
+            }
+        }
+        return this;
+    }
+
+    @Override
+    public void event(final Class event, final Object[] args) {
+        try {
+            for (int i = 0; i < tasksPerCycle; i++) {
+                final Task t = next(false);
+                if (t == null)
+                    break;
+                memory.inputTask(t, false);
+            }
+        }
+        catch (IOException ex) {
+            memory.emit(ERR.class, ex);
+            stop();
+        }
+        if (finished)
+            memory.event.off(CycleStart.class, this);
+    }
+
+    /** stops loading; tasks which were already input stay in memory */
+    public void stop() {
+        memory.event.off(CycleStart.class, this);
+        finish();
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /** number of tasks loaded so far */
+    public long getTasks() {
+        return tasks;
+    }
+
+    /** number of lines consumed so far */
+    public long getLines() {
+        return linesBefore;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /** the first maxErrors parse errors, with line numbers counted from 1 */
+    public List<ParseError> getErrors() {
+        return errors;
+    }
+
+    /** tasks loaded per second, so far */
+    public double getThroughput() {
+        final long end = finished ? endTime : System.nanoTime();
+        final double seconds = (end - startTime) / 1.0e9;
+        return seconds > 0 ? tasks / seconds : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s: %d lines, %d tasks, %d errors, %.1f MB in %.2f s (%.0f tasks/s)",
+                file.getFileName(), getLines(), tasks, errorCount, position / 1.0e6,
+                ((finished ? endTime : System.nanoTime()) - startTime) / 1.0e9, getThroughput());
+    }
+
+    private void open() throws IOException {
+        if (channel != null)
+            throw new IllegalStateException("already loading " + file);
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        size = channel.size();
+        pool = Executors.newFixedThreadPool(threads, r -> {
+            final Thread t = new Thread(r, "Narsese Loader");
+            t.setDaemon(true);
+            return t;
+        });
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * the next task in file order, with its stamp numbered
+     * @param block whether to wait for the parser, otherwise null is returned when it is behind
+     * @return the task, or null
+     */
+    private Task next(final boolean block) throws IOException {
+        while (!finished) {
+            if ((current != null) && (currentIndex < current.tasks.size())) {
+                final Task t = current.tasks.get(currentIndex++);
+                t.sentence.stamp.setEvidentialBase(new long[] { memory.newStampSerial() });
+                tasks++;
+                return t;
+            }
+            if (current != null) {
+                linesBefore += current.lines;
+                current = null;
+            }
+
+            while ((pending.size() < 2 * threads) && (position < size))
+                submit();
+
+            final Future<Chunk> f = pending.peek();
+            if (f == null) {
+                finish();
+                return null;
+            }
+            if (!block && !f.isDone())
+                return null;
+            pending.poll();
+            try {
+                current = f.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IOException(ex);
+            } catch (ExecutionException ex) {
+                throw new IOException(ex.getCause());
+            }
+            currentIndex = 0;
+            report(current.errors);
+        }
+        return null;
+    }
+
+    private void report(final List<ParseError> chunkErrors) {
+        for (final ParseError e : chunkErrors) {
+            final ParseError x = new ParseError(linesBefore + e.line, e.text, e.message);
+            errorCount++;
+            if (errors.size() < maxErrors)
+                errors.add(x);
+            memory.emit(ERR.class, file.getFileName() + ":" + x);
+        }
+    }
+
+    /** maps the next chunk, ending it after the last complete line, and queues it for parsing */
+    private void submit() throws IOException {
+        final long start = position;
+        long length = Math.min(chunkSize, size - start);
+        MappedByteBuffer b = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+        if (start + length < size) {
+            int end = lastNewline(b);
+            while (end < 0) {
+                //a line longer than the chunk
+                length = Math.min(length * 2, size - start);
+                b = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                end = (start + length < size) ? lastNewline(b) : (int)length - 1;
+            }
+            length = end + 1;
+        }
+        position = start + length;
+
+        final MappedByteBuffer buffer = b;
+        final int chunkLength = (int)length;
+        pending.add(pool.submit(() -> parse(buffer, chunkLength)));
+    }
+
+    private static int lastNewline(final MappedByteBuffer b) {
+        for (int i = b.limit() - 1; i >= 0; i--)
+            if (b.get(i) == '\n')
+                return i;
+        return -1;
+    }
+
+    private Chunk parse(final MappedByteBuffer buffer, final int length) {
+        final byte[] bytes = new byte[length];
+        buffer.get(bytes, 0, length);
+
+        final Narsese narsese = new WorkerNarsese(memory);
+        final Chunk chunk = new Chunk();
+        int from = 0;
+        while (from < length) {
+            int to = from;
+            while ((to < length) && (bytes[to] != '\n'))
+                to++;
+            chunk.lines++;
+            final String line = new String(bytes, from, to - from, StandardCharsets.UTF_8).trim();
+            from = to + 1;
+
+            if (skip(line))
+                continue;
+            try {
+                final Task t = narsese.parseNarsese(new StringBuilder(line));
+                if (t != null)
+                    chunk.tasks.add(t);
+            }
+            catch (InvalidInputException | RuntimeException ex) {
+                chunk.errors.add(new ParseError(chunk.lines, line, ex.getMessage() != null ? ex.getMessage() : ex.toString()));
+            }
+        }
+        return chunk;
+    }
+
+    /** lines which are not tasks: empty lines, comments, echoes, commands and step counts */
+    private static boolean skip(final String line) {
+        if (line.isEmpty())
+            return true;
+        final char c = line.charAt(0);
+        if ((c == Symbols.COMMENT_MARK) || (c == Symbols.ECHO_MARK) || (c == '*') || Character.isDigit(c))
+            return true;
+        return line.startsWith(Symbols.OUTPUT_LINE_PREFIX);
+    }
+
+    private void finish() {
+        if (finished)
+            return;
+        finished = true;
+        endTime = System.nanoTime();
+        for (final Future<Chunk> f : pending)
+            f.cancel(true);
+        pending.clear();
+        if (pool != null)
+            pool.shutdownNow();
+        try {
+            if (channel != null)
+                channel.close();
+        } catch (IOException ex) {
+        }
+        memory.emit(ECHO.class, toString());
+    }
+}
@@ -0,0 +1,639 @@
+package nars.io;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import nars.config.Parameters;
+import nars.entity.BudgetValue;
+import nars.entity.Sentence;
+import nars.entity.Stamp;
+import nars.entity.Task;
+import nars.entity.TruthValue;
+import static nars.inference.BudgetFunctions.truthToQuality;
+import static nars.io.Symbols.ARGUMENT_SEPARATOR;
+import static nars.io.Symbols.BUDGET_VALUE_MARK;
+import static nars.io.Symbols.GOAL_MARK;
+import static nars.io.Symbols.INPUT_LINE_PREFIX;
+import static nars.io.Symbols.JUDGMENT_MARK;
+import nars.io.Symbols.NativeOperator;
+import static nars.io.Symbols.NativeOperator.COMPOUND_TERM_CLOSER;
+import static nars.io.Symbols.NativeOperator.SET_EXT_CLOSER;
+import static nars.io.Symbols.NativeOperator.SET_INT_CLOSER;
+import static nars.io.Symbols.NativeOperator.STATEMENT_CLOSER;
+import static nars.io.Symbols.OUTPUT_LINE_PREFIX;
+import static nars.io.Symbols.PREFIX_MARK;
+import static nars.io.Symbols.QUESTION_MARK;
+import static nars.io.Symbols.QUEST_MARK;
+import static nars.io.Symbols.STAMP_CLOSER;
+import static nars.io.Symbols.STAMP_OPENER;
+import static nars.io.Symbols.TRUTH_VALUE_MARK;
+import static nars.io.Symbols.VALUE_SEPARATOR;
+import static nars.io.Symbols.getCloser;
+import static nars.io.Symbols.getOpener;
+import nars.language.Interval;
+import nars.language.SetExt;
+import nars.language.SetInt;
+import nars.language.Statement;
+import nars.language.Tense;
+import nars.language.Term;
+import nars.language.Terms;
+import nars.language.Variable;
+import static nars.language.Variables.containVar;
+import nars.operator.Operation;
+import nars.operator.Operator;
+import nars.storage.Memory;
+
+/**
+ * Narsese which reads tasks and terms by index over the characters of a
+ * CharSequence, instead of splitting them into substrings, and remembers the
+ * terms of the last cacheSize different term texts it parsed.
+ * <p>
+ * It gives the same results as Narsese: anything it does not read the same
+ * way, like quoted text, functional operations or invalid input, is left to
+ * Narsese, which also throws the same exceptions.  Terms naming registered
+ * operators are not cached, since operators may be added or removed.
+ */
+public class NarseseScanner extends Narsese {
+
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+
+    /** native operators by symbol, the 3 character relations, as looked up by Narsese */
+    private static final NativeOperator[] operators;
+    private static final String[] operatorSymbols;
+    private static final NativeOperator[] relations;
+    private static final String[] relationSymbols;
+
+    static {
+        final ArrayList<NativeOperator> o = new ArrayList(), r = new ArrayList();
+        for (final Map.Entry<String, NativeOperator> e : Symbols.stringToOperator.entrySet()) {
+            o.add(e.getValue());
+            if (e.getValue().relation && (e.getKey().length() == 3))
+                r.add(e.getValue());
+        }
+        operators = o.toArray(new NativeOperator[o.size()]);
+        relations = r.toArray(new NativeOperator[r.size()]);
+        operatorSymbols = new String[operators.length];
+        for (int i = 0; i < operators.length; i++)
+            operatorSymbols[i] = operators[i].toString();
+        relationSymbols = new String[relations.length];
+        for (int i = 0; i < relations.length; i++)
+            relationSymbols[i] = relations[i].toString();
+    }
+
+    private static final double[] POW10 = {1, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8};
+
+    private final int cacheSize;
+    private final LinkedHashMap<Text, Term> cache;
+    private final Text probe = new Text();
+    private long hits = 0, misses = 0;
+
+    public NarseseScanner(final Memory memory) {
+        this(memory, DEFAULT_CACHE_SIZE);
+    }
+
+    public NarseseScanner(final Memory memory, final int cacheSize) {
+        super(memory);
+        this.cacheSize = cacheSize;
+        this.cache = new LinkedHashMap<Text, Term>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(final Map.Entry<Text, Term> eldest) {
+                return size() > NarseseScanner.this.cacheSize;
+            }
+        };
+    }
+
+    @Override
+    public Task parseNarsese(final StringBuilder buffer) throws InvalidInputException {
+        return parseNarsese((CharSequence) buffer);
+    }
+
+    /** Narsese.parseNarsese, without modifying or copying the line */
+    public Task parseNarsese(final CharSequence s) throws InvalidInputException {
+        int start = 0, end = s.length();
+        final int i = indexOf(s, PREFIX_MARK, 0, end);
+        if (i > 0) {
+            if (equals(s, trimStart(s, 0, i), trimEnd(s, 0, i), INPUT_LINE_PREFIX)) {
+                start = i + 1;
+            }
+            else if (equals(s, trimStart(s, 0, i), trimEnd(s, 0, i), OUTPUT_LINE_PREFIX)) {
+                //ignore outputs
+                return null;
+            }
+        }
+        if ((end > start) && (s.charAt(end - 1) == STAMP_CLOSER)) {
+            //ignore stamp
+            end = lastIndexOf(s, STAMP_OPENER, start, end) - 1;
+        }
+        if ((end > start) && (s.charAt(end - 1) == ']')) {
+            end = lastIndexOf(s, '[', start, end) - 1;
+        }
+        if (end <= start) {
+            //let Narsese fail the same way
+            return super.parseNarsese(new StringBuilder(s));
+        }
+        return parseTask(s, trimStart(s, start, end), trimEnd(s, start, end));
+    }
+
+    @Override
+    public Task parseTask(final String s) throws InvalidInputException {
+        return parseTask(s, 0, s.length());
+    }
+
+    /** Narsese.parseTask of the characters from start to end */
+    public Task parseTask(final CharSequence s, final int start, final int end) throws InvalidInputException {
+        final Task t = task(s, start, end);
+        if (t != null)
+            return t;
+        return super.parseTask(s.subSequence(start, end).toString());
+    }
+
+    @Override
+    public Term parseTerm(final String s) throws InvalidInputException {
+        final Term t = cachedTerm(s, 0, s.length());
+        if (t != null)
+            return t;
+        return super.parseTerm(s);
+    }
+
+    /** forgets the cached terms */
+    public void clearCache() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /** terms found in the cache */
+    public long getHits() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    /** terms not found in the cache */
+    public long getMisses() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+
+    /**
+     * the task, or null where Narsese.parseTask would not return the same one,
+     * in which case nothing has been done yet, not even numbering a stamp
+     */
+    private Task task(final CharSequence s, int start, int end) {
+        if ((start >= end) || (indexOf(s, Symbols.QUOTE, start, end) != -1))
+            return null;
+
+        int budgetStart = -1, budgetEnd = -1;
+        if (s.charAt(start) == BUDGET_VALUE_MARK) {
+            final int i = indexOf(s, BUDGET_VALUE_MARK, start + 1, end);
+            if (i < 0)
+                return null;
+            budgetStart = trimStart(s, start + 1, i);
+            budgetEnd = trimEnd(s, budgetStart, i);
+            if (budgetStart == budgetEnd)
+                return null;
+            start = i + 1;
+        }
+
+        if (start >= end)
+            return null;
+        int truthStart = -1, truthEnd = -1;
+        if (s.charAt(end - 1) == TRUTH_VALUE_MARK) {
+            final int first = indexOf(s, TRUTH_VALUE_MARK, start, end);
+            if (first == end - 1)
+                return null;
+            truthStart = trimStart(s, first + 1, end - 1);
+            truthEnd = trimEnd(s, truthStart, end - 1);
+            if (truthStart == truthEnd)
+                return null;
+            end = first;
+        }
+
+        Tense tense = Tense.Eternal;
+        final int t = indexOf(s, Symbols.TENSE_MARK.charAt(0), start, end);
+        if (t > start) {
+            tense = tense(s, trimStart(s, t, end), trimEnd(s, t, end));
+            end = t;
+        }
+
+        start = trimStart(s, start, end);
+        end = trimEnd(s, start, end);
+        if (start == end)
+            return null;
+        final char punc = s.charAt(end - 1);
+
+        final TruthValue truth;
+        final Term content;
+        float priority, durability;
+        try {
+            truth = truth(s, truthStart, truthEnd, punc);
+            content = cachedTerm(s, start, end - 1);
+            if (content == null)
+                return null;
+            switch (punc) {
+                case JUDGMENT_MARK:
+                    priority = Parameters.DEFAULT_JUDGMENT_PRIORITY;
+                    durability = Parameters.DEFAULT_JUDGMENT_DURABILITY;
+                    break;
+                case QUESTION_MARK:
+                    priority = Parameters.DEFAULT_QUESTION_PRIORITY;
+                    durability = Parameters.DEFAULT_QUESTION_DURABILITY;
+                    break;
+                case GOAL_MARK:
+                    priority = Parameters.DEFAULT_GOAL_PRIORITY;
+                    durability = Parameters.DEFAULT_GOAL_DURABILITY;
+                    break;
+                case QUEST_MARK:
+                    priority = Parameters.DEFAULT_QUEST_PRIORITY;
+                    durability = Parameters.DEFAULT_QUEST_DURABILITY;
+                    break;
+                default:
+                    return null;
+            }
+            if (budgetStart != -1) {
+                final int i = indexOf(s, VALUE_SEPARATOR, budgetStart, budgetEnd);
+                if (i < 0) {
+                    priority = parseFloat(s, budgetStart, budgetEnd);
+                } else {
+                    int i2 = indexOf(s, VALUE_SEPARATOR, i + 1, budgetEnd);
+                    if (i2 == -1)
+                        i2 = budgetEnd;
+                    priority = parseFloat(s, budgetStart, i);
+                    durability = parseFloat(s, i + 1, i2);
+                }
+            }
+        } catch (RuntimeException e) {
+            //thrown again by Narsese, once it numbered the stamp
+            return null;
+        }
+
+        final Stamp stamp = new Stamp(-1 /* if -1, will be set right before the Task is input */,
+                tense, newStampSerial(), memory.param.duration.get());
+        final Sentence sentence = new Sentence(content, punc, truth, stamp);
+        //the quality of the truth as the sentence may have changed it
+        final float quality = (truth == null) ? 1 : truthToQuality(truth);
+        return new Task(sentence, new BudgetValue(priority, durability, quality));
+    }
+
+    /** Narsese.parseTruth */
+    private static TruthValue truth(final CharSequence s, final int start, final int end, final char type) {
+        if ((type == QUESTION_MARK) || (type == QUEST_MARK)) {
+            return null;
+        }
+        float frequency = 1.0f;
+        float confidence = Parameters.DEFAULT_JUDGMENT_CONFIDENCE;
+        if (type == GOAL_MARK) {
+            confidence = Parameters.DEFAULT_GOAL_CONFIDENCE;
+        }
+        if (start != -1) {
+            final int i = indexOf(s, VALUE_SEPARATOR, start, end);
+            if (i < 0) {
+                frequency = parseFloat(s, start, end);
+            } else {
+                frequency = parseFloat(s, start, i);
+                confidence = parseFloat(s, i + 1, end);
+            }
+        }
+        return new TruthValue(frequency, confidence);
+    }
+
+    /** Tense.tense of the trimmed characters */
+    private static Tense tense(final CharSequence s, final int start, final int end) {
+        for (final Tense t : Tense.values())
+            if (equals(s, start, end, t.symbol))
+                return t;
+        return Tense.Eternal;
+    }
+
+    /**
+     * Float.parseFloat of the characters, read in place when they are a
+     * decimal number of at most 9 digits, 8 of them after the point, which
+     * dividing by a power of 10 rounds exactly like it
+     */
+    static float parseFloat(final CharSequence s, int start, int end) throws NumberFormatException {
+        start = trimStart(s, start, end);
+        end = trimEnd(s, start, end);
+        long mantissa = 0;
+        int digits = 0, fraction = -1;
+        for (int i = start; i < end; i++) {
+            final char c = s.charAt(i);
+            if ((c >= '0') && (c <= '9')) {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+                if (fraction >= 0)
+                    fraction++;
+            }
+            else if ((c == '.') && (fraction < 0)) {
+                fraction = 0;
+            }
+            else {
+                digits = -1;
+                break;
+            }
+        }
+        if ((digits < 1) || (digits > 9) || (fraction > 8))
+            return Float.parseFloat(s.subSequence(start, end).toString());
+        return (float) (mantissa / POW10[Math.max(fraction, 0)]);
+    }
+
+    /* ---------- terms ---------- */
+
+    /** the term of the trimmed characters, from the cache if possible, or null as term() */
+    private Term cachedTerm(final CharSequence s, int start, int end) {
+        start = trimStart(s, start, end);
+        end = trimEnd(s, start, end);
+        if (start == end)
+            return null;
+        if (cacheSize > 0) {
+            synchronized (cache) {
+                final Term t = cache.get(probe.set(s, start, end));
+                probe.set(null, 0, 0);
+                if (t != null) {
+                    hits++;
+                    return t;
+                }
+                misses++;
+            }
+        }
+        final Term t = term(s, start, end);
+        if ((t != null) && (cacheSize > 0) && (indexOf(s, '^', start, end) == -1)) {
+            synchronized (cache) {
+                cache.put(new Text().set(s.subSequence(start, end).toString(), 0, end - start), t);
+            }
+        }
+        return t;
+    }
+
+    /**
+     * Narsese.parseTerm of the characters from start to end, or null where it
+     * would not return a term the same way
+     */
+    private Term term(final CharSequence s, int start, int end) {
+        start = trimStart(s, start, end);
+        end = trimEnd(s, start, end);
+        if (start == end)
+            return null;
+        final int last = end - 1;
+        final char c = s.charAt(last);
+
+        final NativeOperator opener = getOpener(s.charAt(start));
+        if (opener != null) {
+            switch (opener) {
+                case COMPOUND_TERM_OPENER:
+                    return (c == COMPOUND_TERM_CLOSER.ch) ? compound(s, start + 1, last) : null;
+                case SET_EXT_OPENER: {
+                    if (c != SET_EXT_CLOSER.ch)
+                        return null;
+                    final ArrayList<Term> a = arguments(s, start + 1, last);
+                    return (a != null) ? SetExt.make(a) : null;
+                }
+                case SET_INT_OPENER: {
+                    if (c != SET_INT_CLOSER.ch)
+                        return null;
+                    final ArrayList<Term> a = arguments(s, start + 1, last);
+                    return (a != null) ? SetInt.make(a) : null;
+                }
+                case STATEMENT_OPENER:
+                    return (c == STATEMENT_CLOSER.ch) ? statement(s, start + 1, last) : null;
+            }
+        }
+        else if (Parameters.FUNCTIONAL_OPERATIONAL_FORMAT && (c == ')') && (indexOf(s, '(', start, end) != -1)) {
+            //functional operations are left to Narsese
+            return null;
+        }
+        return atom(s, start, end);
+    }
+
+    /** Narsese.parseAtomicTerm of trimmed characters; registered operators are all named with a ^ */
+    private Term atom(final CharSequence s, final int start, final int end) {
+        String name = null;
+        if (s.charAt(start) == '^') {
+            name = s.subSequence(start, end).toString();
+            final Operator op = memory.getOperator(name);
+            if (op != null)
+                return op;
+        }
+        if (indexOf(s, ' ', start, end) != -1)
+            return null;
+        if (s.charAt(start) == Symbols.INTERVAL_PREFIX) {
+            if ((end - start < 2) || (end - start > 10))
+                return null;
+            int n = 0;
+            for (int i = start + 1; i < end; i++) {
+                final char c = s.charAt(i);
+                if ((c < '0') || (c > '9'))
+                    return null;
+                n = n * 10 + (c - '0');
+            }
+            return Interval.interval(n - 1);
+        }
+        if (name == null)
+            name = s.subSequence(start, end).toString();
+        return containVar(name) ? new Variable(name) : Term.get(name);
+    }
+
+    /** Narsese.parseStatement */
+    private Statement statement(final CharSequence s, int start, int end) {
+        start = trimStart(s, start, end);
+        end = trimEnd(s, start, end);
+        final int i = topRelation(s, start, end);
+        if (i < 0)
+            return null;
+        final Term subject = term(s, start, i);
+        final Term predicate = term(s, i + 3, end);
+        if ((subject == null) || (predicate == null))
+            return null;
+        return Statement.make(relation(s, i, end), subject, predicate, false, 0);
+    }
+
+    /** Narsese.parseCompoundTerm */
+    private Term compound(final CharSequence s, int start, int end) {
+        start = trimStart(s, start, end);
+        end = trimEnd(s, start, end);
+        final int separator = indexOf(s, ARGUMENT_SEPARATOR, start, end);
+        if (separator == -1)
+            return null;
+
+        final int opStart = trimStart(s, start, separator), opEnd = trimEnd(s, opStart, separator);
+        final NativeOperator oNative = operator(s, opStart, opEnd);
+        final Operator oRegistered = ((opEnd > opStart) && (s.charAt(opStart) == '^')) ?
+                memory.getOperator(s.subSequence(opStart, opEnd).toString()) : null;
+        if ((oNative == null) && (oRegistered == null))
+            return null;
+
+        final ArrayList<Term> arg = arguments(s, separator + 1, end);
+        if (arg == null)
+            return null;
+        final Term[] argA = arg.toArray(new Term[arg.size()]);
+        return (oNative != null) ? Terms.term(oNative, argA) : Operation.make(oRegistered, argA, true);
+    }
+
+    /**
+     * Narsese.parseArguments of the characters followed by an argument
+     * separator; the separator at end is never read, only bounds the search
+     */
+    private ArrayList<Term> arguments(final CharSequence s, int start, final int end) {
+        start = trimStart(s, start, end);
+        final ArrayList<Term> list = new ArrayList<>();
+        int from = start;
+        int to = start;
+        while (to < end) {
+            to = nextSeparator(s, from, start, end);
+            if (to == from)
+                break;
+            final Term t = term(s, from, to);
+            if (t == null)
+                return null;
+            list.add(t);
+            from = to + 1;
+        }
+        return list.isEmpty() ? null : list;
+    }
+
+    /* ---------- locate top-level characters ---------- */
+
+    /** Narsese.nextSeparator in the characters from start to end */
+    private static int nextSeparator(final CharSequence s, final int first, final int start, final int end) {
+        int levelCounter = 0;
+        int i = first;
+        while (i < end) {
+            if (isOpener(s, i, end)) {
+                levelCounter++;
+            } else if (isCloser(s, i, start)) {
+                levelCounter--;
+            } else if (s.charAt(i) == ARGUMENT_SEPARATOR) {
+                if (levelCounter == 0) {
+                    break;
+                }
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /** Narsese.topRelation in the characters from start to end */
+    private static int topRelation(final CharSequence s, final int start, final int end) {
+        int levelCounter = 0;
+        int i = start;
+        while (i < end - 3) {
+            if ((levelCounter == 0) && (relation(s, i, end) != null)) {
+                return i;
+            }
+            if (isOpener(s, i, end)) {
+                levelCounter++;
+            } else if (isCloser(s, i, start)) {
+                levelCounter--;
+            }
+            i++;
+        }
+        return -1;
+    }
+
+    private static boolean isOpener(final CharSequence s, final int i, final int end) {
+        return (getOpener(s.charAt(i)) != null) && (relation(s, i, end) == null);
+    }
+
+    private static boolean isCloser(final CharSequence s, final int i, final int start) {
+        return (getCloser(s.charAt(i)) != null) && ((i - start < 2) || (relation(s, i - 2, i + 1) == null));
+    }
+
+    /** the relation of the 3 characters at i, or null */
+    private static NativeOperator relation(final CharSequence s, final int i, final int end) {
+        if (i + 3 > end)
+            return null;
+        for (int r = 0; r < relations.length; r++)
+            if (equals(s, i, i + 3, relationSymbols[r]))
+                return relations[r];
+        return null;
+    }
+
+    /** Symbols.getOperator of the characters */
+    private static NativeOperator operator(final CharSequence s, final int start, final int end) {
+        for (int o = 0; o < operators.length; o++)
+            if (equals(s, start, end, operatorSymbols[o]))
+                return operators[o];
+        return null;
+    }
+
+    /* ---------- characters ---------- */
+
+    static int indexOf(final CharSequence s, final char c, final int start, final int end) {
+        for (int i = start; i < end; i++)
+            if (s.charAt(i) == c)
+                return i;
+        return -1;
+    }
+
+    static int lastIndexOf(final CharSequence s, final char c, final int start, final int end) {
+        for (int i = end - 1; i >= start; i--)
+            if (s.charAt(i) == c)
+                return i;
+        return -1;
+    }
+
+    /** first index from start not trimmed by String.trim */
+    static int trimStart(final CharSequence s, int start, final int end) {
+        while ((start < end) && (s.charAt(start) <= ' '))
+            start++;
+        return start;
+    }
+
+    /** index after the last character before end not trimmed by String.trim */
+    static int trimEnd(final CharSequence s, final int start, int end) {
+        while ((end > start) && (s.charAt(end - 1) <= ' '))
+            end--;
+        return end;
+    }
+
+    static boolean equals(final CharSequence s, final int start, final int end, final String x) {
+        final int n = x.length();
+        if (end - start != n)
+            return false;
+        for (int i = 0; i < n; i++)
+            if (s.charAt(start + i) != x.charAt(i))
+                return false;
+        return true;
+    }
+
+    /** a range of characters as a key of the cache */
+    static final class Text {
+        CharSequence s;
+        int start, end, hash;
+
+        Text set(final CharSequence s, final int start, final int end) {
+            this.s = s;
+            this.start = start;
+            this.end = end;
+            int h = 0;
+            for (int i = start; i < end; i++)
+                h = 31 * h + s.charAt(i);
+            this.hash = h;
+            return this;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof Text))
+                return false;
+            final Text t = (Text) obj;
+            final int n = end - start;
+            if ((t.hash != hash) || (t.end - t.start != n))
+                return false;
+            for (int i = 0; i < n; i++)
+                if (s.charAt(start + i) != t.s.charAt(t.start + i))
+                    return false;
+            return true;
+        }
+    }
+}
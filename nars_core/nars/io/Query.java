@@ -0,0 +1,66 @@
+package nars.io;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import nars.control.Queries;
+import nars.entity.Sentence;
+import nars.entity.Task;
+
+/**
+ * The answer to a question asked with NAR.query, complete with the first
+ * answer found, or with a TimeoutException if there is none by the deadline.
+ * <p>
+ * The question is removed once it is answered, or cancelled, unless there are
+ * listeners for its better answers: then it stays until the deadline.
+ */
+public class Query extends CompletableFuture<Sentence> {
+
+    public final Task question;
+
+    /** the cycle the question is removed at */
+    public final long deadline;
+
+    private final Queries queries;
+    private final List<Consumer<Sentence>> listeners = new CopyOnWriteArrayList();
+    /** the best answer so far, which an equal question asked before may have got */
+    private volatile Sentence best = null;
+
+    public Query(final Task question, final long deadline, final Queries queries) {
+        this.question = question;
+        this.deadline = deadline;
+        this.queries = queries;
+    }
+
+    /** calls the listener with every better answer until the deadline, starting with the best so far */
+    public Query onAnswer(final Consumer<Sentence> listener) {
+        listeners.add(listener);
+        final Sentence best = getBest();
+        if (best != null)
+            listener.accept(best);
+        return this;
+    }
+
+    /** the best answer so far, or null */
+    public Sentence getBest() {
+        return (best != null) ? best : question.getBestSolution();
+    }
+
+    /** called from the memory with each better answer */
+    public void answer(final Sentence belief) {
+        best = belief;
+        complete(belief);
+        for (final Consumer<Sentence> l : listeners)
+            l.accept(belief);
+        if (listeners.isEmpty())
+            queries.finish(this);
+    }
+
+    @Override
+    public boolean cancel(final boolean mayInterruptIfRunning) {
+        final boolean cancelled = super.cancel(mayInterruptIfRunning);
+        queries.finish(this);
+        return cancelled;
+    }
+}
@@ -23,16 +23,25 @@ package nars.io;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
 import java.util.Arrays;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
 import nars.util.Events.Answer;
 import nars.NAR;
 import nars.entity.Concept;
 import nars.entity.Sentence;
 import nars.entity.Task;
 import nars.entity.TruthValue;
+import nars.io.AsyncTextWriter.Backpressure;
 import nars.io.Output.ECHO;
 import nars.io.Output.ERR;
 import nars.io.Output.EXE;
@@ -57,6 +66,12 @@ public class TextOutput extends Output {
     private boolean showStamp = true;
     private boolean showInput = true;
     private float minPriority = 0;
+    private AsyncTextWriter async;
+
+    /** default number of signals an asynchronous writer queues */
+    public static final int ASYNC_CAPACITY = 8192;
+    /** default fraction 1/n of signals kept by the SAMPLE mode when the queue fills up */
+    public static final int ASYNC_SAMPLE_RATE = 8;
 
     public interface LineOutput {
         public void println(String s);
@@ -106,14 +121,62 @@ public class TextOutput extends Output {
         }
     }
 
+    /**
+     * Open an output experience file written asynchronously, see setAsync
+     */
+    public void openSaveFile(String path, Backpressure backpressure) {
+        try {
+            setAsync(FileChannel.open(Paths.get(path), CREATE, WRITE, TRUNCATE_EXISTING), true, backpressure, ASYNC_CAPACITY, ASYNC_SAMPLE_RATE);
+        } catch (IOException ex) {
+            System.out.println("i/o error: " + ex.getMessage());
+        }
+    }
+
     /**
      * Close an output experience file
      */
     public void closeSaveFile() {
-        outExp.close();
+        if (outExp != null)
+            outExp.close();
         stop();
     }
 
+    /**
+     * Formats and writes the output on a background thread instead of the
+     * reasoner's, in batches to the given stream; replaces the writers this
+     * TextOutput was created with.
+     */
+    public TextOutput setAsync(OutputStream out, Backpressure backpressure) {
+        return setAsync(Channels.newChannel(out), false, backpressure, ASYNC_CAPACITY, ASYNC_SAMPLE_RATE);
+    }
+
+    /**
+     * Formats and writes the output on a background thread instead of the
+     * reasoner's, in batches to the given channel
+     *
+     * @param closeChannel whether the channel is closed when this output stops
+     * @param capacity number of signals which may wait to be written
+     * @param sampleRate in SAMPLE mode, every sampleRate-th signal is kept once the queue is half full
+     */
+    public TextOutput setAsync(WritableByteChannel out, boolean closeChannel, Backpressure backpressure, int capacity, int sampleRate) {
+        closeAsync();
+        this.async = new AsyncTextWriter(this, out, closeChannel, capacity, backpressure, sampleRate);
+        return this;
+    }
+
+    /** the asynchronous writer, or null if output is written synchronously */
+    public AsyncTextWriter getAsync() {
+        return async;
+    }
+
+    /** writes what is left in the asynchronous queue and returns to synchronous output */
+    public void closeAsync() {
+        if (async != null) {
+            async.close();
+            async = null;
+        }
+    }
+
     /**
      * Process the next chunk of output data
      *
@@ -126,6 +189,19 @@ public class TextOutput extends Output {
         
         if (!showInput && (channel == IN.class))
             return;
+
+        final AsyncTextWriter a = async;
+        if (a != null) {
+            //filter and capture what may change, format later
+            final Object o = oo[0];
+            if (o instanceof Task) {
+                final Task t = (Task)o;
+                if (!allowTask(t) || (t.getPriority() < minPriority))
+                    return;
+            }
+            a.offer(channel, o, nar.time(), solution(channel, o));
+            return;
+        }
         
         if ((outExp!=null) || (outExp2!=null)) {
             Object o = oo[0];
@@ -152,6 +228,23 @@ public class TextOutput extends Output {
         return getOutputString(c, o, true, showStamp, nar, result, minPriority);
     }
     
+    /** appends the line of an asynchronously written signal; called on the writer thread */
+    void format(final AsyncTextWriter.Signal x, final StringBuilder buffer, final StringBuilder text) {
+        try {
+            final String s = getOutputString(x.channel, x.signal, true, showStamp, nar, buffer, 0, x.time, x.solution);
+            if (s != null)
+                text.append(prefix).append(s).append('\n');
+        }
+        catch (RuntimeException e) {
+            text.append(prefix).append("ERR: ").append(e).append('\n');
+        }
+    }
+
+    /** reports a failure of the asynchronous writer on the ERR channel of the NAR */
+    void error(final Throwable e) {
+        nar.emit(ERR.class, e);
+    }
+
     /** may be overridden in subclass to filter certain tasks */
     protected boolean allowTask(Task t) {
         return true;
@@ -185,6 +278,22 @@ public class TextOutput extends Output {
             
     /** generates a human-readable string from an output channel and signal */
     public static String getOutputString(final Class channel, Object signal, final boolean showChannel, final boolean showStamp, final NAR nar, final StringBuilder buffer, float minPriority) {
+        return getOutputString(channel, signal, showChannel, showStamp, nar, buffer, minPriority, nar.memory.time(), solution(channel, signal));
+    }
+
+    /** the best solution an Answer signal is displayed with, null otherwise */
+    static Sentence solution(final Class channel, final Object signal) {
+        if ((channel == Answer.class) && (signal instanceof Task))
+            return ((Task)signal).getBestSolution();
+        return null;
+    }
+
+    /**
+     * generates a human-readable string from an output channel and signal,
+     * displaying tenses relative to the time 'now' and an Answer with the given
+     * solution, so that a signal can be formatted after the reasoner moved on
+     */
+    public static String getOutputString(final Class channel, Object signal, final boolean showChannel, final boolean showStamp, final NAR nar, final StringBuilder buffer, float minPriority, final long now, final Sentence solution) {
         buffer.setLength(0);
         
         if (showChannel)
@@ -217,19 +326,18 @@ public class TextOutput extends Output {
                     return null;
                 
                 if((channel == ANTICIPATE.class) || (channel == DISAPPOINT.class)) {
-                    buffer.append(t.sentence.toString(nar, showStamp));  
+                    buffer.append(t.sentence.toString(nar, showStamp, now));  
                 }
                 else
                 if (channel == Answer.class) {
-                    Task task = t; //server / NARRun
-                    Sentence answer = task.getBestSolution();
+                    Sentence answer = solution; //server / NARRun
                     if(answer!=null)
-                        buffer.append(answer.toString(nar, showStamp));
+                        buffer.append(answer.toString(nar, showStamp, now));
                     else
-                        buffer.append(t.sentence.toString(nar, showStamp));  
+                        buffer.append(t.sentence.toString(nar, showStamp, now));  
                 }
                 else            
-                    buffer.append(t.sentence.toString(nar, showStamp));   
+                    buffer.append(t.sentence.toString(nar, showStamp, now));   
                                  
                 
                 
@@ -322,6 +430,7 @@ public class TextOutput extends Output {
     
     public void stop() {
         setActive(false);
+        closeAsync();
     }
     
     /** generates a human-readable string from an output channel and signal */
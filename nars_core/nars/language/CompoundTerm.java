@@ -74,6 +74,13 @@ public abstract class CompoundTerm extends Term implements Iterable<Term> {
     int hash;
     private boolean normalized;
     
+    /** set on the canonical instances held by TermStore */
+    transient boolean interned;
+    transient int structuralHash;
+    
+    /** cached interval-insensitive concept key, see conceptKey() */
+    transient Term conceptKey;
+    
 
     /**
      * Abstract method to get the operator of the compound
@@ -119,6 +126,7 @@ public abstract class CompoundTerm extends Term implements Iterable<Term> {
     
     public void invalidateName() {        
         this.name = null; //invalidate name so it will be (re-)created lazily        
+        this.conceptKey = null;
         for (Term t : term) {
             if (t.hasVar())
                 if (t instanceof CompoundTerm)
@@ -906,6 +914,8 @@ public abstract class CompoundTerm extends Term implements Iterable<Term> {
         if (that==this) return true;                
         if (!(that instanceof Term))
             return false;
+        if (interned && (that instanceof CompoundTerm) && ((CompoundTerm)that).interned)
+            return false; //two different canonical instances are never equal
         if (Parameters.TERM_ELEMENT_EQUIVALENCY)
             return equalsByTerm(that);
         return name().equals(((Term)that).name());
@@ -1043,6 +1053,24 @@ public abstract class CompoundTerm extends Term implements Iterable<Term> {
 //            */
 //    }
 
+    /** the canonical (hash-consed) instance of this term, see TermStore */
+    public Term intern() {
+        return TermStore.intern(this);
+    }
+
+    @Override
+    public Term conceptKey() {
+        Term k = conceptKey;
+        if (k == null)
+            conceptKey = k = TermStore.conceptKey(this);
+        return k;
+    }
+
+    /** whether this is the canonical instance held by TermStore */
+    public boolean isInterned() {
+        return interned;
+    }
+
     public void setNormalized(boolean b) {        
         this.normalized = b;
     }
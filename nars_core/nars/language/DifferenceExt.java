@@ -34,7 +34,7 @@ public class DifferenceExt extends CompoundTerm {
      * @param n The name of the term
      * @param arg The component list of the term
      */
-    private DifferenceExt(Term[] arg) {
+    DifferenceExt(Term[] arg) {
         super(arg);
         
         ensureValidDifferenceArguments(arg);        
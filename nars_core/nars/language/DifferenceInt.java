@@ -34,7 +34,7 @@ public class DifferenceInt extends CompoundTerm {
      * @param n The name of the term
      * @param arg The component list of the term
      */
-    private DifferenceInt(final Term[] arg) {
+    DifferenceInt(final Term[] arg) {
         super(arg);
         
         ensureValidDifferenceArguments(arg);
@@ -36,7 +36,7 @@ public class Disjunction extends CompoundTerm {
      * @param n The name of the term
      * @param arg The component list of the term
      */
-    private Disjunction(final Term[] arg) {
+    Disjunction(final Term[] arg) {
         super(arg);
         
         if (Parameters.DEBUG) { Terms.verifySortedAndUnique(arg, false);         }        
@@ -36,7 +36,7 @@ public class Equivalence extends Statement {
      *
      * @param components The component list of the term
      */
-    private Equivalence(Term[] components, int order) {
+    Equivalence(Term[] components, int order) {
         super(components);
         
         temporalOrder = order;
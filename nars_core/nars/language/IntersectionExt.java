@@ -37,7 +37,7 @@ public class IntersectionExt extends CompoundTerm {
      * @param n The name of the term
      * @param arg The component list of the term
      */
-    private IntersectionExt(Term[] arg) {
+    IntersectionExt(Term[] arg) {
         super(arg);
         
         if (Parameters.DEBUG) { Terms.verifySortedAndUnique(arg, false); }
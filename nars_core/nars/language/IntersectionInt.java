@@ -45,7 +45,7 @@ public class IntersectionInt extends CompoundTerm {
      * @param n The name of the term
      * @param arg The component list of the term
      */
-    private IntersectionInt(final Term[] arg) {
+    IntersectionInt(final Term[] arg) {
         super( arg );
         
         if (Parameters.DEBUG) { Terms.verifySortedAndUnique(arg, false); }        
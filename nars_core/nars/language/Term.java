@@ -24,6 +24,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import nars.storage.Memory;
 import nars.config.Parameters;
 import nars.inference.TemporalRules;
@@ -42,7 +43,7 @@ import nars.operator.Operator;
  * exists. Multiple objects may represent the same Term.
  */
 public class Term implements AbstractTerm {
-    private static final Map<CharSequence,Term> atoms = new HashMap();
+    private static final Map<CharSequence,Term> atoms = new ConcurrentHashMap();
 
     final public static Term SELF = Term.get("SELF");
 
@@ -100,9 +101,7 @@ public class Term implements AbstractTerm {
     public final static Term get(final CharSequence name) {
         Term x = atoms.get(name);
         if (x != null) return x;
-        x = new Term(name);
-        atoms.put(name, x);
-        return x;
+        return atoms.computeIfAbsent(name, Term::new);
     }
     
     /** gets the atomic term of an integer */
@@ -134,6 +133,16 @@ public class Term implements AbstractTerm {
         return name;
     }
 
+    /**
+     * The term under which the Concept of this term is stored: equal for
+     * terms which only differ in their intervals, cached on compounds.
+     *
+     * @return an atomic term is its own key
+     */
+    public Term conceptKey() {
+        return this;
+    }
+
     /**
      * Make a new Term with the same name.
      *
@@ -161,6 +170,8 @@ public class Term implements AbstractTerm {
     @Override
     public boolean equals(final Object that) {
         if (that == this) return true;
+        //operators observe events, and EventEmitter.off compares them with observers of any class
+        if (!(that instanceof Term)) return false;
         if (getClass() != this.getClass()) return false; //optimization, if complexity is different they cant be equal
         return this.getComplexity() == ((Term) that).getComplexity() && name().equals(((Term)that).name());
     }
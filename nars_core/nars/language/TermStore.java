@@ -0,0 +1,154 @@
+package nars.language;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hash-consing table for compound terms.
+ * <p>
+ * Structurally equal compounds are mapped to one shared, canonical instance.
+ * The table is keyed by class, operator, temporal order / image relation index
+ * and the identities of the (already canonical) subterms, so looking up a term
+ * whose subterms are canonical needs neither its name nor a string comparison.
+ * Canonical instances are only weakly referenced and disappear from the table
+ * once nothing else holds them.
+ * <p>
+ * Only variable-free terms are interned: variables carry a scope that refers
+ * back into the term containing them, so they can not be shared between
+ * compounds.  Canonical instances must not be modified in place; callers that
+ * want to change a term operate on a cloneDeep() copy as usual.
+ */
+public class TermStore {
+
+    private static final Map<Key,Ref> table = new ConcurrentHashMap();
+    private static final ReferenceQueue<CompoundTerm> collected = new ReferenceQueue();
+
+    /** returns the canonical instance of t, or t itself if it can not be interned */
+    public static Term intern(final Term t) {
+        if (!(t instanceof CompoundTerm))
+            return t;
+        final CompoundTerm c = (CompoundTerm)t;
+        if (c.interned || c.hasVar())
+            return c;
+        return intern(c, false);
+    }
+
+    /**
+     * the term a concept for t is stored under: t with all intervals replaced
+     * by a fixed one.  Canonical for variable-free terms, otherwise a copy.
+     */
+    public static Term conceptKey(final CompoundTerm c) {
+        if (c.hasVar())
+            return CompoundTerm.cloneDeepReplaceIntervals(c);
+        return intern(c, true);
+    }
+
+    private static Term intern(final CompoundTerm c, final boolean replaceIntervals) {
+        expunge();
+
+        final Term[] sub = new Term[c.term.length];
+        for (int i = 0; i < sub.length; i++) {
+            final Term s = c.term[i];
+            if (s instanceof CompoundTerm)
+                sub[i] = replaceIntervals ? ((CompoundTerm)s).conceptKey() : intern(s);
+            else if (replaceIntervals && (s instanceof Interval))
+                sub[i] = CompoundTerm.conceptival;
+            else
+                sub[i] = s;
+        }
+
+        final Key key = new Key(c, sub);
+        Ref r = table.get(key);
+        CompoundTerm x = (r != null) ? r.get() : null;
+        if (x != null)
+            return x;
+
+        //build the canonical instance from canonical subterms and private atom copies,
+        //so nothing outside the table can rename or mutate its parts
+        for (int i = 0; i < sub.length; i++) {
+            if (!(sub[i] instanceof CompoundTerm))
+                sub[i] = sub[i].clone();
+        }
+        final Term made = c.clone(sub);
+        if ((made == null) || (made.getClass() != c.getClass()))
+            return c;
+        x = (CompoundTerm)made;
+        x.setNormalized(c.isNormalized());
+        x.interned = true;
+        x.structuralHash = key.hash;
+        if (replaceIntervals)
+            x.conceptKey = x;
+
+        final Ref mine = new Ref(x, key);
+        while (true) {
+            r = table.putIfAbsent(key, mine);
+            if (r == null)
+                return x;
+            final CompoundTerm other = r.get();
+            if (other != null)
+                return other;
+            table.remove(key, r);
+        }
+    }
+
+    /** number of live entries (including entries whose term was collected but not yet expunged) */
+    public static int size() {
+        expunge();
+        return table.size();
+    }
+
+    private static void expunge() {
+        Ref r;
+        while ((r = (Ref)collected.poll()) != null)
+            table.remove(r.key, r);
+    }
+
+    private static final class Ref extends WeakReference<CompoundTerm> {
+        final Key key;
+        Ref(final CompoundTerm t, final Key key) {
+            super(t, collected);
+            this.key = key;
+        }
+    }
+
+    /** structural identity of a compound whose compound subterms are canonical */
+    private static final class Key {
+        final Class type;
+        final int order;
+        final Term[] sub;
+        final int hash;
+
+        Key(final CompoundTerm c, final Term[] sub) {
+            this.type = c.getClass();
+            this.order = (c instanceof Image) ? ((Image)c).relationIndex : c.getTemporalOrder();
+            this.sub = sub;
+            int h = type.hashCode() * 31 + order;
+            for (final Term s : sub)
+                h = h * 31 + ((s instanceof CompoundTerm) ? ((CompoundTerm)s).structuralHash : s.hashCode());
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) return true;
+            final Key k = (Key)obj;
+            if ((hash != k.hash) || (type != k.type) || (order != k.order) || (sub.length != k.sub.length))
+                return false;
+            for (int i = 0; i < sub.length; i++) {
+                final Term a = sub[i], b = k.sub[i];
+                if (a == b) continue;
+                //compound subterms are canonical, so only atoms need comparing
+                if ((a instanceof CompoundTerm) || (b instanceof CompoundTerm) || (a.getClass() != b.getClass()) || !a.equals(b))
+                    return false;
+            }
+            return true;
+        }
+    }
+}
@@ -229,6 +229,62 @@ public class Terms {
         throw new RuntimeException("Unknown Term operator: " + op + " (" + op.name() + ")");
     }
     
+    /**
+     * Make a compound from an operator and its components as they are, without
+     * the reductions and validity checks of make(); restores a term exactly as
+     * it was saved (see MemorySnapshot), including terms make() would reject.
+     *
+     * @param op Term operator
+     * @param a Component list, in the order of the saved term
+     * @param order The temporal order of conjunctions and statements
+     * @param relationIndex The relation index of images
+     * @return The compound
+     */
+    public static CompoundTerm restore(final Symbols.NativeOperator op, final Term[] a, final int order, final short relationIndex) {
+        switch (op) {
+            case SET_EXT_OPENER:
+                return new SetExt(a);
+            case SET_INT_OPENER:
+                return new SetInt(a);
+            case INTERSECTION_EXT:
+                return new IntersectionExt(a);
+            case INTERSECTION_INT:
+                return new IntersectionInt(a);
+            case DIFFERENCE_EXT:
+                return new DifferenceExt(a);
+            case DIFFERENCE_INT:
+                return new DifferenceInt(a);
+            case INHERITANCE:
+                return new Inheritance(a);
+            case SIMILARITY:
+                return new Similarity(a);
+            case PRODUCT:
+                return new Product(a);
+            case IMAGE_EXT:
+                return new ImageExt(a, relationIndex);
+            case IMAGE_INT:
+                return new ImageInt(a, relationIndex);
+            case NEGATION:
+                return new Negation(a[0]);
+            case DISJUNCTION:
+                return new Disjunction(a);
+            case CONJUNCTION:
+            case SEQUENCE:
+            case PARALLEL:
+                return new Conjunction(a, order, false);
+            case IMPLICATION:
+            case IMPLICATION_AFTER:
+            case IMPLICATION_BEFORE:
+            case IMPLICATION_WHEN:
+                return new Implication(a, order);
+            case EQUIVALENCE:
+            case EQUIVALENCE_WHEN:
+            case EQUIVALENCE_AFTER:
+                return new Equivalence(a, order);
+        }
+        throw new RuntimeException("Unknown Term operator: " + op + " (" + op.name() + ")");
+    }
+
     /**
      * Try to remove a component from a compound
      *
@@ -0,0 +1,259 @@
+package nars.language;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import nars.io.Symbols;
+import nars.storage.Memory;
+import static nars.language.Variables.allowUnification;
+import static nars.language.Variables.makeCommonVariable;
+
+/**
+ * Searches the substitution unifying two terms, like
+ * Variables.findSubstitute, without allocating maps during the search.
+ * <p>
+ * Bindings are appended to a trail of parallel arrays, one entry per binding
+ * with the side (0 for the variables of the first term, 1 for the second),
+ * the variable and its value.  A later binding of the same variable shadows
+ * the earlier one, so looking up scans from the end.  A failed attempt to
+ * match a component of a commutative compound is undone by truncating the
+ * trail to where the attempt started.  The substitution maps are only built
+ * from the trail once the caller asks for them.
+ * <p>
+ * Each thread reuses its own instance, see get().
+ */
+public final class Unifier {
+
+    private static final ThreadLocal<Unifier> local = new ThreadLocal() {
+        @Override protected Unifier initialValue() {
+            return new Unifier();
+        }
+    };
+
+    /** the unifier of the calling thread, or a new one if that is in use */
+    public static Unifier get() {
+        final Unifier u = local.get();
+        return u.busy ? new Unifier() : u;
+    }
+
+    private byte[] sides = new byte[16];
+    private Term[] keys = new Term[16];
+    private Term[] values = new Term[16];
+    private int size = 0;
+
+    /** shuffled components of the commutative compounds being matched, as a stack */
+    private Term[] components = new Term[16];
+    private int componentsSize = 0;
+
+    private char type;
+    private boolean busy = false;
+
+    /**
+     * starts a search, discarding the bindings of the previous one; call
+     * end() when done with the bindings
+     * @param type the type of variable that can be substituted
+     */
+    public Unifier start(final char type) {
+        this.type = type;
+        size = 0;
+        componentsSize = 0;
+        busy = true;
+        return this;
+    }
+
+    /** releases this unifier for the next search on the thread */
+    public void end() {
+        Arrays.fill(keys, 0, size, null);
+        Arrays.fill(values, 0, size, null);
+        size = 0;
+        busy = false;
+    }
+
+    /** adds the bindings of existing substitution maps, before searching */
+    public Unifier load(final Map<Term, Term> map1, final Map<Term, Term> map2) {
+        if (map1 != null)
+            for (final Map.Entry<Term, Term> e : map1.entrySet())
+                put(0, e.getKey(), e.getValue());
+        if (map2 != null)
+            for (final Map.Entry<Term, Term> e : map2.entrySet())
+                put(1, e.getKey(), e.getValue());
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** puts the bindings of one side into a map */
+    public void fill(final int side, final Map<Term, Term> map) {
+        for (int i = 0; i < size; i++)
+            if (sides[i] == side)
+                map.put(keys[i], values[i]);
+    }
+
+    /** the bindings of one side as a new map, or null if there are none */
+    public Map<Term, Term> map(final int side) {
+        Map<Term, Term> m = null;
+        for (int i = 0; i < size; i++) {
+            if (sides[i] == side) {
+                if (m == null)
+                    m = new HashMap();
+                m.put(keys[i], values[i]);
+            }
+        }
+        return m;
+    }
+
+    /**
+     * whether the two terms unify, adding the bindings which make them
+     * equal; the same search as Variables.findSubstitute
+     */
+    public boolean find(final Term term1, final Term term2) {
+        final boolean term1HasVar = term1.hasVar(type);
+        final boolean term2HasVar = term2.hasVar(type);
+
+        final boolean term1Var = term1 instanceof Variable;
+        final boolean term2Var = term2 instanceof Variable;
+        final boolean termsEqual = term1.equals(term2);
+        if (!term1Var && !term2Var && termsEqual) {
+            return true;
+        }
+
+        if (term1Var && allowUnification(((Variable) term1).getType(), type)) {
+            final Variable var1 = (Variable) term1;
+            final Term t = lookup(0, var1);
+            if (t != null)
+                return find(t, term2);
+
+            if ((term2 instanceof Variable) && allowUnification(((Variable) term2).getType(), type)) {
+                final Variable commonVar = makeCommonVariable(term1, term2);
+                put(0, var1, commonVar);
+                put(1, term2, commonVar);
+            } else {
+                if ((term2 instanceof Variable) && ((((Variable) term2).getType() == Symbols.VAR_QUERY) != (var1.getType() == Symbols.VAR_QUERY)))
+                    return false;
+                put(0, var1, term2);
+                if (var1.isCommon())
+                    put(1, var1, term2);
+            }
+            return true;
+        } else if (term2Var && allowUnification(((Variable) term2).getType(), type)) {
+            final Variable var2 = (Variable) term2;
+            final Term t = lookup(1, var2);
+            if (t != null)
+                return find(term1, t);
+
+            put(1, var2, term1);
+            if (var2.isCommon())
+                put(0, var2, term1);
+            return true;
+        } else if ((term1HasVar || term2HasVar) && (term1 instanceof CompoundTerm) && term1.getClass().equals(term2.getClass())) {
+            final CompoundTerm cTerm1 = (CompoundTerm) term1;
+            final CompoundTerm cTerm2 = (CompoundTerm) term2;
+
+            //consider temporal order on term matching
+            if ((term1 instanceof Conjunction) && (((Conjunction) term1).getTemporalOrder() != ((Conjunction) term2).getTemporalOrder()))
+                return false;
+            if ((term1 instanceof Implication) && (((Implication) term1).getTemporalOrder() != ((Implication) term2).getTemporalOrder()))
+                return false;
+            if ((term1 instanceof Equivalence) && (((Equivalence) term1).getTemporalOrder() != ((Equivalence) term2).getTemporalOrder()))
+                return false;
+
+            if (cTerm1.size() != cTerm2.size())
+                return false;
+            if (((cTerm1 instanceof ImageExt) && (((ImageExt) cTerm1).relationIndex != ((ImageExt) cTerm2).relationIndex))
+                    || ((cTerm1 instanceof ImageInt) && (((ImageInt) cTerm1).relationIndex != ((ImageInt) cTerm2).relationIndex)))
+                return false;
+
+            if (cTerm1.isCommutative())
+                return findCommutative(cTerm1.term, cTerm2.term);
+
+            for (int i = 0; i < cTerm1.term.length; i++) {
+                if (!find(cTerm1.term[i], cTerm2.term[i]))
+                    return false;
+            }
+            return true;
+        }
+
+        return termsEqual;
+    }
+
+    /**
+     * matches the components of the first term, shuffled, with those of the
+     * second in order; a component which fails is retried once for every
+     * component of the second term not matched yet, since the matching of
+     * nested commutative compounds is random
+     */
+    private boolean findCommutative(final Term[] list1, final Term[] list2) {
+        final int n = list1.length;
+        final int base = componentsSize;
+        if (base + n > components.length)
+            components = Arrays.copyOf(components, Math.max(components.length * 2, base + n));
+        System.arraycopy(list1, 0, components, base, n);
+        componentsSize += n;
+        shuffle(components, base, n, Memory.random());
+
+        boolean result = true;
+        for (int i = 0; i < n; i++) {
+            boolean succeeded = false;
+            for (int attempt = i; attempt < n; attempt++) {
+                final int mark = size;
+                if (find(components[base + i], list2[i])) {
+                    succeeded = true;
+                    break;
+                }
+                undo(mark);
+            }
+            if (!succeeded) {
+                result = false;
+                break;
+            }
+        }
+
+        Arrays.fill(components, base, componentsSize, null);
+        componentsSize = base;
+        return result;
+    }
+
+    /** the same permutation as CompoundTerm.shuffle, on a range of an array */
+    private static void shuffle(final Term[] a, final int from, final int n, final Random random) {
+        if (n < 2)
+            return;
+        for (int i = n - 1; i > 0; i--) {
+            final int index = random.nextInt(i + 1);
+            final Term x = a[from + index];
+            a[from + index] = a[from + i];
+            a[from + i] = x;
+        }
+    }
+
+    private Term lookup(final int side, final Term key) {
+        for (int i = size - 1; i >= 0; i--) {
+            if ((sides[i] == side) && ((keys[i] == key) || keys[i].equals(key)))
+                return values[i];
+        }
+        return null;
+    }
+
+    private void put(final int side, final Term key, final Term value) {
+        if (size == keys.length) {
+            final int n = size * 2;
+            sides = Arrays.copyOf(sides, n);
+            keys = Arrays.copyOf(keys, n);
+            values = Arrays.copyOf(values, n);
+        }
+        sides[size] = (byte) side;
+        keys[size] = key;
+        values[size] = value;
+        size++;
+    }
+
+    private void undo(final int mark) {
+        for (int i = mark; i < size; i++) {
+            keys[i] = null;
+            values[i] = null;
+        }
+        size = mark;
+    }
+}
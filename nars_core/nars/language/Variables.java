@@ -11,8 +11,18 @@ import nars.io.Symbols;
  */
 public class Variables {
     
+    /** the substitution is added to the maps, also the part found before failing */
     public static boolean findSubstitute(final char type, final Term term1, final Term term2, final Map<Term, Term> map1, final Map<Term, Term> map2) {
-        return findSubstitute(type, term1, term2, new Map[] { map1, map2 });
+        final Unifier u = Unifier.get().start(type).load(map1, map2);
+        try {
+            final boolean result = u.find(term1, term2);
+            u.fill(0, map1);
+            u.fill(1, map2);
+            return result;
+        }
+        finally {
+            u.end();
+        }
     }
     
     public static boolean allowUnification(final char type, final char uniType)
@@ -34,11 +44,31 @@ public class Variables {
     }
     
     /** map is a 2-element array of HashMap<Term,Term>. it may be null, in which case
-     * the maps will be instantiated as necessary.  
-     * this is to delay the instantiation of the 2 HashMap until necessary to avoid
-     * wasting them if they are not used.
+     * the maps will be instantiated if the terms unify with some substitution.
      */
     public static boolean findSubstitute(final char type, final Term term1, final Term term2, final Map<Term, Term>[] map) {
+        final Unifier u = Unifier.get().start(type).load(map[0], map[1]);
+        try {
+            if (!u.find(term1, term2))
+                return false;
+            if (!u.isEmpty()) {
+                if (map[0] == null) {  map[0] = new HashMap(); map[1] = new HashMap(); }
+                u.fill(0, map[0]);
+                u.fill(1, map[1]);
+            }
+            return true;
+        }
+        finally {
+            u.end();
+        }
+    }
+
+    /** The search of findSubstitute on HashMaps, copying the maps for every
+     * attempt on a commutative compound; the implementation before Unifier,
+     * kept to compare with it in tests and benchmarks.
+     * map is a 2-element array of HashMap<Term,Term>, instantiated as necessary.
+     */
+    public static boolean findSubstituteWithMaps(final char type, final Term term1, final Term term2, final Map<Term, Term>[] map) {
 
         final boolean term1HasVar = term1.hasVar(type);
         final boolean term2HasVar = term2.hasVar(type);
@@ -62,7 +92,7 @@ public class Variables {
             t = map[0]!=null ? map[0].get(var1) : null;
             
             if (t != null) {
-                return findSubstitute(type, t, term2, map);
+                return findSubstituteWithMaps(type, t, term2, map);
             } else {
                 
                 if (map[0] == null) {  map[0] = new HashMap(); map[1] = new HashMap(); }
@@ -88,7 +118,7 @@ public class Variables {
             t = map[1]!=null ? map[1].get(var2) : null;
             
             if (t != null) {
-                return findSubstitute(type, term1, t, map);
+                return findSubstituteWithMaps(type, term1, t, map);
             } else {
                 
                 if (map[0] == null) {  map[0] = new HashMap(); map[1] = new HashMap(); }
@@ -125,7 +155,7 @@ public class Variables {
             }
             Term[] list = cTerm1.cloneTerms();
             if (cTerm1.isCommutative()) {
-                CompoundTerm.shuffle(list, Memory.randomNumber);
+                CompoundTerm.shuffle(list, Memory.random());
                 HashSet<Integer> alreadyMatched = new HashSet<Integer>();
                 //ok attempt unification
                 if(cTerm2 == null || list == null || cTerm2.term == null || list.length != cTerm2.term.length) {
@@ -156,7 +186,7 @@ public class Variables {
                             mapNew[1].put(c, map[1].get(c));
                         }
                         //attempt unification:
-                        if(findSubstitute(type,ti,cTerm2.term[i],mapNew)) {
+                        if(findSubstituteWithMaps(type,ti,cTerm2.term[i],mapNew)) {
                             for(Term c : mapNew[0].keySet()) { //ok put back the unifications that were necessary
                                 map[0].put(c, mapNew[0].get(c));
                             }
@@ -177,7 +207,7 @@ public class Variables {
             for (int i = 0; i < cTerm1.size(); i++) {
                 Term t1 = list[i];
                 Term t2 = cTerm2.term[i];
-                if (!findSubstitute(type, t1, t2, map)) {
+                if (!findSubstituteWithMaps(type, t1, t2, map)) {
                     return false;
                 }
             }
@@ -239,10 +269,19 @@ public class Variables {
      * @return Whether the unification is possible.  't' will refer to the unified terms
      */
     public static boolean unify(final char type, final Term t1, final Term t2, final Term[] compound) {        
-        final Map<Term, Term> map[] = new Map[2]; //begins empty: null,null
+        final Map<Term, Term> map[] = new Map[2]; //maps are only built if the terms unify
         
-        final boolean hasSubs = findSubstitute(type, t1, t2, map);
-        if (hasSubs) {
+        final Unifier u = Unifier.get().start(type);
+        try {
+            if (!u.find(t1, t2))
+                return false;
+            map[0] = u.map(0);
+            map[1] = u.map(1);
+        }
+        finally {
+            u.end();
+        }
+        {
             final Term a = applySubstituteAndRenameVariables(((CompoundTerm)compound[0]), map[0]);
             if (a == null) return false;
             final Term b = applySubstituteAndRenameVariables(((CompoundTerm)compound[1]), map[1]);
@@ -258,7 +297,6 @@ public class Variables {
             compound[1] = b;
             return true;
         }
-        return false;
     }
 
     /** appliesSubstitute and renameVariables, resulting in a cloned object, 
@@ -364,7 +402,13 @@ public class Variables {
      * @return Whether there is a substitution
      */
     public static boolean hasSubstitute(final char type, final Term term1, final Term term2) {
-        return findSubstitute(type, term1, term2, new HashMap<>(), new HashMap<>());
+        final Unifier u = Unifier.get().start(type);
+        try {
+            return u.find(term1, term2);
+        }
+        finally {
+            u.end();
+        }
     }
     
 }
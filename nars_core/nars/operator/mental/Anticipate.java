@@ -62,8 +62,6 @@ public class Anticipate extends Operator implements EventObserver {
     final Set<Term> newTasks = new LinkedHashSet();
     DerivationContext nal;
  
-    final static TruthValue expiredTruth = new TruthValue(0.0f, Parameters.ANTICIPATION_CONFIDENCE);
-    final static BudgetValue expiredBudget = new BudgetValue(Parameters.DEFAULT_JUDGMENT_PRIORITY, Parameters.DEFAULT_JUDGMENT_DURABILITY, BudgetFunctions.truthToQuality(expiredTruth));
     
     public Anticipate() {
         super("^anticipate");        
@@ -257,8 +255,8 @@ public class Anticipate extends Operator implements EventObserver {
 
     protected void deriveDidntHappen(Term aTerm, long expectedOccurenceTime) {
                 
-        TruthValue truth = expiredTruth;
-        BudgetValue budget = expiredBudget;
+        TruthValue truth = new TruthValue(0.0f, nal.memory.param.anticipationConfidence.floatValue());
+        BudgetValue budget = new BudgetValue(Parameters.DEFAULT_JUDGMENT_PRIORITY, Parameters.DEFAULT_JUDGMENT_DURABILITY, BudgetFunctions.truthToQuality(truth));
 
         Stamp stamp = new Stamp(nal.memory);
         //stamp.setOccurrenceTime(nal.memory.time());
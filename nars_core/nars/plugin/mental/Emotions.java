@@ -1,6 +1,7 @@
 package nars.plugin.mental;
 
 import java.io.Serializable;
+import java.util.List;
 import nars.NAR;
 import nars.config.Parameters;
 import nars.control.DerivationContext;
@@ -55,10 +56,10 @@ public class Emotions implements Plugin {
         
         if(lasthappy!=-1) {
             float frequency=-1;
-            if(happy>Parameters.HAPPY_EVENT_HIGHER_THRESHOLD && lasthappy<=Parameters.HAPPY_EVENT_HIGHER_THRESHOLD) {
+            if(happy>nal.memory.param.happyEventHigherThreshold.floatValue() && lasthappy<=nal.memory.param.happyEventHigherThreshold.floatValue()) {
                 frequency=1.0f;
             }
-            if(happy<Parameters.HAPPY_EVENT_LOWER_THRESHOLD && lasthappy>=Parameters.HAPPY_EVENT_LOWER_THRESHOLD) {
+            if(happy<nal.memory.param.happyEventLowerThreshold.floatValue() && lasthappy>=nal.memory.param.happyEventLowerThreshold.floatValue()) {
                 frequency=0.0f;
             }
             /*if(frequency!=-1) { //ok lets add an event now
@@ -70,7 +71,7 @@ public class Emotions implements Plugin {
                 s.stamp.setOccurrenceTime(nal.memory.time());
                 Task t=new Task(s,new BudgetValue(Parameters.DEFAULT_JUDGMENT_PRIORITY,Parameters.DEFAULT_JUDGMENT_DURABILITY,BudgetFunctions.truthToQuality(truth)));
                 nal.addTask(t, "emotion");
-                if(Parameters.REFLECT_META_HAPPY_GOAL) { //remind on the goal whenever happyness changes, should suffice for now
+                if(nal.memory.param.reflectMetaHappyGoal.get()) { //remind on the goal whenever happyness changes, should suffice for now
                     TruthValue truth2=new TruthValue(1.0f,Parameters.DEFAULT_GOAL_CONFIDENCE);
                     Sentence s2=new Sentence(inh,Symbols.GOAL_MARK,truth2,new Stamp(nal.memory));
                     s2.stamp.setOccurrenceTime(nal.memory.time());
@@ -81,7 +82,7 @@ public class Emotions implements Plugin {
                     Operator remind=nal.memory.getOperator("^remind");
                     Term[] arg=new Term[1];
                     arg[0]=inh;
-                    if(InternalExperience.enabled && Parameters.CONSIDER_REMIND) {
+                    if(nal.memory.internalExperience != null && nal.memory.param.considerRemind.get()) {
                         Operation op_consider=Operation.make(consider, arg, true);
                         Operation op_remind=Operation.make(remind, arg, true);
                         Operation[] op=new Operation[2];
@@ -113,12 +114,17 @@ public class Emotions implements Plugin {
         if(!enabled) {
             return;
         }
+        final List<Runnable> deferred = nal.memory.event.deferredEffects();
+        if (deferred != null) {
+            deferred.add(() -> manageBusy(nal));
+            return;
+        }
         if(lastbusy!=-1) {
             float frequency=-1;
-            if(busy>Parameters.BUSY_EVENT_HIGHER_THRESHOLD && lastbusy<=Parameters.BUSY_EVENT_HIGHER_THRESHOLD) {
+            if(busy>nal.memory.param.busyEventHigherThreshold.floatValue() && lastbusy<=nal.memory.param.busyEventHigherThreshold.floatValue()) {
                 frequency=1.0f;
             }
-            if(busy<Parameters.BUSY_EVENT_LOWER_THRESHOLD && lastbusy>=Parameters.BUSY_EVENT_LOWER_THRESHOLD) {
+            if(busy<nal.memory.param.busyEventLowerThreshold.floatValue() && lastbusy>=nal.memory.param.busyEventLowerThreshold.floatValue()) {
                 frequency=0.0f;
             }
             if(frequency!=-1) { //ok lets add an event now
@@ -33,8 +33,8 @@ import nars.operator.Operator;
  */
 public class InternalExperience implements Plugin, EventObserver {
         
-    public static float MINIMUM_BUDGET_SUMMARY_TO_CREATE=0.92f; //0.92
-    public static float MINIMUM_BUDGET_SUMMARY_TO_CREATE_WONDER_EVALUATE=0.92f;
+    public static final float MINIMUM_BUDGET_SUMMARY_TO_CREATE=0.92f; //0.92
+    public static final float MINIMUM_BUDGET_SUMMARY_TO_CREATE_WONDER_EVALUATE=0.92f;
     
     //internal experience has less durability?
     public static final float INTERNAL_EXPERIENCE_PROBABILITY=0.0001f;
@@ -44,43 +44,48 @@ public class InternalExperience implements Plugin, EventObserver {
             INTERNAL_EXPERIENCE_PROBABILITY/4f;
     
     //internal experience has less durability?
-    public static float INTERNAL_EXPERIENCE_DURABILITY_MUL=0.1f; //0.1 
+    public static final float INTERNAL_EXPERIENCE_DURABILITY_MUL=0.1f; //0.1 
     //internal experience has less priority?
-    public static float INTERNAL_EXPERIENCE_PRIORITY_MUL=0.1f; //0.1
+    public static final float INTERNAL_EXPERIENCE_PRIORITY_MUL=0.1f; //0.1
+    
+    /* settings of this plugin, so of the NAR it is enabled in */
+    
+    private float minCreationBudgetSummary = MINIMUM_BUDGET_SUMMARY_TO_CREATE;
+    private float minCreationBudgetSummaryWonderEvaluate = MINIMUM_BUDGET_SUMMARY_TO_CREATE_WONDER_EVALUATE;
     
     //dont use internal experience for want and believe if this setting is true
-    public static boolean AllowWantBelieve=true; 
+    private boolean allowWantBelieve=true; 
     
     //
-    public static boolean OLD_BELIEVE_WANT_EVALUATE_WONDER_STRATEGY=false; //https://groups.google.com/forum/#!topic/open-nars/DVE5FJd7FaM
+    private boolean oldBelieveWantEvaluateWonderStrategy=false; //https://groups.google.com/forum/#!topic/open-nars/DVE5FJd7FaM
     
     public boolean isAllowNewStrategy() {
-        return !OLD_BELIEVE_WANT_EVALUATE_WONDER_STRATEGY;
+        return !oldBelieveWantEvaluateWonderStrategy;
     }
     public void setAllowNewStrategy(boolean val) {
-        OLD_BELIEVE_WANT_EVALUATE_WONDER_STRATEGY=!val;
+        oldBelieveWantEvaluateWonderStrategy=!val;
     }
     
     public boolean isAllowWantBelieve() {
-        return AllowWantBelieve;
+        return allowWantBelieve;
     }
     public void setAllowWantBelieve(boolean val) {
-        AllowWantBelieve=val;
+        allowWantBelieve=val;
     }
 
     
     public double getMinCreationBudgetSummary() {
-        return MINIMUM_BUDGET_SUMMARY_TO_CREATE;
+        return minCreationBudgetSummary;
     }
     public void setMinCreationBudgetSummary(double val) {
-        MINIMUM_BUDGET_SUMMARY_TO_CREATE=(float) val;
+        minCreationBudgetSummary=(float) val;
     }
     
     public double getMinCreationBudgetSummaryWonderEvaluate() {
-        return MINIMUM_BUDGET_SUMMARY_TO_CREATE_WONDER_EVALUATE;
+        return minCreationBudgetSummaryWonderEvaluate;
     }
     public void setMinCreationBudgetSummaryWonderEvaluate(double val) {
-        MINIMUM_BUDGET_SUMMARY_TO_CREATE_WONDER_EVALUATE=(float) val;
+        minCreationBudgetSummaryWonderEvaluate=(float) val;
     }
     
     private Memory memory;
@@ -91,8 +96,6 @@ public class InternalExperience implements Plugin, EventObserver {
         return false;
     }
     
-    public static boolean enabled=false;
-    
     @Override public boolean setEnabled(NAR n, boolean enable) {        
         memory = n.memory;
         
@@ -101,23 +104,27 @@ public class InternalExperience implements Plugin, EventObserver {
         if (isFull())
             memory.event.set(this, enable, Events.BeliefReason.class);
         
-        enabled=enable;
+        if (enable)
+            memory.internalExperience = this;
+        else if (memory.internalExperience == this)
+            memory.internalExperience = null;
         
         return true;
     }
     
         public static Term toTerm(final Sentence s, final Memory mem) {
+        final boolean allowWantBelieve = (mem.internalExperience == null) || mem.internalExperience.allowWantBelieve;
         String opName;
         switch (s.punctuation) {
             case Symbols.JUDGMENT_MARK:
                 opName = "^believe";
-                if(!AllowWantBelieve) {
+                if(!allowWantBelieve) {
                     return null;
                 }
                 break;
             case Symbols.GOAL_MARK:
                 opName = "^want";
-                if(!AllowWantBelieve) {
+                if(!allowWantBelieve) {
                     return null;
                 }
                 break;
@@ -154,7 +161,7 @@ public class InternalExperience implements Plugin, EventObserver {
             Task task = (Task)a[0];  
             
             //old strategy always, new strategy only for QUESTION and QUEST:
-            if(OLD_BELIEVE_WANT_EVALUATE_WONDER_STRATEGY || (!OLD_BELIEVE_WANT_EVALUATE_WONDER_STRATEGY && (task.sentence.punctuation == Symbols.QUESTION_MARK || task.sentence.punctuation == Symbols.QUEST_MARK))) {
+            if(oldBelieveWantEvaluateWonderStrategy || (!oldBelieveWantEvaluateWonderStrategy && (task.sentence.punctuation == Symbols.QUESTION_MARK || task.sentence.punctuation == Symbols.QUEST_MARK))) {
                 InternalExperienceFromTaskInternal(memory,task,isFull());
             }
         }
@@ -174,13 +181,15 @@ public class InternalExperience implements Plugin, EventObserver {
     }
     
     public static void InternalExperienceFromTask(Memory memory, Task task, boolean full) {
-        if(!OLD_BELIEVE_WANT_EVALUATE_WONDER_STRATEGY) {
+        final InternalExperience ie = memory.internalExperience;
+        if(ie != null && !ie.oldBelieveWantEvaluateWonderStrategy) {
             InternalExperienceFromTaskInternal(memory,task,full);
         }
     }
 
     public static boolean InternalExperienceFromTaskInternal(Memory memory, Task task, boolean full) {
-        if(!enabled) {
+        final InternalExperience ie = memory.internalExperience;
+        if(ie == null) {
             return false;
         }
         
@@ -188,19 +197,19 @@ public class InternalExperience implements Plugin, EventObserver {
        //         (!OLD_BELIEVE_WANT_EVALUATE_WONDER_STRATEGY && (task.sentence.punctuation==Symbols.QUESTION_MARK || task.sentence.punctuation==Symbols.QUEST_MARK))) {
         {
             if(task.sentence.punctuation == Symbols.QUESTION_MARK || task.sentence.punctuation == Symbols.QUEST_MARK) {
-                if(task.budget.summary()<MINIMUM_BUDGET_SUMMARY_TO_CREATE_WONDER_EVALUATE) {
+                if(task.budget.summary()<ie.minCreationBudgetSummaryWonderEvaluate) {
                     return false;
                 }
             }
             else
-            if(task.budget.summary()<MINIMUM_BUDGET_SUMMARY_TO_CREATE) {
+            if(task.budget.summary()<ie.minCreationBudgetSummary) {
                 return false;
             }
         }
         
         Term content=task.getTerm();
         // to prevent infinite recursions
-        if (content instanceof Operation/* ||  Memory.randomNumber.nextDouble()>Parameters.INTERNAL_EXPERIENCE_PROBABILITY*/) {
+        if (content instanceof Operation/* ||  Memory.random().nextDouble()>Parameters.INTERNAL_EXPERIENCE_PROBABILITY*/) {
             return true;
         }
         Sentence sentence = task.sentence;
@@ -217,7 +226,7 @@ public class InternalExperience implements Plugin, EventObserver {
                 Parameters.DEFAULT_JUDGMENT_PRIORITY*INTERNAL_EXPERIENCE_DURABILITY_MUL,
                 BudgetFunctions.truthToQuality(truth));
         
-        if(!OLD_BELIEVE_WANT_EVALUATE_WONDER_STRATEGY) {
+        if(!ie.oldBelieveWantEvaluateWonderStrategy) {
             newbudget.setPriority(task.getPriority()*INTERNAL_EXPERIENCE_PRIORITY_MUL);
             newbudget.setDurability(task.getDurability()*INTERNAL_EXPERIENCE_DURABILITY_MUL);
         }
@@ -237,11 +246,11 @@ public class InternalExperience implements Plugin, EventObserver {
         
         Memory memory = nal.memory;
     
-        if (Memory.randomNumber.nextDouble() < INTERNAL_EXPERIENCE_RARE_PROBABILITY ) {
+        if (Memory.random().nextDouble() < INTERNAL_EXPERIENCE_RARE_PROBABILITY ) {
             
             //the operators which dont have a innate belief
             //also get a chance to reveal its effects to the system this way
-            Operator op=memory.getOperator(nonInnateBeliefOperators[Memory.randomNumber.nextInt(nonInnateBeliefOperators.length)]);
+            Operator op=memory.getOperator(nonInnateBeliefOperators[Memory.random().nextInt(nonInnateBeliefOperators.length)]);
             
             Product prod=new Product(new Term[]{belief.term});
             
@@ -264,7 +273,7 @@ public class InternalExperience implements Plugin, EventObserver {
             }
         }
 
-        if (beliefTerm instanceof Implication && Memory.randomNumber.nextDouble()<=INTERNAL_EXPERIENCE_PROBABILITY) {
+        if (beliefTerm instanceof Implication && Memory.random().nextDouble()<=INTERNAL_EXPERIENCE_PROBABILITY) {
             Implication imp=(Implication) beliefTerm;
             if(imp.getTemporalOrder()==TemporalRules.ORDER_FORWARD) {
                 //1. check if its (&/,term,+i1,...,+in) =/> anticipateTerm form:
@@ -0,0 +1,311 @@
+package nars.plugin.misc;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import nars.NAR;
+import nars.entity.Concept;
+import nars.language.Term;
+import nars.storage.Memory;
+import nars.storage.MemorySnapshot;
+import nars.util.Plugin;
+
+/**
+ * Second tier of the concept memory: concepts displaced from the concept bag
+ * are written to a file instead of being lost, and restored by
+ * Memory.conceptualize with their beliefs, desires and term links when their
+ * term comes back.
+ * <p>
+ * Only concepts with beliefs, desires or executable preconditions are kept;
+ * the others are as cheap to create again.  Each one is written as a record of
+ * MemorySnapshot.saveConcept, without its task links, questions and quests,
+ * appended to a file mapped in segments of SEGMENT bytes, and indexed by its
+ * term.  Beyond the capacity the records archived first are dropped.
+ * Restored and dropped records stay in the file until it is compacted, which
+ * copies the live records to a new file once they are less than half of it.
+ * <p>
+ * The archive only lasts as long as the NAR: it is emptied on reset, and its
+ * file deleted when the plugin is disabled.
+ */
+public class ConceptArchive implements Plugin {
+
+    /** bytes of the file mapped at a time; larger records are not archived */
+    public static final int SEGMENT = 1 << 24;
+
+    /** the file is compacted when its records, live or not, exceed this many bytes and twice the live ones */
+    public static final long MIN_COMPACT_BYTES = SEGMENT;
+
+    private final String path;
+    private int capacity;
+
+    private transient Memory memory = null;
+    private transient Store store = null;
+    private int generation = 0;
+
+    /** position in the file of the record of each archived term, in the order they were archived */
+    private final LinkedHashMap<Term, Long> index = new LinkedHashMap();
+    private long liveBytes = 0;
+
+    private long hits = 0, misses = 0, archived = 0, skipped = 0, dropped = 0, compactions = 0;
+
+    public ConceptArchive() {
+        this(new File(System.getProperty("java.io.tmpdir"), "nars-concepts-" + System.nanoTime()).getPath(), 1000000);
+    }
+
+    /**
+     * @param path the file the archive is written to, followed by the generation number
+     * @param capacity the maximum number of concepts archived
+     */
+    public ConceptArchive(final String path, final int capacity) {
+        this.path = path;
+        this.capacity = capacity;
+    }
+
+    @Override
+    public synchronized boolean setEnabled(final NAR n, final boolean enabled) {
+        memory = n.memory;
+        if (enabled) {
+            memory.archive = this;
+        }
+        else {
+            if (memory.archive == this)
+                memory.archive = null;
+            clear();
+            if (store != null) {
+                store.delete();
+                store = null;
+            }
+        }
+        return true;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized void setCapacity(final int capacity) {
+        this.capacity = capacity;
+        drop();
+    }
+
+    /** archives a concept displaced from the concept bag, called from Memory.conceptRemoved */
+    public synchronized void put(final Concept c) {
+        if (c.beliefs.isEmpty() && c.desires.isEmpty() && c.executable_preconditions.isEmpty()) {
+            skipped++;
+            return;
+        }
+        final byte[] record;
+        try {
+            record = MemorySnapshot.saveConcept(c);
+        } catch (IOException | RuntimeException e) {
+            skipped++;
+            return;
+        }
+        if (record.length + 4 > SEGMENT) {
+            skipped++;
+            return;
+        }
+
+        try {
+            if (store == null)
+                store = new Store(file(generation));
+            final Long previous = index.remove(c.term);
+            if (previous != null)
+                liveBytes -= store.length(previous);
+            index.put(c.term, store.append(record));
+            liveBytes += record.length + 4;
+            archived++;
+        } catch (IOException e) {
+            skipped++;
+            return;
+        }
+        drop();
+        if ((store.end > MIN_COMPACT_BYTES) && (store.end > 2 * liveBytes))
+            compact();
+    }
+
+    /** the concept of the term restored from the archive, which no longer holds it, or null */
+    public synchronized Concept take(final Term term, final Memory m) {
+        final Long position = index.remove(term);
+        if (position == null) {
+            misses++;
+            return null;
+        }
+        try {
+            final byte[] record = store.read(position);
+            liveBytes -= record.length + 4;
+            final Concept c = MemorySnapshot.loadConcept(m, record, term);
+            hits++;
+            return c;
+        } catch (IOException | RuntimeException e) {
+            misses++;
+            return null;
+        }
+    }
+
+    /** drops the records archived first beyond the capacity */
+    private void drop() {
+        final Iterator<Map.Entry<Term, Long>> i = index.entrySet().iterator();
+        while ((index.size() > capacity) && i.hasNext()) {
+            final long position = i.next().getValue();
+            i.remove();
+            liveBytes -= store.length(position);
+            dropped++;
+        }
+    }
+
+    /** copies the live records to the file of the next generation, and deletes the current one */
+    public synchronized void compact() {
+        if (store == null)
+            return;
+        Store next = null;
+        try {
+            next = new Store(file(generation + 1));
+            final Map<Term, Long> moved = new LinkedHashMap();
+            for (final Map.Entry<Term, Long> e : index.entrySet())
+                moved.put(e.getKey(), next.append(store.read(e.getValue())));
+            index.putAll(moved);
+            store.delete();
+            store = next;
+            generation++;
+            compactions++;
+        } catch (IOException e) {
+            //keeps the current file
+            if (next != null)
+                next.delete();
+        }
+    }
+
+    /** forgets all the archived concepts, called on Memory.reset */
+    public synchronized void clear() {
+        index.clear();
+        liveBytes = 0;
+        if (store != null)
+            store.end = 0;
+    }
+
+    private File file(final int generation) {
+        return new File(path + "." + generation);
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public synchronized boolean contains(final Term term) {
+        return index.containsKey(term);
+    }
+
+    /** concepts restored by conceptualize */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /** new concepts conceptualize did not find in the archive */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getArchived() {
+        return archived;
+    }
+
+    /** concepts not archived, having nothing to restore, or too large */
+    public synchronized long getSkipped() {
+        return skipped;
+    }
+
+    /** records dropped beyond the capacity */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    public synchronized long getCompactions() {
+        return compactions;
+    }
+
+    /** bytes of the file in use, by live records or not */
+    public synchronized long getFileBytes() {
+        return (store != null) ? store.end : 0;
+    }
+
+    public synchronized long getLiveBytes() {
+        return liveBytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "ConceptArchive[" + size() + " concepts, " + hits + " hits, " + misses + " misses, " +
+                dropped + " dropped, " + liveBytes + "/" + getFileBytes() + " bytes live]";
+    }
+
+    /**
+     * An append-only file of records, each an int length followed by the bytes,
+     * mapped in segments.  A record never spans two segments: one which does
+     * not fit at the end of a segment starts the next one.
+     */
+    static class Store {
+        final File file;
+        final RandomAccessFile raf;
+        final FileChannel channel;
+        final List<MappedByteBuffer> segments = new ArrayList();
+        long end = 0;
+
+        Store(final File file) throws IOException {
+            this.file = file;
+            this.raf = new RandomAccessFile(file, "rw");
+            this.channel = raf.getChannel();
+        }
+
+        ByteBuffer segment(final long position) throws IOException {
+            final int s = (int) (position / SEGMENT);
+            while (segments.size() <= s)
+                segments.add(channel.map(FileChannel.MapMode.READ_WRITE, (long) segments.size() * SEGMENT, SEGMENT));
+            final ByteBuffer b = segments.get(s).duplicate();
+            b.position((int) (position % SEGMENT));
+            return b;
+        }
+
+        /** @return the position of the record */
+        long append(final byte[] record) throws IOException {
+            final int size = record.length + 4;
+            if ((end % SEGMENT) + size > SEGMENT)
+                end = (end / SEGMENT + 1) * SEGMENT;
+            final long position = end;
+            segment(position).putInt(record.length).put(record);
+            end += size;
+            return position;
+        }
+
+        byte[] read(final long position) throws IOException {
+            final ByteBuffer b = segment(position);
+            final byte[] record = new byte[b.getInt()];
+            b.get(record);
+            return record;
+        }
+
+        /** the bytes taken by the record */
+        int length(final long position) {
+            return segments.get((int) (position / SEGMENT)).getInt((int) (position % SEGMENT)) + 4;
+        }
+
+        void delete() {
+            segments.clear();
+            try {
+                channel.close();
+                raf.close();
+            } catch (IOException e) {
+            }
+            if (!file.delete())
+                file.deleteOnExit();
+        }
+    }
+}
@@ -0,0 +1,470 @@
+package nars.plugin.misc;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import nars.NAR;
+import nars.control.DerivationRejections;
+import nars.io.Output.ERR;
+import nars.storage.Bag;
+import nars.storage.Memory;
+import nars.util.EventEmitter.EventObserver;
+import nars.util.Events;
+import nars.util.Plugin;
+
+/**
+ * Instrumentation of the reasoning cycle: the latency of each phase of
+ * Memory.cycle, the tasks derived by each rule, the tasks added and removed
+ * by reason, and the occupancy and mass of the bags of the memory.
+ * <p>
+ * Published over JMX as a MetricsMXBean, and as plain text by scrape(), which
+ * serve() makes available over HTTP.  Enabling the plugin sets Memory.metrics;
+ * disabled, Memory.metrics is null and the task events are not observed, so
+ * nothing is recorded nor computed.
+ */
+public class Metrics implements Plugin, EventObserver, MetricsMXBean {
+
+    /** the phases of Memory.cycle, and the whole cycle */
+    public enum Phase {
+        INPUT, NEW_TASKS, NOVEL_TASK, FIRE, CYCLE
+    }
+
+    /** the number of cycles the rates are measured over */
+    public static final int RATE_CYCLES = 100;
+
+    /** the rule of derivations outside of RuleTables.reason */
+    public static final String DIRECT = "DIRECT";
+
+    private static final AtomicInteger ids = new AtomicInteger();
+
+    /** durations in nanoseconds, in buckets of powers of 2 */
+    public static class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        public void record(final long nanos) {
+            final long d = Math.max(0, nanos);
+            buckets.incrementAndGet(bucket(d));
+            count.incrementAndGet();
+            sum.addAndGet(d);
+            max.accumulate(d);
+        }
+
+        /** the bucket of durations in [2^(b-1), 2^b) */
+        static int bucket(final long nanos) {
+            return 64 - Long.numberOfLeadingZeros(nanos);
+        }
+
+        public long getCount() {
+            return count.get();
+        }
+
+        public long getSum() {
+            return sum.get();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        public double getMean() {
+            final long n = count.get();
+            return (n == 0) ? 0 : ((double) sum.get()) / n;
+        }
+
+        /** the upper bound of the bucket of the quantile */
+        public long getQuantile(final double q) {
+            final long n = count.get();
+            if (n == 0)
+                return 0;
+            long seen = 0;
+            for (int b = 0; b < 64; b++) {
+                seen += buckets.get(b);
+                if (seen >= q * n)
+                    return (b == 0) ? 0 : (b >= 63 ? Long.MAX_VALUE : (1L << b));
+            }
+            return max.get();
+        }
+
+        public void reset() {
+            for (int b = 0; b < 64; b++)
+                buckets.set(b, 0);
+            count.set(0);
+            sum.set(0);
+            max.reset();
+        }
+    }
+
+    /** counts by name, with their rate per cycle over the last RATE_CYCLES cycles */
+    static class Counters {
+        final Map<String, LongAdder> counts = new ConcurrentHashMap();
+        private Map<String, Long> last = new HashMap();
+        volatile Map<String, Double> rates = new HashMap();
+
+        void inc(final String name) {
+            LongAdder a = counts.get(name);
+            if (a == null)
+                a = counts.computeIfAbsent(name, k -> new LongAdder());
+            a.increment();
+        }
+
+        Map<String, Long> get() {
+            final Map<String, Long> m = new TreeMap();
+            for (final Map.Entry<String, LongAdder> e : counts.entrySet())
+                m.put(e.getKey(), e.getValue().sum());
+            return m;
+        }
+
+        void updateRates(final int cycles) {
+            final Map<String, Long> now = get();
+            final Map<String, Double> r = new TreeMap();
+            for (final Map.Entry<String, Long> e : now.entrySet()) {
+                final Long before = last.get(e.getKey());
+                r.put(e.getKey(), ((double) (e.getValue() - (before == null ? 0 : before))) / cycles);
+            }
+            last = now;
+            rates = r;
+        }
+
+        void reset() {
+            counts.clear();
+            last = new HashMap();
+            rates = new HashMap();
+        }
+    }
+
+    private final Histogram[] phases = new Histogram[Phase.values().length];
+    private final Counters derivations = new Counters();
+    private final Counters added = new Counters();
+    private final Counters removed = new Counters();
+
+    private final String[] bagNames = { "concepts", "novelTasks", "sequenceTasks" };
+    private final int[] bagSizes = new int[bagNames.length];
+    private final float[] bagMass = new float[bagNames.length];
+    private int newTasksWaiting = 0;
+
+    private final AtomicLong cycles = new AtomicLong();
+    private int cyclesSinceRates = 0;
+
+    private transient Memory memory;
+    private transient ObjectName objectName;
+    private transient HttpServer server;
+
+    public Metrics() {
+        for (int i = 0; i < phases.length; i++)
+            phases[i] = new Histogram();
+    }
+
+    @Override
+    public boolean setEnabled(final NAR n, final boolean enabled) {
+        memory = n.memory;
+        memory.event.set(this, enabled, Events.CycleEnd.class, Events.TaskAdd.class);
+        memory.metrics = enabled ? this : null;
+
+        final MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (enabled && (objectName == null)) {
+                objectName = new ObjectName("nars:type=Metrics,id=" + ids.incrementAndGet());
+                mbs.registerMBean(this, objectName);
+            }
+            else if (!enabled && (objectName != null)) {
+                mbs.unregisterMBean(objectName);
+                objectName = null;
+            }
+        } catch (JMException e) {
+            //the metrics are still recorded, only not published over JMX
+            n.emit(ERR.class, e);
+        }
+
+        if (!enabled && (server != null)) {
+            server.stop(0);
+            server = null;
+        }
+        return true;
+    }
+
+    /** the name this is registered with over JMX, while enabled */
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * Serves scrape() at /metrics, until the plugin is disabled
+     *
+     * @param port the port, 0 for any free one
+     * @return the server, to get its address from
+     */
+    public synchronized HttpServer serve(final int port) throws IOException {
+        if (server != null)
+            server.stop(0);
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/metrics", exchange -> {
+            final byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    /* ---------- recording, called while enabled ---------- */
+
+    /**
+     * Records the duration of a phase which started at a time
+     *
+     * @return the time it ended, when the next phase starts
+     */
+    public long phase(final Phase p, final long start) {
+        final long now = System.nanoTime();
+        phases[p.ordinal()].record(now - start);
+        return now;
+    }
+
+    /** a task derived by a rule, see DerivationContext.getCurrentRule */
+    public void derived(final String rule) {
+        derivations.inc(rule == null ? DIRECT : rule);
+    }
+
+    /**
+     * A task removed, or a conclusion rejected before its Task was built, see
+     * Memory.removeTask.  Called directly instead of observing TaskRemove, so
+     * that DerivationContext can reject conclusions early while it is enabled.
+     */
+    public void removed(final String reason) {
+        removed.inc(reason);
+    }
+
+    @Override
+    public void event(final Class event, final Object[] args) {
+        if (event == Events.TaskAdd.class) {
+            added.inc(String.valueOf(args[1]));
+        }
+        else if (event == Events.CycleEnd.class) {
+            sampleBags();
+            cycles.incrementAndGet();
+            if (++cyclesSinceRates == RATE_CYCLES) {
+                derivations.updateRates(RATE_CYCLES);
+                added.updateRates(RATE_CYCLES);
+                removed.updateRates(RATE_CYCLES);
+                cyclesSinceRates = 0;
+            }
+        }
+    }
+
+    private void sampleBags() {
+        final Bag[] bags = { memory.concepts, memory.novelTasks, memory.sequenceTasks };
+        for (int i = 0; i < bags.length; i++) {
+            bagSizes[i] = bags[i].size();
+            bagMass[i] = bags[i].getMass();
+        }
+        newTasksWaiting = memory.newTasks.size();
+    }
+
+    /* ---------- reading ---------- */
+
+    public Histogram getPhase(final Phase p) {
+        return phases[p.ordinal()];
+    }
+
+    @Override
+    public long getCycles() {
+        return cycles.get();
+    }
+
+    private Map<String, Double> phaseMicros(final int what) {
+        final Map<String, Double> m = new TreeMap();
+        for (final Phase p : Phase.values()) {
+            final Histogram h = phases[p.ordinal()];
+            final double nanos = (what == 0) ? h.getMean() : (what == 1) ? h.getQuantile(0.99) : h.getMax();
+            m.put(p.name(), nanos / 1000.0);
+        }
+        return m;
+    }
+
+    @Override
+    public Map<String, Double> getPhaseMeanMicros() {
+        return phaseMicros(0);
+    }
+
+    @Override
+    public Map<String, Double> getPhaseP99Micros() {
+        return phaseMicros(1);
+    }
+
+    @Override
+    public Map<String, Double> getPhaseMaxMicros() {
+        return phaseMicros(2);
+    }
+
+    @Override
+    public Map<String, Long> getDerivations() {
+        return derivations.get();
+    }
+
+    @Override
+    public Map<String, Long> getTasksAdded() {
+        return added.get();
+    }
+
+    @Override
+    public Map<String, Long> getTasksRemoved() {
+        return removed.get();
+    }
+
+    @Override
+    public Map<String, Double> getDerivationRates() {
+        return derivations.rates;
+    }
+
+    @Override
+    public Map<String, Double> getTaskAddRates() {
+        return added.rates;
+    }
+
+    @Override
+    public Map<String, Double> getTaskRemoveRates() {
+        return removed.rates;
+    }
+
+    @Override
+    public Map<String, Integer> getBagSizes() {
+        final Map<String, Integer> m = new TreeMap();
+        for (int i = 0; i < bagNames.length; i++)
+            m.put(bagNames[i], bagSizes[i]);
+        return m;
+    }
+
+    @Override
+    public Map<String, Double> getBagMass() {
+        final Map<String, Double> m = new TreeMap();
+        for (int i = 0; i < bagNames.length; i++)
+            m.put(bagNames[i], (double) bagMass[i]);
+        return m;
+    }
+
+    @Override
+    public Map<String, Long> getDerivationsRejected() {
+        return (memory != null) ? memory.rejectedDerivations.getCounts() : new TreeMap();
+    }
+
+    @Override
+    public int getNewTasksWaiting() {
+        return newTasksWaiting;
+    }
+
+    @Override
+    public synchronized void reset() {
+        for (final Histogram h : phases)
+            h.reset();
+        derivations.reset();
+        added.reset();
+        removed.reset();
+        cycles.set(0);
+        cyclesSinceRates = 0;
+    }
+
+    /**
+     * All metrics in the Prometheus text format: phase durations as
+     * histograms in seconds, counts as counters, and rates and bags as gauges
+     */
+    public String scrape() {
+        final StringBuilder sb = new StringBuilder(4096);
+
+        sb.append("# TYPE nars_cycles_total counter\n");
+        sb.append("nars_cycles_total ").append(getCycles()).append('\n');
+
+        sb.append("# TYPE nars_phase_seconds histogram\n");
+        for (final Phase p : Phase.values()) {
+            final Histogram h = phases[p.ordinal()];
+            final String label = "phase=\"" + p.name().toLowerCase() + "\"";
+            long highest = 0;
+            for (int b = 0; b < 64; b++)
+                if (h.buckets.get(b) > 0)
+                    highest = b;
+            long cumulative = 0;
+            for (int b = 0; b <= highest; b++) {
+                cumulative += h.buckets.get(b);
+                final double le = (b == 0) ? 0 : (1L << b) / 1e9;
+                sb.append("nars_phase_seconds_bucket{").append(label).append(",le=\"").append(le).append("\"} ").append(cumulative).append('\n');
+            }
+            sb.append("nars_phase_seconds_bucket{").append(label).append(",le=\"+Inf\"} ").append(h.getCount()).append('\n');
+            sb.append("nars_phase_seconds_sum{").append(label).append("} ").append(h.getSum() / 1e9).append('\n');
+            sb.append("nars_phase_seconds_count{").append(label).append("} ").append(h.getCount()).append('\n');
+        }
+
+        counters(sb, "nars_derivations", "rule", derivations);
+        counters(sb, "nars_tasks_added", "reason", added);
+        counters(sb, "nars_tasks_removed", "reason", removed);
+
+        sb.append("# TYPE nars_bag_size gauge\n");
+        for (int i = 0; i < bagNames.length; i++)
+            sb.append("nars_bag_size{bag=\"").append(bagNames[i]).append("\"} ").append(bagSizes[i]).append('\n');
+        sb.append("# TYPE nars_bag_mass gauge\n");
+        for (int i = 0; i < bagNames.length; i++)
+            sb.append("nars_bag_mass{bag=\"").append(bagNames[i]).append("\"} ").append(bagMass[i]).append('\n');
+
+        if (memory != null) {
+            sb.append("# TYPE nars_derivations_rejected_total counter\n");
+            for (final DerivationRejections.Stage s : DerivationRejections.Stage.values())
+                for (final DerivationRejections.Reason r : DerivationRejections.Reason.values())
+                    sb.append("nars_derivations_rejected_total{stage=\"").append(s.name().toLowerCase())
+                      .append("\",reason=\"").append(r.name().toLowerCase()).append("\"} ")
+                      .append(memory.rejectedDerivations.get(s, r)).append('\n');
+        }
+
+        sb.append("# TYPE nars_new_tasks_waiting gauge\n");
+        sb.append("nars_new_tasks_waiting ").append(newTasksWaiting).append('\n');
+
+        final ConceptArchive archive = (memory != null) ? memory.archive : null;
+        if (archive != null) {
+            sb.append("# TYPE nars_archive_lookups_total counter\n");
+            sb.append("nars_archive_lookups_total{result=\"hit\"} ").append(archive.getHits()).append('\n');
+            sb.append("nars_archive_lookups_total{result=\"miss\"} ").append(archive.getMisses()).append('\n');
+            sb.append("# TYPE nars_archive_concepts gauge\n");
+            sb.append("nars_archive_concepts ").append(archive.size()).append('\n');
+            sb.append("# TYPE nars_archive_bytes gauge\n");
+            sb.append("nars_archive_bytes{records=\"live\"} ").append(archive.getLiveBytes()).append('\n');
+            sb.append("nars_archive_bytes{records=\"all\"} ").append(archive.getFileBytes()).append('\n');
+        }
+
+        return sb.toString();
+    }
+
+    @Override
+    public String getScrape() {
+        return scrape();
+    }
+
+    private static void counters(final StringBuilder sb, final String name, final String label, final Counters c) {
+        sb.append("# TYPE ").append(name).append("_total counter\n");
+        for (final Map.Entry<String, Long> e : c.get().entrySet())
+            sb.append(name).append("_total{").append(label).append("=\"").append(escape(e.getKey())).append("\"} ").append(e.getValue()).append('\n');
+        sb.append("# TYPE ").append(name).append("_per_cycle gauge\n");
+        for (final Map.Entry<String, Double> e : c.rates.entrySet())
+            sb.append(name).append("_per_cycle{").append(label).append("=\"").append(escape(e.getKey())).append("\"} ").append(e.getValue()).append('\n');
+    }
+
+    private static String escape(final String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
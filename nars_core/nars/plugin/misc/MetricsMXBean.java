@@ -0,0 +1,48 @@
+package nars.plugin.misc;
+
+import java.util.Map;
+
+/**
+ * JMX view of the Metrics of a NAR, registered as nars:type=Metrics,id=...
+ */
+public interface MetricsMXBean {
+
+    public long getCycles();
+
+    /** mean duration of each phase of the cycle, in microseconds */
+    public Map<String, Double> getPhaseMeanMicros();
+
+    /** 99th percentile of the duration of each phase, in microseconds, to a power of 2 */
+    public Map<String, Double> getPhaseP99Micros();
+
+    public Map<String, Double> getPhaseMaxMicros();
+
+    /** derived tasks, by the case of RuleTables.reason which derived them */
+    public Map<String, Long> getDerivations();
+
+    /** conclusions rejected, by "stage reason", see DerivationRejections; counted whether enabled or not */
+    public Map<String, Long> getDerivationsRejected();
+
+    public Map<String, Long> getTasksAdded();
+
+    public Map<String, Long> getTasksRemoved();
+
+    /** per cycle, over the last Metrics.RATE_CYCLES cycles */
+    public Map<String, Double> getDerivationRates();
+
+    public Map<String, Double> getTaskAddRates();
+
+    public Map<String, Double> getTaskRemoveRates();
+
+    public Map<String, Integer> getBagSizes();
+
+    public Map<String, Double> getBagMass();
+
+    /** new tasks waiting to be processed at the end of the last cycle, see NewTaskBuffer */
+    public int getNewTasksWaiting();
+
+    /** everything in the plain text format of the scrape endpoint */
+    public String getScrape();
+
+    public void reset();
+}
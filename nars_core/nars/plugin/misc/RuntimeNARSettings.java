@@ -23,10 +23,10 @@ public class RuntimeNARSettings implements Plugin {
     }
 
     public boolean isImmediateEternalization() {
-        return Parameters.IMMEDIATE_ETERNALIZATION;
+        return n.param.immediateEternalization.get();
     }
     public void setImmediateEternalization(boolean val) {
-        Parameters.IMMEDIATE_ETERNALIZATION=val;
+        n.param.immediateEternalization.set(val);
     }
     
     public double getDuration() {
@@ -37,173 +37,170 @@ public class RuntimeNARSettings implements Plugin {
     }
     
     public double getDerivationPriorityLeak() {
-        return Parameters.DERIVATION_PRIORITY_LEAK;
+        return n.param.derivationPriorityLeak.get();
     }
     public void setDerivationPriorityLeak(double val) {
-        Parameters.DERIVATION_PRIORITY_LEAK=(float) val;
+        n.param.derivationPriorityLeak.set((float) val);
     }
     
     public double getDerivationDurabilityLeak() {
-        return Parameters.DERIVATION_DURABILITY_LEAK;
+        return n.param.derivationDurabilityLeak.get();
     }
     public void setDerivationDurabilityLeak(double val) {
-        Parameters.DERIVATION_DURABILITY_LEAK=(float) val;
+        n.param.derivationDurabilityLeak.set((float) val);
     }
 
     
     public double getEvidentalHorizon() {
         return Parameters.HORIZON;
     }
-    public void setEvidentalHorizon(double val) {
-        Parameters.HORIZON=(float) val;
-    }
     
     public boolean isInductionOnSucceedingEvents() {
-        return Parameters.TEMPORAL_INDUCTION_ON_SUCCEEDING_EVENTS;
+        return n.param.temporalInductionOnSucceedingEvents.get();
     }
     
     public void setInductionOnSucceedingEvents(boolean val) {
-        Parameters.TEMPORAL_INDUCTION_ON_SUCCEEDING_EVENTS=val;
+        n.param.temporalInductionOnSucceedingEvents.set(val);
     }
 
     public double getInductionSamples() {
-        return Parameters.TEMPORAL_INDUCTION_SAMPLES;
+        return n.param.temporalInductionSamples.get();
     }
     public void setInductionSamples(double val) {
-        Parameters.TEMPORAL_INDUCTION_SAMPLES=(int) val;
+        n.param.temporalInductionSamples.set((int) val);
     }
     
     public double getCuriosityDesireConfidenceMul() {
-        return Parameters.CURIOSITY_DESIRE_CONFIDENCE_MUL;
+        return n.param.curiosityDesireConfidenceMul.get();
     }
     public void setCuriosityDesireConfidenceMul(double val) {
-        Parameters.CURIOSITY_DESIRE_CONFIDENCE_MUL=(float) val;
+        n.param.curiosityDesireConfidenceMul.set((float) val);
     }
     
     public double getCuriosityDesirePriorityMul() {
-        return Parameters.CURIOSITY_DESIRE_PRIORITY_MUL;
+        return n.param.curiosityDesirePriorityMul.get();
     }
     public void setCuriosityDesirePriorityMul(double val) {
-        Parameters.CURIOSITY_DESIRE_PRIORITY_MUL=(float)val;
+        n.param.curiosityDesirePriorityMul.set((float)val);
     }
     
     public double getCuriosityDesireDurabilityMul() {
-        return Parameters.CURIOSITY_DESIRE_DURABILITY_MUL;
+        return n.param.curiosityDesireDurabilityMul.get();
     }
     public void setCuriosityDesireDurabilityMul(double val) {
-        Parameters.CURIOSITY_DESIRE_DURABILITY_MUL=(float) val;
+        n.param.curiosityDesireDurabilityMul.set((float) val);
     }
     
     public double getCuriosityBusinessThreshold() {
-        return Parameters.CURIOSITY_BUSINESS_THRESHOLD;
+        return n.param.curiosityBusinessThreshold.get();
     }
     public void setCuriosityBusinessThreshold(double val) {
-        Parameters.CURIOSITY_BUSINESS_THRESHOLD=(float) val;
+        n.param.curiosityBusinessThreshold.set((float) val);
     }
     
     public boolean isCuriosityForOperatorOnly() {
-        return Parameters.CURIOSITY_FOR_OPERATOR_ONLY;
+        return n.param.curiosityForOperatorOnly.get();
     }
     public void setCuriosityForOperatorOnly(boolean val) {
-        Parameters.CURIOSITY_FOR_OPERATOR_ONLY=val;
+        n.param.curiosityForOperatorOnly.set(val);
     }
     
     
     public double getHappyEventHigherThreshold() {
-        return Parameters.HAPPY_EVENT_HIGHER_THRESHOLD;
+        return n.param.happyEventHigherThreshold.get();
     }
     public void setHappyEventHigherThreshold(double val) {
-        Parameters.HAPPY_EVENT_HIGHER_THRESHOLD=(float) val;
+        n.param.happyEventHigherThreshold.set((float) val);
     }
     
     public double getHappyEventLowerThreshold() {
-        return Parameters.HAPPY_EVENT_LOWER_THRESHOLD;
+        return n.param.happyEventLowerThreshold.get();
     }
     public void setHappyEventLowerThreshold(double val) {
-        Parameters.HAPPY_EVENT_LOWER_THRESHOLD=(float) val;
+        n.param.happyEventLowerThreshold.set((float) val);
     }
     
     public double getBusyEventHigherThreshold() {
-        return Parameters.BUSY_EVENT_HIGHER_THRESHOLD;
+        return n.param.busyEventHigherThreshold.get();
     }
     public void setBusyEventHigherThreshold(double val) {
-        Parameters.BUSY_EVENT_HIGHER_THRESHOLD=(float) val;
+        n.param.busyEventHigherThreshold.set((float) val);
     }
     
    public double getBusyEventLowerThreshold() {
-        return Parameters.BUSY_EVENT_LOWER_THRESHOLD;
+        return n.param.busyEventLowerThreshold.get();
     }
     public void setBusyEventLowerThreshold(double val) {
-        Parameters.BUSY_EVENT_LOWER_THRESHOLD=(float) val;
+        n.param.busyEventLowerThreshold.set((float) val);
     }
     
     public boolean isReflectMetaHappyGoal() {
-        return Parameters.REFLECT_META_HAPPY_GOAL;
+        return n.param.reflectMetaHappyGoal.get();
     }
     public void setReflectMetaHappyGoal(boolean val) {
-        Parameters.REFLECT_META_HAPPY_GOAL=val;
+        n.param.reflectMetaHappyGoal.set(val);
     }
     
     public boolean isUsingConsiderRemind() {
-        return Parameters.CONSIDER_REMIND;
+        return n.param.considerRemind.get();
     }
     public void setUsingConsiderRemind(boolean val) {
-        Parameters.CONSIDER_REMIND=val;
+        n.param.considerRemind.set(val);
     }
     
     public boolean isQuestionGenerationOnDecisionMaking() {
-        return Parameters.QUESTION_GENERATION_ON_DECISION_MAKING;
+        return n.param.questionGenerationOnDecisionMaking.get();
     }
     public void setQuestionGenerationOnDecisionMaking(boolean val) {
-        Parameters.QUESTION_GENERATION_ON_DECISION_MAKING=val;
+        n.param.questionGenerationOnDecisionMaking.set(val);
     }
     
     public boolean isDecisionQuestionGen() {
-        return Parameters.QUESTION_GENERATION_ON_DECISION_MAKING;
+        return n.param.questionGenerationOnDecisionMaking.get();
     }
     public void setDecisionQuestionGen(boolean val) {
-        Parameters.QUESTION_GENERATION_ON_DECISION_MAKING=val;
+        n.param.questionGenerationOnDecisionMaking.set(val);
     }
     
     public boolean isHowQuestionGenerationOnDecisionMaking() {
-        return Parameters.HOW_QUESTION_GENERATION_ON_DECISION_MAKING;
+        return n.param.howQuestionGenerationOnDecisionMaking.get();
     }
     public void setHowQuestionGenerationOnDecisionMaking(boolean val) {
-        Parameters.HOW_QUESTION_GENERATION_ON_DECISION_MAKING=val;
+        n.param.howQuestionGenerationOnDecisionMaking.set(val);
     }
     
     public boolean isCuriosityAlsoOnLowConfidentHighPriorityBelief() {
-        return Parameters.CURIOSITY_ALSO_ON_LOW_CONFIDENT_HIGH_PRIORITY_BELIEF;
+        return n.param.curiosityAlsoOnLowConfidentHighPriorityBelief.get();
     }
     public void setCuriosityAlsoOnLowConfidentHighPriorityBelief(boolean val) {
-        Parameters.CURIOSITY_ALSO_ON_LOW_CONFIDENT_HIGH_PRIORITY_BELIEF=val;
+        n.param.curiosityAlsoOnLowConfidentHighPriorityBelief.set(val);
     }
     
     public double getCuriosityPriorityThreshold() {
-        return Parameters.CURIOSITY_PRIORITY_THRESHOLD;
+        return n.param.curiosityPriorityThreshold.get();
     }
     public void setCuriosityPriorityThreshold(double val) {
-        Parameters.CURIOSITY_PRIORITY_THRESHOLD=(float) val;
+        n.param.curiosityPriorityThreshold.set((float) val);
     }
     
     public double getCuriosityConfidenceThreshold() {
-        return Parameters.CURIOSITY_CONFIDENCE_THRESHOLD;
+        return n.param.curiosityConfidenceThreshold.get();
     }
     public void setCuriosityConfidenceThreshold(double val) {
-        Parameters.CURIOSITY_CONFIDENCE_THRESHOLD=(float) val;
+        n.param.curiosityConfidenceThreshold.set((float) val);
     }
     
     public double getAnticipationConfidence() {
-        return Parameters.ANTICIPATION_CONFIDENCE;
+        return n.param.anticipationConfidence.get();
     }
     public void setAnticipationConfidence(double val) {
-        Parameters.ANTICIPATION_CONFIDENCE=(float) val;
+        n.param.anticipationConfidence.set((float) val);
     }
     
     public double getSatisfactionThreshold() {
-        return Parameters.SATISFACTION_TRESHOLD;
+        return n.param.satisfactionThreshold.get();
     }
     public void setSatisfactionThreshold(double val) {
-        Parameters.SATISFACTION_TRESHOLD=(float) val;
+        n.param.satisfactionThreshold.set((float) val);
     }
 }
@@ -0,0 +1,538 @@
+package nars.storage;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import nars.config.Parameters;
+import nars.entity.Item;
+
+/**
+ * Array-backed variant of LevelBag with the same distribution policy.
+ *
+ * Items are held in a fixed pool of slots.  Each level is a primitive ring
+ * buffer of slot indices (FIFO, removals in the middle leave a hole which is
+ * skipped or compacted later), and the name table is an open-addressing index
+ * from item name to slot.  After warm-up, takeNext/putIn/take do not allocate.
+ */
+public class ArrayLevelBag<E extends Item<K>,K> extends Bag<E,K> {
+
+    private static final int EMPTY = -1;
+
+    /**
+     * priority levels
+     */
+    public final int levels;
+    /**
+     * firing threshold
+     */
+    public final int fireCompleteLevelThreshold;
+
+    /**
+     * shared DISTRIBUTOR that produce the probability distribution
+     */
+    final short[] DISTRIBUTOR;
+    final int distributorLength;
+
+    /**
+     * defined in different bags
+     */
+    final int capacity;
+
+    /** slot pool: item, its level, and its position in the level's ring */
+    private final Object[] slotItem;
+    private final int[] slotLevel;
+    private final int[] slotPos;
+    private final int[] freeSlots;
+    private int freeCount;
+
+    /** open-addressing name index: key -> slot, linear probing */
+    private final Object[] indexKey;
+    private final int[] indexSlot;
+    private final int indexMask;
+    private int size;
+
+    /** per-level ring buffers of slot indices; EMPTY marks a removed entry */
+    private final int[][] ring;
+    private final int[] ringHead;
+    /** entries in use in the ring, including holes */
+    private final int[] ringUsed;
+    /** live items in the level */
+    private final int[] levelSize;
+    /** scratch space for compacting a ring */
+    private final int[] compactBuffer;
+
+    /**
+     * current sum of occupied level
+     */
+    private float mass;
+    /**
+     * index to get next level, kept in individual objects
+     */
+    int levelIndex;
+    /**
+     * current take out level
+     */
+    int currentLevel;
+    /**
+     * maximum number of items to be taken out at current level
+     */
+    int currentCounter;
+
+
+    public ArrayLevelBag(int levels, int capacity) {
+        this(levels, capacity, (int) (Parameters.BAG_THRESHOLD * levels));
+    }
+
+    /** thresholdLevel = 0 disables "fire level completely" threshold effect */
+    public ArrayLevelBag(int levels, int capacity, int thresholdLevel) {
+        this.levels = levels;
+        this.fireCompleteLevelThreshold = thresholdLevel;
+        this.capacity = capacity;
+
+        slotItem = new Object[capacity];
+        slotLevel = new int[capacity];
+        slotPos = new int[capacity];
+        freeSlots = new int[capacity];
+
+        int indexSize = Integer.highestOneBit(Math.max(2, capacity * 2) - 1) << 1;
+        indexKey = new Object[indexSize];
+        indexSlot = new int[indexSize];
+        indexMask = indexSize - 1;
+
+        ring = new int[levels][];
+        ringHead = new int[levels];
+        ringUsed = new int[levels];
+        levelSize = new int[levels];
+        compactBuffer = new int[capacity];
+
+        DISTRIBUTOR = Distributor.get(this.levels).order;
+        distributorLength = DISTRIBUTOR.length;
+        clear();
+    }
+
+    @Override
+    public final void clear() {
+        Arrays.fill(slotItem, null);
+        Arrays.fill(indexKey, null);
+        for (int i = 0; i < capacity; i++) {
+            freeSlots[i] = capacity - 1 - i;
+        }
+        freeCount = capacity;
+        size = 0;
+        Arrays.fill(ringHead, 0);
+        Arrays.fill(ringUsed, 0);
+        Arrays.fill(levelSize, 0);
+        currentLevel = levels - 1;
+        levelIndex = capacity % levels; // so that different bags start at different point
+        mass = 0;
+        currentCounter = 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /* ---------- name index ---------- */
+
+    private static int mix(final int h) {
+        final int x = h * 0x9E3779B9;
+        return x ^ (x >>> 16);
+    }
+
+    /** @return position in the index holding the key, or -1 */
+    private int indexFind(final Object key) {
+        int i = mix(key.hashCode()) & indexMask;
+        Object k;
+        while ((k = indexKey[i]) != null) {
+            if ((k == key) || k.equals(key)) {
+                return i;
+            }
+            i = (i + 1) & indexMask;
+        }
+        return -1;
+    }
+
+    private void indexPut(final Object key, final int slot) {
+        int i = mix(key.hashCode()) & indexMask;
+        Object k;
+        while ((k = indexKey[i]) != null) {
+            if ((k == key) || k.equals(key)) {
+                break;
+            }
+            i = (i + 1) & indexMask;
+        }
+        indexKey[i] = key;
+        indexSlot[i] = slot;
+    }
+
+    /** removes the entry at index position i, shifting back the following cluster */
+    private void indexRemoveAt(int i) {
+        int j = i;
+        while (true) {
+            j = (j + 1) & indexMask;
+            final Object k = indexKey[j];
+            if (k == null) {
+                break;
+            }
+            final int home = mix(k.hashCode()) & indexMask;
+            //move k back into the hole at i if its home is not in (i, j]
+            if ((i <= j) ? ((i < home) && (home <= j)) : ((i < home) || (home <= j))) {
+                continue;
+            }
+            indexKey[i] = k;
+            indexSlot[i] = indexSlot[j];
+            i = j;
+        }
+        indexKey[i] = null;
+    }
+
+    /* ---------- levels ---------- */
+
+    private void ringAdd(final int l, final int slot) {
+        int[] r = ring[l];
+        if (r == null) {
+            r = ring[l] = new int[Math.max(4, Integer.highestOneBit(Math.max(1, 2 * capacity / levels)))];
+        }
+        if (ringUsed[l] == r.length) {
+            if (levelSize[l] < ringUsed[l]) {
+                compact(l);
+            }
+            else {
+                grow(l);
+            }
+            r = ring[l];
+        }
+        final int pos = (ringHead[l] + ringUsed[l]) & (r.length - 1);
+        r[pos] = slot;
+        ringUsed[l]++;
+        levelSize[l]++;
+        slotLevel[slot] = l;
+        slotPos[slot] = pos;
+    }
+
+    /** rewrites the ring in FIFO order without holes, starting at 0 */
+    private void compact(final int l) {
+        final int[] r = ring[l];
+        final int mask = r.length - 1;
+        int n = 0;
+        for (int i = 0; i < ringUsed[l]; i++) {
+            final int s = r[(ringHead[l] + i) & mask];
+            if (s != EMPTY) {
+                compactBuffer[n++] = s;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            final int s = compactBuffer[i];
+            r[i] = s;
+            slotPos[s] = i;
+        }
+        ringHead[l] = 0;
+        ringUsed[l] = n;
+    }
+
+    private void grow(final int l) {
+        final int[] r = ring[l];
+        final int mask = r.length - 1;
+        final int[] g = new int[r.length * 2];
+        final int used = ringUsed[l];
+        for (int i = 0; i < used; i++) {
+            final int s = r[(ringHead[l] + i) & mask];
+            g[i] = s;
+            if (s != EMPTY) {
+                slotPos[s] = i;
+            }
+        }
+        ring[l] = g;
+        ringHead[l] = 0;
+    }
+
+    /** skips holes at the head of a ring, returning the first live slot */
+    private int ringFirst(final int l) {
+        final int[] r = ring[l];
+        final int mask = r.length - 1;
+        int s;
+        while ((s = r[ringHead[l]]) == EMPTY) {
+            ringHead[l] = (ringHead[l] + 1) & mask;
+            ringUsed[l]--;
+        }
+        return s;
+    }
+
+    private void ringRemove(final int slot) {
+        final int l = slotLevel[slot];
+        final int[] r = ring[l];
+        final int pos = slotPos[slot];
+        r[pos] = EMPTY;
+        if (--levelSize[l] == 0) {
+            ringHead[l] = 0;
+            ringUsed[l] = 0;
+        }
+        else if (pos == ringHead[l]) {
+            ringHead[l] = (pos + 1) & (r.length - 1);
+            ringUsed[l]--;
+        }
+        else if (pos == ((ringHead[l] + ringUsed[l] - 1) & (r.length - 1))) {
+            ringUsed[l]--;
+        }
+    }
+
+    private boolean levelEmpty(final int l) {
+        return levelSize[l] == 0;
+    }
+
+    /* ---------- Bag ---------- */
+
+    @Override
+    public Set<K> keySet() {
+        final Set<K> s = new HashSet<>(size * 2);
+        for (final Object k : indexKey) {
+            if (k != null) {
+                s.add((K) k);
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Get the average priority of Items
+     *
+     * @return The average priority of Items in the bag
+     */
+    @Override
+    public float getAveragePriority() {
+        if (size() == 0) {
+            return 0.01f;
+        }
+        float f = (float) mass / (size());
+        if (f > 1) {
+            return 1.0f;
+        }
+        return f;
+    }
+
+    @Override
+    public E get(final K key) {
+        final int i = indexFind(key);
+        if (i == -1) {
+            return null;
+        }
+        return (E) slotItem[indexSlot[i]];
+    }
+
+    /** look for a non-empty level */
+    protected void nextNonEmptyLevel() {
+        int cl = currentLevel;
+        do {
+        } while (levelEmpty(cl = DISTRIBUTOR[(levelIndex++) % distributorLength]));
+        currentLevel = cl;
+        if (currentLevel < fireCompleteLevelThreshold) { // for dormant levels, take one item
+            currentCounter = 1;
+        } else {                  // for active levels, take all current items
+            currentCounter = levelSize[currentLevel];
+        }
+    }
+
+    @Override
+    public E peekNext() {
+        if (size() == 0)
+            return null; // empty bag
+        E e = takeNext();
+        putIn(e);
+        return e;
+    }
+
+    @Override
+    public E takeNext() {
+        if (size() == 0) {
+            return null; // empty bag
+        }
+        if (levelEmpty(currentLevel) || (currentCounter == 0)) { // done with the current level
+            nextNonEmptyLevel();
+        }
+        final E selected = takeOutFirst(currentLevel); // take out the first item in the level
+        currentCounter--;
+        return selected;
+    }
+
+    public int getLevelSize(final int level) {
+        return levelSize[level];
+    }
+
+    @Override
+    public E take(final K name) {
+        final int i = indexFind(name);
+        if (i == -1) {
+            return null;
+        }
+        final int slot = indexSlot[i];
+        indexRemoveAt(i);
+        return release(slot);
+    }
+
+    /** removes the item in the slot from its level and returns the slot to the pool */
+    private E release(final int slot) {
+        final E item = (E) slotItem[slot];
+        ringRemove(slot);
+        slotItem[slot] = null;
+        freeSlots[freeCount++] = slot;
+        size--;
+        mass -= item.getPriority();
+        return item;
+    }
+
+    /**
+     * Decide the put-in level according to priority
+     *
+     * @param item The Item to put in
+     * @return The put-in level
+     */
+    private int getLevel(final E item) {
+        final float fl = item.getPriority() * levels;
+        final int level = (int) Math.ceil(fl) - 1;
+        if (level < 0) return 0;
+        if (level >= levels) return levels-1;
+        return level;
+    }
+
+    /**
+     * Insert an item into the itemTable, and return the overflow
+     *
+     * @param newItem The Item to put in
+     * @return null if nothing overflowed, non-null if an overflow Item, which
+     * may be the attempted input item (in which case it was not inserted)
+     */
+    @Override
+    public E addItem(final E newItem) {
+        if (newItem == null)
+            throw new RuntimeException("Bag requires non-null items");
+
+        E oldItem = null;
+        final int inLevel = getLevel(newItem);
+        if (size() >= capacity) {      // the bag will be full after the next
+            int outLevel = 0;
+            while (levelEmpty(outLevel)) {
+                outLevel++;
+            }
+            if (outLevel > inLevel) {           // ignore the item and exit
+                return newItem;
+            } else {                            // remove an old item in the lowest non-empty level
+                oldItem = takeOutFirst(outLevel);
+            }
+        }
+        final int slot = freeSlots[--freeCount];
+        slotItem[slot] = newItem;
+        ringAdd(inLevel, slot);        // FIFO
+        indexPut(newItem.name(), slot);
+        size++;
+        mass += newItem.getPriority();
+        return oldItem;
+    }
+
+    /**
+     * Take out the first E in a level from the itemTable
+     *
+     * @param level The current level
+     * @return The first Item
+     */
+    private E takeOutFirst(final int level) {
+        if (levelEmpty(level)) {
+            throw new RuntimeException("Attempt to remove item from empty level: " + level);
+        }
+        final int slot = ringFirst(level);
+        final E selected = (E) slotItem[slot];
+        indexRemoveAt(indexFind(selected.name()));
+        return release(slot);
+    }
+
+    @Override
+    public float getMass() {
+        return mass;
+    }
+
+    public float getMaxItemsPerLevel() {
+        int max = getLevelSize(0);
+        for (int i = 1; i < levels; i++) {
+            int s = getLevelSize(i);
+            if (s > max) {
+                max = s;
+            }
+        }
+        return max;
+    }
+
+    public float getMinItemsPerLevel() {
+        int min = getLevelSize(0);
+        for (int i = 1; i < levels; i++) {
+            int s = getLevelSize(i);
+            if (s < min) {
+                min = s;
+            }
+        }
+        return min;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public Iterable<E> values() {
+        return this;
+    }
+
+    /** iterates levels from highest to lowest, each level in FIFO order */
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            int l = levels - 1;
+            int i = 0;
+            int nextSlot = findNext();
+
+            private int findNext() {
+                for (; l >= 0; l--, i = 0) {
+                    if (levelEmpty(l)) {
+                        continue;
+                    }
+                    final int[] r = ring[l];
+                    final int mask = r.length - 1;
+                    while (i < ringUsed[l]) {
+                        final int s = r[(ringHead[l] + i++) & mask];
+                        if (s != EMPTY) {
+                            return s;
+                        }
+                    }
+                }
+                return EMPTY;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return nextSlot != EMPTY;
+            }
+
+            @Override
+            public E next() {
+                if (nextSlot == EMPTY) {
+                    throw new NoSuchElementException();
+                }
+                final E e = (E) slotItem[nextSlot];
+                nextSlot = findNext();
+                return e;
+            }
+        };
+    }
+
+    public int numEmptyLevels() {
+        int empty = 0;
+        for (int i = 0; i < levels; i++) {
+            if (levelEmpty(i)) {
+                empty++;
+            }
+        }
+        return empty;
+    }
+}
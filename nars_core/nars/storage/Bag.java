@@ -9,6 +9,24 @@ import nars.inference.BudgetFunctions;
 
 public abstract class Bag<E extends Item<K>,K> implements Iterable<E> {
     
+    /** available Bag implementations, selected by RuntimeParameters.bagType */
+    public enum Type {
+        /** LevelBag: levels of linked hash sets and a hash map name table */
+        Level,
+        /** ArrayLevelBag: primitive ring buffers per level and an open-addressing name index */
+        ArrayLevel,
+        /** FenwickBag: items taken out in exact proportion to their priority, levels unused */
+        Fenwick
+    }
+    
+    public static <E extends Item<K>,K> Bag<E,K> make(final Type type, final int levels, final int capacity) {
+        switch (type) {
+            case ArrayLevel: return new ArrayLevelBag<>(levels, capacity);
+            case Fenwick: return new FenwickBag<>(levels, capacity);
+            default: return new LevelBag<>(levels, capacity);
+        }
+    }
+    
     public static final int bin(final float x, final int bins) {
         int i = (int)Math.floor((x + 0.5f/bins) * bins);
         return i;
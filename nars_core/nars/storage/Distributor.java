@@ -21,8 +21,8 @@
 package nars.storage;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A pseudo-random number generator, used in Bag.
@@ -34,13 +34,12 @@ public final class Distributor {
     /** Capacity of the array */
     public final int capacity;
 
-    private final static Map<Integer,Distributor> distributors = new HashMap(8);
+    /** shared by all the bags of a range, as they are never modified */
+    private final static Map<Integer,Distributor> distributors = new ConcurrentHashMap(8);
     public static Distributor get(int range) {
         Distributor d = distributors.get(range);
-        if (d==null) {
-            d = new Distributor(range);
-            distributors.put(range, d);
-        }
+        if (d==null)
+            d = distributors.computeIfAbsent(range, Distributor::new);
         return d;
     }
     
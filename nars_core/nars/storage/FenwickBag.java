@@ -0,0 +1,338 @@
+package nars.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import nars.entity.Item;
+
+/**
+ * Bag which takes out items in exact proportion to their priority, instead of
+ * by priority level and Distributor order.
+ *
+ * Items are held in a flat array, kept dense by moving the last item into a
+ * removed one's place.  A Fenwick tree (binary indexed tree) over the array
+ * holds the priority of each item as it was put in, so that drawing an item
+ * by a random fraction of the total, putting one in and taking one out by
+ * name are O(log n).  A heap of the array positions by priority finds the
+ * lowest item to replace when the bag is full, in which case, like LevelBag,
+ * a new item with a lower priority is rejected.
+ *
+ * The random source is that of the memory cycle running on the thread.
+ */
+public class FenwickBag<E extends Item<K>,K> extends Bag<E,K> {
+
+    /** updates to the tree after which it is rebuilt, dropping accumulated rounding error */
+    private final int rebuildUpdates;
+
+    final int capacity;
+
+    private final Object[] items;
+    /** priority of each item when it was put in */
+    private final double[] weight;
+    /** Fenwick tree of the weights, 1-based */
+    private final double[] tree;
+    private final int treeStep;
+
+    /** min-heap of positions by weight, and the place of each position in it */
+    private final int[] heap;
+    private final int[] heapIndex;
+
+    private final HashMap<K, Integer> index;
+    private int size;
+    private double mass;
+    private int updates;
+
+    /** levels are not used, only accepted to be made like the other bags */
+    public FenwickBag(final int levels, final int capacity) {
+        this(capacity);
+    }
+
+    public FenwickBag(final int capacity) {
+        this.capacity = capacity;
+        this.rebuildUpdates = Math.max(1024, capacity * 4);
+        items = new Object[capacity];
+        weight = new double[capacity];
+        tree = new double[capacity + 1];
+        treeStep = Integer.highestOneBit(Math.max(1, capacity));
+        heap = new int[capacity];
+        heapIndex = new int[capacity];
+        index = new HashMap<>(capacity * 2);
+        clear();
+    }
+
+    @Override
+    public final void clear() {
+        Arrays.fill(items, null);
+        Arrays.fill(weight, 0);
+        Arrays.fill(tree, 0);
+        index.clear();
+        size = 0;
+        mass = 0;
+        updates = 0;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public float getMass() {
+        return (float) mass;
+    }
+
+    @Override
+    public float getAveragePriority() {
+        if (size == 0) {
+            return 0.01f;
+        }
+        final float f = (float) (mass / size);
+        if (f > 1) {
+            return 1.0f;
+        }
+        return f;
+    }
+
+    @Override
+    public float getMinPriority() {
+        return (size == 0) ? 1.0f : (float) weight[heap[0]];
+    }
+
+    @Override
+    public float getMaxPriority() {
+        double max = 0;
+        for (int i = 0; i < size; i++)
+            if (weight[i] > max)
+                max = weight[i];
+        return (float) max;
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return index.keySet();
+    }
+
+    @Override
+    public E get(final K key) {
+        final Integer i = index.get(key);
+        return (i == null) ? null : (E) items[i];
+    }
+
+    @Override
+    public E takeNext() {
+        if (size == 0) {
+            return null; // empty bag
+        }
+        return remove(next());
+    }
+
+    @Override
+    public E peekNext() {
+        if (size == 0) {
+            return null; // empty bag
+        }
+        return (E) items[next()];
+    }
+
+    @Override
+    public E take(final K name) {
+        final Integer i = index.get(name);
+        if (i == null) {
+            return null;
+        }
+        return remove(i);
+    }
+
+    /**
+     * Insert an item into the bag, and return the overflow
+     *
+     * @param newItem The Item to put in
+     * @return null if nothing overflowed, non-null if an overflow Item, which
+     * may be the attempted input item (in which case it was not inserted)
+     */
+    @Override
+    protected E addItem(final E newItem) {
+        if (newItem == null)
+            throw new RuntimeException("Bag requires non-null items");
+
+        final double w = newItem.getPriority();
+        E oldItem = null;
+        if (size >= capacity) {
+            if (weight[heap[0]] > w) {
+                return newItem;
+            }
+            oldItem = remove(heap[0]);
+        }
+        final int i = size++;
+        items[i] = newItem;
+        setWeight(i, w);
+        heap[i] = i;
+        heapIndex[i] = i;
+        heapUp(i);
+        index.put(newItem.name(), i);
+        return oldItem;
+    }
+
+    /**
+     * Takes into account the priority an item in the bag has now, in O(log n),
+     * for it to be drawn accordingly
+     *
+     * @return false if no item has the name
+     */
+    public boolean update(final K name) {
+        final Integer i = index.get(name);
+        if (i == null) {
+            return false;
+        }
+        final double before = weight[i];
+        setWeight(i, ((E) items[i]).getPriority());
+        if (weight[i] < before)
+            heapUp(heapIndex[i]);
+        else
+            heapDown(heapIndex[i], size);
+        return true;
+    }
+
+    /** position of an item drawn in proportion to its weight */
+    private int next() {
+        if (mass <= 0) {
+            return Memory.random().nextInt(size);
+        }
+        double r = Memory.random().nextDouble() * mass;
+        int i = 0;
+        for (int step = treeStep; step > 0; step >>= 1) {
+            final int j = i + step;
+            if ((j <= capacity) && (tree[j] <= r)) {
+                i = j;
+                r -= tree[j];
+            }
+        }
+        //only rounding can go past the last item
+        return Math.min(i, size - 1);
+    }
+
+    /** takes the item at a position out, moving the last item there */
+    private E remove(final int i) {
+        final E item = (E) items[i];
+        index.remove(item.name());
+        heapRemove(heapIndex[i]);
+        setWeight(i, 0);
+
+        final int last = --size;
+        if (i != last) {
+            items[i] = items[last];
+            setWeight(i, weight[last]);
+            setWeight(last, 0);
+            heap[heapIndex[last]] = i;
+            heapIndex[i] = heapIndex[last];
+            index.put(((E) items[i]).name(), i);
+        }
+        items[last] = null;
+        return item;
+    }
+
+    private void setWeight(final int i, final double w) {
+        final double delta = w - weight[i];
+        if (delta == 0)
+            return;
+        weight[i] = w;
+        mass += delta;
+        for (int j = i + 1; j <= capacity; j += j & -j)
+            tree[j] += delta;
+        if (++updates >= rebuildUpdates)
+            rebuild();
+    }
+
+    /** builds the tree and the mass again from the weights, in O(n) */
+    private void rebuild() {
+        Arrays.fill(tree, 0);
+        mass = 0;
+        for (int j = 1; j <= capacity; j++) {
+            tree[j] += weight[j - 1];
+            final int parent = j + (j & -j);
+            if (parent <= capacity)
+                tree[parent] += tree[j];
+            mass += weight[j - 1];
+        }
+        updates = 0;
+    }
+
+    /* ---------- heap of positions by weight ---------- */
+
+    /** removes the entry at h from the heap of size entries */
+    private void heapRemove(final int h) {
+        final int last = size - 1;
+        if (h != last) {
+            heapSet(h, heap[last]);
+            if ((h > 0) && (weight[heap[h]] < weight[heap[(h - 1) / 2]]))
+                heapUp(h);
+            else
+                heapDown(h, last);
+        }
+    }
+
+    private void heapUp(int h) {
+        final int p = heap[h];
+        while (h > 0) {
+            final int parent = (h - 1) / 2;
+            if (weight[heap[parent]] <= weight[p])
+                break;
+            heapSet(h, heap[parent]);
+            h = parent;
+        }
+        heapSet(h, p);
+    }
+
+    /** @param n the entries in the heap */
+    private void heapDown(int h, final int n) {
+        final int p = heap[h];
+        while (true) {
+            int child = 2 * h + 1;
+            if (child >= n)
+                break;
+            if ((child + 1 < n) && (weight[heap[child + 1]] < weight[heap[child]]))
+                child++;
+            if (weight[heap[child]] >= weight[p])
+                break;
+            heapSet(h, heap[child]);
+            h = child;
+        }
+        heapSet(h, p);
+    }
+
+    private void heapSet(final int h, final int position) {
+        heap[h] = position;
+        heapIndex[position] = h;
+    }
+
+    @Override
+    public Iterable<E> values() {
+        return this;
+    }
+
+    /** iterates a copy of the items, sorted by descending priority */
+    @Override
+    public Iterator<E> iterator() {
+        final Integer[] positions = new Integer[size];
+        for (int i = 0; i < size; i++)
+            positions[i] = i;
+        Arrays.sort(positions, new Comparator<Integer>() {
+            @Override public int compare(final Integer a, final Integer b) {
+                return Double.compare(weight[b], weight[a]);
+            }
+        });
+        final List<E> sorted = new ArrayList<>(size);
+        for (final Integer i : positions)
+            sorted.add((E) items[i]);
+        return sorted.iterator();
+    }
+}
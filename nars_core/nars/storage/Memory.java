@@ -24,12 +24,11 @@ import com.google.common.util.concurrent.AtomicDouble;
 import nars.util.Events;
 import nars.util.EventEmitter;
 import java.io.Serializable;
-import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 import nars.NAR;
 import nars.config.RuntimeParameters;
@@ -38,9 +37,18 @@ import nars.util.Events.ResetEnd;
 import nars.util.Events.ResetStart;
 import nars.util.Events.TaskRemove;
 import nars.control.DerivationContext;
+import nars.control.DerivationRejections;
 import nars.control.GeneralInferenceControl;
+import nars.control.NewTaskBuffer;
+import nars.control.ParallelInferenceControl;
+import nars.control.Queries;
+import nars.control.RecentDerivations;
 import nars.control.TemporalInferenceControl;
 import nars.plugin.mental.Emotions;
+import nars.plugin.mental.InternalExperience;
+import nars.plugin.misc.ConceptArchive;
+import nars.plugin.misc.Metrics;
+import nars.plugin.misc.Metrics.Phase;
 import nars.entity.BudgetValue;
 import nars.entity.Concept;
 import static nars.entity.Concept.successfulOperationHandler;
@@ -50,6 +58,7 @@ import nars.entity.Stamp;
 import nars.entity.Task;
 import nars.entity.TruthValue;
 import nars.inference.BudgetFunctions;
+import nars.inference.RuleDispatch;
 import static nars.inference.BudgetFunctions.truthToQuality;
 import nars.io.Output.IN;
 import nars.io.Output.OUT;
@@ -63,7 +72,6 @@ import nars.io.PauseInput;
 import nars.io.Reset;
 import nars.io.SetDecisionThreshold;
 import nars.io.SetVolume;
-import nars.language.CompoundTerm;
 import nars.language.Interval;
 
 
@@ -81,6 +89,11 @@ import nars.language.Interval;
  * Memory is serializable so it can be persisted and transported.
  */
 public class Memory implements Serializable, Iterable<Concept> {
+    /* the ids of the events emitted on the inference path, see EventEmitter.id */
+    private static final int TASK_ADD = EventEmitter.id(Events.TaskAdd.class);
+    private static final int TASK_REMOVE = EventEmitter.id(TaskRemove.class);
+    private static final int CONCEPT_DIRECT_PROCESSED_TASK = EventEmitter.id(Events.ConceptDirectProcessedTask.class);
+    private static final int TASK_IMMEDIATE_PROCESS = EventEmitter.id(Events.TaskImmediateProcess.class);
     
     //emotion meter keeping track of global emotion
     public final Emotions emotion = new Emotions();   
@@ -89,10 +102,37 @@ public class Memory implements Serializable, Iterable<Concept> {
     public Task lastDecision = null;
     public boolean allowExecution = true;
 
-    public static long randomSeed = 1;
-    public static Random randomNumber = new Random(randomSeed);
+    /** random source of this memory, seeded with RuntimeParameters.randomSeed
+     *  on reset, so that memories on different threads do not share one */
+    public final Random random;
+    
+    /** random source of the memory working on this thread: the memory's own,
+     *  or an inference worker's, so that parallel firing stays reproducible */
+    private static final ThreadLocal<Random> workerRandom = new ThreadLocal();
+    
+    /** random source of code running outside of any cycle: that of the memory
+     *  last created on the thread, or one of the thread's own before any */
+    private static final ThreadLocal<Random> threadRandom = ThreadLocal.withInitial(() -> new Random(1));
+    
+    /** gives the calling thread a random source of its own again, seeded 1,
+     *  until the next memory is created on it */
     public static void resetStatic() {
-        randomNumber.setSeed(randomSeed);    
+        threadRandom.remove();
+    }
+    
+    public static Random random() {
+        final Random r = workerRandom.get();
+        return r != null ? r : threadRandom.get();
+    }
+    
+    /** @return the random source it replaces on this thread, to restore after */
+    public static Random setWorkerRandom(final Random r) {
+        final Random previous = workerRandom.get();
+        if (r == null)
+            workerRandom.remove();
+        else
+            workerRandom.set(r);
+        return previous;
     }
     
     //todo make sense of this class and de-obfuscate
@@ -107,19 +147,46 @@ public class Memory implements Serializable, Iterable<Concept> {
     
     /* Input event tasks that were either input events or derived sequences*/
     public Bag<Task<Term>,Sentence<Term>> sequenceTasks;
+    
+    /* Sequence bag elements by concept key, for duplicate detection in TemporalInferenceControl */
+    public final Map<Term,Task> sequenceTaskIndex = new HashMap();
+
+    /* Conclusions derived in the last cycles, to drop them when derived again */
+    public final RecentDerivations recentDerivations = new RecentDerivations(Parameters.DERIVATION_CACHE_SIZE);
 
-    /* List of new tasks accumulated in one cycle, to be processed in the next cycle */
-    public final Deque<Task> newTasks;
+    /* Counts of the conclusions rejected, by the stage of the derivation they were rejected at */
+    public final DerivationRejections rejectedDerivations = new DerivationRejections();
+
+    /* Counts of the selections of the RuleDispatch entries, while Metrics is enabled */
+    public final RuleDispatch.Hits ruleHits = new RuleDispatch.Hits();
+
+    /* Open queries, by question, to route their answers to */
+    public final Queries queries = new Queries();
+
+    /* New tasks accumulated in one cycle, to be processed in the next cycles */
+    public final NewTaskBuffer newTasks;
     
     /* The remaining number of steps to be carried out (stepLater mode)*/
-    private int inputPausedUntil;
+    int inputPausedUntil;
     
     /* System clock, relatively defined to guarantee the repeatability of behaviors */
-    private long cycle;
+    long cycle;
     
     /* System parameters that can be changed at runtime */
     public final RuntimeParameters param;
     
+    /* The InternalExperience plugin, set while it is enabled */
+    public transient InternalExperience internalExperience = null;
+    
+    /* Instrumentation of the cycle, set while the Metrics plugin is enabled */
+    public transient Metrics metrics = null;
+    
+    /* Second tier of forgotten concepts, set while the ConceptArchive plugin is enabled */
+    public transient ConceptArchive archive = null;
+    
+    /* Worker pool for parallel concept firing, created on demand */
+    private transient ParallelInferenceControl parallelControl = null;
+    
     /* ---------- Constructor ---------- */
     /**
      * Create a new memory
@@ -130,10 +197,12 @@ public class Memory implements Serializable, Iterable<Concept> {
             Bag<Task<Term>,Sentence<Term>> sequenceTasks) {                
 
         this.param = param;
+        this.random = new Random(param.randomSeed.get());
+        threadRandom.set(random);
         this.event = new EventEmitter();
         this.concepts = concepts;
         this.novelTasks = novelTasks;                
-        this.newTasks = new ArrayDeque<>();
+        this.newTasks = new NewTaskBuffer(this);
         this.sequenceTasks = sequenceTasks;
         this.operators = new HashMap<>();
         reset();
@@ -146,10 +215,17 @@ public class Memory implements Serializable, Iterable<Concept> {
         novelTasks.clear();
         newTasks.clear();    
         sequenceTasks.clear();
+        sequenceTaskIndex.clear();
+        recentDerivations.clear();
+        rejectedDerivations.clear();
+        ruleHits.clear();
+        queries.clear();
+        if (archive != null)
+            archive.clear();
+        random.setSeed(param.randomSeed.get());
         cycle = 0;
         inputPausedUntil = 0;
         emotion.set(0.5f, 0.5f);
-        resetStatic();
         event.emit(ResetEnd.class);
     }
 
@@ -167,7 +243,7 @@ public class Memory implements Serializable, Iterable<Concept> {
      * @return a Concept or null
      */
     public Concept concept(final Term t) {
-        return concepts.get(CompoundTerm.cloneDeepReplaceIntervals(t));
+        return concepts.get(t.conceptKey());
     }
 
     /**
@@ -188,9 +264,16 @@ public class Memory implements Serializable, Iterable<Concept> {
         if(term instanceof Interval) {
             return null;
         }
-        term = CompoundTerm.cloneDeepReplaceIntervals(term);
+        //concept terms are canonical, so the bag compares them by identity
+        term = term.conceptKey();
         //see if concept is active
         Concept concept = concepts.take(term);
+        if ((concept == null) && (archive != null)) {
+            //forgotten before: restored, then activated as an existing concept
+            concept = archive.take(term, this);
+            if (concept != null)
+                emit(Events.ConceptNew.class, concept);
+        }
         if (concept == null) {                            
             //create new concept, with the applied budget
             concept = new Concept(budget, term, this);
@@ -228,10 +311,17 @@ public class Memory implements Serializable, Iterable<Concept> {
      * add new task that waits to be processed in the next cycleMemory
      */
     public void addNewTask(final Task t, final String reason) {
-        newTasks.add(t);
-      //  logic.TASK_ADD_NEW.commit(t.getPriority());
-        emit(Events.TaskAdd.class, t, reason);
+        final List<Runnable> deferred = event.deferredEffects();
+        if (deferred != null) {
+            //called from an inference worker: added at the cycle barrier
+            deferred.add(() -> addNewTask(t, reason));
+            return;
+        }
+        if (emitting(TASK_ADD))
+            emit(TASK_ADD, Events.TaskAdd.class, t, reason);
         output(t);
+        //may be shed right away, so after it was reported added
+        newTasks.add(t);
     }
     
     /* There are several types of new tasks, all added into the
@@ -248,6 +338,12 @@ public class Memory implements Serializable, Iterable<Concept> {
     
     boolean checked=false;
     boolean isjUnit=false;
+
+    /** whether Echo input is also emitted as OUT, which by default it is unless running under JUnit */
+    public void setEchoOutput(final boolean echo) {
+        checked = true;
+        isjUnit = !echo;
+    }
     public static boolean isJUnitTest() {
         StackTraceElement[] stackTrace = Thread.currentThread().getStackTrace();
         List<StackTraceElement> list = Arrays.asList(stackTrace);
@@ -322,7 +418,10 @@ public class Memory implements Serializable, Iterable<Concept> {
     }
 
     public void removeTask(final Task task, final String reason) {        
-        emit(TaskRemove.class, task, reason);
+        if (metrics != null)
+            metrics.removed(reason);
+        if (emitting(TASK_REMOVE))
+            emit(TASK_REMOVE, TaskRemove.class, task, reason);
         task.end();        
     }
     
@@ -361,12 +460,36 @@ public class Memory implements Serializable, Iterable<Concept> {
     final public boolean emitting(final Class channel) {
         return event.isActive(channel);
     }
+
+    /** emits an event by its id, see EventEmitter.id */
+    final public void emit(final int id, final Class c, final Object... signal) {
+        event.emit(id, c, signal);
+    }
+
+    final public boolean emitting(final int id) {
+        return event.isActive(id);
+    }
     
     public void conceptRemoved(Concept c) {
+        if (archive != null)
+            archive.put(c);
         emit(Events.ConceptForget.class, c);
     }
     
     public void cycle(final NAR inputs) {
+        final Random outer = setWorkerRandom(random);
+        try {
+            runCycle(inputs);
+        }
+        finally {
+            setWorkerRandom(outer);
+        }
+    }
+    
+    private void runCycle(final NAR inputs) {
+        final Metrics m = metrics;
+        final long start = (m != null) ? System.nanoTime() : 0;
+        long phase = start;
     
         event.emit(Events.CycleStart.class);                
         
@@ -376,15 +499,26 @@ public class Memory implements Serializable, Iterable<Concept> {
             if (t!=null) 
                 inputTask(t);            
         }
+        if (m != null) phase = m.phase(Phase.INPUT, phase);
         
         this.processNewTasks();
+        if (m != null) phase = m.phase(Phase.NEW_TASKS, phase);
     //if(noResult()) //newTasks empty
         this.processNovelTask();
+        if (m != null) phase = m.phase(Phase.NOVEL_TASK, phase);
     //if(noResult()) //newTasks empty
-        GeneralInferenceControl.selectConceptForInference(this);
+        if (param.inferenceThreads.get() > 1) {
+            parallelControl().selectConceptsForInference();
+        }
+        else {
+            GeneralInferenceControl.selectConceptForInference(this);
+        }
+        if (m != null) m.phase(Phase.FIRE, phase);
         
+        queries.update(this);
         event.emit(Events.CycleEnd.class);
         event.synch();
+        if (m != null) m.phase(Phase.CYCLE, start);
         
         cycle++;
     }
@@ -397,7 +531,8 @@ public class Memory implements Serializable, Iterable<Concept> {
         if (cont.getCurrentConcept() != null) {
             boolean processed = cont.getCurrentConcept().directProcess(cont, task);
             if (processed) {
-                event.emit(Events.ConceptDirectProcessedTask.class, task);
+                if (emitting(CONCEPT_DIRECT_PROCESSED_TASK))
+                    event.emit(CONCEPT_DIRECT_PROCESSED_TASK, Events.ConceptDirectProcessedTask.class, task);
             }
         }
         
@@ -406,19 +541,19 @@ public class Memory implements Serializable, Iterable<Concept> {
         }
         
         //memory.logic.TASK_IMMEDIATE_PROCESS.commit();
-        emit(Events.TaskImmediateProcess.class, task, cont);
+        if (emitting(TASK_IMMEDIATE_PROCESS))
+            emit(TASK_IMMEDIATE_PROCESS, Events.TaskImmediateProcess.class, task, cont);
     }
     
     /**
      * Process the newTasks accumulated in the previous workCycle, accept input
      * ones and those that corresponding to existing concepts, plus one from the
-     * buffer.
+     * buffer.  As many as the newTasks admit in one cycle, see NewTaskBuffer.
      */
     public void processNewTasks() {
         Task task;
-        int counter = newTasks.size();  // don't include new tasks produced in the current workCycle
-        while (counter-- > 0) {
-            task = newTasks.removeFirst();
+        newTasks.beginCycle();  // don't include new tasks produced in the current workCycle
+        while ((task = newTasks.next()) != null) {
             boolean enterDirect = true;
             if (/*task.isElemOfSequenceBuffer() || task.isObservablePrediction() || */ enterDirect ||  task.isInput() || task.sentence.isQuest() || task.sentence.isQuestion() || concept(task.sentence.term)!=null) { // new input or existing concept
                 localInference(task);
@@ -439,6 +574,7 @@ public class Memory implements Serializable, Iterable<Concept> {
                 }
             }
         }
+        newTasks.endCycle();
     }
     
 
@@ -466,7 +602,17 @@ public class Memory implements Serializable, Iterable<Concept> {
          return operators.remove(op.name());
      }
 
-    private long currentStampSerial = 0;
+    private ParallelInferenceControl parallelControl() {
+        final int threads = param.inferenceThreads.get();
+        if ((parallelControl == null) || (parallelControl.threads != threads)) {
+            if (parallelControl != null)
+                parallelControl.shutdown();
+            parallelControl = new ParallelInferenceControl(this, threads);
+        }
+        return parallelControl;
+    }
+
+    long currentStampSerial = 0;
     public long newStampSerial() {
         return currentStampSerial++;
     }
@@ -0,0 +1,605 @@
+package nars.storage;
+
+import com.google.common.util.concurrent.AtomicDouble;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import nars.config.Parameters;
+import nars.config.RuntimeParameters;
+import nars.entity.BudgetValue;
+import nars.entity.Concept;
+import nars.entity.Sentence;
+import nars.entity.Stamp;
+import nars.entity.Task;
+import nars.entity.TaskLink;
+import nars.entity.TermLink;
+import nars.entity.TruthValue;
+import nars.io.Symbols.NativeOperator;
+import nars.language.CompoundTerm;
+import nars.language.Image;
+import nars.language.Interval;
+import nars.language.Product;
+import nars.language.Term;
+import nars.language.Terms;
+import nars.language.Variable;
+import nars.operator.Operation;
+import nars.operator.Operator;
+
+/**
+ * Binary snapshot of the state of a Memory: the concepts with their beliefs,
+ * desires, questions, quests and link bags, the novel task and sequence bags,
+ * the new task queue, the clock, the stamp serial counter and the
+ * RuntimeParameters.
+ * <p>
+ * The snapshot is written and read as a stream, one concept after another,
+ * so it never needs more than the memory itself.  Terms and tasks are kept in
+ * dictionaries: the first reference to one writes it in full and assigns the
+ * next id, later references only write the id.  A compound is written as its
+ * operator and the ids of its components, and restored with Terms.restore()
+ * exactly as it was.  Operators are looked up by name, so a snapshot can only
+ * be loaded into a NAR which knows the same operators.
+ * <p>
+ * Not saved: the derivation history of tasks (parent beliefs, and parent
+ * tasks which are not themselves part of the snapshot), the novelty records
+ * of task links, derivation filters and the state of the random generator.
+ */
+public class MemorySnapshot {
+
+    static final int MAGIC = 0x4e415253; //"NARS"
+    static final int VERSION = 1;
+
+    /* references: 0 is null, 1 introduces a new entry, n >= 2 refers to entry n-2 */
+    private static final int NULL = 0, NEW = 1;
+
+    /* kinds of term entries */
+    private static final int ATOM = 0, VARIABLE = 1, INTERVAL = 2, OPERATOR = 3, COMPOUND = 4, OPERATION = 5;
+
+    private static final NativeOperator[] operators = NativeOperator.values();
+
+    public static void save(final Memory memory, final OutputStream os) throws IOException {
+        final GZIPOutputStream zip = new GZIPOutputStream(new BufferedOutputStream(os, 1 << 16));
+        final Writer w = new Writer(new DataOutputStream(new BufferedOutputStream(zip, 1 << 16)));
+        w.memory(memory);
+        w.out.flush();
+        zip.finish();
+        zip.flush();
+    }
+
+    /** replaces the contents of memory with the snapshot read from is */
+    public static void load(final Memory memory, final InputStream is) throws IOException {
+        final Reader r = new Reader(new DataInputStream(new BufferedInputStream(new GZIPInputStream(is, 1 << 16), 1 << 16)), memory);
+        r.memory();
+    }
+
+    /**
+     * a concept as a self-contained record, for ConceptArchive: without its
+     * task links, questions and quests, which only matter while it is active
+     */
+    public static byte[] saveConcept(final Concept c) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        final Writer w = new Writer(new DataOutputStream(bytes));
+        w.concept(c, false);
+        w.out.flush();
+        return bytes.toByteArray();
+    }
+
+    /** the concept of a record written by saveConcept, with key, the canonical term of the record, as its term */
+    public static Concept loadConcept(final Memory memory, final byte[] record, final Term key) throws IOException {
+        final Reader r = new Reader(new DataInputStream(new ByteArrayInputStream(record)), memory);
+        return r.concept(key);
+    }
+
+    static final class Writer {
+        final DataOutputStream out;
+        final Map<Term,Integer> terms = new HashMap();
+        final Map<Task,Integer> tasks = new IdentityHashMap();
+
+        Writer(final DataOutputStream out) {
+            this.out = out;
+        }
+
+        void memory(final Memory m) throws IOException {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeLong(m.cycle);
+            out.writeLong(m.currentStampSerial);
+            out.writeInt(m.inputPausedUntil);
+            out.writeLong(m.decisionBlock);
+            out.writeFloat(m.emotion.happy());
+            out.writeFloat(m.emotion.busy());
+            params(m.param);
+
+            varint(m.concepts.size());
+            for (final Concept c : m.concepts)
+                concept(c, true);
+
+            tasks(m.novelTasks.values(), m.novelTasks.size());
+            tasks(m.sequenceTasks.values(), m.sequenceTasks.size());
+            tasks(m.newTasks, m.newTasks.size());
+            task(m.lastDecision);
+
+            out.writeInt(MAGIC);
+        }
+
+        /** the atomic numbers and enums of RuntimeParameters, by field name */
+        void params(final RuntimeParameters p) throws IOException {
+            final List<Field> fields = new ArrayList();
+            for (final Field f : RuntimeParameters.class.getFields()) {
+                if (Modifier.isStatic(f.getModifiers())) continue;
+                final Class t = f.getType();
+                if (AtomicInteger.class.isAssignableFrom(t) || AtomicDouble.class.isAssignableFrom(t) || t.isEnum())
+                    fields.add(f);
+            }
+            varint(fields.size());
+            try {
+                for (final Field f : fields) {
+                    out.writeUTF(f.getName());
+                    final Object v = f.get(p);
+                    if (v instanceof AtomicInteger) {
+                        out.writeByte('i');
+                        out.writeInt(((AtomicInteger)v).get());
+                    }
+                    else if (v instanceof AtomicDouble) {
+                        out.writeByte('d');
+                        out.writeDouble(((AtomicDouble)v).get());
+                    }
+                    else {
+                        out.writeByte('e');
+                        out.writeUTF(((Enum)v).name());
+                    }
+                }
+            } catch (IllegalAccessException ex) {
+                throw new IOException(ex);
+            }
+        }
+
+        /** @param active whether to write the task links, questions and quests too */
+        void concept(final Concept c, final boolean active) throws IOException {
+            term(c.term);
+            budget(c.budget);
+            out.writeBoolean(c.observable);
+            tasks(c.beliefs, c.beliefs.size());
+            tasks(c.desires, c.desires.size());
+            tasks(active ? c.questions : Collections.EMPTY_LIST, active ? c.questions.size() : 0);
+            tasks(active ? c.quests : Collections.EMPTY_LIST, active ? c.quests.size() : 0);
+            tasks(c.executable_preconditions, c.executable_preconditions.size());
+
+            task(c.negConfirmation);
+            out.writeFloat(c.negConfirmationPriority);
+            out.writeLong(c.negConfirm_abort_mintime);
+            out.writeLong(c.negConfirm_abort_maxtime);
+
+            varint(c.termLinks.size());
+            for (final TermLink l : c.termLinks) {
+                term(l.target);
+                out.writeShort(l.type);
+                index(l.index);
+                budget(l.budget);
+            }
+
+            varint(active ? c.taskLinks.size() : 0);
+            if (active) for (final TaskLink l : c.taskLinks) {
+                task(l.targetTask);
+                out.writeShort(l.type);
+                index(l.index);
+                budget(l.budget);
+            }
+        }
+
+        void tasks(final Iterable<? extends Task> list, final int size) throws IOException {
+            varint(size);
+            int n = 0;
+            for (final Task t : list) {
+                if (n++ == size) throw new IOException("collection modified while saving");
+                task(t);
+            }
+        }
+
+        void task(final Task t) throws IOException {
+            if (t == null) {
+                varint(NULL);
+                return;
+            }
+            final Integer id = tasks.get(t);
+            if (id != null) {
+                varint(id + 2);
+                return;
+            }
+            varint(NEW);
+            tasks.put(t, tasks.size());
+
+            sentence(t.sentence);
+            budget(t.budget);
+            out.writeBoolean(t.isInput());
+            out.writeBoolean(t.isElemOfSequenceBuffer());
+            out.writeBoolean(t.isObservablePrediction());
+            //the parent only if it is already known, so that writing a task never recurses into its history
+            final Task parent = t.getParentTask();
+            final Integer parentID = (parent != null) ? tasks.get(parent) : null;
+            varint(parentID != null ? parentID + 2 : NULL);
+            final Sentence solution = t.getBestSolution();
+            out.writeBoolean(solution != null);
+            if (solution != null)
+                sentence(solution);
+        }
+
+        void sentence(final Sentence s) throws IOException {
+            term(s.term);
+            out.writeChar(s.punctuation);
+            out.writeBoolean(s.truth != null);
+            if (s.truth != null) {
+                out.writeFloat(s.truth.getFrequency());
+                out.writeFloat(s.truth.getConfidence());
+                out.writeBoolean(s.truth.getAnalytic());
+            }
+            out.writeBoolean(s.getRevisible());
+            out.writeBoolean(s.producedByTemporalInduction);
+
+            final Stamp st = s.stamp;
+            out.writeLong(st.getCreationTime());
+            out.writeLong(st.getOccurrenceTime());
+            out.writeBoolean(st.alreadyAnticipatedNegConfirmation);
+            varint(st.baseLength);
+            for (int i = 0; i < st.baseLength; i++)
+                varlong(st.evidentialBase[i]);
+        }
+
+        /** compounds are written as their operator and component ids, after
+         *  their components, so shared subterms are written only once too */
+        void term(final Term t) throws IOException {
+            final Integer id = terms.get(t);
+            if (id != null) {
+                varint(id + 2);
+                return;
+            }
+            varint(NEW);
+            if (t instanceof Operation) {
+                out.writeByte(OPERATION);
+                term(((Operation)t).getSubject());
+                term(((Operation)t).getPredicate());
+            }
+            else if (t instanceof CompoundTerm) {
+                final CompoundTerm c = (CompoundTerm)t;
+                out.writeByte(COMPOUND);
+                out.writeByte(c.operator().ordinal());
+                out.writeShort((c instanceof Image) ? ((Image)c).relationIndex : c.getTemporalOrder());
+                varint(c.term.length);
+                for (final Term s : c.term)
+                    term(s);
+            }
+            else if (t instanceof Interval) {
+                out.writeByte(INTERVAL);
+                varint(((Interval)t).magnitude);
+            }
+            else {
+                out.writeByte((t instanceof Variable) ? VARIABLE : (t instanceof Operator) ? OPERATOR : ATOM);
+                out.writeUTF(t.name().toString());
+            }
+            terms.put(t, terms.size());
+        }
+
+        void budget(final BudgetValue b) throws IOException {
+            out.writeFloat(b.getPriority());
+            out.writeFloat(b.getDurability());
+            out.writeFloat(b.getQuality());
+            out.writeLong(b.getLastForgetTime());
+        }
+
+        void index(final short[] index) throws IOException {
+            if (index == null) {
+                varint(0);
+                return;
+            }
+            varint(index.length + 1);
+            for (final short i : index)
+                out.writeShort(i);
+        }
+
+        void varint(int v) throws IOException {
+            while ((v & ~0x7f) != 0) {
+                out.writeByte((v & 0x7f) | 0x80);
+                v >>>= 7;
+            }
+            out.writeByte(v);
+        }
+
+        void varlong(long v) throws IOException {
+            while ((v & ~0x7fL) != 0) {
+                out.writeByte((int)(v & 0x7f) | 0x80);
+                v >>>= 7;
+            }
+            out.writeByte((int)v);
+        }
+    }
+
+    static final class Reader {
+        final DataInputStream in;
+        final Memory memory;
+        final List<Term> terms = new ArrayList();
+        final List<Task> tasks = new ArrayList();
+
+        Reader(final DataInputStream in, final Memory memory) {
+            this.in = in;
+            this.memory = memory;
+        }
+
+        void memory() throws IOException {
+            if (in.readInt() != MAGIC)
+                throw new IOException("not a memory snapshot");
+            final int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("unsupported snapshot version " + version);
+
+            final Memory m = memory;
+            m.reset();
+
+            m.cycle = in.readLong();
+            m.currentStampSerial = in.readLong();
+            m.inputPausedUntil = in.readInt();
+            m.decisionBlock = in.readLong();
+            final float happy = in.readFloat();
+            m.emotion.set(happy, in.readFloat());
+            params(m.param);
+
+            for (int n = varint(); n > 0; n--) {
+                final Concept c = concept(null);
+                final Concept displaced = m.concepts.putIn(c);
+                if ((displaced != null) && (displaced != c))
+                    m.conceptRemoved(displaced);
+            }
+
+            for (int n = varint(); n > 0; n--)
+                m.novelTasks.putIn(task());
+            for (int n = varint(); n > 0; n--) {
+                final Task t = task();
+                m.sequenceTasks.putIn(t);
+                m.sequenceTaskIndex.put(t.getTerm().conceptKey(), t);
+            }
+            for (int n = varint(); n > 0; n--)
+                m.newTasks.add(task());
+            m.lastDecision = task();
+
+            if (in.readInt() != MAGIC)
+                throw new IOException("corrupt memory snapshot");
+        }
+
+        void params(final RuntimeParameters p) throws IOException {
+            try {
+                for (int n = varint(); n > 0; n--) {
+                    final String name = in.readUTF();
+                    final int kind = in.readByte();
+                    Field f;
+                    try {
+                        f = RuntimeParameters.class.getField(name);
+                    } catch (NoSuchFieldException ex) {
+                        f = null; //saved by another version; skip the value
+                    }
+                    switch (kind) {
+                        case 'i': {
+                            final int v = in.readInt();
+                            if (f != null) ((AtomicInteger)f.get(p)).set(v);
+                            break;
+                        }
+                        case 'd': {
+                            final double v = in.readDouble();
+                            if (f != null) ((AtomicDouble)f.get(p)).set(v);
+                            break;
+                        }
+                        case 'e': {
+                            final String v = in.readUTF();
+                            if ((f != null) && !Modifier.isFinal(f.getModifiers()))
+                                f.set(p, Enum.valueOf((Class<Enum>)f.getType(), v));
+                            break;
+                        }
+                        default:
+                            throw new IOException("corrupt parameter " + name);
+                    }
+                }
+            } catch (IllegalAccessException ex) {
+                throw new IOException(ex);
+            }
+        }
+
+        /** @param key the canonical term the concept is expected to be of, or null */
+        Concept concept(final Term key) throws IOException {
+            final Term term = term().conceptKey();
+            if ((key != null) && !key.equals(term))
+                throw new IOException("concept of " + term + " instead of " + key);
+            final Concept c = new Concept(budget(), (key != null) ? key : term, memory);
+            c.observable = in.readBoolean();
+            tasks(c.beliefs);
+            tasks(c.desires);
+            tasks(c.questions);
+            tasks(c.quests);
+            tasks(c.executable_preconditions);
+
+            c.negConfirmation = task();
+            c.negConfirmationPriority = in.readFloat();
+            c.negConfirm_abort_mintime = in.readLong();
+            c.negConfirm_abort_maxtime = in.readLong();
+
+            for (int n = varint(); n > 0; n--) {
+                final Term target = term();
+                final short type = in.readShort();
+                final short[] index = index();
+                c.termLinks.putIn(new TermLink(target, type, index, budget()));
+            }
+
+            for (int n = varint(); n > 0; n--) {
+                final Task target = task();
+                final short type = in.readShort();
+                final short[] index = index();
+                c.taskLinks.putIn(new TaskLink(target, type, index, budget(), Parameters.TERM_LINK_RECORD_LENGTH));
+            }
+            return c;
+        }
+
+        void tasks(final Collection<Task> c) throws IOException {
+            for (int n = varint(); n > 0; n--)
+                c.add(task());
+        }
+
+        Task task() throws IOException {
+            final int ref = varint();
+            if (ref == NULL)
+                return null;
+            if (ref != NEW)
+                return tasks.get(ref - 2);
+
+            final int id = tasks.size();
+            tasks.add(null); //reserve the id
+
+            final Sentence s = sentence();
+            final BudgetValue b = budget();
+            final boolean input = in.readBoolean();
+            final boolean sequenceBuffer = in.readBoolean();
+            final boolean observablePrediction = in.readBoolean();
+            final int parentRef = varint();
+            final Task parent = parentRef >= 2 ? tasks.get(parentRef - 2) : null;
+            final Sentence solution = in.readBoolean() ? sentence() : null;
+
+            final Task t = input ?
+                    new Task(s, b, (WeakReference)null, null, solution) :
+                    new Task(s, b, parent, null, solution);
+            t.setElemOfSequenceBuffer(sequenceBuffer);
+            t.setObservablePrediction(observablePrediction);
+            tasks.set(id, t);
+            return t;
+        }
+
+        Sentence sentence() throws IOException {
+            final Term term = term();
+            final char punctuation = in.readChar();
+            TruthValue truth = null;
+            if (in.readBoolean()) {
+                final float f = in.readFloat();
+                final float c = in.readFloat();
+                truth = new TruthValue(f, c, in.readBoolean());
+            }
+            final boolean revisible = in.readBoolean();
+            final boolean temporalInduction = in.readBoolean();
+
+            final long creationTime = in.readLong();
+            final long occurrenceTime = in.readLong();
+            final boolean anticipated = in.readBoolean();
+            final long[] base = new long[varint()];
+            for (int i = 0; i < base.length; i++)
+                base[i] = varlong();
+            final Stamp stamp = new Stamp(base, creationTime, occurrenceTime);
+            stamp.alreadyAnticipatedNegConfirmation = anticipated;
+
+            final Sentence s = new Sentence(term, punctuation, truth, stamp);
+            s.setRevisible(revisible);
+            s.producedByTemporalInduction = temporalInduction;
+            return s;
+        }
+
+        Term term() throws IOException {
+            final int ref = varint();
+            if (ref != NEW)
+                return terms.get(ref - 2);
+            final Term t;
+            final int kind = in.readByte();
+            switch (kind) {
+                case OPERATION: {
+                    final Term subject = term();
+                    final Term predicate = term();
+                    if ((subject instanceof Product) && (predicate instanceof Operator))
+                        t = Operation.make((Operator)predicate, ((Product)subject).term, false);
+                    else
+                        t = Terms.restore(NativeOperator.INHERITANCE, new Term[] { subject, predicate }, 0, (short)0);
+                    break;
+                }
+                case COMPOUND: {
+                    final NativeOperator op = operators[in.readByte()];
+                    final short aux = in.readShort();
+                    final Term[] sub = new Term[varint()];
+                    for (int i = 0; i < sub.length; i++)
+                        sub[i] = term();
+                    t = Terms.restore(op, sub, aux, aux);
+                    break;
+                }
+                case INTERVAL:
+                    t = Interval.interval(varint());
+                    break;
+                case VARIABLE:
+                    t = new Variable(in.readUTF());
+                    break;
+                case OPERATOR: {
+                    final String name = in.readUTF();
+                    t = memory.getOperator(name);
+                    if (t == null)
+                        throw new IOException("unknown operator " + name);
+                    break;
+                }
+                case ATOM:
+                    t = new Term(in.readUTF());
+                    break;
+                default:
+                    throw new IOException("corrupt term");
+            }
+            terms.add(t);
+            return t;
+        }
+
+        BudgetValue budget() throws IOException {
+            final BudgetValue b = new BudgetValue(in.readFloat(), in.readFloat(), in.readFloat());
+            final long lastForgetTime = in.readLong();
+            if (lastForgetTime != -1)
+                b.setLastForgetTime(lastForgetTime);
+            return b;
+        }
+
+        short[] index() throws IOException {
+            final int n = varint();
+            if (n == 0)
+                return null;
+            final short[] index = new short[n - 1];
+            for (int i = 0; i < index.length; i++)
+                index[i] = in.readShort();
+            return index;
+        }
+
+        int varint() throws IOException {
+            int v = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                final int b = in.readByte();
+                v |= (b & 0x7f) << shift;
+                if ((b & 0x80) == 0)
+                    return v;
+            }
+            throw new IOException("corrupt varint");
+        }
+
+        long varlong() throws IOException {
+            long v = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                final int b = in.readByte();
+                v |= (long)(b & 0x7f) << shift;
+                if ((b & 0x80) == 0)
+                    return v;
+            }
+            throw new IOException("corrupt varint");
+        }
+    }
+}
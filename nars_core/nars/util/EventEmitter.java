@@ -2,64 +2,95 @@
 package nars.util;
 
 import java.util.ArrayDeque;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Deque;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
 import nars.config.Parameters;
 
 /**
  * Adapted from http://www.recursiverobot.com/post/86215392884/witness-a-simple-android-and-java-event-emitter
- * TODO separate this into a single-thread and multithread implementation
+ *
+ * Every event class gets a small integer id the first time it is seen, and
+ * the observers of an event are kept in a copy-on-write array indexed by
+ * that id: emitting reads one volatile array and never locks, while on() and
+ * off() replace the array.  Callers with expensive arguments should check
+ * isActive() first, so nothing is built when nobody listens; those on the
+ * inference path keep the ids of their events in constants and pass them to
+ * isActive(int) and emit(int, ...), so no lookup is made per call.
+ *
+ * Observers registered with onAsync() are called on a dispatcher thread,
+ * fed through a bounded ring buffer, instead of on the emitting thread.
  */
 public class EventEmitter {
 
-    
+
     /** Observes events emitted by EventEmitter */
     public interface EventObserver<C> {
         public void event(Class<? extends C> event, Object[] args);
     }
 
-    private final Map<Class<?>, List<EventObserver>> events;
-            
-    
+    /** Receives the exceptions thrown by observers, see setErrorHandler */
+    public interface ErrorHandler {
+        public void observerFailed(Class event, EventObserver o, RuntimeException ex);
+    }
+
+    private static final AtomicInteger nextID = new AtomicInteger();
+    private static final ClassValue<Integer> ids = new ClassValue<Integer>() {
+        @Override protected Integer computeValue(Class<?> type) {
+            return nextID.getAndIncrement();
+        }
+    };
+
+    /** the id of an event class, the same in all emitters; assigned on first use */
+    public static int id(final Class event) {
+        return ids.get(event);
+    }
+
+    private static final EventObserver[] none = new EventObserver[0];
+
+    /** observers by event id; replaced, never modified, so it can be read without locking */
+    private volatile EventObserver[][] observers = new EventObserver[0][];
+
     private Deque<Object[]> pendingOps = new ArrayDeque();
-    
-    /** EventEmitter that allows unknown events; must use concurrent collection
-     *  for multithreading since new event classes may be added at any time.
-     */
+
+    /** created with the first asynchronous observer */
+    private AsyncDispatcher async = null;
+
+    /** where the exceptions of observers go; printed if none */
+    private volatile ErrorHandler errors = null;
+
     public EventEmitter() {
-        /*if (Parameters.THREADS > 1)
-            events = new ConcurrentHashMap<>();
-        else*/
-            //events = new HashMap<>();
-        events = new ConcurrentHashMap<>();
     }
 
-    /** EventEmitter with a fixed set of known events; the 'events' map
-     *  can then be made unmodifiable and non-concurrent for speed.    */
+    /** EventEmitter with a fixed set of known events, whose ids are assigned up front */
     public EventEmitter(Class... knownEventClasses) {
-        events = new HashMap(knownEventClasses.length);
-        for (Class c : knownEventClasses) {
-            events.put(c, newObserverList());
-        }
+        int max = -1;
+        for (Class c : knownEventClasses)
+            max = Math.max(max, id(c));
+        observers = grow(observers, max + 1);
     }
 
-    protected List<EventObserver> newObserverList() {
-        return new ArrayList();
-        /*return Parameters.THREADS == 1 ? 
-                new ArrayList() : Collections.synchronizedList(new ArrayList());*/
+    private static EventObserver[][] grow(final EventObserver[][] o, final int length) {
+        if (o.length >= length) return o;
+        final EventObserver[][] n = Arrays.copyOf(o, length);
+        for (int i = o.length; i < length; i++)
+            n[i] = none;
+        return n;
     }
-    
+
     public final boolean isActive(final Class event) {
-        if (events.get(event)!=null)
-            if (!events.get(event).isEmpty())
-                return true;
-        return false;
+        return isActive(id(event));
+    }
+
+    public final boolean isActive(final int eventID) {
+        final EventObserver[][] o = observers;
+        return (eventID < o.length) && (o[eventID].length > 0);
     }
-    
+
     //apply pending on/off changes when synchronizing, ex: in-between memory cycles
     public void synch() {
         synchronized (pendingOps) {
@@ -67,45 +98,70 @@ public class EventEmitter {
                 for (Object[] o : pendingOps) {
                     Class c = (Class)o[1];
                     EventObserver d = (EventObserver)o[2];
-                    if ((Boolean)o[0]) {                        
+                    if ((Boolean)o[0]) {
                         on(c,d);
                     }
-                    else {                        
+                    else {
                         off(c,d);
                     }
                 }
             }
             pendingOps.clear();
         }
-    }  
-    public void on(final Class<?> event, final EventObserver o) {
-        if (events.containsKey(event))
-            events.get(event).add(o);
-        else {
-            List<EventObserver> a = newObserverList();
-            a.add(o);
-            events.put(event, a);
-        }       
-    }
- 
+    }
+
+    public synchronized void on(final Class<?> event, final EventObserver o) {
+        final int id = id(event);
+        final EventObserver[][] all = grow(observers, id + 1).clone();
+        final EventObserver[] a = Arrays.copyOf(all[id], all[id].length + 1);
+        a[a.length - 1] = o;
+        all[id] = a;
+        observers = all;
+    }
+
+    /** registers an observer which is called on the dispatcher thread of this emitter
+     *  instead of the emitting one; remove it with off() as usual */
+    public void onAsync(final Class<?> event, final EventObserver o) {
+        synchronized (this) {
+            if (async == null)
+                async = new AsyncDispatcher(Parameters.EVENT_ASYNC_BUFFER_SIZE);
+        }
+        on(event, new AsyncObserver(o, async));
+    }
+
     /**
      * @param event
      * @param o
-     * @return  whether it was removed
      */
-    public void off(final Class<?> event, final EventObserver o) {
+    public synchronized void off(final Class<?> event, final EventObserver o) {
         if (null == event || null == o)
             throw new RuntimeException("Invalid parameter");
- 
-        if (!events.containsKey(event))
+
+        final int id = id(event);
+        final EventObserver[][] all = observers;
+        if (id >= all.length)
             throw new RuntimeException("Unknown event: " + event);
-        
-        try {
-        events.get(event).remove(o);
-        } catch(Exception ex) { }
-        /*if (!removed) {
-            throw new RuntimeException("EventObserver " + o + " was not registered for events");
-        }*/        
+
+        final EventObserver[] a = all[id];
+        for (int i = 0; i < a.length; i++) {
+            if (registered(a[i], o)) {
+                final EventObserver[] b = new EventObserver[a.length - 1];
+                System.arraycopy(a, 0, b, 0, i);
+                System.arraycopy(a, i + 1, b, i, a.length - i - 1);
+                final EventObserver[][] n = all.clone();
+                n[id] = b.length == 0 ? none : b;
+                observers = n;
+                return;
+            }
+        }
+    }
+
+    /** whether the registered observer is o, or forwards to it; o decides
+     *  equality, as the observers may be of any class */
+    private static boolean registered(final EventObserver r, final EventObserver o) {
+        if ((r == o) || o.equals(r))
+            return true;
+        return (r instanceof AsyncObserver) && o.equals(((AsyncObserver)r).target);
     }
 
     /** for enabling many events at the same time */
@@ -117,20 +173,193 @@ public class EventEmitter {
                 off(c, o);
         }
     }
-    
+
+
+    /** set while inference workers are running, so that the thread local
+     *  lookup is skipped entirely otherwise */
+    private volatile boolean deferring = false;
+    private final ThreadLocal<List<Runnable>> deferred = new ThreadLocal();
+
+    /** enables or disables deferral of emissions and other shared side effects
+     *  on threads which have registered a list with deferOnThread */
+    public void setDeferring(final boolean deferring) {
+        this.deferring = deferring;
+    }
+
+    /** registers (or with null, unregisters) the list in which the calling
+     *  thread's events and side effects are recorded while deferring is enabled */
+    public void deferOnThread(final List<Runnable> effects) {
+        if (effects == null)
+            deferred.remove();
+        else
+            deferred.set(effects);
+    }
+
+    /** @return the list recording the calling thread's side effects,
+     *  or null if they should be applied immediately */
+    public final List<Runnable> deferredEffects() {
+        return deferring ? deferred.get() : null;
+    }
 
     public void emit(final Class eventClass, final Object... params) {
-        List<EventObserver> observers = events.get(eventClass);
-        
-        if ((observers == null) || (observers.isEmpty())) return;
+        emit(id(eventClass), eventClass, params);
+    }
+
+    /** emits an event whose id the caller looked up once, skipping the lookup of emit(Class) */
+    public void emit(final int id, final Class eventClass, final Object... params) {
+        final EventObserver[][] all = observers;
+        if ((id >= all.length) || (all[id].length == 0)) return;
+
+        if (deferring) {
+            final List<Runnable> d = deferred.get();
+            if (d != null) {
+                d.add(() -> emit(id, eventClass, params));
+                return;
+            }
+        }
+
+        for (final EventObserver m : all[id]) {
+            try {
+                m.event(eventClass, params);
+            }
+            catch (RuntimeException ex) {
+                onObserverError(eventClass, m, ex);
+            }
+        }
+
+    }
+
+    /** sets where the exceptions thrown by observers go, such as the ERR
+     *  channel of a NAR; null to print them */
+    public void setErrorHandler(final ErrorHandler h) {
+        this.errors = h;
+    }
+
+    /** an observer threw an exception; it is rethrown in debug mode, so errors
+     *  surface where they happen, and otherwise passed to the error handler
+     *  without interrupting the emitting thread */
+    protected void onObserverError(final Class event, final EventObserver o, final RuntimeException ex) {
+        if (Parameters.DEBUG)
+            throw ex;
+        observerFailed(event, o, ex);
+    }
+
+    private void observerFailed(final Class event, final EventObserver o, final RuntimeException ex) {
+        final ErrorHandler h = errors;
+        if (h != null)
+            h.observerFailed(event, o, ex);
+        else
+            System.err.println("Observer " + o + " failed on " + event.getSimpleName() + ": " + ex);
+    }
+
+    /** stops the dispatcher thread of asynchronous observers, if any */
+    public synchronized void stopAsync() {
+        if (async != null) {
+            async.stop();
+            async = null;
+        }
+    }
+
+    /** forwards events to an observer through the dispatcher */
+    private static final class AsyncObserver implements EventObserver {
+        final EventObserver target;
+        final AsyncDispatcher dispatcher;
+
+        AsyncObserver(final EventObserver target, final AsyncDispatcher dispatcher) {
+            this.target = target;
+            this.dispatcher = dispatcher;
+        }
+
+        @Override public void event(final Class event, final Object[] args) {
+            dispatcher.publish(target, event, args);
+        }
+
+        @Override public boolean equals(final Object obj) {
+            if (obj == this) return true;
+            return (obj instanceof AsyncObserver) && target.equals(((AsyncObserver)obj).target);
+        }
+
+        @Override public int hashCode() {
+            return target.hashCode();
+        }
+
+        @Override public String toString() {
+            return "async " + target;
+        }
+    }
+
+    /**
+     * Bounded multi-producer ring buffer drained by one daemon thread.
+     * Producers claim a slot with a single atomic increment and publish it
+     * through its sequence number; when the buffer is full they wait for the
+     * dispatcher rather than drop events.
+     */
+    private final class AsyncDispatcher implements Runnable {
+        final int mask;
+        final EventObserver[] targets;
+        final Class[] events;
+        final Object[][] args;
+        final AtomicLongArray sequence;
+        final AtomicLong head = new AtomicLong();
+        volatile long tail = 0;
+        final Thread thread;
+        volatile boolean running = true;
+
+        AsyncDispatcher(final int capacity) {
+            final int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+            mask = size - 1;
+            targets = new EventObserver[size];
+            events = new Class[size];
+            args = new Object[size][];
+            sequence = new AtomicLongArray(size);
+            for (int i = 0; i < size; i++)
+                sequence.set(i, i);
+            thread = new Thread(this, "Event Dispatcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void publish(final EventObserver target, final Class event, final Object[] a) {
+            final long slot = head.getAndIncrement();
+            final int i = (int)slot & mask;
+            while (sequence.get(i) != slot) {
+                if (!running) return;
+                LockSupport.parkNanos(1000); //full: wait for the dispatcher
+            }
+            targets[i] = target;
+            events[i] = event;
+            args[i] = a;
+            sequence.lazySet(i, slot + 1);
+            if (tail == slot)
+                LockSupport.unpark(thread);
+        }
+
+        @Override public void run() {
+            while (running) {
+                final int i = (int)tail & mask;
+                if (sequence.get(i) != tail + 1) {
+                    LockSupport.parkNanos(100000);
+                    continue;
+                }
+                final EventObserver t = targets[i];
+                final Class e = events[i];
+                final Object[] a = args[i];
+                targets[i] = null;
+                args[i] = null;
+                sequence.lazySet(i, tail + mask + 1);
+                tail++;
+                try {
+                    t.event(e, a);
+                }
+                catch (RuntimeException ex) {
+                    observerFailed(e, t, ex);
+                }
+            }
+        }
 
-        int n = observers.size();
-        for (int i = 0; i < n; i++) {
-            try{
-            EventObserver m = observers.get(i);
-            m.event(eventClass, params);
-            }catch(Exception ex){}
+        void stop() {
+            running = false;
+            LockSupport.unpark(thread);
         }
-        
     }
-}
\ No newline at end of file
+}
@@ -4,7 +4,7 @@ import java.util.List;
 import nars.util.EventEmitter.EventObserver;
 import nars.util.Events;
 import nars.NAR;
-import nars.config.Parameters;
+import nars.config.Plugins;
 import nars.lab.grid2d.main.Cell.Logic;
 import nars.lab.grid2d.main.Cell.Material;
 import static nars.lab.grid2d.main.Hauto.DOWN;
@@ -39,9 +39,10 @@ public class TestChamber {
 
         //set NAR architecture parameters:
         //builder...
-        Parameters.CONSIDER_NEW_OPERATION_BIAS = 1.0f; //not that much events in testchamber anyway
-        Parameters.SEQUENCE_BAG_SIZE = 100; //but many possible different ways to achieve certain things
-        NAR nar = new NAR();
+        Plugins plugins = new Plugins();
+        plugins.param.considerNewOperationBias.set(1.0); //not that much events in testchamber anyway
+        plugins.param.sequenceBagSize = 100; //but many possible different ways to achieve certain things
+        NAR nar = new NAR(plugins);
         nar.param.decisionThreshold.set(0.51);
         //set NAR runtime parmeters:  
 
@@ -235,7 +235,7 @@ public class LanguageGUI extends javax.swing.JFrame {
             ans.off();
         }
         languageNAR.reset();
-        languageNAR.memory.randomNumber.setSeed(seed);
+        languageNAR.memory.random.setSeed(seed);
         seed++;
         
         try {
@@ -380,7 +380,7 @@ public class GraphExecutive {
             //TODO disallow edge that completes cycle back to target or traversed edge?
             //  probably an option to allow cycles
 
-            double r = Memory.randomNumber.nextDouble() * totalProb;
+            double r = Memory.random().nextDouble() * totalProb;
 
 
             final int pes = possibleEdge.size();
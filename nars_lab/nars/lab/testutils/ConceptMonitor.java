@@ -11,7 +11,6 @@ import nars.entity.Task;
 import nars.entity.TruthValue;
 import nars.io.Narsese;
 import nars.io.Symbols;
-import nars.language.CompoundTerm;
 import nars.language.Term;
 
 /**
@@ -75,8 +74,8 @@ public class ConceptMonitor {
         Term st = stringToTerm(nar, statement);
         if(c != null && st != null) {
             for(Task t : c.executable_preconditions) {
-                if(CompoundTerm.cloneDeepReplaceIntervals(t.getTerm()).equals(
-                        CompoundTerm.cloneDeepReplaceIntervals(st))) {
+                if(t.getTerm().conceptKey().equals(
+                        st.conceptKey())) {
                     return t.sentence;
                 }
             }
@@ -0,0 +1,466 @@
+/*
+ * Here comes the text of your license
+ * Each line should be prefixed with  *
+ */
+package nars.lab.testutils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import nars.NAR;
+import nars.config.Parameters;
+import nars.config.Plugins;
+import nars.entity.Task;
+import nars.io.Output;
+import nars.io.TextInput;
+import nars.io.TextOutput;
+import nars.io.Texts;
+import nars.lab.ioutils.ExampleFileInput;
+import nars.storage.Memory;
+
+/**
+ * Runs NAL example files in parallel, each worker in its own forked JVM taking
+ * examples one at a time, and reports for each one whether its expectations
+ * were met, the cycle the last one was met at, and the wall time taken.
+ * <p>
+ * Expected outputs are matched by OutputMatchCondition on the parsed term and
+ * the truth within a tolerance; the most similar outputs by text distance are
+ * only looked for when an expectation fails.  An example stops as soon as all
+ * its expectations are met, unless one of them could still fail later.
+ * <p>
+ * The report is written as JSON, and can be given as the baseline of a later
+ * run, which then fails on examples that no longer pass or that need more
+ * cycles than before.
+ * <p>
+ * Usage: NALRunner [-j workers] [-c maxCycles] [-t truthTolerance]
+ *        [-timeout seconds] [-o report.json] [-b baseline.json] [-v]
+ *        [example files or directories]
+ */
+public class NALRunner {
+
+    int workers = Runtime.getRuntime().availableProcessors();
+    int maxCycles = 1550;
+    float tolerance = 0.01f;
+    int timeoutSeconds = 120;
+    String output = null;
+    String baseline = null;
+    boolean verbose = false;
+    final List<String> examples = new ArrayList();
+
+    /** cycles run between checks for all expectations being met */
+    static final int STEP = 10;
+
+    /** outputs kept to look for similar ones when an expectation fails */
+    static final int MAX_LOGGED_OUTPUTS = 20000;
+
+    static final int SIMILAR = 5;
+
+    public static class Expectation {
+        public String expect;
+        public boolean passed;
+        /** the cycle it was met at, or -1 */
+        public long cycle;
+        public String reason;
+        /** the outputs closest to the expected one by text distance, when it failed */
+        public List<String> similar;
+    }
+
+    public static class Result {
+        public String example;
+        public boolean passed;
+        public String error;
+        /** the cycle the last expectation was met at, or -1 if one was not */
+        public long cycles = -1;
+        /** the cycles run */
+        public long ran;
+        public double wallMS;
+        public List<Expectation> expectations = new ArrayList();
+
+        static Result failed(final String example, final String error) {
+            final Result r = new Result();
+            r.example = example;
+            r.error = error;
+            return r;
+        }
+    }
+
+    static boolean canStillFail(final OutputCondition c) {
+        return c.isInverse() || (c instanceof OutputEmptyCondition);
+    }
+
+    static String expected(final OutputCondition c) {
+        if (c instanceof OutputMatchCondition)
+            return ((OutputMatchCondition) c).expected;
+        if (c instanceof OutputContainsCondition)
+            return ((OutputContainsCondition) c).containing;
+        return c.getClass().getSimpleName();
+    }
+
+    /** runs one example in this JVM */
+    public static Result run(final String path, final int maxCycles, final float tolerance) {
+        final Result r = new Result();
+        r.example = path;
+        final long start = System.nanoTime();
+        NAR n = null;
+        final List<OutputCondition> conditions = new ArrayList();
+        final List<Object[]> outputs = new ArrayList();
+        try {
+            Memory.resetStatic();
+            n = new NAR(new Plugins());
+            final String example = ExampleFileInput.load(path);
+            conditions.addAll(OutputCondition.getConditions(n, example, -1, tolerance));
+            new Output(n) {
+                @Override
+                public void event(final Class channel, final Object... args) {
+                    if (((channel == OUT.class) || (channel == EXE.class)) && (outputs.size() < MAX_LOGGED_OUTPUTS))
+                        outputs.add(new Object[] { channel, args[0] });
+                }
+            };
+
+            boolean stopEarly = true;
+            for (final OutputCondition c : conditions)
+                if (canStillFail(c))
+                    stopEarly = false;
+
+            //as under JUnit, otherwise the expectations in comments are output
+            n.memory.setEchoOutput(false);
+            n.addInput(new TextInput(example));
+            while (n.time() < maxCycles) {
+                n.run(STEP);
+                if (stopEarly && met(conditions))
+                    break;
+            }
+        }
+        catch (Throwable e) {
+            r.error = e.toString();
+        }
+        r.wallMS = (System.nanoTime() - start) / 1.0e6;
+        r.ran = (n != null) ? n.time() : 0;
+
+        r.passed = (r.error == null) && !conditions.isEmpty();
+        long last = -1;
+        for (final OutputCondition c : conditions) {
+            final Expectation e = new Expectation();
+            e.expect = expected(c);
+            e.passed = c.isTrue();
+            e.cycle = c.getTrueTime();
+            if (!e.passed) {
+                r.passed = false;
+                e.reason = c.getFalseReason();
+                if (!canStillFail(c))
+                    e.similar = similar(n, outputs, e.expect);
+            }
+            last = Math.max(last, e.cycle);
+            r.expectations.add(e);
+        }
+        r.cycles = r.passed ? last : -1;
+        return r;
+    }
+
+    static boolean met(final List<OutputCondition> conditions) {
+        for (final OutputCondition c : conditions)
+            if (!c.isTrue())
+                return false;
+        return true;
+    }
+
+    /** the logged outputs closest to the expected one by Levenshtein distance */
+    static List<String> similar(final NAR n, final List<Object[]> outputs, final String expected) {
+        final TreeMap<Integer, Set<String>> byDistance = new TreeMap();
+        for (final Object[] o : outputs) {
+            final String s = (o[1] instanceof Task) ? ((Task) o[1]).sentence.toString(n, false).toString() :
+                    TextOutput.getOutputString((Class) o[0], o[1], false, false, n).toString();
+            byDistance.computeIfAbsent(Texts.levenshteinDistance(s, expected), d -> new LinkedHashSet()).add(s);
+        }
+        final List<String> similar = new ArrayList();
+        for (final Map.Entry<Integer, Set<String>> e : byDistance.entrySet()) {
+            for (final String s : e.getValue()) {
+                if (similar.size() == SIMILAR)
+                    return similar;
+                similar.add("similar(" + e.getKey() + "): " + s);
+            }
+        }
+        return similar;
+    }
+
+    static final String RESULT = "# RESULT";
+
+    /** reads example paths from stdin, one per line, and answers each with a RESULT line */
+    static void work(final int maxCycles, final float tolerance) throws IOException {
+        final PrintStream results = System.out;
+        System.setOut(System.err);
+        //as NALTest runs them
+        Parameters.DEBUG = true;
+        final Gson gson = new Gson();
+        final BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+        String path;
+        while ((path = in.readLine()) != null) {
+            final Result r = run(path, maxCycles, tolerance);
+            results.print(RESULT + ' ' + gson.toJson(r) + '\n');
+            results.flush();
+        }
+    }
+
+    Process fork() throws IOException {
+        final List<String> cmd = new ArrayList();
+        cmd.add(System.getProperty("java.home") + "/bin/java");
+        for (final String a : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (!a.startsWith("-agentlib") && !a.startsWith("-javaagent"))
+                cmd.add(a);
+        }
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(NALRunner.class.getName());
+        cmd.add("--worker");
+        cmd.add(Integer.toString(maxCycles));
+        cmd.add(Float.toString(tolerance));
+        return new ProcessBuilder(cmd).redirectErrorStream(true).start();
+    }
+
+    /** takes examples from the queue and runs them in its forked JVM, forking a new one if it dies or times out */
+    class Worker implements Runnable {
+        final Queue<String> todo;
+        final Map<String, Result> results;
+        final ScheduledExecutorService watchdog;
+        final Gson gson = new Gson();
+
+        Worker(final Queue<String> todo, final Map<String, Result> results, final ScheduledExecutorService watchdog) {
+            this.todo = todo;
+            this.results = results;
+            this.watchdog = watchdog;
+        }
+
+        @Override
+        public void run() {
+            Process p = null;
+            BufferedReader in = null;
+            PrintWriter out = null;
+            try {
+                String path;
+                while ((path = todo.poll()) != null) {
+                    if (p == null) {
+                        p = fork();
+                        in = new BufferedReader(new InputStreamReader(p.getInputStream()));
+                        out = new PrintWriter(new OutputStreamWriter(p.getOutputStream()));
+                    }
+                    out.println(path);
+                    out.flush();
+
+                    final Process q = p;
+                    final ScheduledFuture kill = watchdog.schedule(q::destroy, timeoutSeconds, TimeUnit.SECONDS);
+                    final String line = readResult(in);
+                    final boolean timedOut = !kill.cancel(false);
+
+                    Result r;
+                    if (line != null) {
+                        r = gson.fromJson(line, Result.class);
+                    }
+                    else {
+                        p.destroy();
+                        r = Result.failed(path, timedOut ? ("timed out after " + timeoutSeconds + "s") : ("worker exited with " + p.waitFor()));
+                        p = null;
+                    }
+                    finished(r, results);
+                }
+            }
+            catch (IOException | InterruptedException e) {
+                System.out.println("worker failed: " + e);
+            }
+            finally {
+                if (p != null) {
+                    out.close();
+                    try {
+                        if (!p.waitFor(10, TimeUnit.SECONDS))
+                            p.destroy();
+                    } catch (InterruptedException e) {
+                        p.destroy();
+                    }
+                }
+            }
+        }
+
+        String readResult(final BufferedReader in) {
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.startsWith(RESULT))
+                        return line.substring(RESULT.length()).trim();
+                    if (verbose)
+                        System.out.println("  " + line);
+                }
+            } catch (IOException e) {
+            }
+            return null;
+        }
+    }
+
+    synchronized void finished(final Result r, final Map<String, Result> results) {
+        results.put(r.example, r);
+        System.out.println(String.format(Locale.US, "%s %-50s cycles=%-5d ran=%-5d %8.1f ms%s",
+                r.passed ? "PASS" : "FAIL", name(r.example), r.cycles, r.ran, r.wallMS,
+                (r.error != null) ? "  " + r.error : ""));
+        if (!r.passed && verbose) {
+            for (final Expectation e : r.expectations) {
+                if (e.passed) continue;
+                System.out.println("    " + e.reason);
+                if (e.similar != null)
+                    for (final String s : e.similar)
+                        System.out.println("\t" + s);
+            }
+        }
+    }
+
+    static String name(final String path) {
+        return new File(path).getName();
+    }
+
+    /** the examples given as files or directories, or the unit tests by default */
+    List<String> examples() {
+        final List<String> paths = new ArrayList();
+        if (examples.isEmpty()) {
+            for (final Object o : ExampleFileInput.getUnitTests().values())
+                paths.add((String) ((Object[]) o)[0]);
+            return paths;
+        }
+        for (final String e : examples) {
+            final File f = new File(e);
+            if (f.isDirectory()) {
+                final File[] files = f.listFiles((d, name) -> name.endsWith(".nal"));
+                Arrays.sort(files);
+                for (final File x : files)
+                    paths.add(x.getPath());
+            }
+            else {
+                paths.add(f.getPath());
+            }
+        }
+        return paths;
+    }
+
+    /** @return the results by example, in the order of the examples */
+    public Map<String, Result> run() throws Exception {
+        final List<String> paths = examples();
+        final Map<String, Result> results = new HashMap();
+        final Queue<String> todo = new ConcurrentLinkedQueue(paths);
+        final ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor();
+
+        final long start = System.nanoTime();
+        final List<Thread> threads = new ArrayList();
+        for (int i = 0; i < Math.min(workers, paths.size()); i++) {
+            final Thread t = new Thread(new Worker(todo, results, watchdog), "NALRunner worker " + i);
+            threads.add(t);
+            t.start();
+        }
+        for (final Thread t : threads)
+            t.join();
+        watchdog.shutdownNow();
+
+        final Map<String, Result> ordered = new LinkedHashMap();
+        for (final String p : paths)
+            if (results.containsKey(p))
+                ordered.put(p, results.get(p));
+
+        int passed = 0;
+        for (final Result r : ordered.values())
+            if (r.passed) passed++;
+        System.out.println();
+        System.out.println(String.format(Locale.US, "%d / %d passed in %.1f s with %d workers",
+                passed, ordered.size(), (System.nanoTime() - start) / 1.0e9, threads.size()));
+
+        if (output != null) {
+            final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+            try (Writer w = new FileWriter(output)) {
+                gson.toJson(new ArrayList(ordered.values()), w);
+            }
+            System.out.println("Report written to " + output);
+        }
+        return ordered;
+    }
+
+    /** prints the examples which no longer pass or need more cycles than in the baseline, returning their count */
+    static int compare(final Map<String, Result> results, final List<Result> baseline) {
+        int regressions = 0;
+        for (final Result b : baseline) {
+            final Result r = results.get(b.example);
+            if ((r == null) || !b.passed) continue;
+            if (!r.passed) {
+                System.out.println("REGRESSION " + name(b.example) + ": no longer passes");
+                regressions++;
+            }
+            else if (r.cycles > b.cycles) {
+                System.out.println("REGRESSION " + name(b.example) + ": " + b.cycles + " -> " + r.cycles + " cycles");
+                regressions++;
+            }
+            else if (r.cycles < b.cycles) {
+                System.out.println("improved " + name(b.example) + ": " + b.cycles + " -> " + r.cycles + " cycles");
+            }
+        }
+        return regressions;
+    }
+
+    static List<Result> load(final String path) throws IOException {
+        try (Reader r = new FileReader(path)) {
+            return new Gson().fromJson(r, new TypeToken<List<Result>>() { }.getType());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if ((args.length > 0) && args[0].equals("--worker")) {
+            work(Integer.parseInt(args[1]), Float.parseFloat(args[2]));
+            System.exit(0);
+        }
+
+        final NALRunner n = new NALRunner();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-j": n.workers = Integer.parseInt(args[++i]); break;
+                case "-c": n.maxCycles = Integer.parseInt(args[++i]); break;
+                case "-t": n.tolerance = Float.parseFloat(args[++i]); break;
+                case "-timeout": n.timeoutSeconds = Integer.parseInt(args[++i]); break;
+                case "-o": n.output = args[++i]; break;
+                case "-b": n.baseline = args[++i]; break;
+                case "-v": n.verbose = true; break;
+                default: n.examples.add(args[i]);
+            }
+        }
+        final Map<String, Result> results = n.run();
+
+        boolean failed = false;
+        if (n.baseline != null) {
+            failed = compare(results, load(n.baseline)) > 0;
+        }
+        else {
+            for (final Result r : results.values())
+                if (!r.passed) failed = true;
+        }
+        System.exit(failed ? 1 : 0);
+    }
+}
@@ -65,6 +65,14 @@ public abstract class OutputCondition<O> extends Output {
             
     /** reads an example file line-by-line, before being processed, to extract expectations */
     public static List<OutputCondition> getConditions(NAR n, String example, int similarResultsToSave)  {
+        return getConditions(n, example, similarResultsToSave, -1);
+    }
+
+    /**
+     * @param truthTolerance if not negative, expected outputs which parse as sentences
+     * are matched by OutputMatchCondition, with this truth tolerance, instead of as text
+     */
+    public static List<OutputCondition> getConditions(NAR n, String example, int similarResultsToSave, float truthTolerance)  {
         List<OutputCondition> conditions = new ArrayList();
         String[] lines = example.split("\n");
         
@@ -86,7 +94,8 @@ public abstract class OutputCondition<O> extends Output {
                     expects.add(new ExpectContains(n, e, saveSimilar));
                 } */
                 
-                conditions.add(new OutputContainsCondition(n, e, similarResultsToSave));
+                OutputCondition c = (truthTolerance >= 0) ? OutputMatchCondition.get(n, e, truthTolerance) : null;
+                conditions.add((c != null) ? c : new OutputContainsCondition(n, e, similarResultsToSave));
 
             }     
             
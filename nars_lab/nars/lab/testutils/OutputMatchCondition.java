@@ -0,0 +1,159 @@
+/*
+ * Here comes the text of your license
+ * Each line should be prefixed with  *
+ */
+package nars.lab.testutils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import nars.NAR;
+import nars.entity.Sentence;
+import nars.entity.Task;
+import nars.io.Narsese;
+import nars.io.Symbols;
+import nars.language.Term;
+import nars.operator.Operator.ExecutionResult;
+
+/**
+ * OutputCondition that watches for an output sentence with the expected term
+ * and punctuation, and tense and truth when given, comparing the parsed term
+ * instead of the text, and the truth within a tolerance.
+ * <p>
+ * Unlike OutputContainsCondition nothing is formatted or compared as text
+ * while running: the closest output, by truth, with the right term is all
+ * that is kept for the failure reason.
+ */
+public class OutputMatchCondition extends OutputCondition<Task> {
+
+    /** term, punctuation, optional tense, optional frequency and confidence */
+    static final Pattern expectation = Pattern.compile(
+            "^(.+)([.?!@])(?:\\s+:([|/\\\\]):)?(?:\\s+%([0-9.]+)(?:;([0-9.]+))?%?)?\\s*$");
+
+    public final String expected;
+    public final Term term;
+    public final char punctuation;
+
+    /** the expected tense mark, or null for any if there is no truth either, otherwise for eternal */
+    public final String tense;
+
+    /** NaN when not given */
+    public final float frequency, confidence;
+
+    public final float tolerance;
+
+    public final List<Task> exact = new ArrayList();
+
+    /** the output with the expected term and punctuation whose truth was closest */
+    Sentence nearest = null;
+    float nearestDistance = Float.POSITIVE_INFINITY;
+
+    OutputMatchCondition(final NAR nar, final String expected, final Term term, final char punctuation, final String tense, final float frequency, final float confidence, final float tolerance) {
+        super(nar);
+        this.expected = expected;
+        this.term = term;
+        this.punctuation = punctuation;
+        this.tense = tense;
+        this.frequency = frequency;
+        this.confidence = confidence;
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * @return the condition, or null if the expectation can not be parsed as a sentence,
+     * to be matched as text instead
+     */
+    public static OutputMatchCondition get(final NAR nar, final String expected, final float tolerance) {
+        final Matcher m = expectation.matcher(expected.trim());
+        if (!m.matches())
+            return null;
+        final Term t;
+        try {
+            t = new Narsese(nar).parseTerm(m.group(1).trim());
+        } catch (Narsese.InvalidInputException | RuntimeException e) {
+            return null;
+        }
+        if (t == null)
+            return null;
+        final String tense = (m.group(3) != null) ? (':' + m.group(3) + ':') :
+                (m.group(4) != null) ? "" : null;
+        return new OutputMatchCondition(nar, expected, t, m.group(2).charAt(0), tense,
+                number(m.group(4)), number(m.group(5)), tolerance);
+    }
+
+    static float number(final String s) {
+        if (s == null)
+            return Float.NaN;
+        try {
+            return Float.parseFloat(s);
+        } catch (NumberFormatException e) {
+            return Float.NaN;
+        }
+    }
+
+    @Override
+    public boolean condition(final Class channel, final Object signal) {
+        final Task t;
+        if (signal instanceof Task)
+            t = (Task) signal;
+        else if (signal instanceof ExecutionResult)
+            t = ((ExecutionResult) signal).getTask();
+        else
+            return false;
+        if ((t == null) || (t.sentence == null))
+            return false;
+
+        final Sentence s = t.sentence;
+        if ((s.punctuation != punctuation) || !s.term.equals(term) || !tenseMatches(s))
+            return false;
+
+        final float d = truthDistance(s);
+        if (d <= tolerance) {
+            exact.add(t);
+            return true;
+        }
+        if (d < nearestDistance) {
+            nearestDistance = d;
+            nearest = s;
+        }
+        return false;
+    }
+
+    boolean tenseMatches(final Sentence s) {
+        if (tense == null)
+            return true;
+        if (s.isEternal())
+            return tense.isEmpty();
+        if (tense.isEmpty())
+            return false;
+        final long diff = s.stamp.getOccurrenceTime() - nar.time();
+        final String actual = (Math.abs(diff) < nar.param.duration.get()) ? Symbols.TENSE_PRESENT :
+                (diff > 0) ? Symbols.TENSE_FUTURE : Symbols.TENSE_PAST;
+        return actual.equals(tense);
+    }
+
+    /** the largest difference of the expected frequency and confidence, 0 when none is expected */
+    float truthDistance(final Sentence s) {
+        float d = 0;
+        if (!Float.isNaN(frequency))
+            d = (s.truth == null) ? Float.POSITIVE_INFINITY : Math.abs(s.truth.getFrequency() - frequency);
+        if (!Float.isNaN(confidence))
+            d = Math.max(d, (s.truth == null) ? Float.POSITIVE_INFINITY : Math.abs(s.truth.getConfidence() - confidence));
+        return d;
+    }
+
+    @Override
+    public String getFalseReason() {
+        String s = "FAIL: No match: " + expected;
+        if (nearest != null)
+            s += "\n\tnearest: " + nearest.toString(nar, false);
+        return s;
+    }
+
+    @Override
+    public List<Task> getTrueReasons() {
+        return exact;
+    }
+
+}
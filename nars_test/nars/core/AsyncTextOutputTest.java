@@ -0,0 +1,138 @@
+package nars.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.entity.Task;
+import nars.io.AsyncTextWriter.Backpressure;
+import nars.io.Output.ECHO;
+import nars.io.Output.ERR;
+import nars.io.Output.OUT;
+import nars.io.TextOutput;
+import nars.storage.Memory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Output written on the background thread should read like synchronous output
+ */
+public class AsyncTextOutputTest {
+
+    static final String example = "nal/test/nal1.3.nal";
+
+    static String runSync() {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        StringWriter out = new StringWriter();
+        new TextOutput(n, out);
+        n.addInput(NALTest.getExample(example));
+        n.run(300);
+        return out.toString();
+    }
+
+    @Test
+    public void testBlockingIsComplete() {
+        String expected = runSync();
+
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TextOutput o = new TextOutput(n).setAsync(out, Backpressure.BLOCK);
+        n.addInput(NALTest.getExample(example));
+        n.run(300);
+        o.stop();
+
+        assertTrue(expected.length() > 0);
+        assertNull(o.getAsync());
+        assertEquals(expected.replace("\r", ""), out.toString().replace("\r", ""));
+    }
+
+    @Test
+    public void testDropIsReported() {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        //a writer which is always behind, so that the queue of 2 fills up
+        TextOutput o = new TextOutput(n).setAsync(new WritableByteChannel() {
+            final WritableByteChannel c = Channels.newChannel(out);
+            @Override public int write(ByteBuffer b) throws IOException {
+                try { Thread.sleep(5); } catch (InterruptedException e) { }
+                return c.write(b);
+            }
+            @Override public boolean isOpen() { return true; }
+            @Override public void close() { }
+        }, false, Backpressure.DROP, 2, 1);
+        n.addInput(NALTest.getExample(example));
+        n.run(300);
+        long dropped = o.getAsync().getDropped();
+        o.stop();
+
+        assertTrue(dropped > 0);
+        assertTrue(out.toString().contains("output signals dropped"));
+    }
+
+    @Test
+    public void testTaskIsWrittenAsOffered() throws Exception {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CountDownLatch writing = new CountDownLatch(1), release = new CountDownLatch(1);
+        //a writer held in its first write, so that the task is formatted after it was revised
+        TextOutput o = new TextOutput(n).setAsync(new WritableByteChannel() {
+            final WritableByteChannel c = Channels.newChannel(out);
+            @Override public int write(ByteBuffer b) throws IOException {
+                writing.countDown();
+                try { release.await(); } catch (InterruptedException e) { }
+                return c.write(b);
+            }
+            @Override public boolean isOpen() { return true; }
+            @Override public void close() { }
+        }, false, Backpressure.BLOCK, 16, 1);
+
+        n.emit(ECHO.class, "first");
+        writing.await();
+        Task t = n.narsese.parseTask("<a --> b>. %1.00;0.90%");
+        n.emit(OUT.class, t);
+        t.sentence.truth.set(0.5f, 0.5f);
+        release.countDown();
+        o.stop();
+
+        assertTrue(out.toString(), out.toString().contains("<a --> b>. %1.00;0.90%"));
+        assertFalse(out.toString(), out.toString().contains("%0.50;0.50%"));
+    }
+
+    @Test
+    public void testWriteFailureIsReported() {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        List<Object> errors = new ArrayList();
+        n.memory.event.on(ERR.class, (event, args) -> errors.add(args[0]));
+        TextOutput o = new TextOutput(n).setAsync(new WritableByteChannel() {
+            @Override public int write(ByteBuffer b) throws IOException {
+                throw new IOException("disk full");
+            }
+            @Override public boolean isOpen() { return true; }
+            @Override public void close() { }
+        }, false, Backpressure.BLOCK, 16, 1);
+
+        n.emit(ECHO.class, "lost");
+        o.getAsync().flush();
+        //reported with the next signal, on this thread
+        n.emit(ECHO.class, "next");
+        assertEquals(errors.toString(), 1, errors.size());
+        assertTrue(errors.get(0).toString().contains("disk full"));
+        o.stop();
+    }
+
+}
@@ -0,0 +1,81 @@
+package nars.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.entity.BeliefTable;
+import nars.entity.Concept;
+import nars.entity.Task;
+import nars.io.Narsese;
+import nars.storage.Memory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+
+/**
+ * A BeliefTable should keep the same entries in the same order as ranking a
+ * plain list on every insert, and find the same closest temporal belief as a
+ * scan of the table
+ */
+public class BeliefTableTest {
+
+    /** the closest temporal entry, the first in order of equally close ones */
+    static Task scanNearest(List<Task> table, long time) {
+        Task best = null;
+        long distance = Long.MAX_VALUE;
+        for (Task t : table) {
+            if (!t.sentence.isEternal()) {
+                long d = Math.abs(time - t.sentence.getOccurenceTime());
+                if (d < distance) {
+                    distance = d;
+                    best = t;
+                }
+            }
+        }
+        return best;
+    }
+
+    @Test
+    public void testSameAsList() throws Narsese.InvalidInputException {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        Narsese p = new Narsese(n);
+        Random rng = new Random(1);
+
+        for (boolean expectation : new boolean[] { false, true }) {
+            for (int round = 0; round < 20; round++) {
+                BeliefTable table = new BeliefTable(expectation);
+                List<Task> list = new ArrayList();
+                int capacity = 1 + rng.nextInt(28);
+                for (int i = 0; i < 300; i++) {
+                    //few terms and coarse truth values, for many equal ranks and equivalent entries
+                    boolean temporal = rng.nextBoolean();
+                    Task t = p.parseTask("<a" + rng.nextInt(4) + " --> b>. " + (temporal ? ":|: " : "")
+                            + "%" + (rng.nextInt(5) / 4.0f) + ";" + (0.1f + rng.nextInt(8) / 10.0f) + "%");
+                    if (temporal)
+                        t.sentence.stamp.setOccurrenceTime(rng.nextInt(50));
+
+                    Task removedFromList = Concept.addToTable(t, list, capacity, expectation);
+                    Task removedFromTable = table.insert(t, capacity);
+                    assertSame(removedFromList, removedFromTable);
+                    assertEquals(list, table);
+                    for (int j = 0; j < list.size(); j++)
+                        assertSame(list.get(j), table.get(j));
+
+                    long time = rng.nextInt(60) - 5;
+                    assertSame(scanNearest(list, time), table.nearestTemporal(time));
+                }
+
+                while (!table.isEmpty()) {
+                    int j = rng.nextInt(table.size());
+                    assertSame(list.remove(j), table.remove(j));
+                    long time = rng.nextInt(60) - 5;
+                    assertSame(scanNearest(list, time), table.nearestTemporal(time));
+                }
+            }
+        }
+    }
+
+}
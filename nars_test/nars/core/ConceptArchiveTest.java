@@ -0,0 +1,111 @@
+package nars.core;
+
+import java.io.File;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.entity.BudgetValue;
+import nars.entity.Concept;
+import nars.io.Narsese;
+import nars.language.Term;
+import nars.plugin.misc.ConceptArchive;
+import nars.storage.Memory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * A concept displaced from the concept bag should come back with its beliefs
+ * when its term is conceptualized again, while the archive holds no more than
+ * its capacity and its file shrinks when compacted
+ */
+public class ConceptArchiveTest {
+
+    static Term term(NAR n, String term) throws Exception {
+        return new Narsese(n).parseTerm(term).conceptKey();
+    }
+
+    static Concept forget(NAR n, String term) throws Exception {
+        Concept c = n.concept(term);
+        assertNotNull(term, c);
+        assertSame(c, n.memory.concepts.take(c.term));
+        n.memory.conceptRemoved(c);
+        return c;
+    }
+
+    @Test
+    public void testRestore() throws Exception {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        File file = File.createTempFile("concepts", "");
+        ConceptArchive archive = new ConceptArchive(file.getPath(), 100);
+        n.addPlugin(archive);
+        assertSame(archive, n.memory.archive);
+
+        n.addInput("<a --> b>. %0.9;0.8%\n<a --> c>?");
+        n.run(10);
+        Concept before = forget(n, "<a --> b>");
+        forget(n, "<a --> c>");
+        assertEquals(1, archive.size());
+        assertEquals(1, archive.getSkipped());
+        assertNull(n.memory.concept(before.term));
+
+        Concept after = n.memory.conceptualize(new BudgetValue(0.5f, 0.5f, 0.5f), before.term);
+        assertNotNull(after);
+        assertSame(before.term, after.term);
+        assertEquals(before.beliefs.size(), after.beliefs.size());
+        assertEquals(before.beliefs.get(0).sentence.truth, after.beliefs.get(0).sentence.truth);
+        assertEquals(before.termLinks.size(), after.termLinks.size());
+        assertEquals(1, archive.getHits());
+        assertEquals(0, archive.size());
+
+        //asked again: it is remembered by the new concept
+        n.addInput("<a --> b>?");
+        n.run(5);
+        assertSame(after, n.concept("<a --> b>"));
+        assertTrue(archive.getMisses() > 0);
+
+        n.reset();
+        assertEquals(0, archive.size());
+        n.removePlugin(n.getPlugins().get(n.getPlugins().size() - 1));
+        assertNull(n.memory.archive);
+        assertFalse(new File(file.getPath() + ".0").exists());
+    }
+
+    @Test
+    public void testCapacityAndCompaction() throws Exception {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        File file = File.createTempFile("concepts", "");
+        ConceptArchive archive = new ConceptArchive(file.getPath(), 10);
+        n.addPlugin(archive);
+
+        for (int i = 0; i < 20; i++)
+            n.addInput("<x" + i + " --> y>.");
+        n.run(25);
+        for (int i = 0; i < 20; i++)
+            forget(n, "<x" + i + " --> y>");
+        assertEquals(10, archive.size());
+        assertEquals(10, archive.getDropped());
+        assertFalse(archive.contains(term(n, "<x0 --> y>")));
+        assertTrue(archive.contains(term(n, "<x19 --> y>")));
+
+        long bytes = archive.getFileBytes();
+        assertTrue(archive.getLiveBytes() < bytes);
+        archive.compact();
+        assertEquals(1, archive.getCompactions());
+        assertEquals(archive.getLiveBytes(), archive.getFileBytes());
+        assertTrue(archive.getFileBytes() < bytes);
+
+        for (int i = 10; i < 20; i++) {
+            Concept c = n.memory.conceptualize(new BudgetValue(0.5f, 0.5f, 0.5f), term(n, "<x" + i + " --> y>"));
+            assertEquals(1, c.beliefs.size());
+        }
+        assertEquals(10, archive.getHits());
+        assertEquals(0, archive.size());
+        n.removePlugin(n.getPlugins().get(n.getPlugins().size() - 1));
+    }
+}
@@ -0,0 +1,75 @@
+package nars.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.control.DerivationRejections;
+import nars.control.DerivationRejections.Reason;
+import nars.control.DerivationRejections.Stage;
+import nars.storage.Memory;
+import nars.util.Events;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Conclusions with overlapping evidence should be rejected on their stamp,
+ * before their Sentence is built, and counted by stage and reason until the
+ * memory is reset
+ */
+public class DerivationRejectionsTest {
+
+    @Test
+    public void testCounts() {
+        DerivationRejections r = new DerivationRejections();
+        r.reject(Stage.PREMISES, Reason.CONFIDENCE);
+        r.reject(Stage.STAMP, Reason.OVERLAP);
+        r.reject(Stage.STAMP, Reason.OVERLAP);
+        r.reject(Stage.TASK, Reason.FILTER);
+        assertEquals(2, r.get(Stage.STAMP, Reason.OVERLAP));
+        assertEquals(2, r.get(Stage.STAMP));
+        assertEquals(1, r.get(Stage.TASK));
+        assertEquals("{PREMISES CONFIDENCE=1, STAMP OVERLAP=2, TASK FILTER=1}", r.getCounts().toString());
+        r.clear();
+        assertTrue(r.getCounts().isEmpty());
+    }
+
+    /** the conclusions derived from the example, with TaskRemove observed or not */
+    static List<String> derive(final NAR n, final boolean observeRemovals, final List<String> removed) {
+        List<String> derived = new ArrayList();
+        n.memory.event.on(Events.TaskDerive.class, (event, args) -> derived.add(args[0].toString()));
+        if (observeRemovals)
+            n.memory.event.on(Events.TaskRemove.class, (event, args) -> removed.add((String) args[1]));
+        n.addInput(NALTest.getExample("nal/test/nal6.1.nal"));
+        n.run(300);
+        return derived;
+    }
+
+    @Test
+    public void testExample() {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        List<String> derived = derive(n, false, null);
+        assertFalse(derived.isEmpty());
+        DerivationRejections r = n.memory.rejectedDerivations;
+        assertTrue(r.get(Stage.STAMP, Reason.OVERLAP) > 0);
+        assertTrue(r.get(Stage.STAMP, Reason.RECENT) > 0);
+        assertTrue(r.get(Stage.STAMP, Reason.OVERLAP) > r.get(Stage.TASK, Reason.OVERLAP));
+
+        n.reset();
+        assertTrue(r.getCounts().isEmpty());
+
+        //observed, every rejected Task is built and removed as before, deriving the same
+        Memory.resetStatic();
+        NAR o = new NAR(new Plugins());
+        List<String> removed = new ArrayList();
+        assertEquals(derived, derive(o, true, removed));
+        DerivationRejections ro = o.memory.rejectedDerivations;
+        assertEquals(0, ro.get(Stage.STAMP, Reason.OVERLAP));
+        assertTrue(ro.get(Stage.TASK, Reason.OVERLAP) > 0);
+        assertEquals(ro.get(Stage.TASK, Reason.OVERLAP), Collections.frequency(removed, Reason.OVERLAP.text));
+    }
+}
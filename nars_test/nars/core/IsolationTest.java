@@ -0,0 +1,75 @@
+package nars.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.io.TextOutput;
+import nars.storage.Memory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * NARs running at the same time on separate threads should not affect each
+ * other: each should output exactly what it outputs running alone
+ */
+public class IsolationTest {
+
+    static final String[] examples = {
+        "nal/test/nal1.3.nal", "nal/test/nal2.5.nal", "nal/test/nal3.3.nal", "nal/test/nal4.4.nal",
+        "nal/test/nal5.18.nal", "nal/test/nal6.1.nal", "nal/test/nal6.uncle.nal", "nal/test/nal7.1.nal",
+        "nal/test/nal7.5.nal", "nal/test/nal8.1.3.nal", "nal/test/nal8.5.4.nal", "nal/test/nal.anticipation.nal",
+        "nal/test/nal9.1.nal", "nal/test/nal6.can_of_worms.nal", "nal/test/nal5.29.nal", "nal/test/nal2.18.nal"
+    };
+    static final int cycles = 300;
+
+    static String run(final String input) {
+        final StringBuilder out = new StringBuilder();
+        NAR n = new NAR(new Plugins());
+        new TextOutput(n, s -> out.append(s).append('\n'));
+        n.addInput(input);
+        n.run(cycles);
+        return out.toString();
+    }
+
+    @Test
+    public void testConcurrentNARs() throws Exception {
+        Memory.resetStatic();
+        final List<String> inputs = new ArrayList();
+        for (String e : examples)
+            inputs.add(NALTest.getExample(e));
+
+        //off the junit thread too, since Memory checks for it on the stack
+        final ExecutorService single = Executors.newSingleThreadExecutor();
+        final List<String> alone = new ArrayList();
+        try {
+            for (final String input : inputs)
+                alone.add(single.submit((Callable<String>) () -> run(input)).get());
+        } finally {
+            single.shutdown();
+        }
+
+        final int copies = 2;
+        final ExecutorService threads = Executors.newFixedThreadPool(examples.length * copies);
+        try {
+            final List<Future<String>> together = new ArrayList();
+            for (int c = 0; c < copies; c++)
+                for (final String input : inputs)
+                    together.add(threads.submit((Callable<String>) () -> run(input)));
+
+            for (int i = 0; i < together.size(); i++) {
+                String output = together.get(i).get();
+                int e = i % examples.length;
+                assertTrue(examples[e], output.length() > 0);
+                assertEquals(examples[e], alone.get(e), output);
+            }
+        } finally {
+            threads.shutdown();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package nars.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.TreeSet;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.entity.Concept;
+import nars.entity.Task;
+import nars.entity.TaskLink;
+import nars.entity.TermLink;
+import nars.storage.Memory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * A memory saved and loaded into another NAR should hold the same concepts,
+ * tasks and links, and the restored NAR should be able to continue reasoning
+ */
+public class MemorySnapshotTest {
+
+    /** one line per concept, belief, desire, question and link */
+    static Set<String> contents(NAR n) {
+        Set<String> s = new TreeSet();
+        for (Concept c : n.memory) {
+            String k = c.term.toString();
+            s.add(k + " " + c.budget.toStringExternal());
+            for (Task t : c.beliefs) s.add(k + " belief " + t.sentence.toString(n, true) + " " + t.isInput());
+            for (Task t : c.desires) s.add(k + " desire " + t.sentence.toString(n, true));
+            for (Task t : c.questions) s.add(k + " question " + t.sentence.toString(n, true));
+            for (TermLink l : c.termLinks) s.add(k + " termlink " + l + " " + l.type);
+            for (TaskLink l : c.taskLinks) s.add(k + " tasklink " + l.targetTask.sentence.toString(n, true) + " " + l.budget.toStringExternal());
+        }
+        for (Task t : n.memory.novelTasks) s.add("novel " + t.sentence.toString(n, true));
+        for (Task t : n.memory.sequenceTasks) s.add("sequence " + t.sentence.toString(n, true));
+        return s;
+    }
+
+    @Test
+    public void testSaveLoad() throws IOException {
+        Memory.resetStatic();
+        NAR a = new NAR(new Plugins());
+        a.param.noiseLevel.set(42);
+        a.addInput(NALTest.getExample("nal/test/nal6.22.nal"));
+        a.run(200);
+
+        Path file = File.createTempFile("memory", ".nars").toPath();
+        try {
+            a.save(file);
+
+            NAR b = new NAR(new Plugins());
+            b.load(file);
+
+            assertTrue(a.memory.concepts.size() > 0);
+            assertEquals(a.time(), b.time());
+            assertEquals(42, b.param.noiseLevel.get());
+            assertEquals(a.memory.concepts.size(), b.memory.concepts.size());
+            assertEquals(contents(a), contents(b));
+            assertEquals(a.memory.newStampSerial(), b.memory.newStampSerial());
+
+            b.run(50);
+            assertTrue(b.time() >= a.time() + 50);
+        }
+        finally {
+            file.toFile().delete();
+        }
+    }
+
+}
@@ -0,0 +1,96 @@
+package nars.core;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.util.Scanner;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import nars.NAR;
+import nars.NAR.PluginState;
+import nars.config.Plugins;
+import nars.plugin.misc.Metrics;
+import nars.plugin.misc.Metrics.Phase;
+import nars.storage.Memory;
+import nars.util.EventEmitter;
+import nars.util.Events;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * The Metrics plugin should time every phase of every cycle, count the
+ * derivations and the tasks added and removed, and publish them over JMX and
+ * HTTP, until it is disabled
+ */
+public class MetricsTest {
+
+    @Test
+    public void testMetrics() throws Exception {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        Metrics metrics = new Metrics();
+        n.addPlugin(metrics);
+        assertSame(metrics, n.memory.metrics);
+        //removals are counted directly, so conclusions are still rejected before they are built
+        assertFalse(n.memory.emitting(EventEmitter.id(Events.TaskRemove.class)));
+
+        n.addInput(NALTest.getExample("nal/test/nal6.1.nal"));
+        n.run(250);
+
+        assertEquals(250, metrics.getCycles());
+        for (Phase p : Phase.values())
+            assertEquals(p.name(), 250, metrics.getPhase(p).getCount());
+        assertTrue(metrics.getPhase(Phase.CYCLE).getSum() >= metrics.getPhase(Phase.FIRE).getSum());
+        assertTrue(metrics.getPhaseP99Micros().get("CYCLE") > 0);
+
+        assertTrue(metrics.getDerivations().keySet().toString(), metrics.getDerivations().get("COMPOUND_STATEMENT_COMPOUND_STATEMENT") > 0);
+        assertTrue(metrics.getTasksAdded().get("Derived") > 0);
+        assertTrue(metrics.getTasksRemoved().size() > 0);
+        assertFalse(metrics.getTaskAddRates().isEmpty());
+        assertTrue(metrics.getBagSizes().get("concepts") > 0);
+
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = metrics.getObjectName();
+        assertEquals(250L, mbs.getAttribute(name, "Cycles"));
+
+        int port = metrics.serve(0).getAddress().getPort();
+        String scrape;
+        try (InputStream in = new URL("http://localhost:" + port + "/metrics").openStream()) {
+            scrape = new Scanner(in, "UTF-8").useDelimiter("\\A").next();
+        }
+        assertTrue(scrape, scrape.contains("nars_cycles_total 250\n"));
+        assertTrue(scrape, scrape.contains("nars_phase_seconds_count{phase=\"fire\"} 250\n"));
+        assertTrue(scrape, scrape.contains("nars_tasks_added_total{reason=\"Derived\"}"));
+
+        for (PluginState ps : n.getPlugins())
+            if (ps.plugin == metrics)
+                n.removePlugin(ps);
+        assertNull(n.memory.metrics);
+        assertFalse(mbs.isRegistered(name));
+
+        n.run(10);
+        assertEquals(250, metrics.getCycles());
+    }
+
+    @Test
+    public void testConcurrentMax() throws InterruptedException {
+        Metrics.Histogram h = new Metrics.Histogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int offset = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100000; i++)
+                    h.record(i * threads.length + offset);
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads)
+            t.join();
+        assertEquals(400000, h.getCount());
+        assertEquals(399999, h.getMax());
+    }
+}
@@ -0,0 +1,51 @@
+package nars.core;
+
+import nars.NAR;
+import nars.config.Plugins;
+import nars.lab.testutils.NALRunner;
+import nars.lab.testutils.OutputMatchCondition;
+import nars.storage.Memory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Expected outputs should match on the term and truth rather than the text,
+ * and the runner should report the cycle the last one was met at
+ */
+public class NALRunnerTest {
+
+    @Test
+    public void testMatch() {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        OutputMatchCondition exact = OutputMatchCondition.get(n, "<bird --> animal>. %1.00;0.81%", 0.005f);
+        OutputMatchCondition tolerant = OutputMatchCondition.get(n, "<bird --> animal>. %1.00;0.80%", 0.02f);
+        OutputMatchCondition wrong = OutputMatchCondition.get(n, "<bird --> animal>. %0.00;0.81%", 0.02f);
+        OutputMatchCondition tensed = OutputMatchCondition.get(n, "<bird --> animal>. :|: %1.00;0.81%", 0.02f);
+        assertNotNull(exact);
+        assertEquals(":|:", tensed.tense);
+        assertNull(OutputMatchCondition.get(n, "not a sentence", 0.01f));
+
+        n.addInput("<bird --> swimmer>.\n<swimmer --> animal>.\n<bird --> animal>?");
+        n.run(100);
+        assertTrue(exact.isTrue());
+        assertTrue(tolerant.isTrue());
+        assertFalse(wrong.isTrue());
+        assertFalse(tensed.isTrue());
+        assertTrue(wrong.getFalseReason().contains("nearest"));
+    }
+
+    @Test
+    public void testRun() {
+        NALRunner.Result r = NALRunner.run("nal/test/nal1.1.nal", 1550, 0.01f);
+        assertNull(r.error);
+        assertTrue(r.passed);
+        assertTrue(r.cycles > 0);
+        assertTrue(r.ran < 1550);
+        assertTrue(r.expectations.get(0).passed);
+    }
+}
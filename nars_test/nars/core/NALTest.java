@@ -30,7 +30,6 @@ public class NALTest  {
         
 
     static {
-        Memory.randomNumber.setSeed(1);
         Parameters.DEBUG = true;
     }
 
@@ -0,0 +1,156 @@
+package nars.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import nars.NAR;
+import nars.storage.Memory;
+import nars.web.HTTPServer;
+import nars.web.HTTPServer.Response;
+import nars.web.NARPool;
+import nars.web.NIOHTTPServer;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * The pool should run its sessions on its workers, send their output in
+ * batches, refuse sessions beyond its size and reuse the NARs of closed
+ * sessions; the NIO server should keep connections alive within its limits
+ */
+public class NARPoolTest {
+
+    @Test
+    public void testPool() throws Exception {
+        Memory.resetStatic();
+        NARPool pool = new NARPool(2, 2, 10, 1);
+        final List<String> a = Collections.synchronizedList(new ArrayList());
+        final List<String> b = Collections.synchronizedList(new ArrayList());
+
+        NARPool.Session sa = pool.open(a::add);
+        NARPool.Session sb = pool.open(b::add);
+        assertNotNull(sb);
+        assertNull(pool.open(s -> { }));
+        assertNotSame(sa.getNAR(), sb.getNAR());
+
+        sa.read("<a --> b>.\n<b --> c>.\n<a --> c>?");
+        sb.read("<x --> y>.");
+        long start = System.currentTimeMillis();
+        while (!a.toString().contains("OUT: <a --> c>.") && (System.currentTimeMillis() - start < 10000))
+            Thread.sleep(10);
+        assertTrue(a.toString(), a.toString().contains("OUT: <a --> c>."));
+        assertTrue(a.toString(), a.get(0).contains("\n"));
+        assertTrue(b.toString(), b.toString().contains("<x --> y>"));
+        assertTrue(sa.getNAR().time() > 0);
+
+        NAR reused = sa.getNAR();
+        sa.close();
+        while (pool.getSessions() > 1)
+            Thread.sleep(1);
+        NARPool.Session sc = pool.open(s -> { });
+        assertSame(reused, sc.getNAR());
+        assertEquals(0, reused.time());
+
+        //a client failing to take its output ends its session
+        sc.close();
+        while (pool.getSessions() > 1)
+            Thread.sleep(1);
+        NARPool.Session failing = pool.open(lines -> { throw new IllegalStateException("gone"); });
+        failing.read("<a --> b>.");
+        start = System.currentTimeMillis();
+        while (!failing.isClosed() && (System.currentTimeMillis() - start < 10000))
+            Thread.sleep(10);
+        assertTrue(failing.isClosed());
+        pool.shutdown();
+    }
+
+    @Test
+    public void testKeepAlive() throws Exception {
+        NIOHTTPServer server = new NIOHTTPServer(0) {
+            @Override
+            public Response serve(String uri, String method, Properties header, Properties parms) {
+                if (uri.equals("/stream"))
+                    return new Response(HTTPServer.HTTP_OK, HTTPServer.MIME_PLAINTEXT, new InputStream() {
+                        final ByteArrayInputStream in = new ByteArrayInputStream("streamed".getBytes());
+                        @Override public int read() { return in.read(); }
+                    });
+                return new Response(HTTPServer.HTTP_OK, HTTPServer.MIME_PLAINTEXT, uri + " " + parms);
+            }
+        };
+        server.maxRequestsPerConnection = 3;
+        server.maxRequestBytes = 256;
+        server.maxConnectionsPerAddress = 1;
+
+        try (Socket s = new Socket("localhost", server.getPort())) {
+            OutputStream out = s.getOutputStream();
+            //two requests at once, then the last the connection may serve
+            out.write("GET /a%20b?x=1 HTTP/1.1\r\nHost: x\r\n\r\nGET /stream HTTP/1.1\r\n\r\n".getBytes());
+            out.flush();
+            String r = read(s, "0\r\n\r\n");
+            assertTrue(r, r.startsWith("HTTP/1.1 200 OK"));
+            assertTrue(r, r.contains("Content-Length: 10\r\nConnection: keep-alive\r\n\r\n/a b {x=1}"));
+            assertTrue(r, r.contains("Transfer-Encoding: chunked\r\nConnection: keep-alive\r\n\r\n8\r\nstreamed\r\n0\r\n\r\n"));
+
+            //the address has its one connection open
+            try (Socket refused = new Socket("localhost", server.getPort())) {
+                assertTrue(read(refused, null).startsWith("HTTP/1.1 503"));
+            }
+
+            out.write("GET /c HTTP/1.1\r\n\r\n".getBytes());
+            r = read(s, null);
+            assertTrue(r, r.contains("Connection: close\r\n\r\n/c {}"));
+        }
+
+        StringBuilder big = new StringBuilder("GET / HTTP/1.1\r\n");
+        while (big.length() < 300)
+            big.append("X: y\r\n");
+        assertTrue(request(server, big.toString()).startsWith("HTTP/1.1 413"));
+        assertTrue(request(server, "POST /p HTTP/1.1\r\nContent-Length: -3\r\n\r\nabc").startsWith("HTTP/1.1 400"));
+        assertTrue(request(server, "POST /p HTTP/1.1\r\nContent-Length: 2147483647\r\n\r\nabc").startsWith("HTTP/1.1 413"));
+        //still serving
+        assertTrue(request(server, "GET /d HTTP/1.1\r\nConnection: close\r\n\r\n").endsWith("/d {}"));
+        server.close();
+    }
+
+    /** the response to a request on a new connection, once the last one is closed on the server */
+    private static String request(NIOHTTPServer server, String request) throws Exception {
+        for (int i = 0; ; i++) {
+            try (Socket s = new Socket("localhost", server.getPort())) {
+                s.getOutputStream().write(request.getBytes());
+                String r = read(s, null);
+                if (!r.startsWith("HTTP/1.1 503") || (i == 100))
+                    return r;
+            } catch (SocketException e) {
+                //refused with 503 before the request was read
+                if (i == 100)
+                    throw e;
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    /** reads until the end of the stream, or the text ends with end */
+    private static String read(Socket s, String end) throws Exception {
+        s.setSoTimeout(5000);
+        InputStream in = s.getInputStream();
+        StringBuilder r = new StringBuilder();
+        int c;
+        while ((c = in.read()) >= 0) {
+            r.append((char) c);
+            if ((end != null) && r.toString().endsWith(end))
+                break;
+        }
+        return r.toString();
+    }
+}
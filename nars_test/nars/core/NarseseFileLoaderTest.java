@@ -0,0 +1,100 @@
+package nars.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.entity.Concept;
+import nars.io.Narsese;
+import nars.io.NarseseFileLoader;
+import nars.io.NarseseFileLoader.ParseError;
+import nars.storage.Memory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * A file loaded in small chunks by several threads should yield its tasks in
+ * order, and its bad lines with their line numbers
+ */
+public class NarseseFileLoaderTest {
+
+    static final int count = 2000;
+    static final int badLine = 1503;
+
+    static Path write() throws IOException {
+        File f = File.createTempFile("loader", ".nal");
+        try (PrintWriter w = new PrintWriter(f)) {
+            w.println("//a comment");
+            for (int i = 2; i <= count; i++) {
+                if (i == badLine)
+                    w.println("<a --> b");
+                else if (i % 100 == 0)
+                    w.println("1");
+                else
+                    w.println("<a" + i + " --> b" + i + ">.");
+            }
+        }
+        return f.toPath();
+    }
+
+    @Test
+    public void testSeed() throws IOException {
+        Path file = write();
+        try {
+            Memory.resetStatic();
+            NAR n = new NAR(new Plugins());
+            NarseseFileLoader l = new NarseseFileLoader(n, file).setThreads(3).setChunkSize(1024).seed();
+
+            assertTrue(l.isFinished());
+            assertEquals(count, l.getLines());
+            assertEquals(1, l.getErrorCount());
+            ParseError e = l.getErrors().get(0);
+            assertEquals(badLine, e.line);
+            assertEquals("<a --> b", e.text);
+            //1 comment, 1 bad line and 20 step counts
+            assertEquals(count - 22, l.getTasks());
+
+            Concept c = n.memory.concept(new Narsese(n).parseTerm("<a1999 --> b1999>"));
+            assertNotNull(c);
+            assertEquals(1, c.beliefs.size());
+
+            //seeded concepts are linked, so they are not forgotten when selected
+            int seeded = n.memory.concepts.size();
+            n.run(200);
+            assertEquals(c, n.memory.concept(c.getTerm()));
+            assertTrue(n.memory.concepts.size() + " of " + seeded, n.memory.concepts.size() >= seeded);
+        }
+        catch (Narsese.InvalidInputException ex) {
+            throw new RuntimeException(ex);
+        }
+        finally {
+            file.toFile().delete();
+        }
+    }
+
+    @Test
+    public void testStart() throws IOException {
+        Path file = write();
+        try {
+            Memory.resetStatic();
+            NAR n = new NAR(new Plugins());
+            NarseseFileLoader l = new NarseseFileLoader(n, file).setThreads(2).setChunkSize(1024).setTasksPerCycle(50).start();
+            //cycles do not wait for the parser threads
+            long deadline = System.currentTimeMillis() + 30000;
+            while (!l.isFinished() && (System.currentTimeMillis() < deadline))
+                n.run(1);
+
+            assertTrue(l.isFinished());
+            assertEquals(count - 22, l.getTasks());
+            assertEquals(badLine, l.getErrors().get(0).line);
+        }
+        finally {
+            file.toFile().delete();
+        }
+    }
+
+}
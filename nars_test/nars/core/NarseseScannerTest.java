@@ -0,0 +1,104 @@
+package nars.core;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.entity.Task;
+import nars.io.Narsese;
+import nars.io.NarseseScanner;
+import nars.language.Term;
+import nars.storage.Memory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * NarseseScanner should parse every line of the nal/ examples to the same
+ * task as Narsese, or fail with the same exception, whether the term comes
+ * from its cache or not
+ */
+public class NarseseScannerTest {
+
+    static void corpus(final File dir, final List<String> lines) throws Exception {
+        final File[] files = dir.listFiles();
+        if (files == null)
+            return;
+        for (final File f : files) {
+            if (f.isDirectory())
+                corpus(f, lines);
+            else if (f.getName().endsWith(".nal") || f.getName().endsWith(".nars") || f.getName().endsWith(".txt"))
+                for (final String l : Files.readAllLines(f.toPath()))
+                    if (!l.trim().isEmpty())
+                        lines.add(l);
+        }
+    }
+
+    static String parse(final Narsese n, final String line) {
+        try {
+            final Task t = n.parseNarsese(new StringBuilder(line));
+            return (t == null) ? "null" : t.toStringLong() + " " + t.sentence.term.getClass().getSimpleName();
+        } catch (Exception e) {
+            return e.getClass().getName() + ": " + e.getMessage();
+        }
+    }
+
+    @Test
+    public void testCorpus() throws Exception {
+        final List<String> lines = new ArrayList();
+        corpus(new File("nal"), lines);
+        assertTrue(lines.size() > 1000);
+
+        Memory.resetStatic();
+        final Narsese narsese = new Narsese(new NAR(new Plugins()));
+        final NarseseScanner scanner = new NarseseScanner(new NAR(new Plugins()).memory, 1 << 16);
+        for (final String l : lines)
+            assertEquals(l, parse(narsese, l), parse(scanner, l));
+        final long hits = scanner.getHits();
+        for (final String l : lines)
+            assertEquals(l, parse(narsese, l), parse(scanner, l));
+        assertTrue(scanner.getHits() - hits > lines.size() / 3);
+    }
+
+    @Test
+    public void testCache() throws Exception {
+        Memory.resetStatic();
+        final NAR n = new NAR(new Plugins());
+        final NarseseScanner scanner = new NarseseScanner(n.memory, 2);
+        final Term t = scanner.parseTerm("<a --> b>");
+        assertSame(t, scanner.parseTask(" <a --> b>? ").sentence.term);
+        assertSame(t, scanner.parseTerm("  <a --> b>"));
+        assertEquals(2, scanner.getHits());
+
+        scanner.parseTerm("<a --> c>");
+        scanner.parseTerm("<a --> d>");
+        assertTrue(t != scanner.parseTerm("<a --> b>"));
+        assertEquals(4, scanner.getMisses());
+
+        //operators are looked up every time
+        scanner.parseTerm("(^want,SELF,x)");
+        scanner.parseTerm("(^want,SELF,x)");
+        assertEquals(6, scanner.getMisses());
+    }
+
+    @Test
+    public void testParseFloat() throws Exception {
+        final Narsese narsese = new Narsese(new NAR(new Plugins()));
+        final NarseseScanner scanner = new NarseseScanner(new NAR(new Plugins()).memory, 0);
+        for (int i = 0; i < 100000; i++) {
+            final String truth = (i / 10000) + "." + String.format("%04d", i % 10000);
+            assertEquals(truth, parse(narsese, "a. %" + truth + "%"), parse(scanner, "a. %" + truth + "%"));
+        }
+        final Random r = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            final String f = Integer.toString(r.nextInt(1000000000));
+            final int point = r.nextInt(f.length() + 1);
+            final String truth = f.substring(0, point) + "." + f.substring(point);
+            assertEquals(truth, parse(narsese, "$" + truth + "$ a?"), parse(scanner, "$" + truth + "$ a?"));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package nars.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.control.NewTaskBuffer;
+import nars.entity.Task;
+import nars.io.Narsese;
+import nars.storage.Memory;
+import nars.util.Events;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Unlimited, the new tasks should be processed in the order they were added;
+ * limited, highest priority first, as many per cycle as allowed, and the
+ * lowest shed when more wait than the capacity
+ */
+public class NewTaskBufferTest {
+
+    @Test
+    public void testUnlimited() throws Narsese.InvalidInputException {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        NewTaskBuffer b = n.memory.newTasks;
+        Task low = n.narsese.parseTask("$0.1$ <a --> b>.");
+        Task high = n.narsese.parseTask("$0.9$ <a --> c>.");
+        b.add(low);
+        b.add(high);
+
+        b.beginCycle();
+        assertSame(low, b.next());
+        b.add(n.narsese.parseTask("$0.5$ <a --> d>."));
+        assertSame(high, b.next());
+        assertNull(b.next());
+        b.endCycle();
+        assertEquals(1, b.size());
+        assertEquals(2, b.getProcessed());
+    }
+
+    @Test
+    public void testLimited() throws Narsese.InvalidInputException {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        List<Object> shed = new ArrayList();
+        n.memory.event.on(Events.TaskRemove.class, (event, args) -> {
+            if (args[1] == NewTaskBuffer.SHED)
+                shed.add(args[0]);
+        });
+        n.memory.param.newTaskCapacity.set(3);
+        n.memory.param.newTasksPerCycle.set(2);
+        NewTaskBuffer b = n.memory.newTasks;
+        Task[] t = new Task[5];
+        for (int i = 0; i < t.length; i++)
+            t[i] = n.narsese.parseTask("$0." + (i + 1) + "$ <a --> t" + i + ">.");
+
+        assertTrue(b.add(t[1]));
+        assertTrue(b.add(t[3]));
+        assertTrue(b.add(t[2]));
+        assertFalse(b.add(t[0]));
+        assertTrue(b.add(t[4]));
+        assertEquals(3, b.size());
+        assertEquals(2, b.getShed());
+        assertEquals(2, shed.size());
+        assertSame(t[0], shed.get(0));
+        assertSame(t[1], shed.get(1));
+        assertSame(t[4], b.iterator().next());
+
+        b.beginCycle();
+        assertSame(t[4], b.next());
+        b.add(t[1]);
+        assertSame(t[3], b.next());
+        assertNull(b.next());
+        b.endCycle();
+        assertEquals(2, b.size());
+
+        b.beginCycle();
+        assertSame(t[2], b.next());
+        assertSame(t[1], b.next());
+        b.endCycle();
+        assertEquals(0, b.size());
+        assertEquals(4, b.getProcessed());
+        assertTrue(b.getMaxCycleNanos() >= b.getLastCycleNanos());
+    }
+
+    @Test
+    public void testBurst() throws Narsese.InvalidInputException {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        n.memory.param.newTaskCapacity.set(8);
+        n.memory.param.newTasksPerCycle.set(2);
+        List<Object> processed = new ArrayList();
+        n.memory.event.on(Events.TaskImmediateProcess.class, (event, args) -> processed.add(args[0]));
+        for (int i = 0; i < 50; i++)
+            n.memory.inputTask(n.narsese.parseTask("$0." + (10 + i) + "$ <a --> t" + i + ">."), false);
+        assertEquals(8, n.memory.newTasks.size());
+        assertEquals(42, n.memory.newTasks.getShed());
+
+        long before = 0;
+        for (int i = 0; i < 10; i++) {
+            n.run(1);
+            assertTrue(n.memory.newTasks.size() <= 8);
+            assertTrue(n.memory.newTasks.getProcessed() - before <= 2);
+            before = n.memory.newTasks.getProcessed();
+        }
+        assertTrue(before >= 8);
+        assertEquals("<a --> t49>", ((Task) processed.get(0)).getTerm().toString());
+        assertEquals("<a --> t48>", ((Task) processed.get(1)).getTerm().toString());
+    }
+}
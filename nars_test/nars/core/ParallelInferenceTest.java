@@ -0,0 +1,95 @@
+package nars.core;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.control.DerivationContext;
+import nars.io.TextOutput;
+import nars.lab.testutils.OutputCondition;
+import nars.storage.Memory;
+import nars.util.Events;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Parallel concept firing should be reproducible regardless of thread
+ * scheduling, solve what sequential firing solves, and hold up under many
+ * threads and concepts per cycle
+ */
+public class ParallelInferenceTest {
+
+    static String run(int threads) {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        n.param.inferenceThreads.set(threads);
+        StringWriter out = new StringWriter();
+        new TextOutput(n, out);
+        n.addInput(NALTest.getExample("nal/test/nal1.3.nal"));
+        n.run(300);
+        return out.toString();
+    }
+
+    @Test
+    public void testReproducible() {
+        String a = run(4);
+        String b = run(4);
+        assertTrue(a.length() > 0);
+        assertEquals(a, b);
+    }
+
+    /** whether every condition of the example is met within the cycles */
+    static boolean solves(String example, int threads) {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        n.param.inferenceThreads.set(threads);
+        String input = NALTest.getExample("nal/test/" + example);
+        List<OutputCondition> conditions = OutputCondition.getConditions(n, input, 5);
+        n.addInput(input);
+        n.run(500);
+        for (OutputCondition c : conditions)
+            if (!c.succeeded)
+                return false;
+        return !conditions.isEmpty();
+    }
+
+    @Test
+    public void testSameSolutionsAsSequential() {
+        for (String example : new String[] { "nal1.3.nal", "nal2.4.nal", "nal3.5.nal", "nal4.2.nal", "nal5.6.nal", "nal6.1.nal" }) {
+            assertTrue(example, solves(example, 1));
+            assertTrue(example, solves(example, 4));
+        }
+    }
+
+    @Test
+    public void testStress() {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        n.param.inferenceThreads.set(8);
+        n.param.conceptsFiredPerCycle.set(64);
+        AtomicInteger cycles = new AtomicInteger();
+        List<String> stale = new ArrayList();
+        n.memory.event.on(Events.CycleEnd.class, (event, args) -> cycles.incrementAndGet());
+        //deferred to the cycle barrier, the events still carry the premises they were emitted with
+        n.memory.event.on(Events.TermLinkSelect.class, (event, args) -> {
+            DerivationContext nal = (DerivationContext) args[2];
+            if ((nal.getCurrentBeliefLink() != args[0]) || (nal.getCurrentConcept() != args[1]))
+                stale.add(args[0] + " " + nal.getCurrentBeliefLink());
+        });
+        n.memory.event.on(Events.BeliefReason.class, (event, args) -> {
+            DerivationContext nal = (DerivationContext) args[3];
+            if (nal.getCurrentBelief() != args[0])
+                stale.add(args[0] + " " + nal.getCurrentBelief());
+        });
+        for (String example : new String[] { "nal1.multistep.nal", "nal2.8.nal", "nal4.everyday_reasoning.nal", "nal6.12.nal" })
+            n.addInput(NALTest.getExample("nal/test/" + example));
+        n.run(1000);
+        assertEquals(n.time(), cycles.get());
+        assertTrue(n.memory.concepts.size() > 64);
+        assertTrue(stale.toString(), stale.isEmpty());
+    }
+
+}
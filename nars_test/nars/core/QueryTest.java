@@ -0,0 +1,122 @@
+package nars.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.entity.Concept;
+import nars.entity.Sentence;
+import nars.io.Narsese;
+import nars.io.Query;
+import nars.storage.Memory;
+import nars.util.Events;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * A query should complete with its first answer, or time out at its deadline,
+ * and its question should be removed from its concept either way, unless
+ * there are listeners for its better answers
+ */
+public class QueryTest {
+
+    @Test
+    public void testAnswer() throws Exception {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        n.addInput("<a --> b>.\n<b --> c>.");
+        Query q = n.query("<a --> c>", 200);
+        for (int i = 0; (i < 200) && !q.isDone(); i++)
+            n.run(1);
+        assertTrue(q.isDone());
+        assertEquals("<a --> c>", q.get().getTerm().toString());
+
+        n.run(1);
+        Concept c = n.concept("<a --> c>");
+        assertFalse(c.questions.contains(q.question));
+        assertEquals(0, n.memory.queries.size());
+    }
+
+    @Test
+    public void testDeadline() throws Narsese.InvalidInputException, InterruptedException {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        Query q = n.query("<x --> y>", 10);
+        n.run(5);
+        assertFalse(q.isDone());
+        assertTrue(n.concept("<x --> y>").questions.contains(q.question));
+
+        n.run(10);
+        try {
+            q.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertFalse(n.concept("<x --> y>").questions.contains(q.question));
+
+        Query cancelled = n.query("<x --> z>", 100);
+        n.run(5);
+        cancelled.cancel(false);
+        n.run(1);
+        assertFalse(n.concept("<x --> z>").questions.contains(cancelled.question));
+        assertEquals(0, n.memory.queries.size());
+    }
+
+    @Test
+    public void testBetterAnswers() throws Narsese.InvalidInputException {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        final List<Sentence> answers = new ArrayList();
+        Query q = n.query("<a --> c>", 100).onAnswer(answers::add);
+        n.addInput("<a --> c>. %1.0;0.5%");
+        n.run(20);
+        n.addInput("<a --> c>. %1.0;0.8%");
+        n.run(20);
+        assertTrue(q.isDone());
+        assertTrue(answers.toString(), answers.size() >= 2);
+        for (int i = 1; i < answers.size(); i++)
+            assertTrue(answers.toString(), answers.get(i).truth.getConfidence() > answers.get(i - 1).truth.getConfidence());
+        assertEquals(1, n.memory.queries.size());
+
+        n.run(100);
+        assertEquals(0, n.memory.queries.size());
+        assertFalse(n.concept("<a --> c>").questions.contains(q.question));
+    }
+
+    @Test
+    public void testEqualQuestions() throws Exception {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        final List<Object> broadcast = new ArrayList();
+        n.memory.event.on(Events.Answer.class, (event, args) -> broadcast.add(args[1]));
+        Query x1 = n.query("<x --> y>", 20);
+        Query x2 = n.query("<x --> y>", 20);
+        Query a1 = n.query("<a --> c>", 200);
+        Query a2 = n.query("<a --> c>", 200);
+        n.addInput("<a --> b>.\n<b --> c>.");
+        for (int i = 0; (i < 200) && !(a1.isDone() && a2.isDone()); i++)
+            n.run(1);
+        assertEquals("<a --> c>", a1.get().getTerm().toString());
+        assertEquals("<a --> c>", a2.get().getTerm().toString());
+        assertTrue(broadcast.toString(), broadcast.isEmpty());
+
+        n.run(20);
+        for (Query q : new Query[] { x1, x2 }) {
+            try {
+                q.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof TimeoutException);
+            }
+        }
+        assertEquals(0, n.memory.queries.size());
+        assertFalse(n.concept("<x --> y>").questions.contains(x1.question));
+    }
+
+}
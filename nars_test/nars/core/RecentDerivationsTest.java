@@ -0,0 +1,89 @@
+package nars.core;
+
+import nars.NAR;
+import nars.config.Plugins;
+import java.util.List;
+import nars.control.DerivationContext;
+import nars.control.RecentDerivations;
+import nars.entity.Sentence;
+import nars.entity.Stamp;
+import nars.entity.Task;
+import nars.io.Narsese;
+import nars.storage.Memory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * A conclusion should be recent for the window of cycles, only with the same
+ * truth, occurrence time and evidential base, and the repeated derivations of
+ * the examples should be dropped
+ */
+public class RecentDerivationsTest {
+
+    @Test
+    public void testWindow() throws Narsese.InvalidInputException {
+        Memory.resetStatic();
+        Narsese p = new Narsese(new NAR(new Plugins()));
+        Sentence s = p.parseTask("<a --> b>. %1.0;0.9%").sentence;
+        Sentence otherTruth = p.parseTask("<a --> b>. %1.0;0.8%").sentence;
+        Sentence otherBase = p.parseTask("<a --> b>. %1.0;0.9%").sentence;
+        Sentence question = p.parseTask("<a --> b>?").sentence;
+
+        RecentDerivations r = new RecentDerivations(64);
+        assertFalse(r.contains(s, 0, 5));
+        r.add(s, 0);
+        r.add(question, 0);
+        assertTrue(r.contains(s, 5, 5));
+        assertTrue(r.contains(question, 5, 5));
+        assertFalse(r.contains(s, 6, 5));
+        assertFalse(r.contains(s, 1, 0));
+        assertFalse(r.contains(otherTruth, 1, 5));
+        assertFalse(r.contains(otherBase, 1, 5));
+        assertEquals(2, r.getHits());
+        assertEquals(4, r.getMisses());
+        assertEquals(2 / 6.0, r.getHitRate(), 1e-9);
+
+        r.clear();
+        assertFalse(r.contains(s, 1, 5));
+    }
+
+    @Test
+    public void testExample() {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        n.addInput(NALTest.getExample("nal/test/nal6.1.nal"));
+        n.run(300);
+        assertTrue(n.memory.recentDerivations.getHits() > 0);
+
+        Memory.resetStatic();
+        n = new NAR(new Plugins());
+        n.memory.param.derivationCacheCycles.set(0);
+        n.addInput(NALTest.getExample("nal/test/nal6.1.nal"));
+        n.run(300);
+        assertEquals(0, n.memory.recentDerivations.getHits());
+    }
+
+    @Test
+    public void testEternalizedWhenTemporalIsRecent() throws Narsese.InvalidInputException {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        n.param.immediateEternalization.set(true);
+        Task task = n.narsese.parseTask("<a --> b>. :|: %1.0;0.9%");
+        Task belief = n.narsese.parseTask("<c --> d>. :|: %1.0;0.9%");
+        Task conclusion = n.narsese.parseTask("<a --> d>. :|: %1.0;0.45%");
+
+        DerivationContext nal = new DerivationContext(n.memory);
+        nal.setCurrentTask(task);
+        nal.setCurrentBelief(belief.sentence);
+        Stamp stamp = nal.setTheNewStamp(new Stamp(task.sentence.stamp, belief.sentence.stamp, n.time()));
+        //the temporal conclusion was derived just before, its eternalization was not
+        n.memory.recentDerivations.add(new Sentence(conclusion.sentence.term, '.', conclusion.sentence.truth, stamp), n.time());
+
+        List<Task> derived = nal.doublePremiseTask(conclusion.sentence.term, conclusion.sentence.truth, conclusion.budget, true, false);
+        assertEquals(1, derived.size());
+        assertTrue(derived.get(0).sentence.isEternal());
+    }
+
+}
@@ -0,0 +1,110 @@
+package nars.core;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.control.DerivationContext;
+import nars.entity.Task;
+import nars.entity.TermLink;
+import nars.inference.LocalRules;
+import nars.inference.RuleDispatch;
+import nars.inference.RuleDispatch.Rule;
+import nars.language.Conjunction;
+import nars.language.Disjunction;
+import nars.language.Equivalence;
+import nars.language.Implication;
+import nars.language.Inheritance;
+import nars.language.Negation;
+import nars.language.Similarity;
+import nars.language.Statement;
+import nars.language.Term;
+import nars.plugin.misc.Metrics;
+import nars.storage.Memory;
+import nars.util.Events;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * The dispatch table should have the entries which the class tests of the
+ * rules in RuleTables allow, for the terms of the examples, and count the
+ * pairs reasoned on
+ */
+public class RuleDispatchTest {
+
+    static boolean has(short t, short b, Term task, Term belief) {
+        return RuleDispatch.get(t, b, task.operator(), belief.operator()) != null;
+    }
+
+    @Test
+    public void testSameAsClasses() {
+        List<Term> terms = UnifierTest.terms("nal", 20);
+        assertTrue(terms.size() > 200);
+
+        for (Term a : terms) {
+            boolean structural = (a instanceof Conjunction) || (a instanceof Disjunction) || (a instanceof Negation);
+            boolean inhSim = (a instanceof Inheritance) || (a instanceof Similarity);
+            for (Term b : terms) {
+                String k = a + " " + b;
+                assertEquals(k, structural, has(TermLink.SELF, TermLink.COMPONENT, a, b));
+                assertEquals(k, a instanceof Statement, has(TermLink.SELF, TermLink.COMPONENT_STATEMENT, a, b));
+                assertEquals(k, (a instanceof Implication) && (b instanceof Implication), has(TermLink.SELF, TermLink.COMPOUND_CONDITION, a, b));
+                assertEquals(k, structural && (a.getClass() == b.getClass()), has(TermLink.COMPOUND, TermLink.COMPOUND, a, b));
+                assertEquals(k, (b instanceof Implication) || (b instanceof Equivalence), has(TermLink.COMPOUND, TermLink.COMPOUND_CONDITION, a, b));
+                assertEquals(k, inhSim, has(TermLink.COMPOUND_STATEMENT, TermLink.COMPONENT, a, b));
+                assertEquals(k, (a instanceof Statement) && (b instanceof Implication), has(TermLink.COMPOUND_STATEMENT, TermLink.COMPOUND_CONDITION, a, b));
+                assertEquals(k, a instanceof Implication, has(TermLink.COMPOUND_CONDITION, TermLink.COMPOUND_STATEMENT, a, b));
+                assertEquals(k, (a instanceof Inheritance) || ((a instanceof Statement) && (b instanceof Statement)),
+                        has(TermLink.COMPOUND_STATEMENT, TermLink.COMPOUND_STATEMENT, a, b));
+                assertNull(k, RuleDispatch.get(TermLink.SELF, TermLink.TRANSFORM, a.operator(), b.operator()));
+            }
+        }
+    }
+
+    @Test
+    public void testHits() {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        n.addPlugin(new Metrics());
+        NAR other = new NAR(new Plugins());
+        other.addPlugin(new Metrics());
+        NAR unmeasured = new NAR(new Plugins());
+        for (NAR m : new NAR[] { n, unmeasured }) {
+            m.addInput(NALTest.getExample("nal/test/nal1.0.nal"));
+            m.addInput(NALTest.getExample("nal/test/nal6.1.nal"));
+            m.run(100);
+        }
+        //counted for the memory the entries were selected for only, and only while Metrics is enabled
+        assertEquals("", other.memory.ruleHits.report(1000));
+        assertEquals("", unmeasured.memory.ruleHits.report(1000));
+
+        String report = n.memory.ruleHits.report(1000);
+        assertTrue(report, report.contains("COMPOUND_STATEMENT_COMPOUND_STATEMENT"));
+        //pairs without a rule are counted too
+        assertTrue(report, report.contains("\t-\n"));
+
+        String[] first = report.split("\n")[0].split("\t");
+        assertTrue(Long.parseLong(first[0]) > 0);
+    }
+
+    @Test
+    public void testObservedBeliefs() {
+        Memory.resetStatic();
+        NAR n = new NAR(new Plugins());
+        //pairs without a rule still reach the observers of the beliefs reasoned with
+        AtomicInteger unruled = new AtomicInteger();
+        n.memory.event.on(Events.BeliefReason.class, (event, args) -> {
+            DerivationContext nal = (DerivationContext) args[3];
+            TermLink b = nal.getCurrentBeliefLink();
+            Task task = nal.getCurrentTask();
+            if ((RuleDispatch.get(nal.getCurrentTaskLink().type, b.type, task.getTerm().operator(), b.target.operator()) == null)
+                    && !LocalRules.mayMatch(task.sentence, b.target))
+                unruled.incrementAndGet();
+        });
+        n.addInput(NALTest.getExample("nal/test/nal6.6.nal"));
+        n.run(100);
+        assertTrue(unruled.get() > 0);
+    }
+}
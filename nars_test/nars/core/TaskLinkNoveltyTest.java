@@ -0,0 +1,106 @@
+package nars.core;
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import nars.NAR;
+import nars.config.Parameters;
+import nars.config.Plugins;
+import nars.entity.Concept;
+import nars.entity.TaskLink;
+import nars.entity.TermLink;
+import nars.storage.Memory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * TaskLink.novel should answer exactly like the deque of records it replaced,
+ * for the term links and task links which the nal/ examples produce
+ */
+public class TaskLinkNoveltyTest {
+
+    /** the novelty check as it was before, on a deque of records */
+    static class DequeRecords {
+        static class Recording {
+            final TermLink link;
+            long time;
+            Recording(TermLink link, long time) { this.link = link; this.time = time; }
+        }
+
+        final Deque<Recording> records = new ArrayDeque();
+        final TaskLink taskLink;
+        final int recordLength;
+
+        DequeRecords(TaskLink taskLink, int recordLength) {
+            this.taskLink = taskLink;
+            this.recordLength = recordLength;
+        }
+
+        boolean novel(final TermLink termLink, final long currentTime) {
+            if (termLink.target.equals(taskLink.targetTask.sentence.term))
+                return false;
+            TermLink linkKey = termLink.name();
+            Iterator<Recording> ir = records.iterator();
+            while (ir.hasNext()) {
+                Recording r = ir.next();
+                if (linkKey.equals(r.link)) {
+                    if (currentTime < r.time + Parameters.NOVELTY_HORIZON)
+                        return false;
+                    r.time = currentTime;
+                    ir.remove();
+                    records.addLast(r);
+                    return true;
+                }
+            }
+            while (records.size() + 1 >= recordLength) records.removeFirst();
+            records.addLast(new Recording(linkKey, currentTime));
+            return true;
+        }
+    }
+
+    @Test
+    public void testSameAsDeque() {
+        Random rng = new Random(1);
+        long checks = 0;
+        for (File f : new File("nal/test").listFiles()) {
+            if (!f.getName().endsWith(".nal"))
+                continue;
+            Memory.resetStatic();
+            NAR n = new NAR(new Plugins());
+            n.addInput(NALTest.getExample(f.getPath()));
+            n.run(30);
+
+            for (Concept c : n.memory) {
+                List<TermLink> termLinks = new ArrayList();
+                for (TermLink l : c.termLinks) termLinks.add(l);
+                if (termLinks.isEmpty())
+                    continue;
+                for (TaskLink l : c.taskLinks) {
+                    //fresh links of each record length, fed the same selections
+                    for (int length : new int[] { 2, 4, Parameters.TERM_LINK_RECORD_LENGTH }) {
+                        TaskLink t = new TaskLink(l.targetTask, l.type, l.index, l.budget.clone(), length);
+                        DequeRecords d = new DequeRecords(t, length);
+                        long time = 0;
+                        for (int i = 0; i < 100; i++) {
+                            time += rng.nextInt(4);
+                            TermLink x = termLinks.get(rng.nextInt(termLinks.size()));
+                            assertEquals(f.getName() + " " + c + " " + i, d.novel(x, time), t.novel(x, time));
+                            checks++;
+                        }
+                        t.end();
+                        d.records.clear();
+                        TermLink x = termLinks.get(0);
+                        assertEquals(d.novel(x, time), t.novel(x, time));
+                    }
+                }
+            }
+        }
+        assertTrue(checks > 10000);
+    }
+
+}
@@ -17,7 +17,6 @@
 package nars.core;
 
 import nars.NAR;
-import nars.config.Parameters;
 import java.util.TreeSet;
 import nars.config.Plugins;
 import nars.entity.Concept;
@@ -28,6 +27,7 @@ import nars.language.CompoundTerm;
 import nars.language.Inheritance;
 import nars.language.Statement;
 import nars.language.Term;
+import nars.language.TermStore;
 import nars.operator.Operation;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -278,8 +278,6 @@ public class TermTest {
     
     
     @Test public void testParseOperationInFunctionalForm() {
-        Parameters.FUNCTIONAL_OPERATIONAL_FORMAT = true;
-        
         NAR n = new NAR(new Plugins());
         Narsese p = new Narsese(n);
         
@@ -295,4 +293,44 @@ public class TermTest {
         
         
     }
+
+    @Test
+    public void testInternedTermsAreShared() throws Exception {
+        Term a = np.parseTerm("<(*,a,b) --> (&&,c,<d --> e>)>");
+        Term b = np.parseTerm("<(*,a,b) --> (&&,<d --> e>,c)>");
+        Term ia = TermStore.intern(a);
+        Term ib = TermStore.intern(b);
+        assertTrue(ia == ib);
+        assertTrue(((CompoundTerm)ia).isInterned());
+        assertEquals(a, ia);
+        assertEquals(a.hashCode(), ia.hashCode());
+        assertTrue(((CompoundTerm)ia).term[0] == TermStore.intern(np.parseTerm("(*,a,b)")));
+        
+        Term other = TermStore.intern(np.parseTerm("<(*,a,b) --> (&&,c,<d --> f>)>"));
+        assertTrue(!ia.equals(other));
+        
+        //different temporal order, different canonical instance
+        Term fwd = TermStore.intern(np.parseTerm("<a =/> b>"));
+        Term bwd = TermStore.intern(np.parseTerm("<a =\\> b>"));
+        assertTrue(fwd != bwd);
+        assertTrue(!fwd.equals(bwd));
+        
+        //terms with variables are left alone
+        Term v = np.parseTerm("<$1 --> a>");
+        assertTrue(TermStore.intern(v) == v);
+    }
+
+    @Test
+    public void testConceptKeyIgnoresIntervals() throws Exception {
+        Term a = np.parseTerm("(&/,<a --> b>,+3,(^pick,c))");
+        Term b = np.parseTerm("(&/,<a --> b>,+7,(^pick,c))");
+        assertTrue(!a.equals(b));
+        assertTrue(a.conceptKey() == b.conceptKey());
+        assertEquals(CompoundTerm.cloneDeepReplaceIntervals(a), a.conceptKey());
+        assertTrue(a.conceptKey() == a.conceptKey().conceptKey());
+        
+        Term v = np.parseTerm("(&/,<$1 --> b>,+3,<$1 --> c>)");
+        Term w = np.parseTerm("(&/,<$1 --> b>,+5,<$1 --> c>)");
+        assertEquals(v.conceptKey(), w.conceptKey());
+    }
 }
@@ -1,8 +1,12 @@
 package nars.core;
 
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
 import static junit.framework.TestCase.assertTrue;
+import nars.entity.Stamp;
 import static nars.entity.Stamp.toSetArray;
+import nars.language.Tense;
 import org.junit.Test;
 
 /**
@@ -30,4 +34,50 @@ public class TestStamp {
                 Arrays.hashCode(toSetArray(new long[] { 1,1,3 }))
         );    
     }
+    
+    static Stamp stamp(long... serials) {
+        Stamp s = new Stamp(0, Tense.Eternal, serials[0], 1);
+        s.setEvidentialBase(serials);
+        return s;
+    }
+    
+    /** the former Stamp.baseOverlap */
+    static boolean hashSetOverlap(final long[] base1, final long[] base2) {
+        HashSet<Long> task_base = new HashSet<Long>(base1.length + base2.length);
+        for (int i = 0; i < base1.length; i++) {
+            if (task_base.contains(Long.valueOf(base1[i])))
+                return true;
+            task_base.add(base1[i]);
+        }
+        for (int i = 0; i < base2.length; i++) {
+            if (task_base.contains(Long.valueOf(base2[i])))
+                return true;
+            task_base.add(base2[i]);
+        }
+        return false;
+    }
+
+    @Test
+    public void testBaseOverlap() {
+        assertTrue(!Stamp.baseOverlap(stamp(1, 5, 9), stamp(2, 4, 8, 10)));
+        assertTrue(Stamp.baseOverlap(stamp(1, 5, 9), stamp(10, 9)));
+        assertTrue(Stamp.baseOverlap(stamp(1, 5, 1), stamp(2)));
+        assertTrue(stamp(1, 5, 1).evidenceIsCyclic());
+        assertTrue(!stamp(1, 5, 9).evidenceIsCyclic());
+        assertTrue(!stamp(1, 5, 1).sharesEvidenceWith(stamp(2)));
+        
+        //agrees with the array version on random bases
+        Random r = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            long[] a = new long[1 + r.nextInt(8)], b = new long[1 + r.nextInt(8)];
+            for (int j = 0; j < a.length; j++) a[j] = r.nextInt(64);
+            for (int j = 0; j < b.length; j++) b[j] = r.nextInt(64);
+            assertTrue(Stamp.baseOverlap(a, b) == Stamp.baseOverlap(stamp(a), stamp(b)));
+            assertTrue(Stamp.baseOverlap(a, b) == hashSetOverlap(a, b));
+        }
+        
+        //merged stamps keep the order of the former bases
+        Stamp m = new Stamp(stamp(1, 2), stamp(3), 0);
+        assertTrue(Arrays.equals(new long[] { 3, 1, 2 }, m.evidentialBase));
+    }
 }
@@ -0,0 +1,93 @@
+package nars.core;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.entity.Concept;
+import nars.io.Symbols;
+import nars.language.CompoundTerm;
+import nars.language.Term;
+import nars.language.Variables;
+import nars.storage.Memory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * The trail based Unifier should find the same substitutions as the HashMap
+ * based search, for the terms of the NAL5 and NAL6 examples
+ */
+public class UnifierTest {
+
+    /** the concept terms and their components, of the examples run for a while */
+    static List<Term> terms(String prefix, int cycles) {
+        Set<Term> terms = new LinkedHashSet();
+        File[] files = new File("nal/test").listFiles();
+        java.util.Arrays.sort(files);
+        for (File f : files) {
+            if (!f.getName().startsWith(prefix))
+                continue;
+            Memory.resetStatic();
+            NAR n = new NAR(new Plugins());
+            n.addInput(NALTest.getExample(f.getPath()));
+            n.run(cycles);
+            for (Concept c : n.memory) {
+                terms.add(c.term);
+                if (c.term instanceof CompoundTerm)
+                    for (Term t : ((CompoundTerm) c.term).term)
+                        terms.add(t);
+            }
+        }
+        return new ArrayList(terms);
+    }
+
+    @Test
+    public void testSameAsMaps() {
+        List<Term> terms = terms("nal5", 30);
+        terms.addAll(terms("nal6", 30));
+        List<Term> withVars = new ArrayList();
+        for (Term t : terms)
+            if (t.hasVar())
+                withVars.add(t);
+        assertTrue(withVars.size() > 50);
+
+        int unified = 0;
+        long seed = 0;
+        //the unifier shuffles with the random source of the memory working on the thread
+        Random random = new NAR(new Plugins()).memory.random;
+        Random outer = Memory.setWorkerRandom(random);
+        for (Term a : withVars) {
+            for (Term b : terms) {
+                for (char type : new char[] { Symbols.VAR_INDEPENDENT, Symbols.VAR_DEPENDENT, Symbols.VAR_QUERY }) {
+                    seed++;
+                    Map<Term, Term>[] expected = new Map[2];
+                    random.setSeed(seed);
+                    boolean e = Variables.findSubstituteWithMaps(type, a, b, expected);
+
+                    Map<Term, Term> m1 = new HashMap(), m2 = new HashMap();
+                    random.setSeed(seed);
+                    boolean r = Variables.findSubstitute(type, a, b, m1, m2);
+
+                    String k = a + " " + b + " " + type;
+                    assertEquals(k, e, r);
+                    assertEquals(k, expected[0] == null ? new HashMap() : expected[0], m1);
+                    assertEquals(k, expected[1] == null ? new HashMap() : expected[1], m2);
+
+                    random.setSeed(seed);
+                    assertEquals(k, e, Variables.hasSubstitute(type, a, b));
+                    if (e) unified++;
+                }
+            }
+        }
+        Memory.setWorkerRandom(outer);
+        assertTrue(unified > 100);
+    }
+
+}
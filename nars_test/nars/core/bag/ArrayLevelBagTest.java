@@ -0,0 +1,61 @@
+package nars.core.bag;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import nars.perf.BagPerf.NullItem;
+import nars.storage.ArrayLevelBag;
+import nars.storage.Bag;
+import nars.storage.LevelBag;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * ArrayLevelBag should select the same items in the same order as LevelBag
+ */
+public class ArrayLevelBagTest {
+
+    static NullItem item(String key, float priority) {
+        NullItem n = new NullItem(priority);
+        n.key = key;
+        return n;
+    }
+    
+    static List<String> randomOperations(Bag<NullItem,CharSequence> b, int seed, int operations) {
+        Random r = new Random(seed);
+        List<String> trace = new ArrayList();
+        int keys = operations/4;
+
+        for (int i = 0; i < operations; i++) {
+            float x = r.nextFloat();
+            String key = "i" + r.nextInt(keys);
+            if (x < 0.5f) {
+                NullItem o = b.putIn(item(key, r.nextFloat() * 0.99f));
+                trace.add("put " + (o == null ? "-" : o.key));
+            }
+            else if (x < 0.8f) {
+                NullItem o = b.takeNext();
+                trace.add("next " + (o == null ? "-" : o.key));
+            }
+            else {
+                NullItem o = b.take(key);
+                trace.add("take " + (o == null ? "-" : o.key));
+            }
+            trace.add("size " + b.size() + " " + b.getMass());
+        }
+        for (NullItem n : b)
+            trace.add("iterate " + n.key);
+        return trace;
+    }
+
+    @Test
+    public void testSameBehaviorAsLevelBag() {
+        int[][] configs = { { 1, 4 }, { 4, 8 }, { 10, 100 }, { 100, 1000 } };
+        for (int[] c : configs) {
+            List<String> expected = randomOperations(new LevelBag(c[0], c[1]), c[1], c[1] * 20);
+            List<String> actual = randomOperations(new ArrayLevelBag(c[0], c[1]), c[1], c[1] * 20);
+            assertEquals(expected, actual);
+        }
+    }
+
+}
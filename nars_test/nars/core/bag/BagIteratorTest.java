@@ -2,7 +2,9 @@ package nars.core.bag;
 
 import java.util.Iterator;
 import nars.perf.BagPerf.NullItem;
+import nars.storage.ArrayLevelBag;
 import nars.storage.Bag;
+import nars.storage.FenwickBag;
 import nars.storage.LevelBag;
 import static org.junit.Assert.assertTrue;
 import org.junit.Test;
@@ -48,6 +50,8 @@ public class BagIteratorTest {
                 
         if (b instanceof LevelBag)
             assert(((LevelBag)b).numEmptyLevels() < L);
+        if (b instanceof ArrayLevelBag)
+            assert(((ArrayLevelBag)b).numEmptyLevels() < L);
         
         testIterator(b);
         
@@ -64,6 +68,8 @@ public class BagIteratorTest {
     @Test
     public void testBags() {
         testBagIterator(new LevelBag(L, L*2));
+        testBagIterator(new ArrayLevelBag(L, L*2));
+        testBagIterator(new FenwickBag(L, L*2));
         
     }
     
@@ -9,7 +9,9 @@ import nars.entity.BudgetValue;
 import nars.entity.Concept;
 import nars.entity.Item;
 import nars.language.Term;
+import nars.storage.ArrayLevelBag;
 import nars.storage.Bag;
+import nars.storage.FenwickBag;
 import nars.storage.LevelBag;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -31,6 +33,8 @@ public class BagOperationsTest {
     @Test
     public void testConcept() {
         testBagSequence(new LevelBag(2, 2));    
+        testBagSequence(new ArrayLevelBag(2, 2));
+        testBagSequence(new FenwickBag(2, 2));
     }
     
     public static void testBagSequence(Bag b) {
@@ -76,7 +80,7 @@ public class BagOperationsTest {
         assertEquals(null, b.putIn(makeConcept("a", 0.2f)));
         assertEquals(null, b.putIn(makeConcept("b", 0.3f)));
         
-        if (b instanceof LevelBag) {
+        if ((b instanceof LevelBag) || (b instanceof ArrayLevelBag)) {
             assertEquals("a", b.putIn(makeConcept("c", 0.1f)).name().toString()); //replaces item on level
         }
         
@@ -0,0 +1,135 @@
+package nars.core.bag;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.perf.BagPerf.NullItem;
+import nars.storage.Bag;
+import nars.storage.FenwickBag;
+import nars.storage.Memory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * FenwickBag should take items out in proportion to their priority, keep the
+ * highest ones when full, and stay consistent through any sequence of
+ * operations
+ */
+public class FenwickBagTest {
+
+    static NullItem item(String key, float priority) {
+        NullItem n = new NullItem(priority);
+        n.key = key;
+        return n;
+    }
+
+    @Test
+    public void testProportional() {
+        Memory.resetStatic();
+        FenwickBag<NullItem,CharSequence> b = new FenwickBag(16);
+        float total = 0;
+        for (int i = 1; i <= 10; i++) {
+            b.putIn(item("i" + i, i / 10f));
+            total += i / 10f;
+        }
+        int draws = 200000;
+        Map<String,Integer> count = new HashMap();
+        for (int i = 0; i < draws; i++) {
+            NullItem x = b.takeNext();
+            count.merge(x.key, 1, Integer::sum);
+            assertNull(b.putIn(x));
+        }
+        for (int i = 1; i <= 10; i++)
+            assertEquals("i" + i, (i / 10f) / total, count.get("i" + i) / (double) draws, 0.005);
+    }
+
+    @Test
+    public void testCapacity() {
+        FenwickBag<NullItem,CharSequence> b = new FenwickBag(3);
+        b.putIn(item("a", 0.5f));
+        b.putIn(item("b", 0.2f));
+        b.putIn(item("c", 0.7f));
+        NullItem low = item("d", 0.1f);
+        assertSame(low, b.putIn(low));
+        assertEquals("b", b.putIn(item("e", 0.3f)).key);
+        assertEquals(0.3f, b.getMinPriority(), 0.001f);
+        assertEquals(0.7f, b.getMaxPriority(), 0.001f);
+        assertEquals(1.5f, b.getMass(), 0.001f);
+
+        b.get("a").budget.setPriority(0.05f);
+        b.update("a");
+        assertEquals(0.05f, b.getMinPriority(), 0.001f);
+        assertEquals("a", b.putIn(item("f", 0.1f)).key);
+    }
+
+    @Test
+    public void testRandomOperations() {
+        Memory.resetStatic();
+        Random r = new Random(1);
+        FenwickBag<NullItem,CharSequence> b = new FenwickBag(50);
+        Map<String,NullItem> model = new HashMap();
+        for (int i = 0; i < 20000; i++) {
+            float x = r.nextFloat();
+            String key = "i" + r.nextInt(100);
+            if (x < 0.5f) {
+                NullItem n = item(key, r.nextFloat());
+                NullItem o = b.putIn(n);
+                model.put(key, b.get(key) != null ? b.get(key) : n);
+                if (o != null)
+                    assertNotNull(model.remove(o.key));
+                if (b.get(key) == null)
+                    model.remove(key);
+            }
+            else if (x < 0.8f) {
+                NullItem o = b.takeNext();
+                if (o != null)
+                    assertSame(o, model.remove(o.key));
+            }
+            else if (x < 0.9f) {
+                NullItem n = b.get(key);
+                if (n != null) {
+                    n.budget.setPriority(r.nextFloat());
+                    b.update(key);
+                }
+            }
+            else {
+                assertSame(model.remove(key), b.take(key));
+            }
+
+            assertEquals(model.size(), b.size());
+            float mass = 0, min = 1;
+            for (NullItem n : model.values()) {
+                mass += n.getPriority();
+                min = Math.min(min, n.getPriority());
+            }
+            assertEquals(mass, b.getMass(), 0.001f);
+            assertEquals(min, b.getMinPriority(), 0.0001f);
+        }
+        float last = 1;
+        int n = 0;
+        for (NullItem i : b) {
+            assertTrue(i.getPriority() <= last);
+            last = i.getPriority();
+            n++;
+        }
+        assertEquals(b.size(), n);
+    }
+
+    @Test
+    public void testNAR() {
+        Memory.resetStatic();
+        Plugins p = new Plugins();
+        p.param.bagType = Bag.Type.Fenwick;
+        NAR n = new NAR(p);
+        assertTrue(n.memory.concepts instanceof FenwickBag);
+        n.addInput("<a --> b>.\n<b --> c>.\n<a --> c>?");
+        n.run(100);
+        assertTrue(n.memory.concepts.size() >= 3);
+    }
+}
@@ -3,11 +3,13 @@ package nars.perf;
 import automenta.vivisect.TreeMLData;
 import java.awt.Color;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import nars.util.EventEmitter.EventObserver;
 import nars.util.Events;
 import nars.NAR;
 import nars.config.Parameters;
+import nars.config.Plugins;
 import automenta.vivisect.swing.NWindow;
 import automenta.vivisect.timeline.LineChart;
 import nars.io.Input;
@@ -32,6 +34,8 @@ public class BagFairness {
     TreeMLData fired[] = new TreeMLData[bins];
     TreeMLData[] held = new TreeMLData[bins];
     float fireCount[] = new float[bins];
+    /** share of the concepts held by each priority bin at the end */
+    final double[] heldShare = new double[bins];
     long total = 0;
     
     private final ArrayList<Chart> charts;
@@ -103,6 +107,8 @@ public class BagFairness {
             
         }
         
+        n.memory.concepts.getPriorityDistribution(heldShare);
+        
         charts = new ArrayList();
 
         /*for (b = 0; b < bins; b++) {
@@ -123,6 +129,25 @@ public class BagFairness {
         
     }
 
+    /**
+     * prints, for each priority bin, the share of concepts held at the end, the
+     * share of the firings, and the share of the firings if concepts were fired
+     * in exact proportion to their priority, the bin's middle
+     */
+    public void printResults(PrintStream out, String label) {
+        double firings = 0, weighted = 0;
+        for (int b = 0; b < bins; b++) {
+            firings += fireCount[b];
+            weighted += heldShare[b] * (b + 0.5) / bins;
+        }
+        out.println(label + ": bin, held, fired, proportional");
+        for (int b = bins - 1; b >= 0; b--) {
+            out.println("  " + Texts.n2(((double) b) / bins) + ", " + Texts.n2(heldShare[b]) + ", " +
+                    Texts.n2(firings > 0 ? fireCount[b] / firings : 0) + ", " +
+                    Texts.n2(weighted > 0 ? heldShare[b] * (b + 0.5) / bins / weighted : 0));
+        }
+    }
+
     /*protected void removalPriority(float p) {
         int b = (int)Math.floor(p * bins);
         held[b]++;
@@ -210,16 +235,22 @@ public class BagFairness {
         float minPri = 0.1f;
         float maxPri = 1.0f;
 
-        new NWindow("_", new MultiTimeline(1, 1, 1) {
+        final Bag.Type[] types = { Bag.Type.Level, Bag.Type.Fenwick };
+
+        new NWindow("_", new MultiTimeline(types.length, 1, types.length) {
 
             @Override public Chart[] getCharts(int experiment) {
                 
-                final NAR n = new NAR();
+                Plugins p = new Plugins();
+                p.param.bagType = types[experiment];
+                final NAR n = new NAR(p);
                 
-                ArrayList<Chart> ch = new BagFairness(n, 
+                BagFairness f = new BagFairness(n, 
                         new RandomTermInput(8, inputs, 0.01, 0.5, 0.5, minPri, maxPri), 
                         maxConcepts, /* concepts */
-                        numIterations-displayedIterations, numIterations /* iterations */).charts;
+                        numIterations-displayedIterations, numIterations /* iterations */);
+                f.printResults(System.out, types[experiment].toString());
+                ArrayList<Chart> ch = f.charts;
                 return ch.toArray(new Chart[ch.size()]);
             }            
         }).show(1200, 900, true);
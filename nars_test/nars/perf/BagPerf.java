@@ -24,6 +24,7 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.StringJoiner;
 import nars.storage.Memory;
 import nars.NAR;
@@ -31,7 +32,9 @@ import nars.config.Parameters;
 import nars.config.Plugins;
 import nars.entity.BudgetValue;
 import nars.entity.Item;
+import nars.storage.ArrayLevelBag;
 import nars.storage.Bag;
+import nars.storage.FenwickBag;
 import nars.storage.LevelBag;
 
 /**
@@ -97,13 +100,16 @@ public class BagPerf {
     }
             
     public static int itemID = 0;
+
+    /** random source of the items and accesses, of this test alone */
+    static final Random random = new Random(1);
     
     /** Empty Item implementation useful for testing */
     public static class NullItem extends Item.StringKeyItem {
         public String key;
     
         public NullItem() {
-            this(Memory.randomNumber.nextFloat() * (1.0f - Parameters.TRUTH_EPSILON));
+            this(random.nextFloat() * (1.0f - Parameters.TRUTH_EPSILON));
         }
 
         public NullItem(float priority) {
@@ -120,7 +126,7 @@ public class BagPerf {
     
     public static void randomBagIO(Bag<NullItem,CharSequence> b, int accesses, double insertProportion) {
         for (int i = 0; i < accesses; i++) {
-            if (Memory.randomNumber.nextFloat() > insertProportion) {
+            if (random.nextFloat() > insertProportion) {
                 //remove
                 b.takeNext();
             }
@@ -234,7 +240,9 @@ public class BagPerf {
                 int randomAccesses = accessesPerItem * items;
                         
                 Bag[] bags = new Bag[] { 
-                    new LevelBag(levels, items)                        
+                    new LevelBag(levels, items),
+                    new ArrayLevelBag(levels, items),
+                    new FenwickBag(levels, items)
                 };
                 
                 Map<Bag, Double> t = BagPerf.compare(                    
@@ -82,8 +82,28 @@ public class NALStressMeasure  {
         System.out.println("\n\nTotal mean runtime (ms): " + totalTime);        
     }
     
+    /** throughput of one example with 1, 2, 4, .. maxThreads inference threads; 
+     *  with N threads, N concepts are fired per cycle */
+    public static void testThreads(final String path, final int extraCycles, final int maxThreads) {
+        System.out.println("threads, cycles/sec, concepts fired/sec");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            NAR n = new NAR(new Plugins());
+            n.param.inferenceThreads.set(threads);
+            
+            double msPerRun = perfNAL(n, path, extraCycles, 1, 1, true);
+            double cyclesPerSec = n.time() / (msPerRun / 1000.0);
+            System.out.println(threads + ", " + cyclesPerSec + ", " + (cyclesPerSec * threads));
+        }
+    }
+    
     public static void main(String[] args) {
        
+        if (args.length > 0) {
+            int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+            testThreads(args[0], 5000, maxThreads);
+            return;
+        }
+        
         NAR nd = new NAR(new Plugins());
         test(nd);
         
@@ -0,0 +1,113 @@
+package nars.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import nars.util.EventEmitter.EventObserver;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class EventEmitterTest {
+
+    static class A { }
+    static class B { }
+
+    @Test
+    public void testOnOff() {
+        EventEmitter e = new EventEmitter();
+        List<Object> got = new ArrayList();
+        EventObserver o = (event, args) -> got.add(args[0]);
+
+        assertFalse(e.isActive(A.class));
+        e.emit(A.class, 0); //nobody listens
+        
+        e.on(A.class, o);
+        assertTrue(e.isActive(A.class));
+        assertTrue(e.isActive(EventEmitter.id(A.class)));
+        assertFalse(e.isActive(B.class));
+        
+        e.emit(A.class, 1);
+        e.emit(B.class, 2);
+        e.off(A.class, o);
+        assertFalse(e.isActive(A.class));
+        e.emit(A.class, 3);
+        
+        assertEquals(1, got.size());
+        assertEquals(1, got.get(0));
+    }
+
+    /** an observer equal only to its own class, casting like Term.equals did */
+    static class Picky implements EventObserver {
+        @Override public void event(Class event, Object[] args) { }
+
+        @Override public boolean equals(Object obj) {
+            return (obj == this) || (((Picky) obj).hashCode() == hashCode());
+        }
+
+        @Override public int hashCode() {
+            return 1;
+        }
+    }
+
+    @Test
+    public void testOffOtherObservers() {
+        EventEmitter e = new EventEmitter();
+        List<Object> got = new ArrayList();
+        EventObserver o = (event, args) -> got.add(args[0]);
+        e.on(A.class, new Picky());
+        e.on(A.class, o);
+        //only the observer removed is asked whether it equals those registered
+        e.off(A.class, o);
+
+        int id = EventEmitter.id(A.class);
+        assertTrue(e.isActive(id));
+        e.on(A.class, o);
+        e.emit(id, A.class, 1);
+        assertEquals(1, got.size());
+    }
+
+    @Test
+    public void testObserverErrorsGoToHandler() throws InterruptedException {
+        EventEmitter e = new EventEmitter();
+        final List<Object> failed = Collections.synchronizedList(new ArrayList());
+        e.setErrorHandler((event, o, ex) -> failed.add(event.getSimpleName() + " " + ex.getMessage()));
+        EventObserver o = (event, args) -> { throw new IllegalStateException("broken"); };
+        
+        e.onAsync(A.class, o);
+        e.emit(A.class, 1);
+        for (int wait = 0; failed.isEmpty() && (wait < 500); wait++)
+            Thread.sleep(10);
+        
+        assertEquals(Collections.singletonList("A broken"), failed);
+        e.stopAsync();
+    }
+
+    @Test
+    public void testAsyncKeepsOrder() throws InterruptedException {
+        EventEmitter e = new EventEmitter();
+        final List<Object> got = Collections.synchronizedList(new ArrayList());
+        final Thread[] on = new Thread[1];
+        EventObserver o = (event, args) -> { got.add(args[0]); on[0] = Thread.currentThread(); };
+        
+        e.onAsync(A.class, o);
+        assertTrue(e.isActive(A.class));
+        
+        int n = 10000; //more than the ring buffer holds
+        for (int i = 0; i < n; i++)
+            e.emit(A.class, i);
+        
+        for (int wait = 0; (got.size() < n) && (wait < 500); wait++)
+            Thread.sleep(10);
+        
+        assertEquals(n, got.size());
+        for (int i = 0; i < n; i++)
+            assertEquals(i, got.get(i));
+        assertTrue(on[0] != Thread.currentThread());
+        
+        e.off(A.class, o);
+        assertFalse(e.isActive(A.class));
+        e.stopAsync();
+    }
+}
@@ -57,7 +57,7 @@ public class HTTPServeFiles extends HTTPServer {
      * Serves file from homeDir and its' subdirectories (only). Uses only URI,
      * ignores all headers and HTTP parameters.
      */
-    public Response serveFile(String uri, Properties header, File homeDir,
+    public static Response serveFile(String uri, Properties header, File homeDir,
             boolean allowDirectoryListing) {
         // Make sure we won't die of an exception later
         if (!homeDir.isDirectory()) {
@@ -134,7 +134,7 @@ abstract public class HTTPServer {
     /**
      * HTTP response. Return one of these from serve().
      */
-    public class Response {
+    public static class Response {
 
         /**
          * Default constructor: response = HTTP_OK, data = mime = 'null'
@@ -0,0 +1,179 @@
+package nars.web;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import nars.NAR;
+import nars.config.Plugins;
+import nars.io.Output.ERR;
+import nars.io.TextOutput;
+import nars.io.TextOutput.LineOutput;
+
+/**
+ * NARs shared by the clients of a server: at most maxSessions sessions, each
+ * with a NAR of its own, which is reset and reused once the session closes.
+ * <p>
+ * The sessions are time sliced over a fixed number of worker threads: every
+ * slice runs a few cycles of one session, then the session is scheduled again
+ * after the slice interval.  Input is applied and output collected on the
+ * worker, and the output of a slice is sent to the client at once, as the
+ * lines separated by newlines.
+ */
+public class NARPool {
+
+    /** where the output of a session goes */
+    public interface Client {
+        public void send(String lines);
+    }
+
+    public final int maxSessions;
+    public final int cyclesPerSlice;
+    public final int sliceIntervalMS;
+
+    private final ScheduledThreadPoolExecutor workers;
+
+    /** NARs of closed sessions, to reuse */
+    private final Deque<Instance> free = new ArrayDeque();
+    private int sessions = 0;
+    private boolean shutdown = false;
+
+    /** a NAR and its output, reused by successive sessions */
+    private static class Instance implements LineOutput {
+        final NAR nar = new NAR(new Plugins());
+        final StringBuilder batch = new StringBuilder();
+
+        Instance() {
+            new TextOutput(nar, this);
+        }
+
+        @Override
+        public void println(final String s) {
+            batch.append(s).append('\n');
+        }
+    }
+
+    /**
+     * @param maxSessions the number of sessions open at the same time
+     * @param workers the number of threads running the sessions
+     * @param cyclesPerSlice the cycles a session runs at a time
+     * @param sliceIntervalMS the time from the end of a slice of a session to its next one
+     */
+    public NARPool(final int maxSessions, final int workers, final int cyclesPerSlice, final int sliceIntervalMS) {
+        this.maxSessions = maxSessions;
+        this.cyclesPerSlice = cyclesPerSlice;
+        this.sliceIntervalMS = sliceIntervalMS;
+        this.workers = new ScheduledThreadPoolExecutor(workers, r -> {
+            final Thread t = new Thread(r, "NARPool worker");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Opens a session for a client
+     *
+     * @return the session, or null if maxSessions are open
+     */
+    public synchronized Session open(final Client client) {
+        if (shutdown || (sessions >= maxSessions))
+            return null;
+        sessions++;
+        final Instance i = free.isEmpty() ? new Instance() : free.pop();
+        final Session s = new Session(i, client);
+        workers.schedule(s::slice, sliceIntervalMS, TimeUnit.MILLISECONDS);
+        return s;
+    }
+
+    public synchronized int getSessions() {
+        return sessions;
+    }
+
+    private synchronized void release(final Instance i) {
+        sessions--;
+        if (!shutdown)
+            free.push(i);
+    }
+
+    /** stops running the sessions */
+    public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+            free.clear();
+        }
+        workers.shutdownNow();
+    }
+
+    /** a client's use of a NAR of the pool */
+    public class Session {
+        private final Instance instance;
+        private final Client client;
+        private final Queue<String> input = new ConcurrentLinkedQueue();
+        private volatile boolean closed = false;
+        private boolean running = false;
+
+        Session(final Instance instance, final Client client) {
+            this.instance = instance;
+            this.client = client;
+        }
+
+        /** input for the NAR, applied at its next slice; the NAR runs from the first input on */
+        public void read(final String message) {
+            if (!closed)
+                input.add(message);
+        }
+
+        /** ends the session, its NAR is reset and reused at its next slice */
+        public void close() {
+            closed = true;
+        }
+
+        public boolean isClosed() {
+            return closed;
+        }
+
+        public NAR getNAR() {
+            return instance.nar;
+        }
+
+        private void slice() {
+            final NAR nar = instance.nar;
+            if (closed) {
+                nar.reset();
+                instance.batch.setLength(0);
+                release(instance);
+                return;
+            }
+
+            try {
+                String message;
+                while ((message = input.poll()) != null) {
+                    nar.addInput(message);
+                    running = true;
+                }
+                if (running)
+                    nar.step(cyclesPerSlice);
+            } catch (RuntimeException e) {
+                //to the client, as the ERR output of its NAR
+                nar.emit(ERR.class, e.toString());
+            }
+
+            if (instance.batch.length() > 0) {
+                instance.batch.setLength(instance.batch.length() - 1);
+                final String lines = instance.batch.toString();
+                instance.batch.setLength(0);
+                try {
+                    client.send(lines);
+                } catch (RuntimeException e) {
+                    //the client is gone: its NAR is released at the next slice
+                    close();
+                }
+            }
+
+            if (!workers.isShutdown())
+                workers.schedule(this::slice, sliceIntervalMS, TimeUnit.MILLISECONDS);
+        }
+    }
+}
@@ -6,10 +6,14 @@ import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import nars.NAR;
 import nars.config.Plugins;
+import nars.web.HTTPServer.Response;
 import org.java_websocket.WebSocket;
 import org.java_websocket.WebSocketImpl;
+import org.java_websocket.framing.CloseFrame;
 import org.java_websocket.handshake.ClientHandshake;
 import org.java_websocket.server.WebSocketServer;
 
@@ -19,6 +23,8 @@ public class NARServer  {
     static final boolean WEBSOCKET_DEBUG = false;
     
     private static int cycleIntervalMS = 50;
+    private static int maxSessions = 64;
+    private static int workers = Runtime.getRuntime().availableProcessors();
     
     class NARSWebSocketServer extends WebSocketServer  {
 
@@ -34,6 +40,15 @@ public class NARServer  {
 
             if (WEBSOCKET_DEBUG) System.out.println("Connect: " + conn.getRemoteSocketAddress().getAddress().getHostAddress());
 
+            if (pool != null) {
+                NARPool.Session s = pool.open(conn::send);
+                if (s == null)
+                    conn.close(CloseFrame.UNEXPECTED_CONDITION, "Too many sessions");
+                else
+                    pooledSession.put(conn, s);
+                return;
+            }
+
             final NARConnection n = new NARConnection(new NAR(), cycleIntervalMS) {
                 @Override public void println(String output) {
                     conn.send(output);
@@ -47,6 +62,10 @@ public class NARServer  {
         public void onClose(WebSocket conn, int code, String reason, boolean remote) {
             if (WEBSOCKET_DEBUG) System.out.println(conn + " disconnected");
 
+            NARPool.Session s = pooledSession.remove(conn);
+            if (s != null)
+                s.close();
+
             NARConnection n = socketSession.get(conn);
             if (n!=null) {
                 n.stop();
@@ -57,6 +76,12 @@ public class NARServer  {
         @Override
         public void onMessage(WebSocket conn, String message) {
 
+            NARPool.Session s = pooledSession.get(conn);
+            if (s != null) {
+                s.read(message);
+                return;
+            }
+
             NARConnection n = socketSession.get(conn);
             if (n!=null) {
                 n.read(message);
@@ -76,8 +101,12 @@ public class NARServer  {
     
     final NARSWebSocketServer websockets;
     private final Map<WebSocket, NARConnection> socketSession = new HashMap();
+    private final Map<WebSocket, NARPool.Session> pooledSession = new ConcurrentHashMap();
+    final NARPool pool;
 
+    /** a NAR and a thread for each client, and a thread for each HTTP request */
     public NARServer(int httpPort, int webSocketsPort) throws UnknownHostException, IOException {
+        pool = null;
         websockets = new NARSWebSocketServer(new InetSocketAddress(webSocketsPort));
         websockets.start();
         
@@ -85,6 +114,21 @@ public class NARServer  {
         
     }
 
+    /** clients served by the NARs of the pool, and HTTP over NIO */
+    public NARServer(int httpPort, int webSocketsPort, NARPool pool) throws UnknownHostException, IOException {
+        this.pool = pool;
+        websockets = new NARSWebSocketServer(new InetSocketAddress(webSocketsPort));
+        websockets.start();
+
+        final File root = new File("nars_web/client");
+        new NIOHTTPServer(httpPort) {
+            @Override
+            public Response serve(String uri, String method, Properties header, Properties parms) {
+                return HTTPServeFiles.serveFile(uri, header, root, true);
+            }
+        };
+    }
+
 
 
     public static void main(String[] args) throws Exception {
@@ -96,7 +140,8 @@ public class NARServer  {
         int nlpPort = 0;
         
         if (args.length < 1) {
-            System.out.println("Usage: NARServer <httpPort> [nlpHost nlpPort] [cycleIntervalMS]");
+            System.out.println("Usage: NARServer <httpPort> [nlpHost nlpPort] [cycleIntervalMS] [maxSessions] [workers]");
+            System.out.println("  maxSessions 0: a NAR and a thread for each client");
             
             return;
         }
@@ -113,12 +158,22 @@ public class NARServer  {
             if (args.length >= 4) {
                 cycleIntervalMS = Integer.parseInt(args[3]);
             }
+            if (args.length >= 5) {
+                maxSessions = Integer.parseInt(args[4]);
+            }
+            if (args.length >= 6) {
+                workers = Integer.parseInt(args[5]);
+            }
         }
                 
-        NARServer s = new NARServer(httpPort, wsPort);
+        NARServer s = maxSessions > 0 ?
+                new NARServer(httpPort, wsPort, new NARPool(maxSessions, workers, 1, cycleIntervalMS)) :
+                new NARServer(httpPort, wsPort);
         
         System.out.println("NARS Web Server ready. port: " + httpPort + ", websockets port: " + wsPort);
         System.out.println("  Cycle interval (ms): " + cycleIntervalMS);
+        if (maxSessions > 0)
+            System.out.println("  Sessions: " + maxSessions + ", workers: " + workers);
         /*if (nlp!=null) {
             System.out.println("  NLP enabled, using: " + nlpHost + ":" + nlpPort);            
         }*/
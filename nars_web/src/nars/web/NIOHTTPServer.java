@@ -0,0 +1,491 @@
+package nars.web;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.StringTokenizer;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import nars.web.HTTPServer.Response;
+import static nars.web.HTTPServer.HTTP_BADREQUEST;
+import static nars.web.HTTPServer.HTTP_INTERNALERROR;
+import static nars.web.HTTPServer.MIME_PLAINTEXT;
+
+/**
+ * HTTP/1.1 server on a single selector thread, with the serve() of HTTPServer.
+ * <p>
+ * Connections are kept alive, up to maxRequestsPerConnection requests each,
+ * and closed after idleTimeoutMS without any traffic. No address may have
+ * more than maxConnectionsPerAddress connections open, and requests, headers
+ * and content together, are limited to maxRequestBytes.
+ * <p>
+ * serve(), and the reading of the response bodies other than those in memory,
+ * run on a pool of worker threads, so that blocking file I/O does not hold up
+ * the other connections; the selector thread only does the network I/O.
+ */
+abstract public class NIOHTTPServer implements Runnable {
+
+    public static final String HTTP_TOOLARGE = "413 Request Entity Too Large",
+            HTTP_UNAVAILABLE = "503 Service Unavailable";
+
+    public volatile int maxConnectionsPerAddress = 32;
+    public volatile int maxRequestsPerConnection = 1000;
+    public volatile int maxRequestBytes = 16 * 1024;
+    public volatile int idleTimeoutMS = 30000;
+
+    private static final int CHUNK_SIZE = 8192;
+
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final ExecutorService workers;
+    /** what the workers leave for the selector thread to do */
+    private final Queue<Runnable> pending = new ConcurrentLinkedQueue();
+    private final Map<InetAddress, Integer> connections = new HashMap();
+    private final SimpleDateFormat gmtFrmt = new SimpleDateFormat("E, d MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+
+    /** @see HTTPServer#serve */
+    abstract public Response serve(String uri, String method, Properties header, Properties parms);
+
+    /**
+     * Starts serving on the port, or on any free port if it is 0, with a
+     * worker thread per processor
+     */
+    public NIOHTTPServer(int port) throws IOException {
+        this(port, Runtime.getRuntime().availableProcessors());
+    }
+
+    public NIOHTTPServer(int port, int workerThreads) throws IOException {
+        gmtFrmt.setTimeZone(TimeZone.getTimeZone("GMT"));
+        workers = Executors.newFixedThreadPool(workerThreads, r -> {
+            Thread w = new Thread(r, "NIOHTTPServer worker");
+            w.setDaemon(true);
+            return w;
+        });
+
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+
+        Thread t = new Thread(this, "NIOHTTPServer");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    public void close() throws IOException {
+        workers.shutdownNow();
+        selector.close();
+        server.close();
+    }
+
+    /** runs r on the selector thread, for a worker */
+    private void onSelector(final Runnable r) {
+        pending.add(r);
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (selector.isOpen()) {
+                selector.select(1000);
+
+                Runnable p;
+                while ((p = pending.poll()) != null)
+                    p.run();
+
+                Iterator<SelectionKey> i = selector.selectedKeys().iterator();
+                while (i.hasNext()) {
+                    SelectionKey k = i.next();
+                    i.remove();
+                    if (!k.isValid())
+                        continue;
+                    try {
+                        if (k.isAcceptable())
+                            accept();
+                        else if (k.isReadable())
+                            ((Connection) k.attachment()).read();
+                        else if (k.isWritable())
+                            ((Connection) k.attachment()).write();
+                    } catch (IOException | RuntimeException e) {
+                        //only this connection fails
+                        if (k.attachment() != null)
+                            ((Connection) k.attachment()).close();
+                    }
+                }
+
+                final long now = System.currentTimeMillis();
+                for (SelectionKey k : selector.keys()) {
+                    Connection c = (Connection) k.attachment();
+                    if ((c != null) && !c.busy && (now - c.lastActive > idleTimeoutMS))
+                        c.close();
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel ch = server.accept();
+        if (ch == null)
+            return;
+        ch.configureBlocking(false);
+        InetAddress addr = ((InetSocketAddress) ch.getRemoteAddress()).getAddress();
+
+        int open = connections.getOrDefault(addr, 0);
+        if (open >= maxConnectionsPerAddress) {
+            try {
+                ch.write(ByteBuffer.wrap(("HTTP/1.1 " + HTTP_UNAVAILABLE + " \r\nContent-Length: 0\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1)));
+            } catch (IOException e) {
+            }
+            ch.close();
+            return;
+        }
+        connections.put(addr, open + 1);
+
+        Connection c = new Connection(ch, addr);
+        c.key = ch.register(selector, SelectionKey.OP_READ, c);
+    }
+
+    /** a client connection, reading requests then writing their responses in turn */
+    private class Connection {
+
+        final SocketChannel ch;
+        final InetAddress addr;
+        SelectionKey key;
+        final ByteBuffer in = ByteBuffer.allocate(maxRequestBytes);
+        long lastActive = System.currentTimeMillis();
+        int requests = 0;
+        boolean closed = false, draining = false;
+        /** while a worker serves the request or reads the body */
+        volatile boolean busy = false;
+
+        /** the response being written */
+        ByteBuffer out;
+        InputStream body;
+        boolean chunked, keepAlive;
+
+        Connection(SocketChannel ch, InetAddress addr) {
+            this.ch = ch;
+            this.addr = addr;
+        }
+
+        void read() throws IOException {
+            if (draining)
+                in.clear();
+            if (ch.read(in) < 0) {
+                close();
+                return;
+            }
+            lastActive = System.currentTimeMillis();
+            if (!draining)
+                request();
+        }
+
+        /** serves the request at the start of the input, if it has been read all */
+        void request() throws IOException {
+            final byte[] b = in.array();
+            final int end = in.position();
+            int headerEnd = -1;
+            for (int i = 3; i < end; i++) {
+                if (b[i] == '\n' && b[i - 1] == '\r' && b[i - 2] == '\n' && b[i - 3] == '\r') {
+                    headerEnd = i + 1;
+                    break;
+                }
+            }
+            if (headerEnd < 0) {
+                if (!in.hasRemaining())
+                    error(HTTP_TOOLARGE, "Request too large");
+                return;
+            }
+
+            String[] lines = new String(b, 0, headerEnd - 4, StandardCharsets.ISO_8859_1).split("\r\n");
+            StringTokenizer st = new StringTokenizer(lines[0]);
+            if (st.countTokens() < 2) {
+                error(HTTP_BADREQUEST, "BAD REQUEST: Syntax error. Usage: GET /example/file.html");
+                return;
+            }
+            String method = st.nextToken();
+            String uri = st.nextToken();
+            String version = st.hasMoreTokens() ? st.nextToken() : "HTTP/1.0";
+
+            Properties header = new Properties();
+            for (int i = 1; i < lines.length; i++) {
+                int p = lines[i].indexOf(':');
+                if (p > 0)
+                    header.put(lines[i].substring(0, p).trim().toLowerCase(), lines[i].substring(p + 1).trim());
+            }
+
+            int length = 0;
+            String contentLength = header.getProperty("content-length");
+            if (contentLength != null) {
+                try {
+                    length = Integer.parseInt(contentLength);
+                } catch (NumberFormatException e) {
+                    length = -1;
+                }
+                if (length < 0) {
+                    error(HTTP_BADREQUEST, "BAD REQUEST: Bad Content-Length.");
+                    return;
+                }
+            }
+            if (length > in.capacity() - headerEnd) {
+                error(HTTP_TOOLARGE, "Request too large");
+                return;
+            }
+            if (headerEnd + length > end)
+                return;
+
+            Properties parms = new Properties();
+            try {
+                int qmi = uri.indexOf('?');
+                if (qmi >= 0) {
+                    decodeParms(uri.substring(qmi + 1), parms);
+                    uri = uri.substring(0, qmi);
+                }
+                uri = URLDecoder.decode(uri, "UTF-8");
+                if (method.equalsIgnoreCase("POST"))
+                    parms.setProperty("content", URLDecoder.decode(new String(b, headerEnd, length, StandardCharsets.UTF_8).trim(), "UTF-8"));
+            } catch (IllegalArgumentException e) {
+                error(HTTP_BADREQUEST, "BAD REQUEST: Bad percent-encoding.");
+                return;
+            }
+
+            //leave any pipelined request for after the response
+            in.limit(end).position(headerEnd + length);
+            in.compact();
+
+            String connection = header.getProperty("connection", "");
+            keepAlive = (++requests < maxRequestsPerConnection)
+                    && (version.equals("HTTP/1.1") ? !connection.equalsIgnoreCase("close") : connection.equalsIgnoreCase("keep-alive"));
+
+            final String u = uri;
+            final boolean headOnly = method.equalsIgnoreCase("HEAD");
+            key.interestOps(0);
+            busy = true;
+            workers.execute(() -> {
+                Response r;
+                try {
+                    r = serve(u, method, header, parms);
+                    if (r == null)
+                        r = new Response(HTTP_INTERNALERROR, MIME_PLAINTEXT, "SERVER INTERNAL ERROR: Serve() returned a null response.");
+                } catch (RuntimeException e) {
+                    r = new Response(HTTP_INTERNALERROR, MIME_PLAINTEXT, "SERVER INTERNAL ERROR: " + e);
+                }
+                final Response served = r;
+                onSelector(() -> {
+                    busy = false;
+                    if (closed)
+                        return;
+                    try {
+                        respond(served, headOnly);
+                    } catch (IOException | RuntimeException e) {
+                        close();
+                    }
+                });
+            });
+        }
+
+        void error(String status, String msg) throws IOException {
+            keepAlive = false;
+            respond(new Response(status, MIME_PLAINTEXT, msg), false);
+        }
+
+        void respond(Response r, boolean headOnly) throws IOException {
+            long length = -1;
+            if (r.data == null)
+                length = 0;
+            else if (r.data instanceof ByteArrayInputStream)
+                length = r.data.available();
+            for (String k : r.header.stringPropertyNames()) {
+                if (k.equalsIgnoreCase("content-length")) {
+                    try {
+                        length = Long.parseLong(r.header.getProperty(k).trim());
+                    } catch (NumberFormatException e) {
+                    }
+                }
+            }
+
+            StringBuilder h = new StringBuilder(256);
+            h.append("HTTP/1.1 ").append(r.status).append(" \r\n");
+            if (r.mimeType != null)
+                h.append("Content-Type: ").append(r.mimeType).append("\r\n");
+            if (r.header.getProperty("Date") == null)
+                h.append("Date: ").append(gmtFrmt.format(new Date())).append("\r\n");
+            Enumeration e = r.header.keys();
+            while (e.hasMoreElements()) {
+                String k = (String) e.nextElement();
+                if (!k.equalsIgnoreCase("content-length"))
+                    h.append(k).append(": ").append(r.header.getProperty(k)).append("\r\n");
+            }
+            chunked = length < 0;
+            if (chunked)
+                h.append("Transfer-Encoding: chunked\r\n");
+            else
+                h.append("Content-Length: ").append(length).append("\r\n");
+            h.append(keepAlive ? "Connection: keep-alive\r\n" : "Connection: close\r\n");
+            h.append("\r\n");
+
+            out = ByteBuffer.wrap(h.toString().getBytes(StandardCharsets.ISO_8859_1));
+            if (headOnly) {
+                chunked = false;
+                if (r.data != null)
+                    r.data.close();
+            } else
+                body = r.data;
+
+            key.interestOps(SelectionKey.OP_WRITE);
+            write();
+        }
+
+        void write() throws IOException {
+            while (true) {
+                if (out.hasRemaining()) {
+                    ch.write(out);
+                    lastActive = System.currentTimeMillis();
+                    if (out.hasRemaining())
+                        return;
+                }
+                if ((body != null) && !(body instanceof ByteArrayInputStream)) {
+                    //may block: read by a worker, then written from here
+                    key.interestOps(0);
+                    busy = true;
+                    workers.execute(() -> {
+                        boolean more;
+                        try {
+                            more = next();
+                        } catch (IOException | RuntimeException e) {
+                            onSelector(() -> { busy = false; close(); });
+                            return;
+                        }
+                        final boolean hasMore = more;
+                        onSelector(() -> {
+                            busy = false;
+                            if (closed)
+                                return;
+                            try {
+                                if (hasMore) {
+                                    key.interestOps(SelectionKey.OP_WRITE);
+                                    write();
+                                }
+                                else
+                                    done();
+                            } catch (IOException | RuntimeException e) {
+                                close();
+                            }
+                        });
+                    });
+                    return;
+                }
+                if (!next())
+                    break;
+            }
+            done();
+        }
+
+        /** the response was written all */
+        void done() throws IOException {
+
+            //response done; before closing, discard what the client still sends
+            //so that it does not get a reset instead of the response
+            key.interestOps(SelectionKey.OP_READ);
+            if (!keepAlive) {
+                ch.shutdownOutput();
+                draining = true;
+                return;
+            }
+            if (in.position() > 0)
+                request();
+        }
+
+        /** the next part of the body into out, or false at its end */
+        boolean next() throws IOException {
+            if (body == null)
+                return false;
+            byte[] buf = new byte[CHUNK_SIZE];
+            int n = body.read(buf);
+            if (n <= 0) {
+                body.close();
+                body = null;
+                if (chunked) {
+                    chunked = false;
+                    out = ByteBuffer.wrap("0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                    return true;
+                }
+                return false;
+            }
+            if (chunked) {
+                byte[] size = (Integer.toHexString(n) + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+                out = ByteBuffer.allocate(size.length + n + 2);
+                out.put(size).put(buf, 0, n).put((byte) '\r').put((byte) '\n');
+                out.flip();
+            } else
+                out = ByteBuffer.wrap(buf, 0, n);
+            return true;
+        }
+
+        void close() {
+            if (closed)
+                return;
+            closed = true;
+            key.cancel();
+            try {
+                ch.close();
+            } catch (IOException e) {
+            }
+            if (body != null) {
+                try {
+                    body.close();
+                } catch (IOException e) {
+                }
+            }
+            int open = connections.getOrDefault(addr, 1) - 1;
+            if (open > 0)
+                connections.put(addr, open);
+            else
+                connections.remove(addr);
+        }
+    }
+
+    /**
+     * Decodes parameters in percent-encoded URI-format ( e.g.
+     * "name=Jack%20Daniels&pass=Single%20Malt" ) and adds them to given
+     * Properties.
+     */
+    private static void decodeParms(String parms, Properties p) throws UnsupportedEncodingException {
+        StringTokenizer st = new StringTokenizer(parms, "&");
+        while (st.hasMoreTokens()) {
+            String e = st.nextToken();
+            int sep = e.indexOf('=');
+            if (sep >= 0)
+                p.put(URLDecoder.decode(e.substring(0, sep), "UTF-8").trim(), URLDecoder.decode(e.substring(sep + 1), "UTF-8"));
+        }
+    }
+}